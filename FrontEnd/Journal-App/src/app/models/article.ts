@@ -13,4 +13,13 @@ export interface Article {
     backgroundColor: string;
     read: boolean;
     newsletter?: Newsletter;
+    // Champs à plat renvoyés par les listes d'articles (ArticleSummary)
+    newsletterId?: number;
+    newsletterTitle?: string;
+    newsletterBackgroundColor?: string;
+    authorId?: number;
+    authorName?: string;
+    // Compteurs de commentaires dénormalisés sur l'article
+    commentCount?: number;
+    lastCommentAt?: string;
 }
@@ -1,6 +1,9 @@
 export interface Image {
     imageId: number;      // ID de l'image (généré par le backend)
-    imagePath: string;    // Contenu encodé en Base64
+    imagePath?: string;   // Contenu encodé en Base64 (uniquement à l'envoi)
     articleId: number;    // ID de l'article associé
+    url?: string;         // Adresse du contenu binaire de l'image (à la lecture)
+    thumbnailUrl?: string; // Copie réduite (320 px) pour les vignettes
+    previewUrl?: string;   // Copie réduite (640 px) pour l'affichage détaillé
   }
   
\ No newline at end of file
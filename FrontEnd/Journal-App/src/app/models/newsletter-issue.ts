@@ -0,0 +1,43 @@
+// Numéro complet d'une newsletter, renvoyé en une seule requête par GET /newsletters/{id}/issue
+export interface NewsletterIssueImage {
+    imageId: number;
+    url: string;
+    thumbnailUrl: string;
+    previewUrl: string;
+}
+
+export interface NewsletterIssueArticle {
+    articleId: number;
+    title: string;
+    content: string;
+    publicationDate?: string;
+    longitude: number;
+    latitude: number;
+    authorId: number;
+    authorName: string;
+    images: NewsletterIssueImage[];
+}
+
+export interface NewsletterIssueStyle {
+    backgroundColor?: string;
+    titleFont?: string;
+    titleFontSize?: number;
+    titleColor?: string;
+    titleBold?: boolean;
+    titleUnderline?: boolean;
+    subtitleFont?: string;
+    subtitleFontSize?: number;
+    subtitleColor?: string;
+    subtitleBold?: boolean;
+    subtitleItalic?: boolean;
+    textAlign?: string;
+}
+
+export interface NewsletterIssue {
+    newsletterId: number;
+    title: string;
+    subtitle: string;
+    publicationDate: string;
+    style: NewsletterIssueStyle;
+    articles: NewsletterIssueArticle[];
+}
@@ -23,7 +23,7 @@ export class ArticleService {
 
   // Récupérer les articles associés à un éditeur via son ID
   getArticlesByEditorId(editorId: number): Observable<Article[]> {
-    const url = `${this.apiUrl}/by-editor/${editorId}`;
+    const url = `${this.apiUrl}/by-editor/${editorId}?unpaged=true`;
     return this.http.get<Article[]>(url);
   }
 
@@ -39,7 +39,7 @@ export class ArticleService {
 
   // Récupérer tous les articles
   getArticles(): Observable<Article[]> {
-    const url = `${this.apiUrl}/all`;
+    const url = `${this.apiUrl}/all?unpaged=true`;
     return this.http.get<Article[]>(url);
   }
 
@@ -82,15 +82,27 @@ export class ArticleService {
     );
   }
 
+  // Récupérer les titres de newsletter de plusieurs articles en une seule requête (500 IDs maximum)
+  getNewsletterTitlesByArticleIds(articleIds: number[]): Observable<Record<number, string | null>> {
+    const url = `${this.apiUrl}/newsletter-titles?ids=${articleIds.join(',')}`;
+    return this.http.get<Record<number, string | null>>(url);
+  }
+
+  // Récupérer les noms d'auteur de plusieurs articles en une seule requête (500 IDs maximum)
+  getAuthorNamesByArticleIds(articleIds: number[]): Observable<Record<number, string>> {
+    const url = `${this.apiUrl}/author-names?ids=${articleIds.join(',')}`;
+    return this.http.get<Record<number, string>>(url);
+  }
+
   // Récupérer les articles valides
   getAvailableArticles(): Observable<Article[]> {
-    const url = `${this.apiUrl}/available`;
+    const url = `${this.apiUrl}/available?unpaged=true`;
     return this.http.get<Article[]>(url);
   }
 
   // Récupérer les articles invalides
   getUnavailableArticles(): Observable<Article[]> {
-    const url = `${this.apiUrl}/unavailable`;
+    const url = `${this.apiUrl}/unavailable?unpaged=true`;
     return this.http.get<Article[]>(url);
   }
 
@@ -106,6 +118,12 @@ export class ArticleService {
     return this.http.patch<void>(url, {});
   }
 
+  // Marquer plusieurs articles comme lus en une seule requête
+  markAllAsRead(articleIds: number[]): Observable<{ message: string; count: number }> {
+    const url = `${this.apiUrl}/mark-read`;
+    return this.http.patch<{ message: string; count: number }>(url, articleIds);
+  }
+
   // Marquer un article comme non lu
   markAsUnread(articleId: number): Observable<void> {
     const url = `${this.apiUrl}/${articleId}/mark-unread`;
@@ -128,9 +146,9 @@ export class ArticleService {
     );
   }
 
-  // Récupérer les articles lus par l'utilisateur
-  getReadArticles(): Observable<Article[]> {
-    const url = `${this.apiUrl}/read`;
+  // Récupérer les articles lus par l'utilisateur (les plus récemment lus d'abord, page par page)
+  getReadArticles(page: number = 0, size: number = 100): Observable<Article[]> {
+    const url = `${this.apiUrl}/read?page=${page}&size=${size}`;
     return this.http.get<Article[]>(url).pipe(
       tap(() => console.log('Fetching read articles'))
     );
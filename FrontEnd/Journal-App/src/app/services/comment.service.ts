@@ -14,11 +14,11 @@ export class CommentService {
 
 
   getAllComments(): Observable<Comments[]> {
-    return this.http.get<Comments[]>(`${this.baseUrl}`);
+    return this.http.get<Comments[]>(`${this.baseUrl}?unpaged=true`);
   }
 
   getAllCommentsmap(): Observable<Commentmap[]> {
-    return this.http.get<Commentmap[]>(`${this.baseUrl}`);
+    return this.http.get<Commentmap[]>(`${this.baseUrl}?unpaged=true`);
   }
   
   deleteComment(id: number): Observable<void> {
@@ -40,6 +40,6 @@ export class CommentService {
   }
    // Nouvelle méthode pour obtenir les commentaires par article ID
    getCommentsByArticleId(articleId: number): Observable<Commentmap[]> {
-    return this.http.get<Commentmap[]>(`${this.baseUrl}/article/${articleId}`);
+    return this.http.get<Commentmap[]>(`${this.baseUrl}/article/${articleId}?unpaged=true`);
   }
 }
@@ -2,6 +2,7 @@
 import { Injectable } from "@angular/core";
 import { HttpClient  } from "@angular/common/http";
 import { Observable } from "rxjs";
+import { map } from "rxjs/operators";
 import { Image } from "../models/image";
 
 @Injectable({
@@ -10,13 +11,22 @@ import { Image } from "../models/image";
 
 export class ImageService {
 
-    private apiUrl = 'http://localhost:8080/images';
+    private serverUrl = 'http://localhost:8080';
+    private apiUrl = `${this.serverUrl}/images`;
 
     constructor(private http:HttpClient ){}
 
     
     getImagesByArticleId(articleId: number): Observable<Image[]> {
-        return this.http.get<Image[]>(`${this.apiUrl}/article/${articleId}`);
+        // Le backend ne renvoie que des références : on complète l'URL pour les balises <img>
+        return this.http.get<Image[]>(`${this.apiUrl}/article/${articleId}`).pipe(
+            map((images) => images.map((image) => ({
+                ...image,
+                url: `${this.serverUrl}${image.url}`,
+                thumbnailUrl: `${this.serverUrl}${image.thumbnailUrl}`,
+                previewUrl: `${this.serverUrl}${image.previewUrl}`,
+            })))
+        );
     }
 
     addImage(image: Image): Observable<Image> {
@@ -0,0 +1,32 @@
+import { Injectable, NgZone } from '@angular/core';
+import { Observable } from 'rxjs';
+
+export interface LiveEvent<T = any> {
+  type: string;
+  data: T;
+}
+
+@Injectable({
+  providedIn: 'root',
+})
+export class LiveEventsService {
+  private baseUrl = 'http://localhost:8080/events'; // Flux Server-Sent Events du backend
+
+  constructor(private zone: NgZone) {}
+
+  // Topics : 'article:<id>' (nouveaux commentaires), 'newsletter:<id>' ou 'articles' (articles validés).
+  // EventSource se reconnecte seul ; les événements manqués pendant la coupure ne sont pas renvoyés,
+  // il faut recharger la liste à chaque événement 'subscribed'.
+  events<T = any>(topics: string[], types: string[]): Observable<LiveEvent<T>> {
+    return new Observable<LiveEvent<T>>((subscriber) => {
+      const source = new EventSource(`${this.baseUrl}?topics=${encodeURIComponent(topics.join(','))}`);
+      for (const type of ['subscribed', ...types]) {
+        source.addEventListener(type, (event) => {
+          const data = JSON.parse((event as MessageEvent).data);
+          this.zone.run(() => subscriber.next({ type, data }));
+        });
+      }
+      return () => source.close();
+    });
+  }
+}
@@ -2,6 +2,7 @@ import { HttpClient } from '@angular/common/http';
 import { Injectable } from '@angular/core';
 import { Observable } from 'rxjs';
 import { Newsletter } from '../models/newsletter';
+import { NewsletterIssue } from '../models/newsletter-issue';
 
 @Injectable({
   providedIn: 'root'
@@ -39,6 +40,11 @@ export class ManageNewsletterService {
     return this.http.get<Newsletter>(`${this.apiUrl}/${id}`);
   }
 
+  // Récupérer en une requête la mise en forme et les articles valides d'une newsletter (auteurs et images compris)
+  getNewsletterIssue(id: number): Observable<NewsletterIssue> {
+    return this.http.get<NewsletterIssue>(`${this.apiUrl}/${id}/issue`);
+  }
+
   // Récupérer toutes les newsletters auxquelles un journaliste est associé
   getNewslettersForJournalist(userId: number): Observable<Newsletter[]> {
     const url = `${this.apiUrl}/journalist/${userId}`;
@@ -67,8 +67,11 @@ export class ViewMyArticlesComponent implements OnInit {
     const newslettersMap: { [key: number]: Newsletter } = {};
   
     articles.forEach((article) => {
-      if (article.newsletter) {
-        newslettersMap[article.newsletter.newsletterId] = article.newsletter;
+      if (article.newsletterId) {
+        newslettersMap[article.newsletterId] = {
+          newsletterId: article.newsletterId,
+          title: article.newsletterTitle,
+        } as Newsletter;
       }
     });
   
@@ -79,7 +82,7 @@ export class ViewMyArticlesComponent implements OnInit {
     console.log("Newsletter sélectionnée :", this.selectedNewsletterId);
     this.filteredArticles = this.myArticles.filter(
       (article) =>
-        article.newsletter?.newsletterId === Number(this.selectedNewsletterId)
+        article.newsletterId === Number(this.selectedNewsletterId)
     );
     console.log("Articles filtrés :", this.filteredArticles);
   }
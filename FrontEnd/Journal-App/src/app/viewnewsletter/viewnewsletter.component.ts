@@ -33,9 +33,36 @@ export class ViewnewsletterComponent implements OnInit {
 
   ngOnInit(): void {
     const newsletterId = +localStorage.getItem('seeidnewsletter')!;
-    this.getnewsletter(newsletterId);
     const fromArticleDetail = localStorage.getItem('fromArticleDetail');
     this.isButtonVisible = fromArticleDetail !== 'ok';
+    if (this.isButtonVisible) {
+      this.getnewsletter(newsletterId);
+    } else {
+      this.getissue(newsletterId);
+    }
+  }
+
+  // Lecture seule : le numéro complet est récupéré en une seule requête
+  getissue(id: number): void {
+    this.newsletterService.getNewsletterIssue(id).subscribe(
+      (issue) => {
+        this.newsletter = {
+          ...issue.style,
+          newsletterId: issue.newsletterId,
+          title: issue.title,
+          subtitle: issue.subtitle,
+          publicationDate: issue.publicationDate as unknown as Date,
+          journalists: []
+        };
+        this.addedArticles = issue.articles.map((article) => ({
+          ...article,
+          publicationDate: article.publicationDate as unknown as Date,
+          valid: true,
+          newsletterId: issue.newsletterId
+        }) as unknown as Article);
+      },
+      (error) => console.error('Erreur lors de la récupération de la newsletter:', error)
+    );
   }
 
   getnewsletter(id: number): void {
@@ -45,11 +72,11 @@ export class ViewnewsletterComponent implements OnInit {
         this.articleService.getArticles().subscribe(
           (articles) => {
             this.addedArticles = articles.filter(
-              (article) => article.newsletter?.newsletterId === id 
+              (article) => article.newsletterId === id 
               
             );console.log(articles)
             this.validArticles = articles.filter(
-              (article) => article.valid && article.newsletter?.newsletterId === id
+              (article) => article.valid && article.newsletterId === id
             );
 
             
@@ -73,7 +100,7 @@ export class ViewnewsletterComponent implements OnInit {
   addArticleToNewsletter(article: Article): void {
     if (this.newsletter) {
      
-      if (article.newsletter && article.newsletter.newsletterId !== this.newsletter.newsletterId) {
+      if (article.newsletterId && article.newsletterId !== this.newsletter.newsletterId) {
        
         this.articleToConfirm = article;
        
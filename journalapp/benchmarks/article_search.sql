@@ -0,0 +1,43 @@
+-- Full-text search benchmark for GET /articles/search.
+--
+-- Run against a disposable database created by the application (so that the article table,
+-- its search_vector column and the GIN index exist), e.g. with the docker-compose PostgreSQL:
+--   psql -h localhost -p 5433 -U postgres -d journalapp_bench -f benchmarks/article_search.sql
+--
+-- It loads one million synthetic valid articles, then times the ranked ID query used by
+-- ArticleRepository.searchValidArticleIds for a few typical search-box inputs.
+
+\timing on
+
+INSERT INTO users (first_name, last_name, email, is_authorized, is_role_change, keycloak_id, role_id)
+SELECT 'Bench', 'Author', 'bench@example.com', true, false, 'bench', (SELECT min(role_id) FROM role)
+WHERE NOT EXISTS (SELECT 1 FROM users WHERE keycloak_id = 'bench');
+
+INSERT INTO article (title, content, publication_date, longitude, latitude, valid, read, user_id)
+SELECT 'Article ' || g || ' ' || (ARRAY['politique', 'sport', 'culture', 'economie', 'meteo'])[1 + g % 5],
+       repeat('lorem ipsum dolor sit amet ', 20) || (ARRAY['election', 'football', 'concert', 'bourse', 'orage'])[1 + g % 5]
+           || ' mot' || (g % 10000),
+       '2024-01-01', 4.0, 50.0, true, false,
+       (SELECT user_id FROM users WHERE keycloak_id = 'bench')
+FROM generate_series(1, 1000000) AS g;
+
+ANALYZE article;
+
+-- Rare term (a few hundred matches), common term (200k matches) and a prefix while typing.
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT a.article_id FROM article a
+WHERE a.valid = true AND a.search_vector @@ to_tsquery('simple', 'mot4242:*')
+ORDER BY ts_rank(a.search_vector, to_tsquery('simple', 'mot4242:*')) DESC, a.article_id DESC
+LIMIT 20 OFFSET 0;
+
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT a.article_id FROM article a
+WHERE a.valid = true AND a.search_vector @@ to_tsquery('simple', 'sport & football:*')
+ORDER BY ts_rank(a.search_vector, to_tsquery('simple', 'sport & football:*')) DESC, a.article_id DESC
+LIMIT 20 OFFSET 0;
+
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT a.article_id FROM article a
+WHERE a.valid = true AND a.search_vector @@ to_tsquery('simple', 'elec:*')
+ORDER BY ts_rank(a.search_vector, to_tsquery('simple', 'elec:*')) DESC, a.article_id DESC
+LIMIT 20 OFFSET 0;
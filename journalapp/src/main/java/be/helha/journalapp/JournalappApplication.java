@@ -2,14 +2,25 @@ package be.helha.journalapp;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
 import org.springframework.scheduling.annotation.EnableScheduling;
 
+import java.util.Map;
+
 @EnableScheduling
 @SpringBootApplication
 public class JournalappApplication {
 
 	public static void main(String[] args) {
-		SpringApplication.run(JournalappApplication.class, args);
+		SpringApplication application = new SpringApplication(JournalappApplication.class);
+		// Durée de chaque étape du démarrage, consultable via /actuator/startup (réservé aux administrateurs)
+		application.setApplicationStartup(new BufferingApplicationStartup(2048));
+		// La sonde de disponibilité attend la fin de l'initialisation en arrière-plan (ApplicationBootstrap)
+		application.setDefaultProperties(Map.of(
+				"management.endpoints.web.exposure.include", "health,startup",
+				"management.endpoint.health.probes.enabled", "true",
+				"management.endpoint.health.group.readiness.include", "readinessState,applicationBootstrap"));
+		application.run(args);
 		System.out.println("Application started successfully!");
 	}
 }
@@ -0,0 +1,52 @@
+package be.helha.journalapp.config;
+
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates the threads of the executors owned by the services.
+ * <p>
+ * Executors whose tasks mostly wait on the network (SMTP, Keycloak admin API) follow the execution mode of the
+ * application: with {@code spring.threads.virtual.enabled=true} on Java 21 or later, Spring Boot runs the Tomcat
+ * requests, {@code @Scheduled} and {@code @Async} tasks on virtual threads, and so do these executors. Their pool
+ * sizes still bound how many calls are made at the same time. Otherwise, and for CPU-bound work, they use
+ * platform daemon threads.
+ */
+public final class BackgroundThreads {
+
+    private BackgroundThreads() {
+    }
+
+    /**
+     * Returns a factory of threads for tasks that block on I/O.
+     *
+     * @param environment The environment telling whether virtual threads are enabled.
+     * @param prefix      The prefix of the thread names, followed by a counter.
+     * @return Virtual threads if enabled and supported, platform daemon threads otherwise.
+     */
+    public static ThreadFactory forBlockingIo(Environment environment, String prefix) {
+        if (Threading.VIRTUAL.isActive(environment)) {
+            return new VirtualThreadTaskExecutor(prefix).getVirtualThreadFactory();
+        }
+        return daemon(prefix);
+    }
+
+    /**
+     * Returns a factory of platform daemon threads, which do not prevent the JVM from stopping.
+     *
+     * @param prefix The prefix of the thread names, followed by a counter.
+     * @return The factory.
+     */
+    public static ThreadFactory daemon(String prefix) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
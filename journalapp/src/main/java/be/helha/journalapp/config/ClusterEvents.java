@@ -0,0 +1,187 @@
+package be.helha.journalapp.config;
+
+import jakarta.annotation.PreDestroy;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * Relays short messages between the nodes of the cluster, for state that every replica keeps in memory
+ * (live event subscriptions, caches).
+ * <p>
+ * On PostgreSQL the messages are sent with {@code NOTIFY} and received by a single thread per node, listening on a
+ * connection of the pool that it keeps open. A message published inside a transaction is only sent once the
+ * transaction commits, and not at all if it rolls back. Messages are not replayed: a node that loses its listening
+ * connection misses the messages sent until it reconnects. Other databases (e.g. the embedded test database) mean
+ * a single node, so nothing is relayed.
+ * <p>
+ * Listeners only receive the messages of the other nodes; the publisher applies its own changes locally.
+ */
+@Component
+public class ClusterEvents {
+
+    /**
+     * Largest message that can be relayed, in UTF-8 bytes: PostgreSQL refuses payloads of 8000 bytes or more,
+     * and the ID of the sending node is added to each message.
+     */
+    public static final int MAX_MESSAGE_BYTES = 7900;
+
+    private static final Pattern CHANNEL = Pattern.compile("[a-z][a-z0-9_]{0,62}");
+    private static final int POLL_TIMEOUT_MS = 1000;
+    private static final long RETRY_DELAY_MS = 5000;
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final String nodeId = UUID.randomUUID().toString();
+    private final ConcurrentMap<String, List<Consumer<String>>> listeners = new ConcurrentHashMap<>();
+    private final AtomicBoolean started = new AtomicBoolean();
+    private volatile boolean running = true;
+    private Boolean postgreSQL;
+
+    /**
+     * Constructor for ClusterEvents.
+     *
+     * @param dataSource   The data source providing the listening connection.
+     * @param jdbcTemplate The JDBC template sending the messages, in the current transaction if any.
+     */
+    public ClusterEvents(DataSource dataSource, JdbcTemplate jdbcTemplate) {
+        this.dataSource = dataSource;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Registers a listener of the messages published on a channel by the other nodes.
+     * Listeners are called one at a time on the listening thread, so they must return quickly.
+     *
+     * @param channel  The channel, a lower-case SQL identifier.
+     * @param listener The listener, receiving the messages.
+     * @throws IllegalArgumentException If the channel is not a valid identifier.
+     */
+    public void subscribe(String channel, Consumer<String> listener) {
+        checkChannel(channel);
+        listeners.computeIfAbsent(channel, key -> new CopyOnWriteArrayList<>()).add(listener);
+        if (isPostgreSQL() && started.compareAndSet(false, true)) {
+            Thread thread = BackgroundThreads.daemon("cluster-events-").newThread(this::listen);
+            thread.start();
+        }
+    }
+
+    /**
+     * Sends a message to the other nodes listening on a channel.
+     *
+     * @param channel The channel, a lower-case SQL identifier.
+     * @param message The message.
+     * @return false if the message is too large to be relayed ({@link #MAX_MESSAGE_BYTES}), true otherwise.
+     * @throws IllegalArgumentException If the channel is not a valid identifier.
+     */
+    public boolean publish(String channel, String message) {
+        checkChannel(channel);
+        if (message.getBytes(StandardCharsets.UTF_8).length > MAX_MESSAGE_BYTES) {
+            return false;
+        }
+        if (isPostgreSQL()) {
+            jdbcTemplate.query("SELECT pg_notify(?, ?)", rs -> {
+            }, channel, nodeId + " " + message);
+        }
+        return true;
+    }
+
+    /**
+     * Stops the listening thread, which releases its connection within a poll interval.
+     */
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+    }
+
+    /**
+     * Receives the messages of the channels with listeners until the application stops,
+     * reconnecting after a failure of the connection.
+     */
+    private void listen() {
+        while (running) {
+            try (Connection connection = dataSource.getConnection()) {
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                Set<String> listening = new HashSet<>();
+                while (running) {
+                    // Les canaux enregistrés depuis le dernier tour sont écoutés à leur tour
+                    for (String channel : listeners.keySet()) {
+                        if (listening.add(channel)) {
+                            try (Statement statement = connection.createStatement()) {
+                                statement.execute("LISTEN " + channel);
+                            }
+                        }
+                    }
+                    PGNotification[] notifications = pgConnection.getNotifications(POLL_TIMEOUT_MS);
+                    if (notifications != null) {
+                        for (PGNotification notification : notifications) {
+                            dispatch(notification.getName(), notification.getParameter());
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                if (!running) {
+                    return;
+                }
+                System.err.println("Connexion d'écoute des événements du cluster perdue : " + e.getMessage());
+                try {
+                    Thread.sleep(RETRY_DELAY_MS);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void dispatch(String channel, String payload) {
+        int separator = payload.indexOf(' ');
+        if (separator < 0 || payload.substring(0, separator).equals(nodeId)) {
+            // Message de ce nœud, déjà appliqué localement
+            return;
+        }
+        String message = payload.substring(separator + 1);
+        for (Consumer<String> listener : listeners.getOrDefault(channel, List.of())) {
+            try {
+                listener.accept(message);
+            } catch (RuntimeException e) {
+                System.err.println("Erreur lors du traitement d'un événement du cluster sur " + channel + " : "
+                        + e.getMessage());
+            }
+        }
+    }
+
+    private static void checkChannel(String channel) {
+        if (!CHANNEL.matcher(channel).matches()) {
+            throw new IllegalArgumentException("Invalid channel: " + channel);
+        }
+    }
+
+    private boolean isPostgreSQL() {
+        if (postgreSQL == null) {
+            try (Connection connection = dataSource.getConnection()) {
+                postgreSQL = "PostgreSQL".equalsIgnoreCase(connection.getMetaData().getDatabaseProductName());
+            } catch (SQLException e) {
+                throw new RuntimeException("Erreur lors de la détection de la base de données", e);
+            }
+        }
+        return postgreSQL;
+    }
+}
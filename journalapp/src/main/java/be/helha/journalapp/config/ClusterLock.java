@@ -0,0 +1,92 @@
+package be.helha.journalapp.config;
+
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Runs a task on a single node of the cluster at a time, for work that every replica would otherwise repeat
+ * (bootstrap of the roles, periodic synchronisation with Keycloak).
+ * <p>
+ * On PostgreSQL the lock is a session-level advisory lock, held on a dedicated connection while the task runs:
+ * it is released when the task ends, or by the database if the node dies. Other databases (e.g. the embedded
+ * test database) only get a lock local to this node.
+ */
+@Component
+public class ClusterLock {
+
+    /**
+     * First key of the advisory locks of the application, so they do not collide with other users of the database.
+     */
+    private static final int NAMESPACE = 0x4A41;
+
+    private final DataSource dataSource;
+    private final ConcurrentMap<String, ReentrantLock> localLocks = new ConcurrentHashMap<>();
+    private Boolean postgreSQL;
+
+    /**
+     * Constructor for ClusterLock.
+     *
+     * @param dataSource The data source providing the connection that holds the lock.
+     */
+    public ClusterLock(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * Runs a task if no other node is running a task under the same name. It does not wait for the lock.
+     *
+     * @param name The name of the lock.
+     * @param task The task to run.
+     * @return true if the task was run, false if the lock is held elsewhere.
+     */
+    public boolean runIfLeader(String name, Runnable task) {
+        ReentrantLock localLock = localLocks.computeIfAbsent(name, key -> new ReentrantLock());
+        if (!localLock.tryLock()) {
+            return false;
+        }
+        try (Connection connection = dataSource.getConnection()) {
+            if (!isPostgreSQL(connection)) {
+                task.run();
+                return true;
+            }
+            if (!advisoryLock(connection, "SELECT pg_try_advisory_lock(?, ?)", name)) {
+                return false;
+            }
+            try {
+                task.run();
+                return true;
+            } finally {
+                advisoryLock(connection, "SELECT pg_advisory_unlock(?, ?)", name);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Erreur lors de la prise du verrou " + name, e);
+        } finally {
+            localLock.unlock();
+        }
+    }
+
+    private static boolean advisoryLock(Connection connection, String sql, String name) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setInt(1, NAMESPACE);
+            statement.setInt(2, name.hashCode());
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() && resultSet.getBoolean(1);
+            }
+        }
+    }
+
+    private boolean isPostgreSQL(Connection connection) throws SQLException {
+        if (postgreSQL == null) {
+            postgreSQL = "PostgreSQL".equalsIgnoreCase(connection.getMetaData().getDatabaseProductName());
+        }
+        return postgreSQL;
+    }
+}
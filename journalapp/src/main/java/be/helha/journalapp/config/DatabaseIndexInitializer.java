@@ -0,0 +1,134 @@
+package be.helha.journalapp.config;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Creates the PostgreSQL-specific columns and indexes that Hibernate's {@code ddl-auto=update} cannot express.
+ * <p>
+ * Every statement is idempotent ({@code IF NOT EXISTS}), so it is safe to run on every start.
+ * The data statements ({@link #DATA_STATEMENTS}) run while the application context starts, like
+ * {@link IdSequenceInitializer}, so that no request writes the data they correct while they run;
+ * the indexes are created once the application is ready.
+ * The statements are skipped when the application is not running on PostgreSQL (e.g. an embedded test database).
+ */
+@Component
+public class DatabaseIndexInitializer {
+
+    /**
+     * DDL statements applied in order on startup.
+     * <p>
+     * {@code article.search_vector} is a stored generated column: PostgreSQL recomputes it whenever an article
+     * is inserted or its title/content change, so the GIN index is maintained incrementally without any
+     * application code. Titles are weighted above content for ranking.
+     */
+    static final List<String> STATEMENTS = List.of(
+            "ALTER TABLE article ADD COLUMN IF NOT EXISTS search_vector tsvector GENERATED ALWAYS AS (" +
+                    "setweight(to_tsvector('simple', coalesce(title, '')), 'A') || " +
+                    "setweight(to_tsvector('simple', coalesce(content, '')), 'B')) STORED",
+            "CREATE INDEX IF NOT EXISTS idx_article_search_vector ON article USING GIN (search_vector)",
+            // Images whose data has not been moved to the blob store yet (see ImageBlobMigrationJob)
+            "CREATE INDEX IF NOT EXISTS idx_image_pending_blob ON image (image_id) WHERE image_path IS NOT NULL",
+            // One read entry per user and article, required by the upserts of ReadEventWriter:
+            // duplicates left by the former find-then-save code are removed first, keeping the latest entry
+            "DELETE FROM user_article_read a USING user_article_read b " +
+                    "WHERE a.user_id = b.user_id AND a.article_id = b.article_id AND a.id < b.id",
+            "CREATE UNIQUE INDEX IF NOT EXISTS uk_user_article_read_user_article " +
+                    "ON user_article_read (user_id, article_id)",
+            // Read list of a user, most recently read first (UserArticleReadRepository.findReadSummariesByUserId)
+            "CREATE INDEX IF NOT EXISTS idx_user_article_read_recent " +
+                    "ON user_article_read (user_id, read_at DESC NULLS LAST, id DESC) WHERE is_read",
+            // Due emails of the outbound mail queue (OutboundEmailRepository.findDueIds)
+            "CREATE INDEX IF NOT EXISTS idx_outbound_email_next_attempt ON outbound_email (next_attempt_at, id)",
+            // Location of the valid articles for the map (ArticleRepository.VALID_LOCATION_WITHIN)
+            "CREATE INDEX IF NOT EXISTS idx_article_location ON article USING GIST (point(longitude, latitude)) " +
+                    "WHERE valid",
+            // Keyword search over comments (CommentRepository.searchViewsBefore): the trigram index serves
+            // ILIKE '%keyword%' and is updated by PostgreSQL on every insert, update and delete of a comment
+            "CREATE EXTENSION IF NOT EXISTS pg_trgm",
+            "CREATE INDEX IF NOT EXISTS idx_comments_content_trgm ON comments USING GIN (content gin_trgm_ops)",
+            "CREATE INDEX IF NOT EXISTS idx_comments_article ON comments (article_id, comment_id)",
+            "CREATE INDEX IF NOT EXISTS idx_comments_user ON comments (user_id, comment_id)"
+    );
+
+    /**
+     * Data statements applied in order while the application context starts, before any request is served.
+     * <p>
+     * The comment counters of the articles (see CommentService) are recomputed wherever they differ from the
+     * comments, which fills them for the articles commented before the counters existed; once right, they are
+     * maintained by the comment writes and the statement no longer matches them.
+     */
+    static final List<String> DATA_STATEMENTS = List.of(
+            "UPDATE article a SET comment_count = c.total " +
+                    "FROM (SELECT article_id, count(*) AS total FROM comments GROUP BY article_id) c " +
+                    "WHERE a.article_id = c.article_id AND a.comment_count <> c.total"
+    );
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Constructor for DatabaseIndexInitializer.
+     *
+     * @param jdbcTemplate         The JDBC template used to run the statements.
+     * @param entityManagerFactory The entity manager factory, required so that the schema has been updated
+     *                             by Hibernate before the data statements run.
+     */
+    public DatabaseIndexInitializer(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Applies the data statements while the application context starts, before any request is served.
+     * A failing statement is reported and does not prevent the following ones from running.
+     */
+    @PostConstruct
+    public void correctData() {
+        if (!isPostgreSQL()) {
+            return;
+        }
+        for (String statement : DATA_STATEMENTS) {
+            try {
+                int updated = jdbcTemplate.update(statement);
+                System.out.println(updated + " ligne(s) corrigée(s) : " + statement);
+            } catch (Exception e) {
+                System.err.println("Erreur lors de la correction des données : " + statement + " -> " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Applies the DDL statements once the application (and Hibernate's schema update) is ready.
+     * A failing statement is reported and does not prevent the following ones from running.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void createIndexes() {
+        if (!isPostgreSQL()) {
+            return;
+        }
+        for (String statement : STATEMENTS) {
+            try {
+                jdbcTemplate.execute(statement);
+            } catch (Exception e) {
+                System.err.println("Erreur lors de la création de l'index : " + statement + " -> " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Checks whether the configured data source is a PostgreSQL database.
+     *
+     * @return true if the database product is PostgreSQL.
+     */
+    private boolean isPostgreSQL() {
+        String product = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                connection.getMetaData().getDatabaseProductName());
+        return "PostgreSQL".equalsIgnoreCase(product);
+    }
+}
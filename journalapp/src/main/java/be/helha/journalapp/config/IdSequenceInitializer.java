@@ -0,0 +1,100 @@
+package be.helha.journalapp.config;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Moves the ID sequences of the entities past the rows inserted before the IDs were drawn from sequences.
+ * <p>
+ * The entities used to get their IDs from identity columns. Their IDs now come from pooled sequences
+ * ({@code allocationSize = 50}), which Hibernate's {@code ddl-auto=update} creates starting at 1: on an existing
+ * database the first IDs handed out would collide with the existing rows. A sequence is only moved when the next
+ * block of IDs it would hand out overlaps the existing rows, so this is a no-op once the sequences are aligned and
+ * is safe to run on every start. The identity columns keep their default, which nothing uses any more.
+ * <p>
+ * Unlike {@link DatabaseIndexInitializer}, it runs while the application context starts, after Hibernate has
+ * updated the schema and before anything can insert a row. It is skipped when the application is not running on
+ * PostgreSQL (e.g. an embedded test database, created empty).
+ */
+@Component
+public class IdSequenceInitializer {
+
+    /**
+     * The sequences to align, each with the table and ID column it serves.
+     */
+    static final List<String[]> SEQUENCES = List.of(
+            new String[]{"article_seq", "article", "article_id"},
+            new String[]{"comments_seq", "comments", "comment_id"},
+            new String[]{"dead_letter_email_seq", "dead_letter_email", "id"},
+            new String[]{"image_seq", "image", "image_id"},
+            new String[]{"newsletter_seq", "newsletter", "newsletter_id"},
+            new String[]{"newsletter_mailing_seq", "newsletter_mailing", "id"},
+            new String[]{"outbound_email_seq", "outbound_email", "id"},
+            new String[]{"role_seq", "role", "role_id"},
+            new String[]{"users_seq", "users", "user_id"}
+    );
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Constructor for IdSequenceInitializer.
+     *
+     * @param jdbcTemplate         The JDBC template used to align the sequences.
+     * @param entityManagerFactory The entity manager factory, required so that the schema (and the sequences)
+     *                             has been updated by Hibernate first.
+     */
+    public IdSequenceInitializer(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Aligns every sequence whose next block of IDs overlaps the existing rows.
+     * A failing sequence is reported and does not prevent the following ones from being aligned.
+     */
+    @PostConstruct
+    public void alignSequences() {
+        if (!isPostgreSQL()) {
+            return;
+        }
+        for (String[] sequence : SEQUENCES) {
+            try {
+                jdbcTemplate.query(alignStatement(sequence[0], sequence[1], sequence[2]), rs -> {
+                    System.out.println("Séquence " + sequence[0] + " alignée sur " + rs.getLong(1));
+                });
+            } catch (Exception e) {
+                System.err.println("Erreur lors de l'alignement de la séquence " + sequence[0] + " -> " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Builds the statement moving a sequence to the largest ID of its table, if the next block of IDs handed out
+     * by the pooled optimizer (the 50 values up to the next value of the sequence) could contain an existing ID.
+     *
+     * @param sequence The name of the sequence.
+     * @param table    The name of the table.
+     * @param column   The name of the ID column.
+     * @return The statement, returning one row if the sequence was moved.
+     */
+    static String alignStatement(String sequence, String table, String column) {
+        return "SELECT setval('" + sequence + "', t.max_id) " +
+                "FROM (SELECT MAX(" + column + ") AS max_id FROM " + table + ") t, " + sequence + " s " +
+                "WHERE t.max_id >= CASE WHEN s.is_called THEN s.last_value + 1 ELSE s.last_value - 49 END";
+    }
+
+    /**
+     * Checks whether the configured data source is a PostgreSQL database.
+     *
+     * @return true if the database product is PostgreSQL.
+     */
+    private boolean isPostgreSQL() {
+        String product = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                connection.getMetaData().getDatabaseProductName());
+        return "PostgreSQL".equalsIgnoreCase(product);
+    }
+}
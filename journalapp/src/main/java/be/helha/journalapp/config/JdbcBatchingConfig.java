@@ -0,0 +1,36 @@
+package be.helha.journalapp.config;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration class enabling Hibernate's JDBC batching.
+ * <p>
+ * The IDs of the entities come from pooled sequences ({@code allocationSize = 50}, see {@link IdSequenceInitializer}),
+ * so Hibernate no longer has to run each INSERT on its own to learn the generated ID: the inserts and updates of a
+ * flush are grouped by table and sent {@code journalapp.jpa.batch-size} statements per round trip.
+ * A value set through {@code spring.jpa.properties.hibernate.*} takes precedence. On PostgreSQL, adding
+ * {@code reWriteBatchedInserts=true} to the JDBC URL also turns each batch of INSERTs into multi-row statements.
+ */
+@Configuration
+public class JdbcBatchingConfig {
+
+    /**
+     * Sets the JDBC batch size and orders the inserts and updates by table, so consecutive statements can share
+     * a batch.
+     *
+     * @param batchSize The number of statements sent per round trip.
+     * @return The customizer of the Hibernate properties.
+     */
+    @Bean
+    public HibernatePropertiesCustomizer jdbcBatching(@Value("${journalapp.jpa.batch-size:50}") int batchSize) {
+        return properties -> {
+            properties.putIfAbsent(AvailableSettings.STATEMENT_BATCH_SIZE, batchSize);
+            properties.putIfAbsent(AvailableSettings.ORDER_INSERTS, true);
+            properties.putIfAbsent(AvailableSettings.ORDER_UPDATES, true);
+        };
+    }
+}
@@ -10,6 +10,8 @@ import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationConverter;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.util.matcher.AndRequestMatcher;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 
@@ -48,11 +50,22 @@ public class SecurityConfig {
                     auth.requestMatchers("/articles/all").permitAll();
                     auth.requestMatchers("/newsletters/all").permitAll();
                     auth.requestMatchers("/articles/search").permitAll();
-                    auth.requestMatchers("/images/article/").permitAll();
+                    auth.requestMatchers(HttpMethod.GET, "/articles/within", "/articles/near").permitAll();
+                    // Les balises <img> n'envoient pas de jeton : les images sont servies sans authentification,
+                    // sauf celles des brouillons, que ImageController réserve aux utilisateurs authentifiés
+                    auth.requestMatchers(HttpMethod.GET, "/images/article/**").permitAll();
+                    auth.requestMatchers(HttpMethod.GET, "/images/*/raw").permitAll();
+                    auth.requestMatchers(new AndRequestMatcher(
+                            AntPathRequestMatcher.antMatcher(HttpMethod.GET, "/images/*"),
+                            request -> request.getParameter("w") != null)).permitAll();
+                    // EventSource n'envoie pas de jeton ; les événements ne contiennent que des données publiques
+                    auth.requestMatchers(HttpMethod.GET, "/events").permitAll();
 
 
 
                     // Lecture des commentaires accessible à tous
+                    // Recherche de commentaires réservée à la modération
+                    auth.requestMatchers(HttpMethod.GET, "/comments/search").hasAnyRole("ADMIN", "EDITOR");
                     auth.requestMatchers(HttpMethod.GET, "/comments/**").permitAll();
 
                     // Ajout de commentaires réservé aux utilisateurs authentifiés
@@ -65,6 +78,8 @@ public class SecurityConfig {
                     // Contrôles d'accès par rôle pour les autres endpoints :
                     // Comments: déjà traités ci-dessus
                     // Newsletters (autres que /all) : ADMIN, EDITOR
+                    // Envoi des newsletters par email : ADMIN, EDITOR
+                    auth.requestMatchers("/newsletters/*/mailings").hasAnyRole("ADMIN", "EDITOR");
                     auth.requestMatchers("/newsletters/**").hasAnyRole("ADMIN", "EDITOR", "JOURNALIST" ,"READER");
 
                     // Articles (autres que /all) : ADMIN, EDITOR, JOURNALIST
@@ -76,10 +91,19 @@ public class SecurityConfig {
                     // Roles : uniquement ADMIN
                     auth.requestMatchers("/roles/**").hasRole("ADMIN");
 
+                    // Imports en masse (archives) : uniquement ADMIN
+                    auth.requestMatchers("/imports/**").hasRole("ADMIN");
+
                     // Images : ADMIN, EDITOR, JOURNALIST
                     auth.requestMatchers("/images/**").hasAnyRole("ADMIN", "EDITOR", "JOURNALIST");
                     auth.requestMatchers("/swagger-ui/**", "/v3/api-docs").permitAll();
 
+                    // Sondes de vivacité et de disponibilité (kubelet, répartiteur de charge) : sans jeton
+                    auth.requestMatchers(HttpMethod.GET, "/actuator/health", "/actuator/health/liveness",
+                            "/actuator/health/readiness").permitAll();
+                    // Durée des étapes du démarrage : uniquement ADMIN
+                    auth.requestMatchers("/actuator/startup").hasRole("ADMIN");
+
 
                     // Toute autre requête nécessite une authentification
                     auth.anyRequest().authenticated();
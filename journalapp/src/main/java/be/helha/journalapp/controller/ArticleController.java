@@ -1,21 +1,35 @@
 package be.helha.journalapp.controller;
 
+import be.helha.journalapp.dto.ArticleLabel;
+import be.helha.journalapp.dto.ArticleSummary;
+import be.helha.journalapp.dto.CursorPage;
+import be.helha.journalapp.dto.GeoCluster;
+import be.helha.journalapp.dto.UserPrincipal;
 import be.helha.journalapp.model.Article;
 import be.helha.journalapp.model.Newsletter;
 import be.helha.journalapp.model.User;
-import be.helha.journalapp.model.UserArticleRead;
 import be.helha.journalapp.repositories.ArticleRepository;
 import be.helha.journalapp.repositories.NewsletterRepository;
-import be.helha.journalapp.repositories.UserArticleReadRepository;
 import be.helha.journalapp.repositories.UserRepository;
+import be.helha.journalapp.security.CurrentUserResolver;
+import be.helha.journalapp.service.ArticleGeoService;
+import be.helha.journalapp.service.ArticleLabelService;
+import be.helha.journalapp.service.ArticleSearchService;
 import be.helha.journalapp.service.EmailService;
-import jakarta.mail.MessagingException;
+import be.helha.journalapp.service.LiveEventHub;
+import be.helha.journalapp.service.NewsletterIssueService;
+import be.helha.journalapp.service.ReadStateService;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -29,20 +43,51 @@ import java.util.Optional;
 @RequestMapping("/articles")
 public class ArticleController {
 
+    /**
+     * Page size used by the paginated listings when none is requested.
+     */
+    private static final int DEFAULT_PAGE_SIZE = 20;
+
+    /**
+     * Largest page size a client may request from the paginated listings.
+     */
+    private static final int MAX_PAGE_SIZE = 100;
+
+    /**
+     * Largest number of articles a single bulk request may name (marking as read, label lookups).
+     */
+    private static final int MAX_BULK_SIZE = 500;
+
     private final ArticleRepository articleRepository;
     private final UserRepository userRepository;
     private final NewsletterRepository newsletterRepository;
-    private final UserArticleReadRepository userArticleReadRepository;
+    private final ReadStateService readStateService;
     private final EmailService emailService;
+    private final ArticleSearchService articleSearchService;
+    private final ArticleGeoService articleGeoService;
+    private final CurrentUserResolver currentUserResolver;
+    private final ApplicationEventPublisher eventPublisher;
+    private final NewsletterIssueService newsletterIssueService;
+    private final ArticleLabelService articleLabelService;
 
     public ArticleController(ArticleRepository articleRepository, UserRepository userRepository,
-                             NewsletterRepository newsletterRepository, UserArticleReadRepository userArticleReadRepository,
-                             EmailService emailService) {
+                             NewsletterRepository newsletterRepository, ReadStateService readStateService,
+                             EmailService emailService, ArticleSearchService articleSearchService,
+                             ArticleGeoService articleGeoService, CurrentUserResolver currentUserResolver,
+                             ApplicationEventPublisher eventPublisher,
+                             NewsletterIssueService newsletterIssueService,
+                             ArticleLabelService articleLabelService) {
         this.articleRepository = articleRepository;
         this.userRepository = userRepository;
         this.newsletterRepository = newsletterRepository;
-        this.userArticleReadRepository = userArticleReadRepository;
+        this.readStateService = readStateService;
         this.emailService = emailService;
+        this.articleSearchService = articleSearchService;
+        this.articleGeoService = articleGeoService;
+        this.currentUserResolver = currentUserResolver;
+        this.eventPublisher = eventPublisher;
+        this.newsletterIssueService = newsletterIssueService;
+        this.articleLabelService = articleLabelService;
     }
 
 
@@ -83,6 +128,8 @@ public class ArticleController {
 
         // Sauvegarde de l'article
         Article savedArticle = articleRepository.save(article);
+        readStateService.publishedArticlesChanged();
+        newsletterIssueService.invalidate(newsletterId);
         return ResponseEntity.ok(savedArticle);
     }
 
@@ -108,25 +155,62 @@ public class ArticleController {
     }
 
     /**
-     * Retrieves all articles.
+     * Retrieves one page of all articles, newest first, using keyset pagination.
      *
-     * @return A ResponseEntity containing a list of all Article objects.
+     * @param cursor The {@code next} cursor returned by the previous page, or nothing for the first page.
+     * @param size   The number of articles per page (capped at {@value #MAX_PAGE_SIZE}).
+     * @return A ResponseEntity containing the page of article summaries and the cursor of the next page.
      */
     @GetMapping("/all")
-    public ResponseEntity<List<Article>> getAllArticles() {
-        List<Article> articles = articleRepository.findAll();
+    public ResponseEntity<CursorPage<ArticleSummary>> getArticlesPage(
+            @RequestParam(required = false) Long cursor,
+            @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int size) {
+        int pageSize = clampPageSize(size);
+        List<ArticleSummary> rows = articleRepository.findSummariesBefore(cursorOrFirst(cursor), pageLimit(pageSize));
+        return ResponseEntity.ok(CursorPage.of(rows, pageSize, ArticleSummary::getArticleId));
+    }
+
+    /**
+     * Retrieves all articles in a single, unbounded response.
+     * This legacy shape must be requested explicitly with {@code unpaged=true}.
+     *
+     * @return A ResponseEntity containing the summaries of all articles.
+     */
+    @GetMapping(value = "/all", params = "unpaged=true")
+    public ResponseEntity<List<ArticleSummary>> getAllArticles() {
+        List<ArticleSummary> articles = articleRepository.findAllSummaries();
         return ResponseEntity.ok(articles);
     }
 
     /**
-     * Retrieves all articles belonging to newsletters created by a specific editor.
+     * Retrieves one page of the articles belonging to newsletters created by a specific editor, newest first.
      *
      * @param editorId The ID of the editor.
-     * @return A ResponseEntity containing a list of articles or a 204 No Content response if none are found.
+     * @param cursor   The {@code next} cursor returned by the previous page, or nothing for the first page.
+     * @param size     The number of articles per page (capped at {@value #MAX_PAGE_SIZE}).
+     * @return A ResponseEntity containing the page of article summaries and the cursor of the next page.
      */
     @GetMapping("/by-editor/{editorId}")
-    public ResponseEntity<List<Article>> getArticlesByEditorId(@PathVariable Long editorId) {
-        List<Article> articles = articleRepository.findArticlesByEditorId(editorId);
+    public ResponseEntity<CursorPage<ArticleSummary>> getArticlesPageByEditorId(
+            @PathVariable Long editorId,
+            @RequestParam(required = false) Long cursor,
+            @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int size) {
+        int pageSize = clampPageSize(size);
+        List<ArticleSummary> rows = articleRepository.findSummariesByEditorBefore(
+                editorId, cursorOrFirst(cursor), pageLimit(pageSize));
+        return ResponseEntity.ok(CursorPage.of(rows, pageSize, ArticleSummary::getArticleId));
+    }
+
+    /**
+     * Retrieves all articles belonging to newsletters created by a specific editor in a single, unbounded response.
+     * This legacy shape must be requested explicitly with {@code unpaged=true}.
+     *
+     * @param editorId The ID of the editor.
+     * @return A ResponseEntity containing a list of article summaries or a 204 No Content response if none are found.
+     */
+    @GetMapping(value = "/by-editor/{editorId}", params = "unpaged=true")
+    public ResponseEntity<List<ArticleSummary>> getArticlesByEditorId(@PathVariable Long editorId) {
+        List<ArticleSummary> articles = articleRepository.findSummariesByEditorId(editorId);
         if (articles.isEmpty()) {
             return ResponseEntity.noContent().build(); // 204 No Content if no articles found
         }
@@ -166,6 +250,9 @@ public class ArticleController {
             article.setRead(updatedArticle.isRead()); // Mettre à jour l'état de lecture
             article.setImages(updatedArticle.getImages());
 
+            // L'article peut quitter sa newsletter : son numéro est aussi invalidé
+            newsletterIssueService.invalidate(newsletterIdOf(article));
+
             // Mettre à jour la couleur de fond si la newsletter est modifiée
             if (!article.getNewsletter().equals(updatedArticle.getNewsletter())) {
                 article.setNewsletter(updatedArticle.getNewsletter());
@@ -173,6 +260,8 @@ public class ArticleController {
             }
 
             Article savedArticle = articleRepository.save(article);
+            readStateService.publishedArticlesChanged();
+            newsletterIssueService.invalidate(newsletterIdOf(savedArticle));
             return ResponseEntity.ok(savedArticle);
         }).orElse(ResponseEntity.notFound().build());
     }
@@ -186,7 +275,10 @@ public class ArticleController {
     @DeleteMapping("/{id}")
     public ResponseEntity<String> deleteArticle(@PathVariable Long id) {
         if (articleRepository.existsById(id)) {
+            Optional<Long> newsletterId = articleRepository.findNewsletterIdByArticleId(id);
             articleRepository.deleteById(id);
+            readStateService.publishedArticlesChanged();
+            newsletterId.ifPresent(newsletterIssueService::invalidate);
             return ResponseEntity.ok("Article deleted successfully.");
         }
         return ResponseEntity.notFound().build();
@@ -208,15 +300,33 @@ public class ArticleController {
      */
     @GetMapping("/{articleId}/newsletter-title")
     public ResponseEntity<Map<String, String>> getNewsletterTitleByArticleId(@PathVariable Long articleId) {
-        Optional<Article> article = articleRepository.findById(articleId);
-        if (article.isPresent()) {
+        // Les appels simultanés sont regroupés en une seule requête (voir ArticleLabelService)
+        Optional<ArticleLabel> label = articleLabelService.findLabel(articleId);
+        if (label.isPresent()) {
             Map<String, String> response = new HashMap<>();
-            response.put("title", article.get().getNewsletter().getTitle());
+            response.put("title", label.get().getNewsletterTitle());
             return ResponseEntity.ok(response);
         }
         return ResponseEntity.notFound().build();
     }
 
+    /**
+     * Retrieves the titles of the newsletters associated with several articles, in a single query.
+     *
+     * @param ids The IDs of the articles, comma-separated or repeated.
+     * @return A ResponseEntity containing the newsletter title by article ID (null for articles without newsletter,
+     * absent for unknown articles), or a 400 Bad Request response if more than {@value #MAX_BULK_SIZE} IDs are sent.
+     */
+    @GetMapping("/newsletter-titles")
+    public ResponseEntity<?> getNewsletterTitlesByArticleIds(@RequestParam List<Long> ids) {
+        if (ids.size() > MAX_BULK_SIZE) {
+            return ResponseEntity.badRequest().body(Map.of("error", "At most " + MAX_BULK_SIZE + " articles can be looked up at once."));
+        }
+        Map<Long, String> titles = new HashMap<>();
+        articleLabelService.findLabels(ids).forEach((id, label) -> titles.put(id, label.getNewsletterTitle()));
+        return ResponseEntity.ok(titles);
+    }
+
 
     /**
      * Retrieves the author's full name of an article by its ID.
@@ -226,23 +336,57 @@ public class ArticleController {
      */
     @GetMapping("/{articleId}/author-name")
     public ResponseEntity<Map<String, String>> getAuthorNameByArticleId(@PathVariable Long articleId) {
-        Optional<Article> article = articleRepository.findById(articleId);
-        if (article.isPresent()) {
+        Optional<ArticleLabel> label = articleLabelService.findLabel(articleId);
+        if (label.isPresent()) {
             Map<String, String> response = new HashMap<>();
-            String fullName = article.get().getAuthor().getFirstName() + " " + article.get().getAuthor().getLastName();
-            response.put("name", fullName);
+            response.put("name", label.get().getAuthorName());
             return ResponseEntity.ok(response);
         }
         return ResponseEntity.notFound().build();
     }
 
     /**
-     * Retrieves all available articles (i.e., articles with valid = true).
-     * @return A ResponseEntity containing a list of available articles, or a 204 No Content response if empty.
+     * Retrieves the full names of the authors of several articles, in a single query.
+     *
+     * @param ids The IDs of the articles, comma-separated or repeated.
+     * @return A ResponseEntity containing the author's full name by article ID (absent for unknown articles),
+     * or a 400 Bad Request response if more than {@value #MAX_BULK_SIZE} IDs are sent.
+     */
+    @GetMapping("/author-names")
+    public ResponseEntity<?> getAuthorNamesByArticleIds(@RequestParam List<Long> ids) {
+        if (ids.size() > MAX_BULK_SIZE) {
+            return ResponseEntity.badRequest().body(Map.of("error", "At most " + MAX_BULK_SIZE + " articles can be looked up at once."));
+        }
+        Map<Long, String> names = new HashMap<>();
+        articleLabelService.findLabels(ids).forEach((id, label) -> names.put(id, label.getAuthorName()));
+        return ResponseEntity.ok(names);
+    }
+
+    /**
+     * Retrieves one page of the available articles (i.e., articles with valid = true), newest first.
+     *
+     * @param cursor The {@code next} cursor returned by the previous page, or nothing for the first page.
+     * @param size   The number of articles per page (capped at {@value #MAX_PAGE_SIZE}).
+     * @return A ResponseEntity containing the page of article summaries and the cursor of the next page.
      */
     @GetMapping("/available")
-    public ResponseEntity<List<Article>> getAllAvailableArticles() {
-        List<Article> availableArticles = articleRepository.findByValidTrue();
+    public ResponseEntity<CursorPage<ArticleSummary>> getAvailableArticlesPage(
+            @RequestParam(required = false) Long cursor,
+            @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int size) {
+        int pageSize = clampPageSize(size);
+        List<ArticleSummary> rows = articleRepository.findSummariesByValidBefore(
+                true, cursorOrFirst(cursor), pageLimit(pageSize));
+        return ResponseEntity.ok(CursorPage.of(rows, pageSize, ArticleSummary::getArticleId));
+    }
+
+    /**
+     * Retrieves all available articles (i.e., articles with valid = true) in a single, unbounded response.
+     * This legacy shape must be requested explicitly with {@code unpaged=true}.
+     * @return A ResponseEntity containing a list of available article summaries, or a 204 No Content response if empty.
+     */
+    @GetMapping(value = "/available", params = "unpaged=true")
+    public ResponseEntity<List<ArticleSummary>> getAllAvailableArticles() {
+        List<ArticleSummary> availableArticles = articleRepository.findSummariesByValid(true);
         if (availableArticles.isEmpty()) {
             return ResponseEntity.noContent().build();
         }
@@ -250,12 +394,30 @@ public class ArticleController {
     }
 
     /**
-     * Retrieves all unavailable articles (i.e., articles with valid = false).
-     * @return A ResponseEntity containing a list of unavailable articles, or a 204 No Content response if empty.
+     * Retrieves one page of the unavailable articles (i.e., articles with valid = false), newest first.
+     *
+     * @param cursor The {@code next} cursor returned by the previous page, or nothing for the first page.
+     * @param size   The number of articles per page (capped at {@value #MAX_PAGE_SIZE}).
+     * @return A ResponseEntity containing the page of article summaries and the cursor of the next page.
      */
     @GetMapping("/unavailable")
-    public ResponseEntity<List<Article>> getAllUnavailableArticles() {
-        List<Article> unavailableArticles = articleRepository.findByValidFalse();
+    public ResponseEntity<CursorPage<ArticleSummary>> getUnavailableArticlesPage(
+            @RequestParam(required = false) Long cursor,
+            @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int size) {
+        int pageSize = clampPageSize(size);
+        List<ArticleSummary> rows = articleRepository.findSummariesByValidBefore(
+                false, cursorOrFirst(cursor), pageLimit(pageSize));
+        return ResponseEntity.ok(CursorPage.of(rows, pageSize, ArticleSummary::getArticleId));
+    }
+
+    /**
+     * Retrieves all unavailable articles (i.e., articles with valid = false) in a single, unbounded response.
+     * This legacy shape must be requested explicitly with {@code unpaged=true}.
+     * @return A ResponseEntity containing a list of unavailable article summaries, or a 204 No Content response if empty.
+     */
+    @GetMapping(value = "/unavailable", params = "unpaged=true")
+    public ResponseEntity<List<ArticleSummary>> getAllUnavailableArticles() {
+        List<ArticleSummary> unavailableArticles = articleRepository.findSummariesByValid(false);
         if (unavailableArticles.isEmpty()) {
             return ResponseEntity.noContent().build();
         }
@@ -263,21 +425,98 @@ public class ArticleController {
     }
 
     /**
-     * Searches for articles by a query in the title that are valid.
+     * Searches valid articles by full text over their title and content, best matches first.
      *
-     * @param query The query term to search for in the article titles.
-     * @return A ResponseEntity containing a list of matching articles, or a 204 No Content response if empty.
+     * @param query The words to search for; the last word is matched as a prefix.
+     * @param page  The zero-based page number.
+     * @param size  The number of results per page (capped at {@value #MAX_PAGE_SIZE}).
+     * @return A ResponseEntity containing a list of matching article summaries, or a 204 No Content response if empty.
      */
     @GetMapping("/search")
-    public ResponseEntity<List<Article>> searchArticles(
-            @RequestParam("query") String query) {
-        List<Article> articles = articleRepository.searchValidArticles(query);
+    public ResponseEntity<List<ArticleSummary>> searchArticles(
+            @RequestParam("query") String query,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int size) {
+        List<ArticleSummary> articles = articleSearchService.search(query, Math.max(page, 0), clampPageSize(size));
         if (articles.isEmpty()) {
             return ResponseEntity.noContent().build();
         }
         return ResponseEntity.ok(articles);
     }
 
+    /**
+     * Retrieves one page of the valid articles located in a box of the map, newest first.
+     *
+     * @param bbox The box, as {@code west,south,east,north} in degrees (west &gt; east crosses the antimeridian).
+     * @param page The zero-based page number.
+     * @param size The number of results per page (capped at {@value #MAX_PAGE_SIZE}).
+     * @return A ResponseEntity containing the article summaries, a 204 No Content response if empty,
+     * or a 400 Bad Request response if the box is invalid.
+     */
+    @GetMapping("/within")
+    public ResponseEntity<?> getArticlesWithin(@RequestParam String bbox,
+                                               @RequestParam(defaultValue = "0") int page,
+                                               @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int size) {
+        try {
+            List<ArticleSummary> articles = articleGeoService.findWithin(
+                    ArticleGeoService.parseBoundingBox(bbox), Math.max(page, 0), clampPageSize(size));
+            if (articles.isEmpty()) {
+                return ResponseEntity.noContent().build();
+            }
+            return ResponseEntity.ok(articles);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Retrieves the markers of the valid articles located in a box of the map at a zoom level.
+     * Articles close to each other are grouped into one marker carrying their count, so a zoomed-out map
+     * receives a bounded number of markers; a marker standing for a single article carries its ID.
+     *
+     * @param bbox The box, as {@code west,south,east,north} in degrees (west &gt; east crosses the antimeridian).
+     * @param zoom The zoom level of the map, from 0 (whole world) to 22.
+     * @return A ResponseEntity containing the markers, most populated first,
+     * or a 400 Bad Request response if the box is invalid.
+     */
+    @GetMapping(value = "/within", params = "zoom")
+    public ResponseEntity<?> getArticleClustersWithin(@RequestParam String bbox, @RequestParam int zoom) {
+        try {
+            List<GeoCluster> clusters = articleGeoService.cluster(ArticleGeoService.parseBoundingBox(bbox), zoom);
+            return ResponseEntity.ok(clusters);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Retrieves one page of the valid articles within a distance of a point, nearest first.
+     *
+     * @param lat    The latitude of the point.
+     * @param lon    The longitude of the point.
+     * @param radius The distance, in meters.
+     * @param page   The zero-based page number.
+     * @param size   The number of results per page (capped at {@value #MAX_PAGE_SIZE}).
+     * @return A ResponseEntity containing the article summaries, a 204 No Content response if empty,
+     * or a 400 Bad Request response if the point or the radius is invalid.
+     */
+    @GetMapping("/near")
+    public ResponseEntity<?> getArticlesNear(@RequestParam double lat, @RequestParam double lon,
+                                             @RequestParam double radius,
+                                             @RequestParam(defaultValue = "0") int page,
+                                             @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int size) {
+        try {
+            List<ArticleSummary> articles = articleGeoService.findNear(lat, lon, radius, Math.max(page, 0),
+                    clampPageSize(size));
+            if (articles.isEmpty()) {
+                return ResponseEntity.noContent().build();
+            }
+            return ResponseEntity.ok(articles);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
     /**
      * Marks an article as read by a user.
      * It uses the Keycloak ID from the authentication object to identify the user.
@@ -285,27 +524,22 @@ public class ArticleController {
      *
      * @param articleId The ID of the article to mark as read.
      * @param authentication The authentication object containing the user's Keycloak ID.
-     * @return A ResponseEntity containing a success message and a 200 Ok response, or a 404 Not Found response if the user or article does not exist.
+     * @return A ResponseEntity containing a success message and a 200 Ok response, a 404 Not Found response if the user or article does not exist,
+     * or a 503 Service Unavailable response if too many read changes are waiting to be written.
      */
     @PatchMapping("/{articleId}/mark-read")
     public ResponseEntity<Map<String, String>> markAsRead(@PathVariable Long articleId, Authentication authentication) {
-        String keycloakId = authentication.getName(); // Récupérer le Keycloak ID
-        Optional<User> user = userRepository.findByKeycloakId(keycloakId);
-        Optional<Article> article = articleRepository.findById(articleId);
+        Optional<UserPrincipal> user = currentUserResolver.resolve(authentication);
 
-        if (user.isEmpty() || article.isEmpty()) {
+        if (user.isEmpty() || !articleRepository.existsById(articleId)) {
             return ResponseEntity.notFound().build();
         }
 
-        UserArticleRead userArticleRead = userArticleReadRepository
-                .findByUserUserIdAndArticleArticleId(user.get().getUserId(), articleId)
-                .orElse(new UserArticleRead());
-
-        userArticleRead.setUser(user.get());
-        userArticleRead.setArticle(article.get());
-        userArticleRead.setRead(true);
-
-        userArticleReadRepository.save(userArticleRead);
+        try {
+            readStateService.setRead(user.get().getUserId(), articleId, true);
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Map.of("error", e.getMessage()));
+        }
 
         // Retourner une réponse JSON valide
         Map<String, String> response = new HashMap<>();
@@ -314,33 +548,62 @@ public class ArticleController {
     }
 
 
+    /**
+     * Marks several articles as read by the current user in one request.
+     * IDs that do not belong to an existing article are ignored. The read entries are written shortly after
+     * the response, in batches, but {@code /articles/{id}/status} reflects them immediately.
+     *
+     * @param articleIds The IDs of the articles to mark as read.
+     * @param authentication The authentication object containing the user's Keycloak ID.
+     * @return A ResponseEntity containing the number of articles marked as read, a 400 Bad Request response if more than
+     * {@value #MAX_BULK_SIZE} IDs are sent, a 404 Not Found response if the user does not exist, or a 503 Service
+     * Unavailable response if too many read changes are waiting to be written.
+     */
+    @PatchMapping("/mark-read")
+    public ResponseEntity<Map<String, Object>> markAllAsRead(@RequestBody List<Long> articleIds, Authentication authentication) {
+        if (articleIds.size() > MAX_BULK_SIZE) {
+            return ResponseEntity.badRequest().body(Map.of("error", "At most " + MAX_BULK_SIZE + " articles can be marked at once."));
+        }
+        Optional<UserPrincipal> user = currentUserResolver.resolve(authentication);
+        if (user.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+
+        List<Long> existingIds = articleIds.isEmpty() ? List.of() : articleRepository.findExistingIds(new HashSet<>(articleIds));
+        try {
+            readStateService.setRead(user.get().getUserId(), existingIds, true);
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Map.of("error", e.getMessage()));
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("message", "Articles marked as read.");
+        response.put("count", existingIds.size());
+        return ResponseEntity.ok(response);
+    }
+
     /**
      * Marks an article as unread by a user.
      * It uses the Keycloak ID from the authentication object to identify the user.
      * If a read entry already exists for a user-article combination, it will be updated. If it does not exist, it will be created.
      * @param articleId The ID of the article to mark as unread.
      * @param authentication The authentication object containing the user's Keycloak ID.
-     * @return A ResponseEntity containing a success message and a 200 Ok response, or a 404 Not Found response if the user or article does not exist.
+     * @return A ResponseEntity containing a success message and a 200 Ok response, a 404 Not Found response if the user or article does not exist,
+     * or a 503 Service Unavailable response if too many read changes are waiting to be written.
      */
     @PatchMapping("/{articleId}/mark-unread")
     public ResponseEntity<Map<String, String>> markAsUnread(@PathVariable Long articleId, Authentication authentication) {
-        String keycloakId = authentication.getName(); // Récupérer le Keycloak ID
-        Optional<User> user = userRepository.findByKeycloakId(keycloakId);
-        Optional<Article> article = articleRepository.findById(articleId);
+        Optional<UserPrincipal> user = currentUserResolver.resolve(authentication);
 
-        if (user.isEmpty() || article.isEmpty()) {
+        if (user.isEmpty() || !articleRepository.existsById(articleId)) {
             return ResponseEntity.notFound().build();
         }
 
-        UserArticleRead userArticleRead = userArticleReadRepository
-                .findByUserUserIdAndArticleArticleId(user.get().getUserId(), articleId)
-                .orElse(new UserArticleRead());
-
-        userArticleRead.setUser(user.get());
-        userArticleRead.setArticle(article.get());
-        userArticleRead.setRead(false); // Marquer comme non lu
-
-        userArticleReadRepository.save(userArticleRead);
+        try {
+            readStateService.setRead(user.get().getUserId(), articleId, false); // Marquer comme non lu
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Map.of("error", e.getMessage()));
+        }
 
         // Retourner une réponse JSON valide
         Map<String, String> response = new HashMap<>();
@@ -361,56 +624,54 @@ public class ArticleController {
      */
     @GetMapping("/{articleId}/status")
     public ResponseEntity<Map<String, Boolean>> getArticleReadStatus(@PathVariable Long articleId, Authentication authentication) {
-        String keycloakId = authentication.getName(); // Récupérer l'ID Keycloak
-        Optional<User> user = userRepository.findByKeycloakId(keycloakId);
-        Optional<Article> article = articleRepository.findById(articleId);
+        Optional<UserPrincipal> user = currentUserResolver.resolve(authentication);
 
-        if (user.isEmpty() || article.isEmpty()) {
+        if (user.isEmpty() || !articleRepository.existsById(articleId)) {
             return ResponseEntity.notFound().build();
         }
 
-        Optional<UserArticleRead> userArticleRead = userArticleReadRepository
-                .findByUserUserIdAndArticleArticleId(user.get().getUserId(), articleId);
-
         Map<String, Boolean> response = new HashMap<>();
-        response.put("isRead", userArticleRead.map(UserArticleRead::isRead).orElse(false));
+        response.put("isRead", readStateService.hasRead(user.get().getUserId(), articleId));
         return ResponseEntity.ok(response);
     }
 
     /**
-     * Retrieves all articles that a user has marked as read.
-     * It uses the Keycloak ID from the authentication object to identify the user.
+     * Counts the valid articles that the current user has not read yet.
      *
      * @param authentication The authentication object containing the user's Keycloak ID.
-     * @return A ResponseEntity containing a list of articles that the user has read, a 204 No Content response if the user has not read any articles or a 401 Unauthorised if no user was found.
+     * @return A ResponseEntity containing a map with the number of unread articles, or a 404 Not Found response if the user does not exist.
      */
-    @GetMapping("/read")
-    public ResponseEntity<List<Article>> getReadArticles(Authentication authentication) {
-        // Récupérer le Keycloak ID de l'utilisateur connecté
-        String keycloakId = authentication.getName();
-        System.out.println("Keycloak ID reçu : " + keycloakId);
+    @GetMapping("/unread-count")
+    public ResponseEntity<Map<String, Long>> getUnreadCount(Authentication authentication) {
+        return currentUserResolver.resolve(authentication)
+                .map(user -> ResponseEntity.ok(Map.of("unreadCount", readStateService.countUnread(user.getUserId()))))
+                .orElse(ResponseEntity.notFound().build());
+    }
 
-        // Trouver l'utilisateur correspondant
-        Optional<User> user = userRepository.findByKeycloakId(keycloakId);
+    /**
+     * Retrieves one page of the articles that the current user has marked as read, most recently read first.
+     * The page is loaded with a single query returning flat summaries, so its cost does not depend on how many
+     * articles the user has read.
+     *
+     * @param page The zero-based page number.
+     * @param size The number of articles per page (capped at {@value #MAX_PAGE_SIZE}).
+     * @param authentication The authentication object containing the user's Keycloak ID.
+     * @return A ResponseEntity containing the summaries of the read articles, a 204 No Content response if the page is empty or a 401 Unauthorised if no user was found.
+     */
+    @GetMapping("/read")
+    public ResponseEntity<List<ArticleSummary>> getReadArticles(@RequestParam(defaultValue = "0") int page,
+                                                                @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int size,
+                                                                Authentication authentication) {
+        Optional<UserPrincipal> user = currentUserResolver.resolve(authentication);
         if (user.isEmpty()) {
-            System.out.println("Aucun utilisateur trouvé pour Keycloak ID : " + keycloakId);
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
 
-        // Rechercher les articles marqués comme lus par cet utilisateur
-        List<UserArticleRead> userArticleReads = userArticleReadRepository.findByUserUserIdAndIsReadTrue(user.get().getUserId());
-
-        // Si aucun article trouvé, renvoyer un statut HTTP 204 (No Content)
-        if (userArticleReads.isEmpty()) {
-            System.out.println("Aucun article lu trouvé pour l'utilisateur : " + user.get().getEmail());
+        List<ArticleSummary> readArticles = readStateService.findReadArticles(
+                user.get().getUserId(), Math.max(page, 0), clampPageSize(size));
+        if (readArticles.isEmpty()) {
             return ResponseEntity.noContent().build();
         }
-
-        // Extraire les articles depuis la liste UserArticleRead
-        List<Article> readArticles = userArticleReads.stream()
-                .map(UserArticleRead::getArticle)
-                .toList();
-
         return ResponseEntity.ok(readArticles);
     }
 
@@ -418,22 +679,23 @@ public class ArticleController {
     /**
      * Retrieves all articles written by an author using their email address.
      * @param email The email address of the author.
-     * @return A ResponseEntity containing a list of articles written by this author.
+     * @return A ResponseEntity containing the summaries of the articles written by this author.
      * @throws RuntimeException if the user is not found with the given email.
      */
     @GetMapping("/author/email/{email}")
-    public ResponseEntity<List<Article>> getArticlesByAuthorEmail(@PathVariable String email) {
+    public ResponseEntity<List<ArticleSummary>> getArticlesByAuthorEmail(@PathVariable String email) {
         // Trouver l'utilisateur via son email
         User user = userRepository.findByEmail(email)
                 .orElseThrow(() -> new RuntimeException("Utilisateur non trouvé avec l'email : " + email));
 
         // Récupérer les articles associés à cet utilisateur
-        List<Article> articles = articleRepository.findByAuthorId(user.getUserId());
+        List<ArticleSummary> articles = articleRepository.findSummariesByAuthorId(user.getUserId());
 
         return ResponseEntity.ok(articles);
     }
 
     @PatchMapping("/{id}/validate")
+    @Transactional
     public ResponseEntity<Article> validateArticle(@PathVariable Long id) {
         System.out.println("Starting validation process for article ID: " + id);
 
@@ -441,25 +703,28 @@ public class ArticleController {
             System.out.println("Article found. Title: " + article.getTitle() + ", Author: " + article.getAuthor().getEmail());
 
             // Mettre à jour l'article comme valide
+            boolean newlyValid = !article.isValid();
             article.setValid(true);
             Article savedArticle = articleRepository.save(article);
+            readStateService.publishedArticlesChanged();
+            newsletterIssueService.invalidate(newsletterIdOf(savedArticle));
             System.out.println("Article has been marked as valid and saved to the database.");
 
-            try {
-                String email = article.getAuthor().getEmail();
-                String subject = "Your article has been validated!";
-                String content = "<p>Dear " + article.getAuthor().getFirstName() + ",</p>"
-                        + "<p>Your article titled '<strong>" + article.getTitle() + "</strong>' has been validated.</p>"
-                        + "<p>Thank you for your contribution.</p>";
-
-                System.out.println("Attempting to send email to: " + email);
-                emailService.sendEmail(email, subject, content);
-                System.out.println("Email sent successfully to: " + email);
-            } catch (MessagingException e) {
-                System.err.println("Failed to send email. Error: " + e.getMessage());
-                e.printStackTrace();
+            // Diffusé aux abonnés après le commit (voir LiveEventHub)
+            if (newlyValid) {
+                eventPublisher.publishEvent(new LiveEventHub.ArticleValidated(savedArticle.getArticleId(),
+                        newsletterIdOf(savedArticle),
+                        savedArticle.getTitle()));
             }
 
+            // L'email est mis en file et envoyé après le commit, hors du thread de la requête
+            String email = article.getAuthor().getEmail();
+            String subject = "Your article has been validated!";
+            String content = "<p>Dear " + article.getAuthor().getFirstName() + ",</p>"
+                    + "<p>Your article titled '<strong>" + article.getTitle() + "</strong>' has been validated.</p>"
+                    + "<p>Thank you for your contribution.</p>";
+            queueEmail(email, subject, content);
+
             return ResponseEntity.ok(savedArticle);
         }).orElseGet(() -> {
             System.out.println("Article with ID " + id + " not found.");
@@ -467,34 +732,78 @@ public class ArticleController {
         });
     }
     @PatchMapping("/{id}/unvalidate")
+    @Transactional
     public ResponseEntity<Article> unvalidateArticle(@PathVariable Long id) {
         return articleRepository.findById(id).map(article -> {
             article.setValid(false);
             Article savedArticle = articleRepository.save(article);
+            readStateService.publishedArticlesChanged();
+            newsletterIssueService.invalidate(newsletterIdOf(savedArticle));
 
-            try {
-                String email = article.getAuthor().getEmail();
-                String subject = "Your article has been unvalidated.";
-                String content = "<p>Dear " + article.getAuthor().getFirstName() + ",</p>"
-                        + "<p>Your article titled '<strong>" + article.getTitle() + "</strong>' has been unvalidated.</p>"
-                        + "<p>Please review it and make the necessary adjustments.</p>";
-                System.out.println("Sending unvalidation email to: " + email);
-                emailService.sendEmail(email, subject, content);
-                System.out.println("Unvalidation email successfully sent.");
-            } catch (MessagingException e) {
-                System.err.println("Failed to send unvalidation email: " + e.getMessage());
-                e.printStackTrace();
-            }
+            String email = article.getAuthor().getEmail();
+            String subject = "Your article has been unvalidated.";
+            String content = "<p>Dear " + article.getAuthor().getFirstName() + ",</p>"
+                    + "<p>Your article titled '<strong>" + article.getTitle() + "</strong>' has been unvalidated.</p>"
+                    + "<p>Please review it and make the necessary adjustments.</p>";
+            queueEmail(email, subject, content);
 
             return ResponseEntity.ok(savedArticle);
         }).orElse(ResponseEntity.notFound().build());
     }
 
+    /**
+     * Queues a notification email to the author of an article. A missing address only skips the email,
+     * it does not roll back the change of the article.
+     *
+     * @param email   The author's email address.
+     * @param subject The subject of the email.
+     * @param content The HTML content of the email.
+     */
+    private void queueEmail(String email, String subject, String content) {
+        try {
+            emailService.queueEmail(email, subject, content);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Email non envoyé : " + e.getMessage());
+        }
+    }
 
+    /**
+     * Returns the ID of the newsletter of an article.
+     *
+     * @param article The article.
+     * @return The ID of its newsletter, or null if it has none.
+     */
+    private static Long newsletterIdOf(Article article) {
+        return article.getNewsletter() != null ? article.getNewsletter().getNewsletterId() : null;
+    }
 
+    /**
+     * Restricts a requested page size to the range [1, {@value #MAX_PAGE_SIZE}].
+     *
+     * @param size The requested page size.
+     * @return The page size that will actually be used.
+     */
+    private static int clampPageSize(int size) {
+        return Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+    }
 
+    /**
+     * Converts an optional cursor into the upper bound used by the keyset queries.
+     *
+     * @param cursor The cursor sent by the client, or {@code null} for the first page.
+     * @return The exclusive upper bound on article IDs.
+     */
+    private static Long cursorOrFirst(Long cursor) {
+        return cursor != null ? cursor : Long.MAX_VALUE;
+    }
 
-
-
-
+    /**
+     * Builds the limit of a keyset query: one extra row is fetched to know whether a next page exists.
+     *
+     * @param pageSize The page size.
+     * @return The pageable to pass to the repository.
+     */
+    private static Pageable pageLimit(int pageSize) {
+        return PageRequest.of(0, pageSize + 1);
+    }
 }
@@ -1,12 +1,12 @@
 package be.helha.journalapp.controller;
 
-import be.helha.journalapp.model.Article;
+import be.helha.journalapp.dto.CommentView;
+import be.helha.journalapp.dto.CursorPage;
 import be.helha.journalapp.model.Comment;
-import be.helha.journalapp.model.User;
-import be.helha.journalapp.repositories.ArticleRepository;
 import be.helha.journalapp.repositories.CommentRepository;
-import be.helha.journalapp.repositories.UserRepository;
+import be.helha.journalapp.service.CommentService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -21,44 +21,53 @@ import java.util.List;
  *
  * Endpoints:
  * - POST /comments: Add a new comment
- * - GET /comments: Retrieve all comments
+ * - GET /comments: Retrieve one page of comments, newest first
  * - GET /comments/{id}: Retrieve a comment by its ID
  * - PUT /comments/{id}: Update a specific comment
  * - DELETE /comments/{id}: Delete a specific comment
  * - GET /comments/user/{userId}: Retrieve comments by a specific user
- * - GET /comments/article/{articleId}: Retrieve comments for a specific article
+ * - GET /comments/article/{articleId}: Retrieve one page of the comments of an article, oldest first
+ * - GET /comments/search: Search comments by keyword, for moderation
  */
 @RestController
 @RequestMapping("/comments")
 public class CommentController {
 
     /**
-     * Repository for managing comment data.
+     * Page size used by the paginated listings when none is requested.
      */
-    private final CommentRepository commentRepository;
+    private static final int DEFAULT_PAGE_SIZE = 20;
 
     /**
-     * Repository for managing user data.
+     * Largest page size a client may request from the paginated listings.
      */
-    private final UserRepository userRepository;
+    private static final int MAX_PAGE_SIZE = 100;
 
     /**
-     * Repository for managing article data.
+     * Shortest keyword accepted by the comment search: the trigram index cannot serve shorter ones.
      */
-    private final ArticleRepository articleRepository;
+    private static final int MIN_KEYWORD_LENGTH = 3;
+
+    /**
+     * Repository for managing comment data.
+     */
+    private final CommentRepository commentRepository;
+
+    /**
+     * Service creating and deleting comments along with the comment counters of their article.
+     */
+    private final CommentService commentService;
 
     /**
      * Constructs a new instance of CommentController with required dependencies.
      *
      * @param commentRepository the repository for comment data
-     * @param userRepository the repository for user data
-     * @param articleRepository the repository for article data
+     * @param commentService the service creating and deleting comments
      */
     @Autowired
-    public CommentController(CommentRepository commentRepository, UserRepository userRepository, ArticleRepository articleRepository) {
+    public CommentController(CommentRepository commentRepository, CommentService commentService) {
         this.commentRepository = commentRepository;
-        this.userRepository = userRepository;
-        this.articleRepository = articleRepository;
+        this.commentService = commentService;
     }
 
     /**
@@ -84,28 +93,34 @@ public class CommentController {
         Long userId = ((Number) commentData.get("user_id")).longValue();
         Long articleId = ((Number) commentData.get("article_id")).longValue();
 
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new RuntimeException("User with ID " + userId + " not found."));
-
-        Article article = articleRepository.findById(articleId)
-                .orElseThrow(() -> new RuntimeException("Article with ID " + articleId + " not found."));
-
-        Comment comment = new Comment();
-        comment.setContent(content);
-        comment.setPublicationDate(publicationDate);
-        comment.setUser(user);
-        comment.setArticle(article);
-
-        Comment savedComment = commentRepository.save(comment);
+        Comment savedComment = commentService.addComment(userId, articleId, content, publicationDate);
         return ResponseEntity.status(HttpStatus.CREATED).body(savedComment);
     }
 
     /**
-     * Retrieves all comments from the database.
+     * Retrieves one page of comments, newest first.
      *
-     * @return a ResponseEntity containing the list of all comments and HTTP status code 200 (OK)
+     * @param cursor the {@code next} cursor returned by the previous page, or nothing for the first page
+     * @param size   the number of comments per page (capped at {@value #MAX_PAGE_SIZE})
+     * @return a ResponseEntity containing the page of comments and the cursor of the next page
      */
     @GetMapping
+    public ResponseEntity<CursorPage<CommentView>> getCommentsPage(
+            @RequestParam(required = false) Long cursor,
+            @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int size) {
+        int pageSize = clampPageSize(size);
+        List<CommentView> rows = commentRepository.findViewsBefore(cursor != null ? cursor : Long.MAX_VALUE,
+                PageRequest.of(0, pageSize + 1));
+        return ResponseEntity.ok(CursorPage.of(rows, pageSize, CommentView::getCommentId));
+    }
+
+    /**
+     * Retrieves all comments from the database in a single, unbounded response.
+     * This legacy shape must be requested explicitly with {@code unpaged=true}.
+     *
+     * @return a ResponseEntity containing the list of all comments and HTTP status code 200 (OK)
+     */
+    @GetMapping(params = "unpaged=true")
     public ResponseEntity<List<Comment>> getAllComments() {
         List<Comment> comments = commentRepository.findAll();
         return ResponseEntity.ok(comments);
@@ -151,8 +166,7 @@ public class CommentController {
      */
     @DeleteMapping("/{id}")
     public ResponseEntity<String> deleteComment(@PathVariable Long id) {
-        if (commentRepository.existsById(id)) {
-            commentRepository.deleteById(id);
+        if (commentService.deleteComment(id)) {
             return ResponseEntity.ok("Comment deleted successfully");
         } else {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Comment not found");
@@ -172,14 +186,84 @@ public class CommentController {
     }
 
     /**
-     * Retrieves comments associated with a specific article.
+     * Retrieves one page of the comments of an article, oldest first.
+     * The number of comments of an article is available on the article itself ({@code commentCount}).
      *
      * @param articleId the ID of the article whose comments are to be retrieved
-     * @return a ResponseEntity containing the list of comments for the specified article and HTTP status code 200 (OK)
+     * @param cursor    the {@code next} cursor returned by the previous page, or nothing for the first page
+     * @param size      the number of comments per page (capped at {@value #MAX_PAGE_SIZE})
+     * @return a ResponseEntity containing the page of comments and the cursor of the next page
      */
     @GetMapping("/article/{articleId}")
+    public ResponseEntity<CursorPage<CommentView>> getCommentsPageByArticleId(
+            @PathVariable Long articleId,
+            @RequestParam(required = false) Long cursor,
+            @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int size) {
+        int pageSize = clampPageSize(size);
+        List<CommentView> rows = commentRepository.findViewsByArticleAfter(articleId, cursor != null ? cursor : 0L,
+                PageRequest.of(0, pageSize + 1));
+        return ResponseEntity.ok(CursorPage.of(rows, pageSize, CommentView::getCommentId));
+    }
+
+    /**
+     * Retrieves all comments associated with a specific article in a single, unbounded response.
+     * This legacy shape must be requested explicitly with {@code unpaged=true}.
+     *
+     * @param articleId the ID of the article whose comments are to be retrieved
+     * @return a ResponseEntity containing the list of comments for the specified article and HTTP status code 200 (OK)
+     */
+    @GetMapping(value = "/article/{articleId}", params = "unpaged=true")
     public ResponseEntity<List<Comment>> getCommentsByArticleId(@PathVariable Long articleId) {
         List<Comment> comments = commentRepository.findByArticleArticleId(articleId);
         return ResponseEntity.ok(comments);
     }
+
+    /**
+     * Searches the comments containing a keyword, newest first, for moderation.
+     * The match ignores case and is served by a trigram index, so its cost does not grow with the number of comments.
+     *
+     * @param keyword   the text to look for (at least {@value #MIN_KEYWORD_LENGTH} characters)
+     * @param articleId the ID of the article to search in, or nothing for all articles
+     * @param authorId  the ID of the author to search for, or nothing for all authors
+     * @param cursor    the {@code next} cursor returned by the previous page, or nothing for the first page
+     * @param size      the number of comments per page (capped at {@value #MAX_PAGE_SIZE})
+     * @return a ResponseEntity containing the page of comments and the cursor of the next page,
+     * or HTTP status code 400 (Bad Request) if the keyword is too short
+     */
+    @GetMapping("/search")
+    public ResponseEntity<?> searchComments(@RequestParam String keyword,
+                                            @RequestParam(required = false) Long articleId,
+                                            @RequestParam(required = false) Long authorId,
+                                            @RequestParam(required = false) Long cursor,
+                                            @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int size) {
+        String trimmed = keyword.trim();
+        if (trimmed.length() < MIN_KEYWORD_LENGTH) {
+            return ResponseEntity.badRequest().body(
+                    Map.of("error", "The keyword must have at least " + MIN_KEYWORD_LENGTH + " characters."));
+        }
+        int pageSize = clampPageSize(size);
+        List<CommentView> rows = commentRepository.searchViewsBefore(containsPattern(trimmed), articleId, authorId,
+                cursor != null ? cursor : Long.MAX_VALUE, PageRequest.of(0, pageSize + 1));
+        return ResponseEntity.ok(CursorPage.of(rows, pageSize, CommentView::getCommentId));
+    }
+
+    /**
+     * Restricts a requested page size to the range [1, {@value #MAX_PAGE_SIZE}].
+     *
+     * @param size the requested page size
+     * @return the page size that will actually be used
+     */
+    private static int clampPageSize(int size) {
+        return Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+    }
+
+    /**
+     * Builds an ILIKE pattern matching any text that contains the keyword literally.
+     *
+     * @param keyword the keyword
+     * @return the pattern, with the wildcards of the keyword escaped
+     */
+    static String containsPattern(String keyword) {
+        return "%" + keyword.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+    }
 }
@@ -28,10 +28,14 @@ public class EmailController {
 
         Map<String, String> response = new HashMap<>();
 
+        // L'email est mis en file : il est envoyé en arrière-plan, avec de nouveaux essais en cas d'échec
         try {
-            emailService.sendEmail(to, subject, content);
-            response.put("message", "Email sent successfully!");
-            return ResponseEntity.ok(response);
+            emailService.queueEmail(to, subject, content);
+            response.put("message", "Email queued for sending.");
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(response);
+        } catch (IllegalArgumentException e) {
+            response.put("error", "Error sending email: " + e.getMessage());
+            return ResponseEntity.badRequest().body(response);
         } catch (Exception e) {
             response.put("error", "Error sending email: " + e.getMessage());
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
@@ -1,17 +1,35 @@
 package be.helha.journalapp.controller;
 
+import be.helha.journalapp.dto.ImageMetadata;
+import be.helha.journalapp.dto.NewsletterIssue;
 import be.helha.journalapp.model.Article;
 import be.helha.journalapp.model.Image;
 import be.helha.journalapp.repositories.ArticleRepository;
 import be.helha.journalapp.repositories.ImageRepository;
-import jakarta.transaction.Transactional;
+import be.helha.journalapp.service.ImageContentService;
+import be.helha.journalapp.service.ImageDerivativeService;
+import be.helha.journalapp.service.ImageDerivativeService.Derivative;
+import be.helha.journalapp.service.NewsletterIssueService;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.ByteArrayOutputStream;
 import java.util.Base64;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 
@@ -23,23 +41,44 @@ import java.util.stream.Collectors;
 @RequestMapping("/images")
 public class ImageController {
 
+    /**
+     * How long browsers may keep an image requested with its current version.
+     */
+    private static final CacheControl IMMUTABLE = CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable();
+
+    /**
+     * Same as {@link #IMMUTABLE} for the images of draft articles, which shared caches must not keep.
+     */
+    private static final CacheControl PRIVATE_IMMUTABLE = CacheControl.maxAge(365, TimeUnit.DAYS).cachePrivate().immutable();
+
     private final ImageRepository imageRepository;
     private final ArticleRepository articleRepository;
+    private final ImageContentService imageContentService;
+    private final ImageDerivativeService imageDerivativeService;
+    private final NewsletterIssueService newsletterIssueService;
 
     /**
      * Constructor for ImageController, injecting dependencies.
      *
      * @param imageRepository The repository for accessing image data.
      * @param articleRepository The repository for accessing article data.
+     * @param imageContentService The service streaming the binary data of images.
+     * @param imageDerivativeService The service rendering resized copies of images.
+     * @param newsletterIssueService The service of the newsletter issues, which list the images of their articles.
      */
-    public ImageController(ImageRepository imageRepository ,ArticleRepository articleRepository) {
+    public ImageController(ImageRepository imageRepository ,ArticleRepository articleRepository,
+                           ImageContentService imageContentService, ImageDerivativeService imageDerivativeService,
+                           NewsletterIssueService newsletterIssueService) {
         this.imageRepository = imageRepository;
         this.articleRepository = articleRepository;
+        this.imageContentService = imageContentService;
+        this.imageDerivativeService = imageDerivativeService;
+        this.newsletterIssueService = newsletterIssueService;
     }
 
     /**
      * Creates a new image.
-     * Decodes the Base64 image, sets the associated article, and saves the image to the database.
+     * Decodes the Base64 image, stores it in the blob store, sets the associated article, and saves the image to the database.
      *
      * @param imageData A map containing the image data, including "imagePath" (Base64 encoded) and "articleId".
      * @return A ResponseEntity containing the saved Image object.
@@ -51,7 +90,7 @@ public class ImageController {
         // Décoder l'image Base64 en tableau d'octets
         String base64Image = (String) imageData.get("imagePath");
         byte[] decodedImage = Base64.getDecoder().decode(base64Image);
-        image.setImagePath(decodedImage);
+        imageContentService.attachContent(image, decodedImage);
 
         // Associer l'article en utilisant l'ID
         Long articleId = ((Number) imageData.get("articleId")).longValue();
@@ -61,6 +100,10 @@ public class ImageController {
 
         // Sauvegarde de l'image
         Image savedImage = imageRepository.save(image);
+        articleRepository.findNewsletterIdByArticleId(articleId).ifPresent(newsletterIssueService::invalidate);
+
+        // Les miniatures sont générées en arrière-plan, sans retarder la réponse
+        imageDerivativeService.pregenerate(image.getContentHash(), image.getMediaType());
         return ResponseEntity.ok(savedImage);
     }
 
@@ -123,18 +166,25 @@ public class ImageController {
         for (Image updatedImage : updatedArticle.getImages()) {
             if (updatedImage.getImageId() == null || updatedImage.getImageId() == 0) {
                 // Nouvelle image
+                if (updatedImage.getImagePath() != null) {
+                    imageContentService.attachContent(updatedImage, updatedImage.getImagePath());
+                }
                 existingArticle.addImage(updatedImage);
             } else {
                 // Image existante : mettre à jour ses champs
                 existingArticle.getImages().stream()
                         .filter(image -> image.getImageId().equals(updatedImage.getImageId()))
                         .findFirst()
-                        .ifPresent(image -> image.setImagePath(updatedImage.getImagePath()));
+                        .filter(image -> updatedImage.getImagePath() != null) // Les clients ne renvoient pas toujours les octets
+                        .ifPresent(image -> imageContentService.attachContent(image, updatedImage.getImagePath()));
             }
         }
 
         // Sauvegarder l'article mis à jour
         Article savedArticle = articleRepository.save(existingArticle);
+        if (savedArticle.getNewsletter() != null) {
+            newsletterIssueService.invalidate(savedArticle.getNewsletter().getNewsletterId());
+        }
         return ResponseEntity.ok(savedArticle);
     }
 
@@ -149,7 +199,9 @@ public class ImageController {
     @DeleteMapping("/{id}")
     public ResponseEntity<String> deleteImage(@PathVariable Long id) {
         if (imageRepository.existsById(id)) {
+            Optional<Long> newsletterId = imageRepository.findNewsletterIdByImageId(id);
             imageRepository.deleteById(id);
+            newsletterId.ifPresent(newsletterIssueService::invalidate);
             return ResponseEntity.ok("Image deleted successfully");
         }
         return ResponseEntity.notFound().build();
@@ -159,38 +211,196 @@ public class ImageController {
      * Retrieves an image by its ID and returns it as a Base64 encoded string.
      *
      * @param id The ID of the image to retrieve.
-     * @return A ResponseEntity containing the Base64 encoded image if found, or a 404 Not Found response.
+     * @return A ResponseEntity containing the Base64 encoded image if found, a 404 Not Found response,
+     * or a 503 Service Unavailable response if the data of the image cannot be read.
      */
     @GetMapping("/{id}/base64")
     public ResponseEntity<String> getImageAsBase64(@PathVariable Long id) {
-        return imageRepository.findById(id)
-                .map(image -> {
-                    String base64 = Base64.getEncoder().encodeToString(image.getImagePath());
-                    return ResponseEntity.ok(base64);
+        return imageContentService.findMetadata(id)
+                .map(metadata -> {
+                    if (!imageContentService.hasContent(metadata)) {
+                        return this.<String>contentUnavailable(id);
+                    }
+                    ByteArrayOutputStream data = new ByteArrayOutputStream();
+                    imageContentService.writeContent(metadata, data);
+                    return ResponseEntity.ok(Base64.getEncoder().encodeToString(data.toByteArray()));
                 })
                 .orElse(ResponseEntity.notFound().build());
     }
 
     /**
-     * Retrieves all images associated with a specific article ID.
+     * Streams the binary data of an image with its media type, size and entity tag.
+     * The image is copied to the response in small chunks, so it is never held in memory.
+     * <p>
+     * When the request carries the current version of the image ({@code v}, as returned by
+     * {@link #getImagesByArticleId(Long, Authentication)}), the response may be cached indefinitely: a new version gets a new URL.
+     * Otherwise browsers must revalidate with the entity tag, which answers 304 Not Modified without reading the image.
+     * The images of draft articles are only served to authenticated users, and never cached by shared caches.
+     *
+     * @param id             The ID of the image.
+     * @param version        The version of the image the client expects (its content hash), if known.
+     * @param ifNoneMatch    The entity tag cached by the client, if any.
+     * @param authentication The authentication of the caller, or null for an anonymous visitor.
+     * @return A ResponseEntity streaming the image, a 304 Not Modified response, a 404 Not Found response,
+     * or a 503 Service Unavailable response if the data of the image cannot be read.
+     */
+    @GetMapping("/{id}/raw")
+    public ResponseEntity<StreamingResponseBody> getRawImage(
+            @PathVariable Long id,
+            @RequestParam(value = "v", required = false) String version,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            Authentication authentication) {
+        ImageMetadata metadata = imageContentService.findMetadata(id).orElse(null);
+        if (metadata == null || metadata.getContentHash() == null || !isVisible(metadata, authentication)) {
+            return ResponseEntity.notFound().build();
+        }
+        if (!imageContentService.hasContent(metadata)) {
+            return contentUnavailable(id);
+        }
+
+        return streamResponse(metadata.getContentHash(), metadata.getContentHash().equals(version), ifNoneMatch,
+                metadata.isPublished(), metadata.getMediaType(), metadata.getByteSize(),
+                out -> imageContentService.writeContent(metadata, out));
+    }
+
+    /**
+     * Streams a resized copy of an image, for views that display it smaller than its original size.
+     * The width is rounded up to one of {@link ImageDerivativeService#WIDTHS}. The copy is rendered on first
+     * request (concurrent requests share the render) and cached on disk; the original image is served instead
+     * when it already fits in the requested width or cannot be resized. The request never waits for a render:
+     * while the copy is being rendered, or if the render fails, the original image is served without the
+     * immutable caching, so that the client asks for the copy again later.
+     * As for the original, the images of draft articles are only served to authenticated users.
+     *
+     * @param id             The ID of the image.
+     * @param width          The width needed by the client, in pixels.
+     * @param version        The version of the image the client expects (its content hash), if known.
+     * @param ifNoneMatch    The entity tag cached by the client, if any.
+     * @param authentication The authentication of the caller, or null for an anonymous visitor.
+     * @return A ResponseEntity streaming the image, a 304 Not Modified response, or a 404 Not Found response.
+     */
+    @GetMapping(value = "/{id}", params = "w")
+    public ResponseEntity<StreamingResponseBody> getResizedImage(
+            @PathVariable Long id,
+            @RequestParam("w") int width,
+            @RequestParam(value = "v", required = false) String version,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            Authentication authentication) {
+        ImageMetadata metadata = imageContentService.findMetadata(id).orElse(null);
+        if (metadata == null || metadata.getContentHash() == null || !isVisible(metadata, authentication)) {
+            return ResponseEntity.notFound().build();
+        }
+
+        CompletableFuture<Optional<Derivative>> render =
+                imageDerivativeService.getOrCreate(metadata.getContentHash(), metadata.getMediaType(), width);
+        if (!render.isDone()) {
+            // Pas d'attente sur le thread de la requête : l'original est servi sans cache long
+            return getRawImage(id, null, ifNoneMatch, authentication);
+        }
+        Optional<Derivative> derivative;
+        try {
+            derivative = render.join();
+        } catch (CompletionException | CancellationException e) {
+            System.err.println("Miniature indisponible pour l'image " + id + " : " + e.getMessage());
+            return getRawImage(id, null, ifNoneMatch, authentication);
+        }
+        if (derivative.isEmpty()) {
+            return getRawImage(id, version, ifNoneMatch, authentication);
+        }
+
+        Derivative resized = derivative.get();
+        return streamResponse(metadata.getContentHash() + "-w" + resized.getWidth(),
+                metadata.getContentHash().equals(version), ifNoneMatch,
+                metadata.isPublished(), resized.getMediaType(), resized.getSize(),
+                out -> imageDerivativeService.writeContent(resized, out));
+    }
+
+    /**
+     * Builds the response for an image whose data cannot be read, checked before the status and length
+     * of the response are sent, rather than answering 200 with a truncated body.
+     *
+     * @param id  The ID of the image.
+     * @param <T> The type of the response body.
+     * @return A 503 Service Unavailable response.
+     */
+    private <T> ResponseEntity<T> contentUnavailable(Long id) {
+        System.err.println("Données introuvables pour l'image " + id);
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+    }
+
+    /**
+     * Tells whether a caller may see an image: the images of published articles are public (they are displayed
+     * by {@code <img>} tags, which send no token), those of drafts are reserved to authenticated users.
+     *
+     * @param metadata       The metadata of the image.
+     * @param authentication The authentication of the caller, or null for an anonymous visitor.
+     * @return true if the image may be served to the caller.
+     */
+    private static boolean isVisible(ImageMetadata metadata, Authentication authentication) {
+        return metadata.isPublished()
+                || (authentication != null && authentication.isAuthenticated()
+                && !(authentication instanceof AnonymousAuthenticationToken));
+    }
+
+    /**
+     * Builds the response streaming an image, or a 304 Not Modified response if the client already has it.
+     *
+     * @param etag        The entity tag of the representation.
+     * @param versioned   Whether the request carries the current version of the image, so that it can be cached indefinitely.
+     * @param ifNoneMatch The entity tag cached by the client, if any.
+     * @param published   Whether the image belongs to a published article, so that shared caches may keep it.
+     * @param mediaType   The media type of the representation.
+     * @param size        The size of the representation in bytes.
+     * @param body        The body writing the representation.
+     * @return The response.
+     */
+    private ResponseEntity<StreamingResponseBody> streamResponse(String etag, boolean versioned, String ifNoneMatch,
+                                                                 boolean published, String mediaType, long size,
+                                                                 StreamingResponseBody body) {
+        CacheControl cacheControl;
+        if (versioned) {
+            cacheControl = published ? IMMUTABLE : PRIVATE_IMMUTABLE;
+        } else {
+            cacheControl = published ? CacheControl.noCache() : CacheControl.noCache().cachePrivate();
+        }
+        if (ifNoneMatch != null && ifNoneMatch.contains("\"" + etag + "\"")) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(cacheControl).build();
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(mediaType))
+                .contentLength(size)
+                .eTag(etag)
+                .cacheControl(cacheControl)
+                .body(body);
+    }
+
+    /**
+     * Retrieves the images associated with a specific article ID.
+     * Only references are returned: each image is then downloaded from its {@code url}.
+     *
+     * The images of a draft article are only listed for authenticated users.
      *
-     * @param articleId The ID of the article to retrieve images for.
-     * @return A ResponseEntity containing a list of image data (including Base64 encoded image paths) if found, or a 404 Not Found response.
+     * @param articleId      The ID of the article to retrieve images for.
+     * @param authentication The authentication of the caller, or null for an anonymous visitor.
+     * @return A ResponseEntity containing a list of image references (ID, article ID, and versioned URLs of the original,
+     * a thumbnail and a preview) if found, or a 404 Not Found response.
      */
     @GetMapping("/article/{articleId}")
-    @Transactional
-    public ResponseEntity<List<Map<String, Object>>> getImagesByArticleId(@PathVariable Long articleId) {
-        List<Image> images = imageRepository.findByArticleArticleId(articleId);
-        if (images.isEmpty()) {
+    public ResponseEntity<List<Map<String, Object>>> getImagesByArticleId(@PathVariable Long articleId,
+                                                                          Authentication authentication) {
+        List<ImageMetadata> images = imageContentService.findMetadataByArticleId(articleId);
+        if (images.isEmpty() || !isVisible(images.get(0), authentication)) {
             return ResponseEntity.notFound().build();
         }
 
-        // Transformez les données pour inclure les images en Base64
         List<Map<String, Object>> response = images.stream().map(image -> {
             Map<String, Object> imageData = new HashMap<>();
             imageData.put("imageId", image.getImageId());
-            imageData.put("imagePath", Base64.getEncoder().encodeToString(image.getImagePath()));
-            imageData.put("articleId", image.getArticle().getArticleId());
+            imageData.put("articleId", image.getArticleId());
+            NewsletterIssue.IssueImage urls = NewsletterIssue.IssueImage.of(image);
+            imageData.put("url", urls.url());
+            imageData.put("thumbnailUrl", urls.thumbnailUrl());
+            imageData.put("previewUrl", urls.previewUrl());
             return imageData;
         }).collect(Collectors.toList());
 
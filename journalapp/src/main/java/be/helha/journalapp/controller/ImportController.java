@@ -0,0 +1,81 @@
+package be.helha.journalapp.controller;
+
+import be.helha.journalapp.model.ImportCheckpoint;
+import be.helha.journalapp.service.ArticleImportService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Imports articles in bulk, with their authors and newsletters, from NDJSON archives.
+ *
+ * Endpoints:
+ * - POST /imports/articles?importId=archive-2019: Import an NDJSON stream, one article per line
+ *   ({@code curl -X POST -H 'Content-Type: application/x-ndjson' --data-binary @archive.ndjson ...});
+ *   sending it again with the same import ID resumes after the lines already imported
+ * - GET /imports/{importId}: Retrieve the progress of an import
+ */
+@RestController
+@RequestMapping("/imports")
+public class ImportController {
+
+    private final ArticleImportService articleImportService;
+
+    /**
+     * Constructor for ImportController.
+     *
+     * @param articleImportService The service importing the articles.
+     */
+    public ImportController(ArticleImportService articleImportService) {
+        this.articleImportService = articleImportService;
+    }
+
+    /**
+     * Imports the articles of an NDJSON request body. The body is read as it arrives and written in batches.
+     *
+     * @param importId The identifier of the import, used to resume it.
+     * @param body     The NDJSON request body.
+     * @return A ResponseEntity containing the progress of the completed import, a 409 Conflict response if the
+     * import is already running, or a 400 Bad Request response (with the progress) if a line is invalid.
+     * @throws IOException If the request body could not be read; the lines already written are kept.
+     */
+    @PostMapping(value = "/articles", consumes = {"application/x-ndjson", MediaType.APPLICATION_OCTET_STREAM_VALUE,
+            MediaType.TEXT_PLAIN_VALUE})
+    public ResponseEntity<?> importArticles(@RequestParam String importId, InputStream body) throws IOException {
+        Optional<ImportCheckpoint> checkpoint;
+        try {
+            checkpoint = articleImportService.importArticles(importId, body);
+        } catch (IllegalArgumentException e) {
+            Optional<ImportCheckpoint> progress = articleImportService.getProgress(importId);
+            return ResponseEntity.badRequest().body(progress.isPresent()
+                    ? Map.of("error", e.getMessage(), "progress", progress.get())
+                    : Map.of("error", e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of("error", e.getMessage()));
+        }
+        if (checkpoint.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(Map.of("error", "Import " + importId + " is already running."));
+        }
+        return ResponseEntity.ok(checkpoint.get());
+    }
+
+    /**
+     * Retrieves the progress of an import, e.g. while it runs or to know where a failed import stopped.
+     *
+     * @param importId The identifier of the import.
+     * @return A ResponseEntity containing the progress, or a 404 Not Found response.
+     */
+    @GetMapping("/{importId}")
+    public ResponseEntity<ImportCheckpoint> getProgress(@PathVariable String importId) {
+        return articleImportService.getProgress(importId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+}
@@ -0,0 +1,76 @@
+package be.helha.journalapp.controller;
+
+import be.helha.journalapp.service.LiveEventHub;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Streams the new comments and the newly validated articles to the clients, as Server-Sent Events.
+ *
+ * Endpoints:
+ * - GET /events?topics=article:12,newsletter:3,articles: Subscribe to some topics
+ *
+ * Events:
+ * - subscribed: the topics of the subscription, sent once it is open
+ * - comment: a new comment on a followed article ({@code article:<id>})
+ * - article-validated: an article validated in a followed newsletter ({@code newsletter:<id>}),
+ *   or in any newsletter ({@code articles})
+ */
+@RestController
+@RequestMapping("/events")
+public class LiveEventController {
+
+    private final LiveEventHub liveEventHub;
+
+    /**
+     * Constructor for LiveEventController.
+     *
+     * @param liveEventHub The hub dispatching the events to the subscribers.
+     */
+    public LiveEventController(LiveEventHub liveEventHub) {
+        this.liveEventHub = liveEventHub;
+    }
+
+    /**
+     * Subscribes to some topics. The connection stays open and receives the events of these topics
+     * until the client closes it or the subscription expires.
+     *
+     * @param topics The topics, comma-separated or repeated.
+     * @return The event stream.
+     */
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribe(@RequestParam List<String> topics) {
+        return liveEventHub.subscribe(LiveEventHub.parseTopics(topics));
+    }
+
+    /**
+     * Rejects a subscription to invalid topics.
+     *
+     * @param e The exception describing the invalid topics.
+     * @return A 400 Bad Request response.
+     */
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Map<String, String>> handleInvalidTopics(IllegalArgumentException e) {
+        // Le type est fixé, sinon l'en-tête Accept: text/event-stream empêcherait d'écrire l'erreur en JSON
+        return ResponseEntity.badRequest().contentType(MediaType.APPLICATION_JSON)
+                .body(Map.of("error", e.getMessage()));
+    }
+
+    /**
+     * Rejects a subscription when the server holds too many of them.
+     *
+     * @param e The exception describing the limit.
+     * @return A 503 Service Unavailable response.
+     */
+    @ExceptionHandler(IllegalStateException.class)
+    public ResponseEntity<Map<String, String>> handleTooManySubscriptions(IllegalStateException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).contentType(MediaType.APPLICATION_JSON)
+                .body(Map.of("error", e.getMessage()));
+    }
+}
@@ -1,5 +1,6 @@
 package be.helha.journalapp.controller;
 
+import be.helha.journalapp.dto.NewsletterIssue;
 import be.helha.journalapp.model.Article;
 import be.helha.journalapp.model.Newsletter;
 import be.helha.journalapp.model.Role;
@@ -13,9 +14,12 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.HashMap;
 import be.helha.journalapp.repositories.RoleRepository;
+import be.helha.journalapp.security.UserPrincipalCache;
+import be.helha.journalapp.service.NewsletterIssueService;
 
 /**
  * REST controller for managing newsletters.
@@ -32,6 +36,8 @@ public class NewsletterController {
     private final UserRepository userRepository;
     private final ArticleRepository articleRepository;
     private final RoleRepository roleRepository;
+    private final UserPrincipalCache userPrincipalCache;
+    private final NewsletterIssueService newsletterIssueService;
 
     /**
      * Construit un nouveau NewsletterController avec les dépôts spécifiés.
@@ -39,12 +45,17 @@ public class NewsletterController {
      * @param newsletterRepository le dépôt pour les newsletters
      * @param userRepository       le dépôt pour les utilisateurs
      * @param articleRepository    le dépôt pour les articles
+     * @param userPrincipalCache   le cache des utilisateurs, invalidé quand un rôle change
+     * @param newsletterIssueService le service des numéros, invalidés quand une newsletter ou ses articles changent
      */
-    public NewsletterController(NewsletterRepository newsletterRepository, UserRepository userRepository, ArticleRepository articleRepository, RoleRepository roleRepository) {
+    public NewsletterController(NewsletterRepository newsletterRepository, UserRepository userRepository, ArticleRepository articleRepository, RoleRepository roleRepository,
+                                UserPrincipalCache userPrincipalCache, NewsletterIssueService newsletterIssueService) {
         this.newsletterRepository = newsletterRepository;
         this.userRepository = userRepository;
         this.articleRepository = articleRepository;
         this.roleRepository = roleRepository;
+        this.userPrincipalCache = userPrincipalCache;
+        this.newsletterIssueService = newsletterIssueService;
     }
 
     /**
@@ -126,7 +137,25 @@ public class NewsletterController {
         return ResponseEntity.ok(newsletterOpt.get());
     }
 
+    /**
+     * Récupère tout ce qu'il faut pour afficher une newsletter en une seule requête : sa mise en forme et ses
+     * articles valides, avec le nom de leur auteur et les URL de leurs images.
+     *
+     * @param id l'ID de la newsletter
+     * @return un ResponseEntity contenant le numéro de la newsletter, ou un message d'erreur si non trouvée
+     */
+    @GetMapping("/{id}/issue")
+    public ResponseEntity<?> getNewsletterIssue(@PathVariable Long id) {
+        Optional<NewsletterIssue> issue = newsletterIssueService.getIssue(id);
+        if (issue.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(Map.of("message", "Newsletter with ID " + id + " not found."));
+        }
+        return ResponseEntity.ok(issue.get());
+    }
+
     @PutMapping("/{id}")
+    @Transactional
     public ResponseEntity<?> updateNewsletter(@PathVariable Long id, @RequestBody Map<String, Object> updatedNewsletterData) {
         Optional<Newsletter> existingOpt = newsletterRepository.findById(id);
         if (existingOpt.isEmpty()) {
@@ -135,6 +164,7 @@ public class NewsletterController {
         }
 
         Newsletter existingNewsletter = existingOpt.get();
+        String oldBackgroundColor = existingNewsletter.getBackgroundColor();
 
         // Mettre à jour les champs
         existingNewsletter.setTitle((String) updatedNewsletterData.get("title"));
@@ -172,31 +202,16 @@ public class NewsletterController {
         }
 
         Newsletter savedNewsletter = newsletterRepository.save(existingNewsletter);
+        newsletterIssueService.invalidate(id);
 
-        // Mettre à jour les articles si nécessaire
-        String oldBackgroundColor = existingNewsletter.getBackgroundColor();
-        if (oldBackgroundColor != null && !oldBackgroundColor.equals(existingNewsletter.getBackgroundColor())) {
-            updateArticlesBackgroundColor(savedNewsletter.getNewsletterId(), existingNewsletter.getBackgroundColor());
+        // Mettre à jour les articles si nécessaire, en une seule requête UPDATE sans charger les articles
+        if (!Objects.equals(oldBackgroundColor, savedNewsletter.getBackgroundColor())) {
+            articleRepository.updateBackgroundColorByNewsletterId(id, savedNewsletter.getBackgroundColor());
         }
 
         return ResponseEntity.ok(savedNewsletter);
     }
 
-
-    /**
-     * Met à jour la couleur de fond de tous les articles associés à une newsletter.
-     *
-     * @param newsletterId        l'ID de la newsletter
-     * @param newBackgroundColor la nouvelle couleur de fond à appliquer
-     */
-    private void updateArticlesBackgroundColor(Long newsletterId, String newBackgroundColor) {
-        List<Article> articles = articleRepository.findByNewsletterNewsletterId(newsletterId);
-        for (Article article : articles) {
-            article.setBackgroundColor(newBackgroundColor);
-        }
-        articleRepository.saveAll(articles);
-    }
-
     /**
      * Supprime une newsletter par son ID.
      *
@@ -210,6 +225,7 @@ public class NewsletterController {
                     .body(Map.of("message", "Newsletter with ID " + id + " not found."));
         }
         newsletterRepository.deleteById(id);
+        newsletterIssueService.invalidate(id);
         return ResponseEntity.ok(Map.of("message", "Newsletter deleted successfully"));
     }
 
@@ -326,6 +342,7 @@ public class NewsletterController {
         if (!user.getRole().getRoleName().equals("JOURNALIST")) {
             user.setRole(journalistRole); // Change le rôle de l'utilisateur
             userRepository.save(user); // Sauvegarde l'utilisateur avec le nouveau rôle
+            userPrincipalCache.invalidate(user.getKeycloakId());
         }
 
         // Sauvegarde de la newsletter mise à jour
@@ -411,8 +428,11 @@ public class NewsletterController {
                     .body(Map.of("message", "Article already exists in the newsletter."));
         }
 
+        Long previousNewsletterId = article.getNewsletter() != null ? article.getNewsletter().getNewsletterId() : null;
         article.setNewsletter(newsletter);
         articleRepository.save(article);
+        newsletterIssueService.invalidate(previousNewsletterId);
+        newsletterIssueService.invalidate(newsletterId);
 
         return ResponseEntity.ok(Map.of("message", "Article added to the newsletter successfully."));
     }
@@ -449,6 +469,7 @@ public class NewsletterController {
         article.setNewsletter(null);
         articleRepository.save(article);
         newsletterRepository.save(newsletter);
+        newsletterIssueService.invalidate(newsletterId);
 
         return ResponseEntity.ok(Map.of("message", "Article successfully removed from the newsletter."));
     }
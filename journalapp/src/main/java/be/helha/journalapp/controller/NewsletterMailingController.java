@@ -0,0 +1,59 @@
+package be.helha.journalapp.controller;
+
+import be.helha.journalapp.model.NewsletterMailing;
+import be.helha.journalapp.repositories.NewsletterRepository;
+import be.helha.journalapp.service.NewsletterMailingService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * Sends newsletters by email to all users and reports the progress of the mailings.
+ */
+@RestController
+@RequestMapping("/newsletters/{newsletterId}/mailings")
+public class NewsletterMailingController {
+
+    private final NewsletterMailingService mailingService;
+    private final NewsletterRepository newsletterRepository;
+
+    /**
+     * Constructor for NewsletterMailingController.
+     *
+     * @param mailingService       The service sending the newsletters.
+     * @param newsletterRepository The repository for accessing newsletter data.
+     */
+    public NewsletterMailingController(NewsletterMailingService mailingService,
+                                       NewsletterRepository newsletterRepository) {
+        this.mailingService = mailingService;
+        this.newsletterRepository = newsletterRepository;
+    }
+
+    /**
+     * Starts sending a newsletter to all users, in the background.
+     * If the newsletter is already being sent, the running mailing is returned.
+     *
+     * @param newsletterId The ID of the newsletter.
+     * @return The mailing (202 Accepted), or 404 if the newsletter does not exist.
+     */
+    @PostMapping
+    public ResponseEntity<NewsletterMailing> startMailing(@PathVariable Long newsletterId) {
+        if (!newsletterRepository.existsById(newsletterId)) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(mailingService.start(newsletterId));
+    }
+
+    /**
+     * Lists the mailings of a newsletter and their progress, newest first.
+     *
+     * @param newsletterId The ID of the newsletter.
+     * @return The mailings of the newsletter.
+     */
+    @GetMapping
+    public ResponseEntity<List<NewsletterMailing>> getMailings(@PathVariable Long newsletterId) {
+        return ResponseEntity.ok(mailingService.findByNewsletter(newsletterId));
+    }
+}
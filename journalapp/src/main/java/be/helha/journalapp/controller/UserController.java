@@ -4,8 +4,11 @@ import be.helha.journalapp.model.Role;
 import be.helha.journalapp.model.User;
 import be.helha.journalapp.repositories.RoleRepository;
 import be.helha.journalapp.repositories.UserRepository;
+import be.helha.journalapp.security.CurrentUserResolver;
+import be.helha.journalapp.security.UserPrincipalCache;
 import be.helha.journalapp.service.EmailService;
 import be.helha.journalapp.service.KeycloakAdminService;
+import be.helha.journalapp.service.NewsletterIssueService;
 import be.helha.journalapp.service.RoleSynchronizationService;
 import be.helha.journalapp.service.UserService;
 import jakarta.mail.MessagingException;
@@ -35,19 +38,28 @@ public class UserController {
     private final UserService userService;
     private final KeycloakAdminService keycloakAdminService;
     private final RoleSynchronizationService roleSynchronizationService;
+    private final CurrentUserResolver currentUserResolver;
+    private final UserPrincipalCache userPrincipalCache;
+    private final NewsletterIssueService newsletterIssueService;
 
     public UserController(EmailService emailService,
                           UserRepository userRepository,
                           RoleRepository roleRepository,
                           KeycloakAdminService keycloakAdminService,
                           RoleSynchronizationService roleSynchronizationService,
-                          UserService userService) {
+                          UserService userService,
+                          CurrentUserResolver currentUserResolver,
+                          UserPrincipalCache userPrincipalCache,
+                          NewsletterIssueService newsletterIssueService) {
         this.emailService = emailService;
         this.userRepository = userRepository;
         this.roleRepository = roleRepository;
         this.keycloakAdminService = keycloakAdminService;
         this.roleSynchronizationService = roleSynchronizationService;
         this.userService = userService;
+        this.currentUserResolver = currentUserResolver;
+        this.userPrincipalCache = userPrincipalCache;
+        this.newsletterIssueService = newsletterIssueService;
     }
 
     /**
@@ -98,6 +110,8 @@ public class UserController {
 
             // Supprime l'utilisateur dans la base locale
             userRepository.deleteById(id);
+            userPrincipalCache.invalidate(userToDelete.getKeycloakId());
+            newsletterIssueService.invalidateAll();
 
             return ResponseEntity.ok("User deleted successfully.");
         }
@@ -119,6 +133,7 @@ public class UserController {
             user.setRole(newRole);
             user.setRoleChange(true);  // Indicateur éventuel dans votre logique
             User updatedUser = userRepository.save(user);
+            userPrincipalCache.invalidate(user.getKeycloakId());
 
             // Assigner le nouveau rôle dans Keycloak
             keycloakAdminService.assignRolesToUser(
@@ -186,6 +201,9 @@ public class UserController {
             user.setRoleChange(userUpdates.isRoleChange());
             user.setRole(role);
             userRepository.save(user);
+            userPrincipalCache.invalidate(user.getKeycloakId());
+            // Le nom de l'auteur figure dans les numéros des newsletters
+            newsletterIssueService.invalidateAll();
 
             // --- 3) Mise à jour Keycloak (assignation du nouveau rôle)
             keycloakAdminService.assignRolesToUser(user.getKeycloakId(), List.of(role));
@@ -221,7 +239,9 @@ public class UserController {
     @GetMapping("/me")
     public ResponseEntity<User> getCurrentUser(Authentication authentication) {
         String keycloakId = authentication.getName();
-        Optional<User> maybeLocalUser = userRepository.findByKeycloakId(keycloakId);
+        // L'utilisateur a déjà été résolu (via le cache) par UserSynchronizationFilter pour cette requête
+        Optional<User> maybeLocalUser = currentUserResolver.resolve(keycloakId)
+                .flatMap(principal -> userRepository.findById(principal.getUserId()));
 
         if (maybeLocalUser.isPresent()) {
             User localUser = maybeLocalUser.get();
@@ -237,6 +257,7 @@ public class UserController {
                         .orElseThrow(() -> new RuntimeException("ADMIN role not found in DB"));
                 localUser.setRole(adminRole);
                 userRepository.save(localUser);
+                userPrincipalCache.invalidate(keycloakId);
             }
 
             return ResponseEntity.ok(localUser);
@@ -265,6 +286,7 @@ public class UserController {
                         .orElseThrow(() -> new RuntimeException("ADMIN role not found in DB"));
                 newLocalUser.setRole(adminRole);
                 newLocalUser = userRepository.save(newLocalUser);
+                userPrincipalCache.invalidate(keycloakId);
             }
 
             // c) Retourner le nouvel utilisateur local synchronisé
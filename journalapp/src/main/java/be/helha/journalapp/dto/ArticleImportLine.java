@@ -0,0 +1,35 @@
+package be.helha.journalapp.dto;
+
+/**
+ * One line of an NDJSON article import: an article with its author and newsletter, which are looked up
+ * (authors by email, newsletters by title) and created if they do not exist yet.
+ * <p>
+ * Example: {@code {"title":"...","content":"...","publicationDate":"2019-03-01","valid":true,
+ * "author":{"email":"a.martin@example.com","firstName":"Alice","lastName":"Martin"},
+ * "newsletter":{"title":"Le Journal","backgroundColor":"#ffffff"}}}
+ *
+ * @param title           The title of the article.
+ * @param content         The content of the article.
+ * @param publicationDate The publication date of the article.
+ * @param longitude       The longitude of the article (0 if absent).
+ * @param latitude        The latitude of the article (0 if absent).
+ * @param valid           Whether the article is published.
+ * @param author          The author of the article.
+ * @param newsletter      The newsletter of the article.
+ */
+public record ArticleImportLine(String title, String content, String publicationDate, double longitude,
+                                double latitude, boolean valid, Author author, NewsletterRef newsletter) {
+
+    /**
+     * The author of an imported article, identified by their email.
+     */
+    public record Author(String email, String firstName, String lastName) {
+    }
+
+    /**
+     * The newsletter of an imported article, identified by its title. The other fields are only used
+     * when the newsletter is created.
+     */
+    public record NewsletterRef(String title, String subtitle, String publicationDate, String backgroundColor) {
+    }
+}
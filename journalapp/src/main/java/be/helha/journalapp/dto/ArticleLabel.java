@@ -0,0 +1,20 @@
+package be.helha.journalapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * The labels shown next to an {@link be.helha.journalapp.model.Article} in list views: the title of its newsletter
+ * and the name of its author. It is built directly by JPQL constructor expressions, so labels of many articles are
+ * read by one query without loading any entity.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ArticleLabel {
+
+    private Long articleId;
+    private String newsletterTitle;
+    private String authorName;
+}
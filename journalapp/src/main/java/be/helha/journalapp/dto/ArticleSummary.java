@@ -0,0 +1,34 @@
+package be.helha.journalapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Lightweight, flat representation of an {@link be.helha.journalapp.model.Article} used by list endpoints.
+ * It is built directly by JPQL constructor expressions, so no entity (and none of its eager relations) is loaded:
+ * the author and newsletter only contribute the few columns the views display.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ArticleSummary {
+
+    private Long articleId;
+    private String title;
+    private String content;
+    private String publicationDate;
+    private Double longitude;
+    private Double latitude;
+    private Boolean valid;
+    private String backgroundColor;
+    private Long newsletterId;
+    private String newsletterTitle;
+    private String newsletterBackgroundColor;
+    private Long authorId;
+    private String authorName;
+    private Long commentCount;
+    private LocalDateTime lastCommentAt;
+}
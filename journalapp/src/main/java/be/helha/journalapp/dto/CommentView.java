@@ -0,0 +1,26 @@
+package be.helha.journalapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Flat representation of a {@link be.helha.journalapp.model.Comment} used by list endpoints.
+ * It is built directly by JPQL constructor expressions, so neither the article nor the author entity is loaded.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CommentView {
+
+    private Long commentId;
+    private String content;
+    private String publicationDate;
+    private LocalDateTime createdAt;
+    private Long articleId;
+    private String articleTitle;
+    private Long authorId;
+    private String authorName;
+}
@@ -0,0 +1,49 @@
+package be.helha.journalapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * A single page of a keyset (cursor) paginated listing.
+ * The {@code next} cursor is passed back as {@code cursor} to fetch the following page,
+ * and is {@code null} once the last page has been reached.
+ *
+ * @param <T> The type of the items in the page.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPage<T> {
+
+    /**
+     * The items of this page, in listing order.
+     */
+    private List<T> items;
+
+    /**
+     * The cursor of the next page, or {@code null} if there is no next page.
+     */
+    private Long next;
+
+    /**
+     * Builds a page from rows fetched with a limit of {@code size + 1}.
+     * The extra row is only used to detect whether a next page exists and is dropped from the result.
+     *
+     * @param rows     The fetched rows (at most {@code size + 1}).
+     * @param size     The requested page size.
+     * @param cursorOf Extracts the cursor value from an item.
+     * @param <T>      The type of the items.
+     * @return The page, with its next cursor set to the last returned item if more rows exist.
+     */
+    public static <T> CursorPage<T> of(List<T> rows, int size, Function<T, Long> cursorOf) {
+        if (rows.size() <= size) {
+            return new CursorPage<>(rows, null);
+        }
+        List<T> items = rows.subList(0, size);
+        return new CursorPage<>(items, cursorOf.apply(items.get(size - 1)));
+    }
+}
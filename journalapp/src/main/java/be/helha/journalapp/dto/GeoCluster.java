@@ -0,0 +1,35 @@
+package be.helha.journalapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * An aggregate map marker standing for the valid articles located in one cell of a grid.
+ * Zoomed-out maps receive these markers instead of one point per article.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class GeoCluster {
+
+    /**
+     * The mean longitude of the articles of the cell.
+     */
+    private double longitude;
+
+    /**
+     * The mean latitude of the articles of the cell.
+     */
+    private double latitude;
+
+    /**
+     * The number of articles in the cell.
+     */
+    private long count;
+
+    /**
+     * The ID of the article when the cell holds a single one, {@code null} otherwise.
+     */
+    private Long articleId;
+}
@@ -0,0 +1,26 @@
+package be.helha.journalapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Describes an {@link be.helha.journalapp.model.Image} without its binary data.
+ * It is built directly by JPQL constructor expressions, so serving the HTTP headers of an image never loads the image itself.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImageMetadata {
+
+    private Long imageId;
+    private Long articleId;
+    private String mediaType;
+    private Long byteSize;
+    private String contentHash;
+
+    /**
+     * Whether the article of the image is published (valid): only such images are served to anonymous visitors.
+     */
+    private boolean published;
+}
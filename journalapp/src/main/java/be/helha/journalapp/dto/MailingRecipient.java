@@ -0,0 +1,20 @@
+package be.helha.journalapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * The few facts about a user needed to send them a newsletter: its ID (the mailing cursor), its address and
+ * its first name (used to personalise the email). It is built directly by a JPQL constructor expression,
+ * see {@link be.helha.journalapp.repositories.UserRepository#findMailingRecipientsAfter}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MailingRecipient {
+
+    private Long userId;
+    private String email;
+    private String firstName;
+}
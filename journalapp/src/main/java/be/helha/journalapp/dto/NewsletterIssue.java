@@ -0,0 +1,82 @@
+package be.helha.journalapp.dto;
+
+import be.helha.journalapp.service.ImageDerivativeService;
+
+import java.util.List;
+
+/**
+ * Everything needed to render one issue of a newsletter: its styling and its valid articles, with their author
+ * names and image URLs. It replaces the per-article calls the reader page used to make.
+ * <p>
+ * An issue is an immutable snapshot, so it can be cached and shared between requests
+ * (see {@link be.helha.journalapp.service.NewsletterIssueService}).
+ *
+ * @param newsletterId    The ID of the newsletter.
+ * @param title           The title of the newsletter.
+ * @param subtitle        The subtitle of the newsletter.
+ * @param publicationDate The publication date of the newsletter.
+ * @param style           The styling of the newsletter.
+ * @param articles        The valid articles of the newsletter, oldest first.
+ */
+public record NewsletterIssue(Long newsletterId, String title, String subtitle, String publicationDate,
+                              Style style, List<IssueArticle> articles) {
+
+    public NewsletterIssue {
+        articles = List.copyOf(articles);
+    }
+
+    /**
+     * The styling of a newsletter, as chosen by its editor.
+     */
+    public record Style(String backgroundColor, String titleFont, int titleFontSize, String titleColor,
+                        boolean titleBold, boolean titleUnderline, String subtitleFont, int subtitleFontSize,
+                        String subtitleColor, boolean subtitleBold, boolean subtitleItalic, String textAlign) {
+    }
+
+    /**
+     * A valid article of an issue.
+     *
+     * @param articleId       The ID of the article.
+     * @param title           The title of the article.
+     * @param content         The content of the article.
+     * @param publicationDate The publication date of the article.
+     * @param longitude       The longitude of the article.
+     * @param latitude        The latitude of the article.
+     * @param authorId        The ID of the author.
+     * @param authorName      The full name of the author.
+     * @param images          The images of the article, in upload order.
+     */
+    public record IssueArticle(Long articleId, String title, String content, String publicationDate,
+                               Double longitude, Double latitude, Long authorId, String authorName,
+                               List<IssueImage> images) {
+
+        public IssueArticle {
+            images = List.copyOf(images);
+        }
+    }
+
+    /**
+     * The URLs of an image. They carry the hash of its content, so browsers may cache them indefinitely.
+     *
+     * @param imageId      The ID of the image.
+     * @param url          The URL of the original image.
+     * @param thumbnailUrl The URL of a thumbnail of the image.
+     * @param previewUrl   The URL of a preview of the image.
+     */
+    public record IssueImage(Long imageId, String url, String thumbnailUrl, String previewUrl) {
+
+        /**
+         * Builds the URLs of an image served by {@code ImageController}.
+         *
+         * @param image The metadata of the image.
+         * @return The URLs of the image.
+         */
+        public static IssueImage of(ImageMetadata image) {
+            String base = "/images/" + image.getImageId();
+            String version = "v=" + image.getContentHash();
+            return new IssueImage(image.getImageId(), base + "/raw?" + version,
+                    base + "?w=" + ImageDerivativeService.THUMBNAIL_WIDTH + "&" + version,
+                    base + "?w=" + ImageDerivativeService.PREVIEW_WIDTH + "&" + version);
+        }
+    }
+}
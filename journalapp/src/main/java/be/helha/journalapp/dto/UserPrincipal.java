@@ -0,0 +1,20 @@
+package be.helha.journalapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * The few facts about the authenticated user that most requests need: its local ID and its role.
+ * It is built directly by a JPQL constructor expression and cached per Keycloak ID,
+ * see {@link be.helha.journalapp.security.UserPrincipalCache}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserPrincipal {
+
+    private Long userId;
+    private String keycloakId;
+    private String roleName;
+}
@@ -3,7 +3,9 @@ package be.helha.journalapp.model;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.Data;
+import org.hibernate.annotations.ColumnDefault;
 
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -16,10 +18,11 @@ import java.util.List;
 public class Article {
     /**
      * The unique identifier for the article.
-     * It's auto-generated by the database.
+     * It's drawn from the article_seq sequence, 50 values at a time, so inserts can be batched.
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "article_seq")
+    @SequenceGenerator(name = "article_seq", sequenceName = "article_seq", allocationSize = 50)
     private Long articleId;
 
     /**
@@ -63,6 +66,22 @@ public class Article {
      */
     private String backgroundColor;
 
+    /**
+     * The number of comments on the article.
+     * It is only changed by the atomic updates of {@link be.helha.journalapp.service.CommentService},
+     * never when the article itself is saved, so saving a stale article cannot overwrite it.
+     */
+    @ColumnDefault("0")
+    @Column(nullable = false, insertable = false, updatable = false)
+    private long commentCount;
+
+    /**
+     * When the latest comment on the article was posted, or null if it has none.
+     * Maintained together with {@link #commentCount}.
+     */
+    @Column(insertable = false, updatable = false)
+    private LocalDateTime lastCommentAt;
+
     /**
      * Many-to-One relationship with {@link Newsletter}.
      * An article belongs to a single newsletter.
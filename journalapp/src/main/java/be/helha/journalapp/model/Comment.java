@@ -4,6 +4,8 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.Data;
 
+import java.time.LocalDateTime;
+
 /**
  * Represents a comment made by a user on an article.
  * This entity is mapped to a database table and includes fields for content, publication date,
@@ -16,10 +18,11 @@ public class Comment {
 
     /**
      * The unique identifier for the comment.
-     * It's auto-generated by the database.
+     * It's drawn from the comments_seq sequence, 50 values at a time, so inserts can be batched.
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "comments_seq")
+    @SequenceGenerator(name = "comments_seq", sequenceName = "comments_seq", allocationSize = 50)
     private Long commentId;
 
     /**
@@ -32,6 +35,11 @@ public class Comment {
      */
     private String publicationDate;
 
+    /**
+     * When the comment was posted.
+     */
+    private LocalDateTime createdAt;
+
     /**
      * Many-to-One relationship with {@link User}.
      * A comment is authored by a single user.
@@ -0,0 +1,63 @@
+package be.helha.journalapp.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Represents an email that could not be delivered, either after the maximum number of attempts
+ * or because of a permanent error (e.g. an invalid address).
+ * It is kept for inspection and is never retried automatically.
+ */
+@Entity
+@Data
+@Table(name = "dead_letter_email")
+public class DeadLetterEmail {
+
+    /**
+     * The unique identifier for the dead-lettered email.
+     * It's drawn from the dead_letter_email_seq sequence, 50 values at a time, so inserts can be batched.
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "dead_letter_email_seq")
+    @SequenceGenerator(name = "dead_letter_email_seq", sequenceName = "dead_letter_email_seq", allocationSize = 50)
+    private Long id;
+
+    /**
+     * The recipient's email address.
+     */
+    private String recipient;
+
+    /**
+     * The subject of the email.
+     */
+    private String subject;
+
+    /**
+     * The HTML content of the email.
+     */
+    @Column(length = 100000)
+    private String content;
+
+    /**
+     * The number of delivery attempts made.
+     */
+    private int attempts;
+
+    /**
+     * The moment the email was queued.
+     */
+    private LocalDateTime createdAt;
+
+    /**
+     * The moment the email was given up.
+     */
+    private LocalDateTime failedAt;
+
+    /**
+     * The error of the last attempt.
+     */
+    @Column(length = 1000)
+    private String lastError;
+}
@@ -6,7 +6,8 @@ import lombok.Data;
 
 /**
  * Represents an image entity in the application.
- * This entity is mapped to a database table and includes fields to store image data and its relationship with an article.
+ * This entity is mapped to a database table and includes the description of the image data and its relationship with an article.
+ * The data itself lives in the {@link be.helha.journalapp.storage.BlobStore}, under {@link #contentHash}.
  */
 @Entity
 @Data
@@ -14,19 +15,39 @@ public class Image {
 
     /**
      * The unique identifier for the image.
-     * It's auto-generated by the database.
+     * It's drawn from the image_seq sequence, 50 values at a time, so inserts can be batched.
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "image_seq")
+    @SequenceGenerator(name = "image_seq", sequenceName = "image_seq", allocationSize = 50)
     private Long imageId;
 
     /**
-     * The binary data of the image, stored as a byte array.
-     * The `@Lob` annotation indicates that the database should store this field as a Large Object.
+     * The binary data of images saved before the blob store existed, stored as a Large Object.
+     * It is null for new images, and {@link be.helha.journalapp.service.ImageBlobMigrationJob} moves the remaining
+     * data to the blob store. It is also used to receive uploads, which are moved to the blob store before saving.
+     * While the blob store is local to each node, the data is kept here as well, so that every node can read it.
      */
     @Lob
     private byte[] imagePath; // Used to store binary data (such as an image)
 
+    /**
+     * The media type of the image (e.g. {@code image/png}), detected from its first bytes.
+     */
+    private String mediaType;
+
+    /**
+     * The size of the image in bytes.
+     */
+    private Long byteSize;
+
+    /**
+     * The SHA-256 hash of the image, as lowercase hexadecimal.
+     * It is the key of the image in the blob store and the HTTP entity tag of the image.
+     */
+    @Column(length = 64)
+    private String contentHash;
+
     /**
      * Many-to-One relationship with {@link Article}.
      * Each image belongs to a single article.
@@ -34,4 +55,39 @@ public class Image {
     @ManyToOne
     @JoinColumn(name = "article_id", nullable = false) // Foreign key to Article
     private Article article;
+
+    /**
+     * Detects the media type of an image from its signature.
+     *
+     * @param header The first bytes of the image.
+     * @param length The number of valid bytes in {@code header}.
+     * @return The detected media type, or {@code application/octet-stream} if the format is unknown.
+     */
+    public static String detectMediaType(byte[] header, int length) {
+        if (startsWith(header, length, 0, 0x89, 'P', 'N', 'G')) {
+            return "image/png";
+        }
+        if (startsWith(header, length, 0, 0xFF, 0xD8, 0xFF)) {
+            return "image/jpeg";
+        }
+        if (startsWith(header, length, 0, 'G', 'I', 'F', '8')) {
+            return "image/gif";
+        }
+        if (startsWith(header, length, 0, 'R', 'I', 'F', 'F') && startsWith(header, length, 8, 'W', 'E', 'B', 'P')) {
+            return "image/webp";
+        }
+        return "application/octet-stream";
+    }
+
+    private static boolean startsWith(byte[] data, int length, int offset, int... signature) {
+        if (length < offset + signature.length) {
+            return false;
+        }
+        for (int i = 0; i < signature.length; i++) {
+            if ((data[offset + i] & 0xFF) != signature[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
 }
@@ -0,0 +1,60 @@
+package be.helha.journalapp.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Represents the progress of a bulk import of articles (see {@link be.helha.journalapp.service.ArticleImportService}).
+ * It is updated in the same transaction as each batch of imported lines, so after a failure the import resumes
+ * right after the last batch written, without importing a line twice.
+ */
+@Entity
+@Data
+@Table(name = "import_checkpoint")
+public class ImportCheckpoint {
+
+    /**
+     * The identifier of the import, chosen by the client (e.g. the name of the archive).
+     */
+    @Id
+    @Column(length = 100)
+    private String importId;
+
+    /**
+     * The number of lines of the input already written, blank lines included.
+     */
+    private long linesDone;
+
+    /**
+     * The number of articles imported so far.
+     */
+    private long articlesImported;
+
+    /**
+     * The number of authors created so far.
+     */
+    private long authorsCreated;
+
+    /**
+     * The number of newsletters created so far.
+     */
+    private long newslettersCreated;
+
+    /**
+     * Indicates if the whole input has been imported.
+     */
+    private boolean completed;
+
+    /**
+     * The error that stopped the last run, if any.
+     */
+    @Column(length = 1000)
+    private String lastError;
+
+    /**
+     * The moment of the last progress.
+     */
+    private LocalDateTime updatedAt;
+}
@@ -17,10 +17,11 @@ public class Newsletter {
 
     /**
      * L'identifiant unique de la newsletter.
-     * Il est auto-généré par la base de données.
+     * Il est tiré de la séquence newsletter_seq par blocs de 50, ce qui permet de regrouper les insertions.
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "newsletter_seq")
+    @SequenceGenerator(name = "newsletter_seq", sequenceName = "newsletter_seq", allocationSize = 50)
     private Long newsletterId;
 
     /**
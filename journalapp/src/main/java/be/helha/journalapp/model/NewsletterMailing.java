@@ -0,0 +1,95 @@
+package be.helha.journalapp.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Represents the sending of a newsletter to all users with an email address, and its progress.
+ * Recipients are sent to in increasing user ID order, and {@link #lastRecipientId} is saved after each batch,
+ * so that an interrupted mailing resumes after the last batch sent instead of starting over
+ * (see {@link be.helha.journalapp.service.NewsletterMailingService}). The node sending a mailing holds a lease on it
+ * ({@link #leaseOwner}, {@link #leaseUntil}), renewed with each batch, so that no other node sends it meanwhile.
+ */
+@Entity
+@Data
+@Table(name = "newsletter_mailing")
+public class NewsletterMailing {
+
+    /**
+     * The progress of a mailing.
+     */
+    public enum Status {
+        RUNNING,
+        COMPLETED
+    }
+
+    /**
+     * The unique identifier for the mailing.
+     * It's drawn from the newsletter_mailing_seq sequence, 50 values at a time, so inserts can be batched.
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "newsletter_mailing_seq")
+    @SequenceGenerator(name = "newsletter_mailing_seq", sequenceName = "newsletter_mailing_seq", allocationSize = 50)
+    private Long id;
+
+    /**
+     * The ID of the newsletter being sent.
+     */
+    @Column(nullable = false)
+    private Long newsletterId;
+
+    /**
+     * The progress of the mailing.
+     */
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Status status;
+
+    /**
+     * The ID of the last user of the batches sent so far (0 before the first batch).
+     */
+    private long lastRecipientId;
+
+    /**
+     * The number of emails accepted by the mail server.
+     */
+    private long sentCount;
+
+    /**
+     * The number of emails the mail server refused, handed to the outbound mail queue to be retried.
+     */
+    private long deferredCount;
+
+    /**
+     * The number of recipients skipped because their address is invalid.
+     */
+    private long failedCount;
+
+    /**
+     * The moment the mailing was started.
+     */
+    private LocalDateTime createdAt;
+
+    /**
+     * The moment the last batch was sent.
+     */
+    private LocalDateTime updatedAt;
+
+    /**
+     * The moment the mailing completed, or null while it is running.
+     */
+    private LocalDateTime completedAt;
+
+    /**
+     * The token of the run holding the lease on the mailing, or null if no node is sending it.
+     */
+    @Column(length = 36)
+    private String leaseOwner;
+
+    /**
+     * The moment the lease expires if it is not renewed; another node may then take the mailing over.
+     */
+    private LocalDateTime leaseUntil;
+}
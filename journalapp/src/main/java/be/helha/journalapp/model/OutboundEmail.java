@@ -0,0 +1,67 @@
+package be.helha.journalapp.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Represents an email waiting in the outbound mail queue.
+ * The entry is written in the same transaction as the change that triggers the email, and deleted once
+ * the email has been delivered (see {@link be.helha.journalapp.service.EmailDispatcher}).
+ */
+@Entity
+@Data
+@Table(name = "outbound_email")
+public class OutboundEmail {
+
+    /**
+     * The unique identifier for the queued email.
+     * It's drawn from the outbound_email_seq sequence, 50 values at a time, so inserts can be batched.
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "outbound_email_seq")
+    @SequenceGenerator(name = "outbound_email_seq", sequenceName = "outbound_email_seq", allocationSize = 50)
+    private Long id;
+
+    /**
+     * The recipient's email address.
+     */
+    @Column(nullable = false)
+    private String recipient;
+
+    /**
+     * The subject of the email.
+     */
+    private String subject;
+
+    /**
+     * The HTML content of the email.
+     */
+    @Column(length = 100000)
+    private String content;
+
+    /**
+     * The number of delivery attempts made so far.
+     */
+    private int attempts;
+
+    /**
+     * The moment from which the email may be (re)sent.
+     * While a worker is sending it, this is pushed to the end of its lease, so no other worker picks it up.
+     */
+    @Column(nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    /**
+     * The moment the email was queued.
+     */
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    /**
+     * The error of the last failed attempt, if any.
+     */
+    @Column(length = 1000)
+    private String lastError;
+}
@@ -17,10 +17,11 @@ public class Role {
     /**
      * The unique identifier for this role.
      * <p>
-     * This field is auto-generated by the database.
+     * This field is drawn from the role_seq sequence, 50 values at a time, so inserts can be batched.
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "role_seq")
+    @SequenceGenerator(name = "role_seq", sequenceName = "role_seq", allocationSize = 50)
     private Long roleId;
 
     /**
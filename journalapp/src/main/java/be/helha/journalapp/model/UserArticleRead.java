@@ -3,17 +3,23 @@ package be.helha.journalapp.model;
 import jakarta.persistence.*;
 import lombok.Data;
 
+import java.time.LocalDateTime;
+
 /**
  * Represents the read status of an article by a user.
  * This entity tracks which users have read which articles.
+ * There is at most one entry per user and article, so that entries can be upserted in batches.
  */
 @Entity
 @Data
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_user_article_read_user_article",
+        columnNames = {"user_id", "article_id"}))
 public class UserArticleRead {
 
     /**
      * The unique identifier for the UserArticleRead entry.
-     * It's auto-generated by the database.
+     * It's auto-generated by the database. Unlike the other entities it stays an identity column: the entries are
+     * written by the batched JDBC upserts of {@link be.helha.journalapp.service.ReadEventWriter}, which rely on it.
      */
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -39,4 +45,9 @@ public class UserArticleRead {
      * Indicates whether the user has read the article (true) or not (false).
      */
     private boolean isRead;
+
+    /**
+     * The moment the user marked the article as read, or null if it is not read.
+     */
+    private LocalDateTime readAt;
 }
\ No newline at end of file
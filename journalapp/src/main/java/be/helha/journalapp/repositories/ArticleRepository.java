@@ -1,13 +1,20 @@
 package be.helha.journalapp.repositories;
 
+import be.helha.journalapp.dto.ArticleLabel;
+import be.helha.journalapp.dto.ArticleSummary;
 import be.helha.journalapp.model.Article;
 import be.helha.journalapp.model.Newsletter;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 /**
  * This interface defines the data access methods for the {@link Article} entity.
@@ -16,6 +23,40 @@ import java.util.List;
 @Repository
 public interface ArticleRepository extends JpaRepository<Article, Long> {
 
+    /**
+     * Constructor expression building {@link ArticleSummary} projections from an article {@code a},
+     * its newsletter {@code n} and its author {@code u}, to be followed by a FROM clause defining them.
+     */
+    String SUMMARY_COLUMNS = "SELECT new be.helha.journalapp.dto.ArticleSummary(a.articleId, a.title, a.content, " +
+            "a.publicationDate, a.longitude, a.latitude, a.valid, a.backgroundColor, " +
+            "n.newsletterId, n.title, n.backgroundColor, " +
+            "u.userId, TRIM(CONCAT(COALESCE(u.firstName, ''), ' ', COALESCE(u.lastName, ''))), " +
+            "a.commentCount, a.lastCommentAt) ";
+
+    /**
+     * Common select clause building {@link ArticleSummary} projections.
+     * The author and newsletter are joined in the same statement, so listing N articles always costs one query.
+     */
+    String SUMMARY_SELECT = SUMMARY_COLUMNS + "FROM Article a LEFT JOIN a.newsletter n LEFT JOIN a.author u ";
+
+    /**
+     * Native condition selecting the valid articles {@code a} located in a longitude/latitude box, matching the
+     * GiST index on {@code point(longitude, latitude)} (created by
+     * {@link be.helha.journalapp.config.DatabaseIndexInitializer}). A box crossing the antimeridian is passed as
+     * two boxes ({@code :west}-{@code :east} and {@code :westWrapped}-{@code :eastWrapped}); otherwise both are the same.
+     */
+    String VALID_LOCATION_WITHIN = "a.valid AND (" +
+            "point(a.longitude, a.latitude) <@ box(point(:west, :south), point(:east, :north)) OR " +
+            "point(a.longitude, a.latitude) <@ box(point(:westWrapped, :south), point(:eastWrapped, :north))) ";
+
+    /**
+     * Native great-circle (haversine) distance, in meters, between an article {@code a}
+     * and the point {@code :lat}/{@code :lon}.
+     */
+    String DISTANCE_METERS = "(2 * 6371000 * asin(least(1, sqrt(" +
+            "power(sin(radians(a.latitude - :lat) / 2), 2) + " +
+            "cos(radians(:lat)) * cos(radians(a.latitude)) * power(sin(radians(a.longitude - :lon) / 2), 2))))) ";
+
     /**
      * Finds all articles associated with a specific newsletter ID using the method name convention.
      * @param newsletterId The ID of the newsletter.
@@ -69,12 +110,241 @@ public interface ArticleRepository extends JpaRepository<Article, Long> {
 
 
     /**
-     * Searches for valid articles that match a given term in their titles using a JPQL query.
-     * The search is case-insensitive.
-     * @param term The search term.
-     * @return A list of valid articles containing the search term in their title.
+     * Full-text search over the title and content of valid articles, using the GIN index on
+     * {@code article.search_vector} (created by {@link be.helha.journalapp.config.DatabaseIndexInitializer}).
+     * Results are ordered by relevance, then by newest article.
+     * @param tsQuery A PostgreSQL tsquery expression (see {@link be.helha.journalapp.service.ArticleSearchService}).
+     * @param limit The maximum number of IDs to return.
+     * @param offset The number of ranked IDs to skip.
+     * @return The IDs of the matching articles, best match first.
+     */
+    @Query(value = "SELECT a.article_id FROM article a " +
+            "WHERE a.valid = true AND a.search_vector @@ to_tsquery('simple', :tsQuery) " +
+            "ORDER BY ts_rank(a.search_vector, to_tsquery('simple', :tsQuery)) DESC, a.article_id DESC " +
+            "LIMIT :limit OFFSET :offset", nativeQuery = true)
+    List<Long> searchValidArticleIds(@Param("tsQuery") String tsQuery, @Param("limit") int limit,
+                                     @Param("offset") long offset);
+
+    /**
+     * Retrieves one page of the valid articles located in a box, newest first, using the GiST location index.
+     * @param west The western longitude of the box.
+     * @param east The eastern longitude of the box.
+     * @param westWrapped The western longitude of the second box, when crossing the antimeridian.
+     * @param eastWrapped The eastern longitude of the second box, when crossing the antimeridian.
+     * @param south The southern latitude of the box.
+     * @param north The northern latitude of the box.
+     * @param limit The maximum number of IDs to return.
+     * @param offset The number of IDs to skip.
+     * @return The IDs of the articles of the page.
+     */
+    @Query(value = "SELECT a.article_id FROM article a WHERE " + VALID_LOCATION_WITHIN +
+            "ORDER BY a.article_id DESC LIMIT :limit OFFSET :offset", nativeQuery = true)
+    List<Long> findValidArticleIdsWithin(@Param("west") double west, @Param("east") double east,
+                                         @Param("westWrapped") double westWrapped,
+                                         @Param("eastWrapped") double eastWrapped,
+                                         @Param("south") double south, @Param("north") double north,
+                                         @Param("limit") int limit, @Param("offset") long offset);
+
+    /**
+     * Retrieves one page of the valid articles within a distance of a point, nearest first.
+     * The box around the circle is matched with the GiST location index, the exact distance is checked on the
+     * remaining rows only.
+     * @param lat The latitude of the point.
+     * @param lon The longitude of the point.
+     * @param radius The distance, in meters.
+     * @param west The western longitude of the box around the circle.
+     * @param east The eastern longitude of the box around the circle.
+     * @param westWrapped The western longitude of the second box, when crossing the antimeridian.
+     * @param eastWrapped The eastern longitude of the second box, when crossing the antimeridian.
+     * @param south The southern latitude of the box around the circle.
+     * @param north The northern latitude of the box around the circle.
+     * @param limit The maximum number of IDs to return.
+     * @param offset The number of IDs to skip.
+     * @return The IDs of the articles of the page.
+     */
+    @Query(value = "SELECT a.article_id FROM article a WHERE " + VALID_LOCATION_WITHIN +
+            "AND " + DISTANCE_METERS + "<= :radius " +
+            "ORDER BY " + DISTANCE_METERS + ", a.article_id DESC LIMIT :limit OFFSET :offset", nativeQuery = true)
+    List<Long> findValidArticleIdsNear(@Param("lat") double lat, @Param("lon") double lon,
+                                       @Param("radius") double radius,
+                                       @Param("west") double west, @Param("east") double east,
+                                       @Param("westWrapped") double westWrapped,
+                                       @Param("eastWrapped") double eastWrapped,
+                                       @Param("south") double south, @Param("north") double north,
+                                       @Param("limit") int limit, @Param("offset") long offset);
+
+    /**
+     * Groups the valid articles located in a box by the cells of a grid, most populated cells first.
+     * @param west The western longitude of the box.
+     * @param east The eastern longitude of the box.
+     * @param westWrapped The western longitude of the second box, when crossing the antimeridian.
+     * @param eastWrapped The eastern longitude of the second box, when crossing the antimeridian.
+     * @param south The southern latitude of the box.
+     * @param north The northern latitude of the box.
+     * @param cell The size of the cells of the grid, in degrees.
+     * @param limit The maximum number of cells to return.
+     * @return One row per cell: number of articles, mean longitude, mean latitude and lowest article ID.
+     */
+    @Query(value = "SELECT count(*), avg(a.longitude), avg(a.latitude), min(a.article_id) FROM article a WHERE " +
+            VALID_LOCATION_WITHIN + "GROUP BY floor(a.longitude / :cell), floor(a.latitude / :cell) " +
+            "ORDER BY count(*) DESC LIMIT :limit", nativeQuery = true)
+    List<Object[]> clusterValidArticlesWithin(@Param("west") double west, @Param("east") double east,
+                                              @Param("westWrapped") double westWrapped,
+                                              @Param("eastWrapped") double eastWrapped,
+                                              @Param("south") double south, @Param("north") double north,
+                                              @Param("cell") double cell, @Param("limit") int limit);
+
+    /**
+     * Retrieves the summaries of the given articles, in no particular order.
+     * @param ids The IDs of the articles.
+     * @return The article summaries.
+     */
+    @Query(SUMMARY_SELECT + "WHERE a.articleId IN :ids")
+    List<ArticleSummary> findSummariesByIds(@Param("ids") List<Long> ids);
+
+    /**
+     * Keyset pagination over all articles, newest first.
+     * Only rows with an ID strictly lower than the cursor are returned, so the cost of a page
+     * does not depend on how deep into the listing it is.
+     * @param cursor The ID of the last article of the previous page ({@link Long#MAX_VALUE} for the first page).
+     * @param pageable The page limit (the page number is ignored, always use page 0).
+     * @return The article summaries of the page.
+     */
+    @Query(SUMMARY_SELECT + "WHERE a.articleId < :cursor ORDER BY a.articleId DESC")
+    List<ArticleSummary> findSummariesBefore(@Param("cursor") Long cursor, Pageable pageable);
+
+    /**
+     * Keyset pagination over articles with the given validity, newest first.
+     * @param valid Whether valid or invalid articles are listed.
+     * @param cursor The ID of the last article of the previous page ({@link Long#MAX_VALUE} for the first page).
+     * @param pageable The page limit (the page number is ignored, always use page 0).
+     * @return The article summaries of the page.
+     */
+    @Query(SUMMARY_SELECT + "WHERE a.valid = :valid AND a.articleId < :cursor ORDER BY a.articleId DESC")
+    List<ArticleSummary> findSummariesByValidBefore(@Param("valid") boolean valid, @Param("cursor") Long cursor,
+                                                    Pageable pageable);
+
+    /**
+     * Keyset pagination over articles belonging to newsletters created by a specific editor, newest first.
+     * @param editorId The ID of the editor.
+     * @param cursor The ID of the last article of the previous page ({@link Long#MAX_VALUE} for the first page).
+     * @param pageable The page limit (the page number is ignored, always use page 0).
+     * @return The article summaries of the page.
+     */
+    @Query(SUMMARY_SELECT + "WHERE n.creator.userId = :editorId AND a.articleId < :cursor ORDER BY a.articleId DESC")
+    List<ArticleSummary> findSummariesByEditorBefore(@Param("editorId") Long editorId, @Param("cursor") Long cursor,
+                                                     Pageable pageable);
+
+    /**
+     * Retrieves the summaries of all articles, newest first.
+     * @return The article summaries.
+     */
+    @Query(SUMMARY_SELECT + "ORDER BY a.articleId DESC")
+    List<ArticleSummary> findAllSummaries();
+
+    /**
+     * Retrieves the summaries of all articles with the given validity, newest first.
+     * @param valid Whether valid or invalid articles are listed.
+     * @return The article summaries.
+     */
+    @Query(SUMMARY_SELECT + "WHERE a.valid = :valid ORDER BY a.articleId DESC")
+    List<ArticleSummary> findSummariesByValid(@Param("valid") boolean valid);
+
+    /**
+     * Retrieves the summaries of the articles belonging to newsletters created by a specific editor, newest first.
+     * @param editorId The ID of the editor.
+     * @return The article summaries.
+     */
+    @Query(SUMMARY_SELECT + "WHERE n.creator.userId = :editorId ORDER BY a.articleId DESC")
+    List<ArticleSummary> findSummariesByEditorId(@Param("editorId") Long editorId);
+
+    /**
+     * Retrieves the summaries of the articles written by a specific user, newest first.
+     * @param userId The ID of the author.
+     * @return The article summaries.
+     */
+    @Query(SUMMARY_SELECT + "WHERE u.userId = :userId ORDER BY a.articleId DESC")
+    List<ArticleSummary> findSummariesByAuthorId(@Param("userId") Long userId);
+
+    /**
+     * Retrieves the summaries of the valid articles of a newsletter, oldest first, as shown in an issue.
+     * @param newsletterId The ID of the newsletter.
+     * @return The article summaries.
+     */
+    @Query(SUMMARY_SELECT + "WHERE n.newsletterId = :newsletterId AND a.valid = true ORDER BY a.articleId")
+    List<ArticleSummary> findValidSummariesByNewsletterId(@Param("newsletterId") Long newsletterId);
+
+    /**
+     * Retrieves the newsletter title and author name of the given articles, in no particular order.
+     * @param ids The IDs of the articles.
+     * @return The labels of the existing articles.
+     */
+    @Query("SELECT new be.helha.journalapp.dto.ArticleLabel(a.articleId, n.title, " +
+            "TRIM(CONCAT(COALESCE(u.firstName, ''), ' ', COALESCE(u.lastName, '')))) " +
+            "FROM Article a LEFT JOIN a.newsletter n LEFT JOIN a.author u WHERE a.articleId IN :ids")
+    List<ArticleLabel> findLabelsByIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Retrieves the ID of the newsletter of an article, without loading the article.
+     * @param articleId The ID of the article.
+     * @return The ID of its newsletter, or empty if the article does not exist or has no newsletter.
+     */
+    @Query("SELECT a.newsletter.newsletterId FROM Article a WHERE a.articleId = :articleId")
+    Optional<Long> findNewsletterIdByArticleId(@Param("articleId") Long articleId);
+
+    /**
+     * Retrieves the IDs of all valid articles, used by {@link be.helha.journalapp.service.ReadStateService}
+     * to count the unread articles of a user.
+     * @return The IDs of the valid articles.
+     */
+    @Query("SELECT a.articleId FROM Article a WHERE a.valid = true")
+    List<Long> findValidArticleIds();
+
+    /**
+     * Retrieves which of the given IDs belong to existing articles.
+     * @param ids The IDs to check.
+     * @return The IDs of the existing articles.
+     */
+    @Query("SELECT a.articleId FROM Article a WHERE a.articleId IN :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Counts a new comment on an article, atomically: the row is updated in place, so concurrent comments
+     * cannot overwrite each other's count.
+     * @param articleId The ID of the article.
+     * @param commentedAt When the comment was posted.
+     * @return The number of updated articles (0 if the article does not exist).
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Article a SET a.commentCount = a.commentCount + 1, a.lastCommentAt = :commentedAt " +
+            "WHERE a.articleId = :articleId")
+    int incrementCommentCount(@Param("articleId") Long articleId, @Param("commentedAt") LocalDateTime commentedAt);
+
+    /**
+     * Uncounts a deleted comment of an article, atomically, and resets the date of its latest comment
+     * from the remaining ones. The comment must already be deleted.
+     * @param articleId The ID of the article.
+     * @return The number of updated articles.
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Article a SET " +
+            "a.commentCount = CASE WHEN a.commentCount > 0 THEN a.commentCount - 1 ELSE 0 END, " +
+            "a.lastCommentAt = (SELECT MAX(c.createdAt) FROM Comment c WHERE c.article.articleId = :articleId) " +
+            "WHERE a.articleId = :articleId")
+    int decrementCommentCount(@Param("articleId") Long articleId);
+
+    /**
+     * Copies the background color of a newsletter to its articles with one UPDATE statement,
+     * skipping the articles that already have it.
+     *
+     * @param newsletterId    The ID of the newsletter.
+     * @param backgroundColor The new background color (null clears the color of every article).
+     * @return The number of updated articles.
      */
-    @Query("SELECT a FROM Article a WHERE a.valid = true AND " +
-            "LOWER(a.title) LIKE LOWER(CONCAT('%', :term, '%'))")
-    List<Article> searchValidArticles(@Param("term") String term);
-}
\ No newline at end of file
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Article a SET a.backgroundColor = :backgroundColor " +
+            "WHERE a.newsletter.newsletterId = :newsletterId " +
+            "AND (:backgroundColor IS NULL OR a.backgroundColor IS NULL OR a.backgroundColor <> :backgroundColor)")
+    int updateBackgroundColorByNewsletterId(@Param("newsletterId") Long newsletterId,
+                                            @Param("backgroundColor") String backgroundColor);
+}
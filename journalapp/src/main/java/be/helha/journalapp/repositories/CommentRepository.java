@@ -1,15 +1,66 @@
 package be.helha.journalapp.repositories;
 
+import be.helha.journalapp.dto.CommentView;
 import be.helha.journalapp.model.Comment;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
 
 @Repository
 public interface CommentRepository extends JpaRepository<Comment, Long> {
+
+    /**
+     * Common select clause building {@link CommentView} projections from a comment {@code c},
+     * its article {@code a} and its author {@code u}.
+     */
+    String VIEW_SELECT = "SELECT new be.helha.journalapp.dto.CommentView(c.commentId, c.content, c.publicationDate, " +
+            "c.createdAt, a.articleId, a.title, u.userId, " +
+            "TRIM(CONCAT(COALESCE(u.firstName, ''), ' ', COALESCE(u.lastName, '')))) " +
+            "FROM Comment c JOIN c.article a JOIN c.user u ";
+
     List<Comment> findByUserUserId(Long userId);
     List<Comment> findByArticleArticleId(Long articleId);
-    List<Comment> findByContentContainingIgnoreCase(String keyword);
 
+    /**
+     * Keyset pagination over all comments, newest first.
+     * @param cursor The ID of the last comment of the previous page ({@link Long#MAX_VALUE} for the first page).
+     * @param pageable The page limit (the page number is ignored, always use page 0).
+     * @return The comments of the page.
+     */
+    @Query(VIEW_SELECT + "WHERE c.commentId < :cursor ORDER BY c.commentId DESC")
+    List<CommentView> findViewsBefore(@Param("cursor") Long cursor, Pageable pageable);
+
+    /**
+     * Keyset pagination over the comments of an article, oldest first, so a thread reads in order.
+     * @param articleId The ID of the article.
+     * @param cursor The ID of the last comment of the previous page (0 for the first page).
+     * @param pageable The page limit (the page number is ignored, always use page 0).
+     * @return The comments of the page.
+     */
+    @Query(VIEW_SELECT + "WHERE a.articleId = :articleId AND c.commentId > :cursor ORDER BY c.commentId")
+    List<CommentView> findViewsByArticleAfter(@Param("articleId") Long articleId, @Param("cursor") Long cursor,
+                                              Pageable pageable);
+
+    /**
+     * Keyset pagination over the comments whose content matches a pattern, newest first, optionally restricted
+     * to an article and/or an author. On PostgreSQL the case-insensitive match is served by the trigram index
+     * on {@code comments.content} (created by {@link be.helha.journalapp.config.DatabaseIndexInitializer}).
+     * @param pattern An ILIKE pattern, with {@code \} as escape character.
+     * @param articleId The ID of the article, or {@code null} for all articles.
+     * @param authorId The ID of the author, or {@code null} for all authors.
+     * @param cursor The ID of the last comment of the previous page ({@link Long#MAX_VALUE} for the first page).
+     * @param pageable The page limit (the page number is ignored, always use page 0).
+     * @return The comments of the page.
+     */
+    @Query(VIEW_SELECT + "WHERE c.content ILIKE :pattern ESCAPE '\\' " +
+            "AND (:articleId IS NULL OR a.articleId = :articleId) " +
+            "AND (:authorId IS NULL OR u.userId = :authorId) " +
+            "AND c.commentId < :cursor ORDER BY c.commentId DESC")
+    List<CommentView> searchViewsBefore(@Param("pattern") String pattern, @Param("articleId") Long articleId,
+                                        @Param("authorId") Long authorId, @Param("cursor") Long cursor,
+                                        Pageable pageable);
 }
@@ -0,0 +1,12 @@
+package be.helha.journalapp.repositories;
+
+import be.helha.journalapp.model.DeadLetterEmail;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+/**
+ * This interface defines the data access methods for the {@link DeadLetterEmail} entity.
+ */
+@Repository
+public interface DeadLetterEmailRepository extends JpaRepository<DeadLetterEmail, Long> {
+}
@@ -1,10 +1,16 @@
 package be.helha.journalapp.repositories;
 
+import be.helha.journalapp.dto.ImageMetadata;
 import be.helha.journalapp.model.Image;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Optional;
 
 /**
  * This interface defines the data access methods for the {@link Image} entity.
@@ -13,10 +19,85 @@ import java.util.List;
 @Repository
 public interface ImageRepository extends JpaRepository<Image, Long> {
 
+    /**
+     * Common select clause building {@link ImageMetadata} projections, which never read the binary data.
+     */
+    String METADATA_SELECT = "SELECT new be.helha.journalapp.dto.ImageMetadata(i.imageId, i.article.articleId, " +
+            "i.mediaType, i.byteSize, i.contentHash, i.article.valid) FROM Image i ";
+
     /**
      * Finds all images associated with a specific article ID.
      * @param articleId The ID of the article.
      * @return A list of images belonging to the specified article.
      */
     List<Image> findByArticleArticleId(Long articleId);
-}
\ No newline at end of file
+
+    /**
+     * Retrieves the metadata of an image without its binary data.
+     * @param imageId The ID of the image.
+     * @return The image metadata, or empty if the image does not exist.
+     */
+    @Query(METADATA_SELECT + "WHERE i.imageId = :imageId")
+    Optional<ImageMetadata> findMetadataById(@Param("imageId") Long imageId);
+
+    /**
+     * Retrieves the metadata of the images of an article without their binary data.
+     * @param articleId The ID of the article.
+     * @return The metadata of the article's images, in upload order.
+     */
+    @Query(METADATA_SELECT + "WHERE i.article.articleId = :articleId ORDER BY i.imageId")
+    List<ImageMetadata> findMetadataByArticleId(@Param("articleId") Long articleId);
+
+    /**
+     * Retrieves the metadata of the images of the valid articles of a newsletter without their binary data.
+     * @param newsletterId The ID of the newsletter.
+     * @return The metadata of the images, in upload order.
+     */
+    @Query(METADATA_SELECT + "WHERE i.article.newsletter.newsletterId = :newsletterId AND i.article.valid = true " +
+            "ORDER BY i.imageId")
+    List<ImageMetadata> findMetadataOfValidArticlesByNewsletterId(@Param("newsletterId") Long newsletterId);
+
+    /**
+     * Retrieves the ID of the newsletter of the article of an image.
+     * @param imageId The ID of the image.
+     * @return The ID of the newsletter, or empty if the image does not exist or its article has no newsletter.
+     */
+    @Query("SELECT i.article.newsletter.newsletterId FROM Image i WHERE i.imageId = :imageId")
+    Optional<Long> findNewsletterIdByImageId(@Param("imageId") Long imageId);
+
+    /**
+     * Records that the data of an image has been moved to the blob store: stores its description and
+     * clears the Large Object column.
+     * @param imageId     The ID of the image.
+     * @param mediaType   The detected media type.
+     * @param byteSize    The size of the image in bytes.
+     * @param contentHash The SHA-256 hash of the image, i.e. its key in the blob store.
+     * @return The number of updated rows.
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE Image i SET i.imagePath = NULL, i.mediaType = :mediaType, i.byteSize = :byteSize, " +
+            "i.contentHash = :contentHash WHERE i.imageId = :imageId")
+    int markMovedToBlobStore(@Param("imageId") Long imageId,
+                             @Param("mediaType") String mediaType,
+                             @Param("byteSize") Long byteSize,
+                             @Param("contentHash") String contentHash);
+
+    /**
+     * Records that the data of an image has been copied to the blob store: stores its description and
+     * keeps the Large Object column, e.g. when the blob store is local to one node.
+     * @param imageId     The ID of the image.
+     * @param mediaType   The detected media type.
+     * @param byteSize    The size of the image in bytes.
+     * @param contentHash The SHA-256 hash of the image, i.e. its key in the blob store.
+     * @return The number of updated rows.
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE Image i SET i.mediaType = :mediaType, i.byteSize = :byteSize, i.contentHash = :contentHash " +
+            "WHERE i.imageId = :imageId")
+    int markCopiedToBlobStore(@Param("imageId") Long imageId,
+                              @Param("mediaType") String mediaType,
+                              @Param("byteSize") Long byteSize,
+                              @Param("contentHash") String contentHash);
+}
@@ -0,0 +1,13 @@
+package be.helha.journalapp.repositories;
+
+import be.helha.journalapp.model.ImportCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+/**
+ * This interface defines the data access methods for the {@link ImportCheckpoint} entity,
+ * used by {@link be.helha.journalapp.service.ArticleImportService} to record and resume the progress of imports.
+ */
+@Repository
+public interface ImportCheckpointRepository extends JpaRepository<ImportCheckpoint, String> {
+}
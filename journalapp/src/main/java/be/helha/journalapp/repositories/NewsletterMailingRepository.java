@@ -0,0 +1,84 @@
+package be.helha.journalapp.repositories;
+
+import be.helha.journalapp.model.NewsletterMailing;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * This interface defines the data access methods for the {@link NewsletterMailing} entity.
+ */
+@Repository
+public interface NewsletterMailingRepository extends JpaRepository<NewsletterMailing, Long> {
+
+    /**
+     * Finds the running mailings that no node is sending: without lease, or whose lease has expired.
+     * @param now The current time.
+     * @return The mailings to resume.
+     */
+    @Query("SELECT m FROM NewsletterMailing m WHERE m.completedAt IS NULL " +
+            "AND (m.leaseUntil IS NULL OR m.leaseUntil <= :now) ORDER BY m.id")
+    List<NewsletterMailing> findResumable(@Param("now") LocalDateTime now);
+
+    /**
+     * Claims a running mailing for one run. The update only succeeds if no other run holds an unexpired lease,
+     * so a mailing is never sent by two nodes at the same time.
+     * @param id The ID of the mailing.
+     * @param owner The token of the run.
+     * @param now The current time.
+     * @param leaseUntil The moment the mailing may be taken over if the lease is not renewed.
+     * @return 1 if the mailing was claimed, 0 if it is held by another run, completed or no longer exists.
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE NewsletterMailing m SET m.leaseOwner = :owner, m.leaseUntil = :leaseUntil " +
+            "WHERE m.id = :id AND m.completedAt IS NULL AND (m.leaseUntil IS NULL OR m.leaseUntil <= :now)")
+    int claim(@Param("id") Long id, @Param("owner") String owner, @Param("now") LocalDateTime now,
+              @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    /**
+     * Extends the lease of a run on a mailing.
+     * @param id The ID of the mailing.
+     * @param owner The token of the run.
+     * @param leaseUntil The new expiry of the lease.
+     * @return 1 if the lease was extended, 0 if the run no longer holds it.
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE NewsletterMailing m SET m.leaseUntil = :leaseUntil WHERE m.id = :id AND m.leaseOwner = :owner")
+    int renewLease(@Param("id") Long id, @Param("owner") String owner, @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    /**
+     * Releases the lease of a run on a mailing, so that it can be resumed at once.
+     * @param id The ID of the mailing.
+     * @param owner The token of the run.
+     * @return 1 if the lease was released, 0 if the run no longer held it.
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE NewsletterMailing m SET m.leaseOwner = NULL, m.leaseUntil = NULL " +
+            "WHERE m.id = :id AND m.leaseOwner = :owner")
+    int releaseLease(@Param("id") Long id, @Param("owner") String owner);
+
+    /**
+     * Finds the running mailing of a newsletter, if any.
+     * @param newsletterId The ID of the newsletter.
+     * @param status The status of the mailing.
+     * @return The first mailing of the newsletter with that status.
+     */
+    Optional<NewsletterMailing> findFirstByNewsletterIdAndStatus(Long newsletterId, NewsletterMailing.Status status);
+
+    /**
+     * Finds the mailings of a newsletter, newest first.
+     * @param newsletterId The ID of the newsletter.
+     * @return The mailings of the newsletter.
+     */
+    List<NewsletterMailing> findByNewsletterIdOrderByIdDesc(Long newsletterId);
+}
@@ -0,0 +1,58 @@
+package be.helha.journalapp.repositories;
+
+import be.helha.journalapp.model.OutboundEmail;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * This interface defines the data access methods for the {@link OutboundEmail} entity,
+ * used by {@link be.helha.journalapp.service.EmailDispatcher} to drain the outbound mail queue.
+ */
+@Repository
+public interface OutboundEmailRepository extends JpaRepository<OutboundEmail, Long> {
+
+    /**
+     * Retrieves the IDs of the emails that are due to be sent, oldest due first.
+     * @param now The current time.
+     * @param pageable The maximum number of IDs to return.
+     * @return The IDs of the due emails.
+     */
+    @Query("SELECT e.id FROM OutboundEmail e WHERE e.nextAttemptAt <= :now ORDER BY e.nextAttemptAt, e.id")
+    List<Long> findDueIds(@Param("now") LocalDateTime now, Pageable pageable);
+
+    /**
+     * Claims a due email for one delivery attempt: its attempt count is incremented and it is hidden from
+     * {@link #findDueIds} until the lease expires. The update only succeeds if the email is still due,
+     * so an email is never claimed twice, even by several application instances.
+     * @param id The ID of the email.
+     * @param now The current time.
+     * @param leaseUntil The moment the email becomes due again if the attempt never completes.
+     * @return 1 if the email was claimed, 0 if it was claimed by someone else or no longer exists.
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE OutboundEmail e SET e.attempts = e.attempts + 1, e.nextAttemptAt = :leaseUntil " +
+            "WHERE e.id = :id AND e.nextAttemptAt <= :now")
+    int claim(@Param("id") Long id, @Param("now") LocalDateTime now, @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    /**
+     * Schedules the next attempt of an email after a failed one.
+     * @param id The ID of the email.
+     * @param nextAttemptAt The moment of the next attempt.
+     * @param lastError The error of the failed attempt.
+     * @return The number of updated emails.
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE OutboundEmail e SET e.nextAttemptAt = :nextAttemptAt, e.lastError = :lastError WHERE e.id = :id")
+    int scheduleRetry(@Param("id") Long id, @Param("nextAttemptAt") LocalDateTime nextAttemptAt,
+                      @Param("lastError") String lastError);
+}
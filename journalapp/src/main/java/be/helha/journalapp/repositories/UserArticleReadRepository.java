@@ -1,8 +1,13 @@
 package be.helha.journalapp.repositories;
 
+import be.helha.journalapp.dto.ArticleSummary;
 import be.helha.journalapp.model.UserArticleRead;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -28,4 +33,43 @@ public interface UserArticleReadRepository extends JpaRepository<UserArticleRead
      * @return A list of UserArticleRead entries for the specified user that are marked as read.
      */
     List<UserArticleRead> findByUserUserIdAndIsReadTrue(Long userId);
-}
\ No newline at end of file
+
+    /**
+     * Retrieves the IDs of the articles a user has marked as read, without loading the entries.
+     *
+     * @param userId The ID of the user.
+     * @return The IDs of the articles read by the user.
+     */
+    @Query("SELECT r.article.articleId FROM UserArticleRead r WHERE r.user.userId = :userId AND r.isRead = true")
+    List<Long> findReadArticleIdsByUserId(@Param("userId") Long userId);
+
+    /**
+     * Retrieves the summaries of the articles a user has marked as read, most recently read first,
+     * in a single statement. Entries read before the read time was recorded come last.
+     *
+     * @param userId   The ID of the user.
+     * @param pageable The page to return.
+     * @return The article summaries of the page.
+     */
+    @Query(ArticleRepository.SUMMARY_COLUMNS +
+            "FROM UserArticleRead r JOIN r.article a LEFT JOIN a.newsletter n LEFT JOIN a.author u " +
+            "WHERE r.user.userId = :userId AND r.isRead = true ORDER BY r.readAt DESC NULLS LAST, r.id DESC")
+    List<ArticleSummary> findReadSummariesByUserId(@Param("userId") Long userId, Pageable pageable);
+
+    /**
+     * Retrieves the summaries of the articles a user has marked as read, most recently read first, leaving out
+     * the given articles (e.g. those whose read state changed since the entries were written).
+     *
+     * @param userId      The ID of the user.
+     * @param excludedIds The IDs of the articles to leave out; must not be empty.
+     * @param pageable    The page to return.
+     * @return The article summaries of the page.
+     */
+    @Query(ArticleRepository.SUMMARY_COLUMNS +
+            "FROM UserArticleRead r JOIN r.article a LEFT JOIN a.newsletter n LEFT JOIN a.author u " +
+            "WHERE r.user.userId = :userId AND r.isRead = true AND a.articleId NOT IN :excludedIds " +
+            "ORDER BY r.readAt DESC NULLS LAST, r.id DESC")
+    List<ArticleSummary> findReadSummariesByUserIdExcluding(@Param("userId") Long userId,
+                                                            @Param("excludedIds") Collection<Long> excludedIds,
+                                                            Pageable pageable);
+}
@@ -1,8 +1,12 @@
 package be.helha.journalapp.repositories;
 
+import be.helha.journalapp.dto.MailingRecipient;
+import be.helha.journalapp.dto.UserPrincipal;
 import be.helha.journalapp.model.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -17,6 +21,16 @@ public interface UserRepository extends JpaRepository<User, Long> {
     @Query("SELECT u FROM User u WHERE EXISTS (SELECT gdpr FROM u.gdprRequests gdpr)")
     List<User> findUsersWithGdprRequests();
 
+    // Only the ID and role of a user, without loading the entity (see UserPrincipalCache)
+    @Query("SELECT new be.helha.journalapp.dto.UserPrincipal(u.userId, u.keycloakId, r.roleName) " +
+            "FROM User u LEFT JOIN u.role r WHERE u.keycloakId = :keycloakId")
+    Optional<UserPrincipal> findPrincipalByKeycloakId(@Param("keycloakId") String keycloakId);
+
+    // One batch of newsletter recipients after the mailing cursor, in user ID order (see NewsletterMailingService)
+    @Query("SELECT new be.helha.journalapp.dto.MailingRecipient(u.userId, u.email, u.firstName) " +
+            "FROM User u WHERE u.email IS NOT NULL AND u.userId > :cursor ORDER BY u.userId")
+    List<MailingRecipient> findMailingRecipientsAfter(@Param("cursor") Long cursor, Pageable pageable);
+
 }
 
 
@@ -0,0 +1,66 @@
+package be.helha.journalapp.security;
+
+import be.helha.journalapp.dto.UserPrincipal;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.Optional;
+
+/**
+ * Resolves the local user behind the authenticated principal of the current request.
+ * <p>
+ * The first resolution in a request goes through the {@link UserPrincipalCache}; its result is kept as a request
+ * attribute, so the filters and the controller handling the request share it instead of looking the user up again.
+ */
+@Component
+public class CurrentUserResolver {
+
+    /**
+     * Name of the request attribute holding the resolved user.
+     */
+    static final String REQUEST_ATTRIBUTE = CurrentUserResolver.class.getName() + ".principal";
+
+    private final UserPrincipalCache userPrincipalCache;
+
+    /**
+     * Constructor for CurrentUserResolver.
+     *
+     * @param userPrincipalCache The cache of users by Keycloak ID.
+     */
+    public CurrentUserResolver(UserPrincipalCache userPrincipalCache) {
+        this.userPrincipalCache = userPrincipalCache;
+    }
+
+    /**
+     * Resolves the local user of an authenticated principal.
+     *
+     * @param authentication The authentication of the request (its name is the Keycloak ID).
+     * @return The local user, or empty if it does not exist (yet).
+     */
+    public Optional<UserPrincipal> resolve(Authentication authentication) {
+        return authentication == null ? Optional.empty() : resolve(authentication.getName());
+    }
+
+    /**
+     * Resolves the local user with the given Keycloak ID, at most once per request.
+     *
+     * @param keycloakId The Keycloak ID of the user.
+     * @return The local user, or empty if it does not exist (yet).
+     */
+    public Optional<UserPrincipal> resolve(String keycloakId) {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes != null
+                && attributes.getAttribute(REQUEST_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST) instanceof UserPrincipal resolved
+                && resolved.getKeycloakId().equals(keycloakId)) {
+            return Optional.of(resolved);
+        }
+
+        Optional<UserPrincipal> principal = userPrincipalCache.get(keycloakId);
+        if (attributes != null) {
+            principal.ifPresent(user -> attributes.setAttribute(REQUEST_ATTRIBUTE, user, RequestAttributes.SCOPE_REQUEST));
+        }
+        return principal;
+    }
+}
@@ -0,0 +1,72 @@
+package be.helha.journalapp.security;
+
+import be.helha.journalapp.dto.UserPrincipal;
+import be.helha.journalapp.repositories.UserRepository;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * In-process cache from a Keycloak ID (the {@code sub} claim of the JWT) to the local {@link UserPrincipal}.
+ * <p>
+ * The cache is bounded and entries expire after a while, which bounds how long a change made outside the
+ * application can go unnoticed; changes made by the application (role change, update, deletion) call
+ * {@link #invalidate(String)}. Unknown users are not cached, so a user is found as soon as it is created.
+ * Hits and misses are published as the {@code cache.gets} metric with the tag {@code cache=userPrincipals}.
+ * The cache is configured with the {@code journalapp.user-cache.*} properties.
+ */
+@Component
+public class UserPrincipalCache {
+
+    private final LoadingCache<String, UserPrincipal> cache;
+
+    /**
+     * Constructor for UserPrincipalCache.
+     *
+     * @param userRepository The repository used to load users on a cache miss.
+     * @param meterRegistry  The registry publishing the cache metrics.
+     * @param maximumSize    The maximum number of cached users.
+     * @param ttl            How long a user stays cached.
+     */
+    public UserPrincipalCache(UserRepository userRepository,
+                              MeterRegistry meterRegistry,
+                              @Value("${journalapp.user-cache.maximum-size:10000}") long maximumSize,
+                              @Value("${journalapp.user-cache.ttl:5m}") Duration ttl) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build(keycloakId -> userRepository.findPrincipalByKeycloakId(keycloakId).orElse(null));
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "userPrincipals");
+    }
+
+    /**
+     * Returns the user with the given Keycloak ID, loading it from the database on a cache miss.
+     *
+     * @param keycloakId The Keycloak ID of the user.
+     * @return The user, or empty if no local user has this Keycloak ID.
+     */
+    public Optional<UserPrincipal> get(String keycloakId) {
+        if (keycloakId == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(cache.get(keycloakId));
+    }
+
+    /**
+     * Removes a user from the cache after its local data changed.
+     *
+     * @param keycloakId The Keycloak ID of the user (ignored if null).
+     */
+    public void invalidate(String keycloakId) {
+        if (keycloakId != null) {
+            cache.invalidate(keycloakId);
+        }
+    }
+}
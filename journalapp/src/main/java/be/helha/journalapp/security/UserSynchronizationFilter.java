@@ -20,7 +20,6 @@ import org.springframework.stereotype.Component;
 import java.io.IOException;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 
 
 /**
@@ -45,22 +44,31 @@ public class UserSynchronizationFilter implements Filter {
      */
     private final RoleRepository roleRepository;
 
+    /**
+     * Resolver of the local user of the request, backed by the user cache.
+     */
+    private final CurrentUserResolver currentUserResolver;
+
 
     /**
      * Constructor for the UserSynchronizationFilter.
      * @param userRepository The repository for user data.
      * @param roleRepository The repository for role data.
+     * @param currentUserResolver The resolver of the local user of the request.
      */
-    public UserSynchronizationFilter(UserRepository userRepository, RoleRepository roleRepository) {
+    public UserSynchronizationFilter(UserRepository userRepository, RoleRepository roleRepository,
+                                     CurrentUserResolver currentUserResolver) {
         this.userRepository = userRepository;
         this.roleRepository = roleRepository;
+        this.currentUserResolver = currentUserResolver;
     }
 
 
     /**
      * This method intercepts incoming requests to synchronize user data.
      * It checks for a valid JWT token in the authentication, extracts user information,
-     * and creates a new user or updates an existing one if necessary.
+     * and creates a new user if necessary. Existing users are found through the user cache, so the database
+     * is not queried on every request, and the result is reused by the controllers for the rest of the request.
      * @param request The incoming servlet request.
      * @param response The outgoing servlet response.
      * @param chain The filter chain for processing.
@@ -78,8 +86,7 @@ public class UserSynchronizationFilter implements Filter {
             String familyName = jwt.getClaimAsString("family_name");
 
             if (sub != null) {
-                Optional<User> existingUser = userRepository.findByKeycloakId(sub);
-                if (existingUser.isEmpty()) {
+                if (currentUserResolver.resolve(sub).isEmpty()) {
                     User newUser = new User();
                     newUser.setKeycloakId(sub);
                     newUser.setEmail(email);
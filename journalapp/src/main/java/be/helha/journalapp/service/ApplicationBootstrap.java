@@ -0,0 +1,250 @@
+package be.helha.journalapp.service;
+
+import be.helha.journalapp.config.ClusterLock;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * This component performs the one-off initialisation of the application (local roles, roles from Keycloak,
+ * first administrator) in the background once the application has started, so a slow or absent Keycloak
+ * no longer delays or breaks the start.
+ * <p>
+ * The initialisation runs on one node of the cluster only ({@link ClusterLock}), and never at the same time as the
+ * periodic role jobs, which take the same lock ({@link #ROLES_LOCK}); the other nodes wait for it
+ * to finish, then run the required steps again (a no-op if the first node succeeded). Each step is given
+ * {@code journalapp.bootstrap.step-timeout} per attempt and retried up to {@code journalapp.bootstrap.max-attempts}
+ * times, after {@code journalapp.bootstrap.initial-backoff}, doubling between attempts. A failed Keycloak step does not prevent the node from serving requests, since
+ * the periodic synchronisations retry it; only the local roles are required.
+ * <p>
+ * The progress is reported by this health indicator ({@code applicationBootstrap}), part of the readiness group:
+ * OUT_OF_SERVICE while running, UP when done, DOWN if a required step failed. The time from the start of the
+ * application to the end of the initialisation is published as the {@code application.bootstrap.time} metric,
+ * next to Spring Boot's {@code application.started.time} and {@code application.ready.time}.
+ */
+@Component
+public class ApplicationBootstrap implements HealthIndicator {
+
+    /**
+     * The state of the initialisation.
+     */
+    public enum State {
+        RUNNING,
+        READY,
+        FAILED
+    }
+
+    /**
+     * The name of the {@link ClusterLock} shared by the jobs writing the roles: this initialisation,
+     * {@link AdminRoleInitializer} and {@link RoleSynchronizationService}, so none of them overlaps another.
+     */
+    static final String ROLES_LOCK = "roles";
+
+    private static final Duration MAX_BACKOFF = Duration.ofMinutes(1);
+
+    private final List<Step> steps;
+    private final ClusterLock clusterLock;
+    private final MeterRegistry meterRegistry;
+    private final Duration stepTimeout;
+    private final int maxAttempts;
+    private final Duration initialBackoff;
+    private final ExecutorService executor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "application-bootstrap");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile State state = State.RUNNING;
+    private volatile String failure;
+
+    /**
+     * Constructor for ApplicationBootstrap.
+     *
+     * @param roleInitializer            The service creating the local roles.
+     * @param roleSynchronizationService The service copying the roles from Keycloak.
+     * @param adminRoleInitializer       The component making sure there is an administrator.
+     * @param clusterLock                The lock making sure a single node performs the initialisation.
+     * @param meterRegistry              The registry publishing the initialisation time.
+     * @param stepTimeout                How long an attempt of a step may take.
+     * @param maxAttempts                The number of attempts of a step before giving up.
+     * @param initialBackoff             The delay before the second attempt of a step.
+     */
+    @Autowired
+    public ApplicationBootstrap(RoleInitializer roleInitializer,
+                                RoleSynchronizationService roleSynchronizationService,
+                                AdminRoleInitializer adminRoleInitializer,
+                                ClusterLock clusterLock,
+                                MeterRegistry meterRegistry,
+                                @Value("${journalapp.bootstrap.step-timeout:30s}") Duration stepTimeout,
+                                @Value("${journalapp.bootstrap.max-attempts:5}") int maxAttempts,
+                                @Value("${journalapp.bootstrap.initial-backoff:2s}") Duration initialBackoff) {
+        this(List.of(
+                new Step("rôles locaux", true, roleInitializer::initRoles),
+                new Step("rôles Keycloak", false, roleSynchronizationService::synchronizeRoles),
+                new Step("rôle ADMIN", false, adminRoleInitializer::assignAdminRole)
+        ), clusterLock, meterRegistry, stepTimeout, maxAttempts, initialBackoff);
+    }
+
+    /**
+     * Constructor for ApplicationBootstrap with given steps.
+     *
+     * @param steps          The steps of the initialisation, in order.
+     * @param clusterLock    The lock making sure a single node performs the initialisation.
+     * @param meterRegistry  The registry publishing the initialisation time.
+     * @param stepTimeout    How long an attempt of a step may take.
+     * @param maxAttempts    The number of attempts of a step before giving up.
+     * @param initialBackoff The delay before the second attempt of a step.
+     */
+    ApplicationBootstrap(List<Step> steps, ClusterLock clusterLock, MeterRegistry meterRegistry,
+                         Duration stepTimeout, int maxAttempts, Duration initialBackoff) {
+        this.steps = steps;
+        this.clusterLock = clusterLock;
+        this.meterRegistry = meterRegistry;
+        this.stepTimeout = stepTimeout;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoff = initialBackoff;
+    }
+
+    /**
+     * Starts the initialisation in the background once the application has started.
+     *
+     * @param event The event published when the application is ready.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start(ApplicationReadyEvent event) {
+        long startedAt = System.nanoTime() - event.getTimeTaken().toNanos();
+        executor.execute(() -> {
+            try {
+                run();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            Timer.builder("application.bootstrap.time")
+                    .description("Time from the start of the application to the end of its initialisation")
+                    .tag("state", state.name().toLowerCase())
+                    .register(meterRegistry)
+                    .record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+        });
+    }
+
+    /**
+     * Performs the initialisation if no other node is performing it. Otherwise, waits for the other node to finish,
+     * then runs the required steps again, so this node is not reported ready if the other node failed.
+     *
+     * @return The state of the initialisation once finished.
+     * @throws InterruptedException If the thread is interrupted while waiting.
+     */
+    State run() throws InterruptedException {
+        long start = System.nanoTime();
+        if (!clusterLock.runIfLeader(ROLES_LOCK, () -> runSteps(steps))) {
+            System.out.println("Initialisation effectuée par un autre nœud, attente de sa fin...");
+            // Le verrou est libéré quand l'autre nœud a terminé, qu'il ait réussi ou non : les étapes requises,
+            // idempotentes et locales à la base, sont rejouées ici pour vérifier leur résultat
+            List<Step> requiredSteps = steps.stream().filter(Step::required).toList();
+            while (!clusterLock.runIfLeader(ROLES_LOCK, () -> runSteps(requiredSteps))) {
+                TimeUnit.SECONDS.sleep(1);
+            }
+        }
+        System.out.println("Initialisation terminée (" + state + ") en "
+                + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+        return state;
+    }
+
+    /**
+     * Reports the state of the initialisation.
+     *
+     * @return OUT_OF_SERVICE while running, UP when done, DOWN if a required step failed.
+     */
+    @Override
+    public Health health() {
+        return switch (state) {
+            case RUNNING -> Health.outOfService().build();
+            case READY -> Health.up().build();
+            case FAILED -> Health.down().withDetail("error", failure).build();
+        };
+    }
+
+    /**
+     * Returns the state of the initialisation.
+     *
+     * @return The state.
+     */
+    public State getState() {
+        return state;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void runSteps(List<Step> steps) {
+        for (Step step : steps) {
+            try {
+                runWithRetries(step);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                state = State.FAILED;
+                failure = "interrupted";
+                return;
+            } catch (Exception e) {
+                if (step.required()) {
+                    System.err.println("Échec de l'étape d'initialisation '" + step.name() + "' : " + e.getMessage());
+                    state = State.FAILED;
+                    failure = step.name() + ": " + e.getMessage();
+                    return;
+                }
+                System.err.println("Étape d'initialisation '" + step.name()
+                        + "' abandonnée, elle sera reprise par la synchronisation périodique : " + e.getMessage());
+            }
+        }
+        state = State.READY;
+    }
+
+    private void runWithRetries(Step step) throws Exception {
+        Duration backoff = initialBackoff;
+        for (int attempt = 1; ; attempt++) {
+            Future<?> future = executor.submit(step.task());
+            try {
+                future.get(stepTimeout.toMillis(), TimeUnit.MILLISECONDS);
+                return;
+            } catch (TimeoutException | ExecutionException e) {
+                future.cancel(true);
+                Exception cause = e instanceof ExecutionException && e.getCause() instanceof Exception exception
+                        ? exception : e;
+                if (attempt >= maxAttempts) {
+                    throw cause;
+                }
+                System.err.println("Étape d'initialisation '" + step.name() + "' en échec (tentative " + attempt
+                        + "/" + maxAttempts + "), nouvel essai dans " + backoff.toMillis() + " ms : " + cause);
+            }
+            TimeUnit.MILLISECONDS.sleep(backoff.toMillis());
+            backoff = backoff.multipliedBy(2).compareTo(MAX_BACKOFF) > 0 ? MAX_BACKOFF : backoff.multipliedBy(2);
+        }
+    }
+
+    /**
+     * A step of the initialisation.
+     *
+     * @param name     The name of the step, for the logs.
+     * @param required Whether the node can serve requests if the step fails.
+     * @param task     The work of the step.
+     */
+    record Step(String name, boolean required, Runnable task) {
+    }
+}
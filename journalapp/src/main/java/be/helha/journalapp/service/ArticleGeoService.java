@@ -0,0 +1,221 @@
+package be.helha.journalapp.service;
+
+import be.helha.journalapp.dto.ArticleSummary;
+import be.helha.journalapp.dto.GeoCluster;
+import be.helha.journalapp.repositories.ArticleRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This service answers the spatial queries of the map view over the valid articles.
+ * <p>
+ * The queries run against the GiST index on {@code point(longitude, latitude)} (see
+ * {@link be.helha.journalapp.config.DatabaseIndexInitializer}): the first query pages the matching article IDs
+ * using the index, the second one loads the summaries of that page only. Zoomed-out maps get aggregate markers
+ * ({@link GeoCluster}) computed by the database on a grid whose cells shrink as the zoom level grows, so the
+ * response size depends on the viewport rather than on the number of articles.
+ */
+@Service
+public class ArticleGeoService {
+
+    private static final double EARTH_RADIUS_METERS = 6_371_000;
+    private static final int MAX_ZOOM = 22;
+
+    private final ArticleRepository articleRepository;
+    private final int cellsPerTile;
+    private final int maxClusters;
+    private final double maxRadiusMeters;
+
+    /**
+     * Constructor for ArticleGeoService.
+     *
+     * @param articleRepository The repository for accessing article data.
+     * @param cellsPerTile      The number of grid cells across a 256-pixel map tile when clustering.
+     * @param maxClusters       The maximum number of markers returned when clustering.
+     * @param maxRadiusMeters   The largest radius accepted by {@link #findNear}.
+     */
+    public ArticleGeoService(ArticleRepository articleRepository,
+                             @Value("${journalapp.geo.cells-per-tile:4}") int cellsPerTile,
+                             @Value("${journalapp.geo.max-clusters:1000}") int maxClusters,
+                             @Value("${journalapp.geo.max-radius-meters:200000}") double maxRadiusMeters) {
+        this.articleRepository = articleRepository;
+        this.cellsPerTile = cellsPerTile;
+        this.maxClusters = maxClusters;
+        this.maxRadiusMeters = maxRadiusMeters;
+    }
+
+    /**
+     * Lists the valid articles located in a box, newest first.
+     *
+     * @param box  The box.
+     * @param page The zero-based page number.
+     * @param size The number of results per page.
+     * @return The article summaries of the requested page.
+     */
+    public List<ArticleSummary> findWithin(BoundingBox box, int page, int size) {
+        List<Long> ids = articleRepository.findValidArticleIdsWithin(box.west(), box.eastOfFirstPart(),
+                box.westOfSecondPart(), box.east(), box.south(), box.north(), size, (long) page * size);
+        return summariesInOrder(ids);
+    }
+
+    /**
+     * Lists the valid articles within a distance of a point, nearest first.
+     *
+     * @param latitude  The latitude of the point.
+     * @param longitude The longitude of the point.
+     * @param radius    The distance, in meters.
+     * @param page      The zero-based page number.
+     * @param size      The number of results per page.
+     * @return The article summaries of the requested page.
+     * @throws IllegalArgumentException If the point is not a valid coordinate or the radius is out of range.
+     */
+    public List<ArticleSummary> findNear(double latitude, double longitude, double radius, int page, int size) {
+        if (!(radius > 0) || radius > maxRadiusMeters) {
+            throw new IllegalArgumentException(
+                    "The radius must be between 0 and " + (long) maxRadiusMeters + " meters.");
+        }
+        BoundingBox box = around(latitude, longitude, radius);
+        List<Long> ids = articleRepository.findValidArticleIdsNear(latitude, longitude, radius,
+                box.west(), box.eastOfFirstPart(), box.westOfSecondPart(), box.east(), box.south(), box.north(),
+                size, (long) page * size);
+        return summariesInOrder(ids);
+    }
+
+    /**
+     * Groups the valid articles located in a box into markers, for a map at the given zoom level.
+     *
+     * @param box  The box.
+     * @param zoom The zoom level of the map (0 for the whole world in one tile).
+     * @return The markers, most populated first.
+     */
+    public List<GeoCluster> cluster(BoundingBox box, int zoom) {
+        double cell = cellSize(zoom, cellsPerTile);
+        List<GeoCluster> clusters = new ArrayList<>();
+        for (Object[] row : articleRepository.clusterValidArticlesWithin(box.west(), box.eastOfFirstPart(),
+                box.westOfSecondPart(), box.east(), box.south(), box.north(), cell, maxClusters)) {
+            long count = ((Number) row[0]).longValue();
+            clusters.add(new GeoCluster(((Number) row[1]).doubleValue(), ((Number) row[2]).doubleValue(), count,
+                    count == 1 ? ((Number) row[3]).longValue() : null));
+        }
+        return clusters;
+    }
+
+    /**
+     * Parses a box written as {@code west,south,east,north} in degrees, as sent by map libraries.
+     * A western longitude greater than the eastern one denotes a box crossing the antimeridian.
+     *
+     * @param bbox The text of the box.
+     * @return The box.
+     * @throws IllegalArgumentException If the text is not a valid box.
+     */
+    public static BoundingBox parseBoundingBox(String bbox) {
+        String[] parts = bbox == null ? new String[0] : bbox.split(",");
+        if (parts.length != 4) {
+            throw new IllegalArgumentException("The bbox must be written as west,south,east,north.");
+        }
+        double[] values = new double[4];
+        try {
+            for (int i = 0; i < 4; i++) {
+                values[i] = Double.parseDouble(parts[i].trim());
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("The bbox must be written as west,south,east,north.");
+        }
+        checkCoordinate(values[1], values[0]);
+        checkCoordinate(values[3], values[2]);
+        if (values[1] > values[3]) {
+            throw new IllegalArgumentException("The southern latitude of the bbox is above its northern latitude.");
+        }
+        return new BoundingBox(values[0], values[1], values[2], values[3]);
+    }
+
+    /**
+     * Computes the smallest box containing the circle of a given radius around a point.
+     *
+     * @param latitude  The latitude of the point.
+     * @param longitude The longitude of the point.
+     * @param radius    The radius, in meters.
+     * @return The box, crossing the antimeridian if the circle does.
+     * @throws IllegalArgumentException If the point is not a valid coordinate.
+     */
+    static BoundingBox around(double latitude, double longitude, double radius) {
+        checkCoordinate(latitude, longitude);
+        double angle = radius / EARTH_RADIUS_METERS;
+        double south = Math.max(-90, latitude - Math.toDegrees(angle));
+        double north = Math.min(90, latitude + Math.toDegrees(angle));
+        if (south == -90 || north == 90 || angle >= Math.PI / 2) {
+            // Le cercle contient un pôle : toutes les longitudes sont concernées
+            return new BoundingBox(-180, south, 180, north);
+        }
+        double deltaLongitude = Math.toDegrees(Math.asin(Math.sin(angle) / Math.cos(Math.toRadians(latitude))));
+        double west = longitude - deltaLongitude;
+        double east = longitude + deltaLongitude;
+        return new BoundingBox(west < -180 ? west + 360 : west, south, east > 180 ? east - 360 : east, north);
+    }
+
+    /**
+     * Computes the size of the grid cells used to cluster the articles at a zoom level.
+     *
+     * @param zoom         The zoom level (clamped to [0, 22]).
+     * @param cellsPerTile The number of cells across a map tile.
+     * @return The size of a cell, in degrees.
+     */
+    static double cellSize(int zoom, int cellsPerTile) {
+        int clamped = Math.max(0, Math.min(zoom, MAX_ZOOM));
+        return 360.0 / (1L << clamped) / cellsPerTile;
+    }
+
+    private List<ArticleSummary> summariesInOrder(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, Integer> positionById = new HashMap<>();
+        for (int i = 0; i < ids.size(); i++) {
+            positionById.put(ids.get(i), i);
+        }
+        List<ArticleSummary> summaries = new ArrayList<>(articleRepository.findSummariesByIds(ids));
+        summaries.sort(Comparator.comparing(summary -> positionById.get(summary.getArticleId())));
+        return summaries;
+    }
+
+    private static void checkCoordinate(double latitude, double longitude) {
+        if (!(latitude >= -90 && latitude <= 90) || !(longitude >= -180 && longitude <= 180)) {
+            throw new IllegalArgumentException(
+                    "Coordinates must be within [-90, 90] latitude and [-180, 180] longitude.");
+        }
+    }
+
+    /**
+     * A longitude/latitude box, in degrees.
+     *
+     * @param west  The western longitude; greater than {@code east} if the box crosses the antimeridian.
+     * @param south The southern latitude.
+     * @param east  The eastern longitude.
+     * @param north The northern latitude.
+     */
+    public record BoundingBox(double west, double south, double east, double north) {
+
+        /**
+         * Returns whether the box crosses the antimeridian, i.e. is made of two boxes in longitude.
+         *
+         * @return true if the western longitude is greater than the eastern one.
+         */
+        public boolean crossesAntimeridian() {
+            return west > east;
+        }
+
+        double eastOfFirstPart() {
+            return crossesAntimeridian() ? 180 : east;
+        }
+
+        double westOfSecondPart() {
+            return crossesAntimeridian() ? -180 : west;
+        }
+    }
+}
@@ -0,0 +1,381 @@
+package be.helha.journalapp.service;
+
+import be.helha.journalapp.config.ClusterLock;
+import be.helha.journalapp.dto.ArticleImportLine;
+import be.helha.journalapp.model.Article;
+import be.helha.journalapp.model.ImportCheckpoint;
+import be.helha.journalapp.model.Newsletter;
+import be.helha.journalapp.model.Role;
+import be.helha.journalapp.model.User;
+import be.helha.journalapp.repositories.ArticleRepository;
+import be.helha.journalapp.repositories.ImportCheckpointRepository;
+import be.helha.journalapp.repositories.NewsletterRepository;
+import be.helha.journalapp.repositories.RoleRepository;
+import be.helha.journalapp.repositories.UserRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Pattern;
+
+/**
+ * This service imports articles, with their authors and newsletters, from an NDJSON stream
+ * (one {@link ArticleImportLine} per line), e.g. an archive exported from another CMS.
+ * <p>
+ * The input is read line by line and written in batches of {@code journalapp.import.batch-size} lines, each in its
+ * own transaction, so memory does not grow with the size of the input. Authors (by email) and newsletters (by
+ * title) are looked up once and their IDs kept in bounded caches ({@code journalapp.import.id-cache-size} entries);
+ * those missing are created. The progress is recorded in an {@link ImportCheckpoint}, updated in the transaction
+ * of each batch: sending the same input again under the same import ID skips the lines already written, so an
+ * import stopped by an invalid line, a database error or a lost connection resumes where it stopped.
+ * An import ID is processed by one node at a time ({@link ClusterLock}).
+ * The imported articles are counted by the {@code import.articles} metric.
+ */
+@Service
+public class ArticleImportService {
+
+    private static final Pattern IMPORT_ID = Pattern.compile("[A-Za-z0-9._-]{1,100}");
+    private static final String DEFAULT_BACKGROUND_COLOR = "#ffffff";
+    private static final String AUTHOR_ROLE = "JOURNALIST";
+
+    private final ArticleRepository articleRepository;
+    private final UserRepository userRepository;
+    private final NewsletterRepository newsletterRepository;
+    private final RoleRepository roleRepository;
+    private final ImportCheckpointRepository importCheckpointRepository;
+    private final ReadStateService readStateService;
+    private final NewsletterIssueService newsletterIssueService;
+    private final ClusterLock clusterLock;
+    private final ObjectReader lineReader;
+    private final TransactionTemplate transaction;
+    private final Counter importedArticles;
+    private final int batchSize;
+    private final long idCacheSize;
+
+    /**
+     * Constructor for ArticleImportService.
+     *
+     * @param articleRepository          The repository for accessing article data.
+     * @param userRepository             The repository for accessing user data.
+     * @param newsletterRepository       The repository for accessing newsletter data.
+     * @param roleRepository             The repository for accessing role data.
+     * @param importCheckpointRepository The repository recording the progress of the imports.
+     * @param readStateService           The service whose bitmap of valid articles is dropped after each batch.
+     * @param newsletterIssueService     The service whose cached issues are dropped after each batch.
+     * @param clusterLock                The lock making sure an import runs on a single node at a time.
+     * @param objectMapper               The mapper parsing the lines.
+     * @param transactionManager         The transaction manager used to write each batch.
+     * @param meterRegistry              The registry publishing the number of imported articles.
+     * @param batchSize                  The number of lines written per transaction.
+     * @param idCacheSize                The maximum number of author and newsletter IDs kept in memory.
+     */
+    public ArticleImportService(ArticleRepository articleRepository,
+                                UserRepository userRepository,
+                                NewsletterRepository newsletterRepository,
+                                RoleRepository roleRepository,
+                                ImportCheckpointRepository importCheckpointRepository,
+                                ReadStateService readStateService,
+                                NewsletterIssueService newsletterIssueService,
+                                ClusterLock clusterLock,
+                                ObjectMapper objectMapper,
+                                PlatformTransactionManager transactionManager,
+                                MeterRegistry meterRegistry,
+                                @Value("${journalapp.import.batch-size:500}") int batchSize,
+                                @Value("${journalapp.import.id-cache-size:10000}") long idCacheSize) {
+        this.articleRepository = articleRepository;
+        this.userRepository = userRepository;
+        this.newsletterRepository = newsletterRepository;
+        this.roleRepository = roleRepository;
+        this.importCheckpointRepository = importCheckpointRepository;
+        this.readStateService = readStateService;
+        this.newsletterIssueService = newsletterIssueService;
+        this.clusterLock = clusterLock;
+        this.lineReader = objectMapper.readerFor(ArticleImportLine.class)
+                .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.importedArticles = Counter.builder("import.articles")
+                .description("Articles created by the bulk imports")
+                .register(meterRegistry);
+        this.batchSize = batchSize;
+        this.idCacheSize = idCacheSize;
+    }
+
+    /**
+     * Imports the articles of an NDJSON stream, resuming after the lines already written under the same import ID.
+     * An import already completed is not run again.
+     *
+     * @param importId The identifier of the import (letters, digits, '.', '_' and '-', at most 100 characters).
+     * @param input    The NDJSON stream, in UTF-8.
+     * @return The progress of the import once the whole input is written, or empty if the import is running
+     * on another node or thread.
+     * @throws IllegalArgumentException If the import ID or a line is invalid; the lines before it are written.
+     * @throws IllegalStateException    If a batch could not be written; the previous batches are kept.
+     * @throws IOException              If the input could not be read; the previous batches are kept.
+     */
+    public Optional<ImportCheckpoint> importArticles(String importId, InputStream input) throws IOException {
+        if (importId == null || !IMPORT_ID.matcher(importId).matches()) {
+            throw new IllegalArgumentException("Invalid import ID: use 1 to 100 letters, digits, '.', '_' or '-'.");
+        }
+        AtomicReference<ImportCheckpoint> result = new AtomicReference<>();
+        try {
+            boolean ran = clusterLock.runIfLeader("import:" + importId, () -> {
+                try {
+                    result.set(new Run(importId).execute(input));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            return ran ? Optional.of(result.get()) : Optional.empty();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Retrieves the progress of an import.
+     *
+     * @param importId The identifier of the import.
+     * @return The progress, or empty if nothing was imported under this ID.
+     */
+    public Optional<ImportCheckpoint> getProgress(String importId) {
+        return importCheckpointRepository.findById(importId);
+    }
+
+    /**
+     * The newsletter of imported articles, as kept in the cache.
+     */
+    private record CachedNewsletter(Long newsletterId, String backgroundColor) {
+    }
+
+    /**
+     * One run of an import: the ID caches and the lines read but not written yet.
+     */
+    private class Run {
+
+        private final String importId;
+        private final Cache<String, Long> authorIds = Caffeine.newBuilder().maximumSize(idCacheSize).build();
+        private final Cache<String, CachedNewsletter> newsletters = Caffeine.newBuilder().maximumSize(idCacheSize).build();
+        private final List<ArticleImportLine> pending = new ArrayList<>();
+        private long pendingUpTo;
+        private Role authorRole;
+
+        Run(String importId) {
+            this.importId = importId;
+        }
+
+        ImportCheckpoint execute(InputStream input) throws IOException {
+            ImportCheckpoint checkpoint = loadCheckpoint();
+            if (checkpoint.isCompleted()) {
+                return checkpoint;
+            }
+            long skip = checkpoint.getLinesDone();
+            pendingUpTo = skip;
+
+            BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+            long lineNumber = 0;
+            try {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    lineNumber++;
+                    if (lineNumber <= skip) {
+                        continue;
+                    }
+                    if (!line.isBlank()) {
+                        pending.add(parse(line, lineNumber));
+                    }
+                    pendingUpTo = lineNumber;
+                    if (pending.size() >= batchSize) {
+                        checkpoint = write(false);
+                    }
+                }
+                return write(true);
+            } catch (IllegalArgumentException e) {
+                // Les lignes valides qui précèdent la ligne fautive sont conservées
+                write(false);
+                throw recordFailure(e);
+            } catch (IOException e) {
+                throw recordFailure(e);
+            } catch (RuntimeException e) {
+                throw recordFailure(new IllegalStateException("Import " + importId + " stopped after line "
+                        + checkpoint.getLinesDone() + ": " + e.getMessage(), e));
+            }
+        }
+
+        private ImportCheckpoint loadCheckpoint() {
+            return importCheckpointRepository.findById(importId).orElseGet(() -> {
+                ImportCheckpoint created = new ImportCheckpoint();
+                created.setImportId(importId);
+                return created;
+            });
+        }
+
+        private ArticleImportLine parse(String line, long lineNumber) {
+            ArticleImportLine article;
+            try {
+                article = lineReader.readValue(line);
+            } catch (JsonProcessingException e) {
+                throw new IllegalArgumentException("Line " + lineNumber + ": invalid JSON (" + e.getOriginalMessage() + ").");
+            }
+            if (article.title() == null || article.title().isBlank()) {
+                throw new IllegalArgumentException("Line " + lineNumber + ": the title is missing.");
+            }
+            if (article.author() == null || article.author().email() == null || article.author().email().isBlank()) {
+                throw new IllegalArgumentException("Line " + lineNumber + ": the author email is missing.");
+            }
+            if (article.newsletter() == null || article.newsletter().title() == null
+                    || article.newsletter().title().isBlank()) {
+                throw new IllegalArgumentException("Line " + lineNumber + ": the newsletter title is missing.");
+            }
+            return article;
+        }
+
+        /**
+         * Writes the pending lines and moves the checkpoint past them, in one transaction.
+         * The IDs of the authors and newsletters created are only cached once the transaction has committed.
+         */
+        private ImportCheckpoint write(boolean completed) {
+            Map<String, Long> createdAuthors = new HashMap<>();
+            Map<String, CachedNewsletter> createdNewsletters = new HashMap<>();
+            ImportCheckpoint checkpoint = transaction.execute(status -> {
+                ImportCheckpoint current = loadCheckpoint();
+                List<Article> articles = new ArrayList<>(pending.size());
+                for (ArticleImportLine line : pending) {
+                    Long authorId = resolveAuthor(line.author(), createdAuthors);
+                    CachedNewsletter newsletter = resolveNewsletter(line.newsletter(), authorId, createdNewsletters);
+                    Article article = new Article();
+                    article.setTitle(line.title());
+                    article.setContent(line.content());
+                    article.setPublicationDate(line.publicationDate());
+                    article.setLongitude(line.longitude());
+                    article.setLatitude(line.latitude());
+                    article.setValid(line.valid());
+                    article.setBackgroundColor(newsletter.backgroundColor());
+                    article.setAuthor(userRepository.getReferenceById(authorId));
+                    article.setNewsletter(newsletterRepository.getReferenceById(newsletter.newsletterId()));
+                    articles.add(article);
+                }
+                articleRepository.saveAll(articles);
+
+                current.setLinesDone(pendingUpTo);
+                current.setArticlesImported(current.getArticlesImported() + articles.size());
+                current.setAuthorsCreated(current.getAuthorsCreated() + createdAuthors.size());
+                current.setNewslettersCreated(current.getNewslettersCreated() + createdNewsletters.size());
+                current.setCompleted(completed);
+                current.setLastError(null);
+                current.setUpdatedAt(LocalDateTime.now());
+                return importCheckpointRepository.save(current);
+            });
+            authorIds.putAll(createdAuthors);
+            newsletters.putAll(createdNewsletters);
+            importedArticles.increment(pending.size());
+            if (!pending.isEmpty()) {
+                readStateService.publishedArticlesChanged();
+                newsletterIssueService.invalidateAll();
+            }
+            pending.clear();
+            return checkpoint;
+        }
+
+        private Long resolveAuthor(ArticleImportLine.Author author, Map<String, Long> created) {
+            String email = author.email().trim().toLowerCase(Locale.ROOT);
+            Long authorId = authorIds.getIfPresent(email);
+            if (authorId == null) {
+                authorId = created.get(email);
+            }
+            if (authorId == null) {
+                Optional<User> existing = userRepository.findByEmail(email);
+                if (existing.isPresent()) {
+                    authorId = existing.get().getUserId();
+                    authorIds.put(email, authorId);
+                } else {
+                    User user = new User();
+                    user.setEmail(email);
+                    user.setFirstName(author.firstName());
+                    user.setLastName(author.lastName());
+                    user.setRole(authorRole());
+                    authorId = userRepository.save(user).getUserId();
+                    created.put(email, authorId);
+                }
+            }
+            return authorId;
+        }
+
+        private CachedNewsletter resolveNewsletter(ArticleImportLine.NewsletterRef ref, Long creatorId,
+                                                   Map<String, CachedNewsletter> created) {
+            String title = ref.title().trim();
+            CachedNewsletter newsletter = newsletters.getIfPresent(title);
+            if (newsletter == null) {
+                newsletter = created.get(title);
+            }
+            if (newsletter == null) {
+                List<Newsletter> existing = newsletterRepository.findByTitle(title);
+                if (!existing.isEmpty()) {
+                    newsletter = new CachedNewsletter(existing.get(0).getNewsletterId(),
+                            existing.get(0).getBackgroundColor());
+                    newsletters.put(title, newsletter);
+                } else {
+                    Newsletter entity = new Newsletter();
+                    entity.setTitle(title);
+                    entity.setSubtitle(ref.subtitle());
+                    entity.setPublicationDate(ref.publicationDate());
+                    entity.setBackgroundColor(ref.backgroundColor() != null ? ref.backgroundColor() : DEFAULT_BACKGROUND_COLOR);
+                    entity.setCreator(userRepository.getReferenceById(creatorId));
+                    Newsletter saved = newsletterRepository.save(entity);
+                    newsletter = new CachedNewsletter(saved.getNewsletterId(), saved.getBackgroundColor());
+                    created.put(title, newsletter);
+                }
+            }
+            return newsletter;
+        }
+
+        private Role authorRole() {
+            if (authorRole == null) {
+                authorRole = roleRepository.findByRoleName(AUTHOR_ROLE)
+                        .orElseThrow(() -> new IllegalStateException("Role " + AUTHOR_ROLE + " not found."));
+            }
+            return authorRole;
+        }
+
+        /**
+         * Records the error that stopped the import in its checkpoint, in a separate transaction.
+         */
+        private <E extends Exception> E recordFailure(E error) {
+            try {
+                transaction.executeWithoutResult(status -> {
+                    ImportCheckpoint current = loadCheckpoint();
+                    String message = String.valueOf(error.getMessage());
+                    current.setLastError(message.length() > 1000 ? message.substring(0, 1000) : message);
+                    current.setUpdatedAt(LocalDateTime.now());
+                    importCheckpointRepository.save(current);
+                });
+            } catch (RuntimeException e) {
+                error.addSuppressed(e);
+            }
+            System.err.println("Import " + importId + " interrompu : " + error.getMessage());
+            return error;
+        }
+    }
+}
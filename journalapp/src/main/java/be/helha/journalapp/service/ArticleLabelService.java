@@ -0,0 +1,160 @@
+package be.helha.journalapp.service;
+
+import be.helha.journalapp.config.BackgroundThreads;
+import be.helha.journalapp.dto.ArticleLabel;
+import be.helha.journalapp.repositories.ArticleRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * This service reads the labels of articles (newsletter title and author name) shown next to them in list views.
+ * <p>
+ * Labels of many articles are read by one projected query ({@link ArticleRepository#findLabelsByIds}).
+ * Lookups of a single article, which clients still make once per row, are coalesced: a lookup joins the set of
+ * waiting IDs, and a loader thread reads all of them with a single query. Up to
+ * {@code journalapp.article-labels.loaders} queries run at the same time, so one slow query does not hold up the
+ * other lookups; once they all run, the lookups arriving meanwhile wait for the next free loader and are read
+ * together. Under load the number of queries thus grows with the database latency rather than with the number of
+ * lookups, and an idle server answers a lookup without added delay. A lookup whose batch is not read in time
+ * reads its article on its own instead of failing.
+ * The size of the batches is published as the {@code article.labels.batch.size} metric.
+ */
+@Service
+public class ArticleLabelService {
+
+    private final ArticleRepository articleRepository;
+    private final int maxBatchSize;
+    private final long timeoutMs;
+    private final ExecutorService loader;
+    private final DistributionSummary batchSize;
+    private final ReentrantLock lock = new ReentrantLock();
+    private Map<Long, CompletableFuture<ArticleLabel>> waiting = new HashMap<>();
+    private boolean loadScheduled;
+
+    /**
+     * Constructor for ArticleLabelService.
+     *
+     * @param articleRepository The repository for accessing article data.
+     * @param meterRegistry     The registry publishing the batch metrics.
+     * @param maxBatchSize      The largest number of IDs read by one query.
+     * @param loaders           The number of batches read at the same time.
+     * @param timeoutMs         How long a single lookup waits for its batch, in milliseconds.
+     */
+    public ArticleLabelService(ArticleRepository articleRepository,
+                               MeterRegistry meterRegistry,
+                               @Value("${journalapp.article-labels.max-batch-size:500}") int maxBatchSize,
+                               @Value("${journalapp.article-labels.loaders:4}") int loaders,
+                               @Value("${journalapp.article-labels.timeout-ms:5000}") long timeoutMs) {
+        this.articleRepository = articleRepository;
+        this.maxBatchSize = maxBatchSize;
+        this.timeoutMs = timeoutMs;
+        this.loader = Executors.newFixedThreadPool(loaders, BackgroundThreads.daemon("article-label-loader-"));
+        this.batchSize = DistributionSummary.builder("article.labels.batch.size")
+                .description("Number of articles whose labels are read by one query")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Reads the labels of several articles.
+     *
+     * @param articleIds The IDs of the articles.
+     * @return The labels by article ID; unknown articles are absent.
+     */
+    public Map<Long, ArticleLabel> findLabels(Collection<Long> articleIds) {
+        Map<Long, ArticleLabel> labels = new HashMap<>();
+        List<Long> ids = new ArrayList<>(new LinkedHashSet<>(articleIds));
+        for (int start = 0; start < ids.size(); start += maxBatchSize) {
+            List<Long> chunk = ids.subList(start, Math.min(start + maxBatchSize, ids.size()));
+            batchSize.record(chunk.size());
+            for (ArticleLabel label : articleRepository.findLabelsByIds(chunk)) {
+                labels.put(label.getArticleId(), label);
+            }
+        }
+        return labels;
+    }
+
+    /**
+     * Reads the labels of one article, together with the other lookups made at the same time.
+     *
+     * @param articleId The ID of the article.
+     * @return The labels, or empty if the article does not exist.
+     * @throws IllegalStateException If the thread is interrupted while waiting.
+     */
+    public Optional<ArticleLabel> findLabel(Long articleId) {
+        CompletableFuture<ArticleLabel> label;
+        boolean schedule = false;
+        lock.lock();
+        try {
+            label = waiting.computeIfAbsent(articleId, id -> new CompletableFuture<>());
+            if (!loadScheduled) {
+                loadScheduled = true;
+                schedule = true;
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (schedule) {
+            loader.execute(this::loadWaiting);
+        }
+
+        try {
+            return Optional.ofNullable(label.get(timeoutMs, TimeUnit.MILLISECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while reading the labels of article " + articleId, e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("Could not read the labels of article " + articleId, e.getCause());
+        } catch (TimeoutException e) {
+            // Lot en retard (chargeurs occupés par des requêtes lentes) : l'article est lu seul
+            return articleRepository.findLabelsByIds(List.of(articleId)).stream().findFirst();
+        }
+    }
+
+    /**
+     * Stops the loader threads.
+     */
+    @PreDestroy
+    public void shutdown() {
+        loader.shutdown();
+    }
+
+    private void loadWaiting() {
+        Map<Long, CompletableFuture<ArticleLabel>> batch;
+        lock.lock();
+        try {
+            // Les demandes qui arrivent pendant la requête forment le lot suivant
+            batch = waiting;
+            waiting = new HashMap<>();
+            loadScheduled = false;
+        } finally {
+            lock.unlock();
+        }
+        try {
+            Map<Long, ArticleLabel> labels = findLabels(batch.keySet());
+            batch.forEach((id, label) -> label.complete(labels.get(id)));
+        } catch (RuntimeException e) {
+            batch.values().forEach(label -> label.completeExceptionally(e));
+        }
+    }
+}
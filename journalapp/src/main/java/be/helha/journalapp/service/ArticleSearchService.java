@@ -0,0 +1,85 @@
+package be.helha.journalapp.service;
+
+import be.helha.journalapp.dto.ArticleSummary;
+import be.helha.journalapp.repositories.ArticleRepository;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * This service provides ranked full-text search over the title and content of valid articles.
+ * <p>
+ * The search runs against the PostgreSQL {@code article.search_vector} column and its GIN index
+ * (see {@link be.helha.journalapp.config.DatabaseIndexInitializer}): the first query ranks and pages the
+ * matching article IDs using the index, the second one loads the summaries of that page only.
+ */
+@Service
+public class ArticleSearchService {
+
+    private final ArticleRepository articleRepository;
+
+    /**
+     * Constructor for ArticleSearchService.
+     *
+     * @param articleRepository The repository for accessing article data.
+     */
+    public ArticleSearchService(ArticleRepository articleRepository) {
+        this.articleRepository = articleRepository;
+    }
+
+    /**
+     * Searches valid articles matching every word of the query, best matches first.
+     * The last word is matched as a prefix so that results follow the user while typing.
+     *
+     * @param query The text typed by the user.
+     * @param page  The zero-based page number.
+     * @param size  The number of results per page.
+     * @return The article summaries of the requested page, in rank order (empty if the query has no searchable word).
+     */
+    public List<ArticleSummary> search(String query, int page, int size) {
+        String tsQuery = toTsQuery(query);
+        if (tsQuery.isEmpty()) {
+            return List.of();
+        }
+
+        List<Long> rankedIds = articleRepository.searchValidArticleIds(tsQuery, size, (long) page * size);
+        if (rankedIds.isEmpty()) {
+            return List.of();
+        }
+
+        Map<Long, Integer> rankById = new HashMap<>();
+        for (int i = 0; i < rankedIds.size(); i++) {
+            rankById.put(rankedIds.get(i), i);
+        }
+        List<ArticleSummary> summaries = new ArrayList<>(articleRepository.findSummariesByIds(rankedIds));
+        summaries.sort(Comparator.comparing(summary -> rankById.get(summary.getArticleId())));
+        return summaries;
+    }
+
+    /**
+     * Converts free text into a PostgreSQL {@code tsquery} expression.
+     * Only letters and digits are kept, so user input can never produce an invalid query;
+     * words are combined with AND and the last one is a prefix match.
+     *
+     * @param query The text typed by the user (may be null).
+     * @return The tsquery expression, or an empty string if the query contains no searchable word.
+     */
+    static String toTsQuery(String query) {
+        if (query == null) {
+            return "";
+        }
+        List<String> words = Arrays.stream(query.toLowerCase().split("[^\\p{L}\\p{N}]+"))
+                .filter(word -> !word.isEmpty())
+                .collect(Collectors.toList());
+        if (words.isEmpty()) {
+            return "";
+        }
+        return String.join(" & ", words) + ":*";
+    }
+}
@@ -0,0 +1,110 @@
+package be.helha.journalapp.service;
+
+import be.helha.journalapp.dto.CommentView;
+import be.helha.journalapp.model.Article;
+import be.helha.journalapp.model.Comment;
+import be.helha.journalapp.model.User;
+import be.helha.journalapp.repositories.ArticleRepository;
+import be.helha.journalapp.repositories.CommentRepository;
+import be.helha.journalapp.repositories.UserRepository;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Optional;
+
+/**
+ * This service creates and deletes comments while keeping the comment counters of their article up to date.
+ * <p>
+ * Each article carries its number of comments and the date of its latest one ({@link Article#getCommentCount()},
+ * {@link Article#getLastCommentAt()}), so article lists can show them without reading the {@code Comments} table.
+ * The counters are changed by an in-place update in the same transaction as the comment itself, so they stay
+ * exact under concurrent comments and are rolled back with it.
+ * <p>
+ * New comments are also pushed to the clients following their article (see {@link LiveEventHub}).
+ */
+@Service
+public class CommentService {
+
+    private final CommentRepository commentRepository;
+    private final ArticleRepository articleRepository;
+    private final UserRepository userRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    /**
+     * Constructor for CommentService.
+     *
+     * @param commentRepository The repository for accessing comment data.
+     * @param articleRepository The repository holding the comment counters.
+     * @param userRepository    The repository for accessing user data.
+     * @param eventPublisher    The publisher of the {@link LiveEventHub.CommentPosted} events.
+     */
+    public CommentService(CommentRepository commentRepository, ArticleRepository articleRepository,
+                          UserRepository userRepository, ApplicationEventPublisher eventPublisher) {
+        this.commentRepository = commentRepository;
+        this.articleRepository = articleRepository;
+        this.userRepository = userRepository;
+        this.eventPublisher = eventPublisher;
+    }
+
+    /**
+     * Posts a comment on an article and counts it.
+     *
+     * @param userId          The ID of the author of the comment.
+     * @param articleId       The ID of the article.
+     * @param content         The content of the comment.
+     * @param publicationDate The publication date sent by the client.
+     * @return The saved comment.
+     * @throws RuntimeException If the user or the article does not exist.
+     */
+    @Transactional
+    public Comment addComment(Long userId, Long articleId, String content, String publicationDate) {
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new RuntimeException("User with ID " + userId + " not found."));
+
+        // Précision de la base, pour que le commentaire et l'article portent exactement la même date
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+        // Le compteur est mis à jour avant de charger l'article, qui est donc lu avec son nouveau compte
+        if (articleRepository.incrementCommentCount(articleId, now) == 0) {
+            throw new RuntimeException("Article with ID " + articleId + " not found.");
+        }
+        Article article = articleRepository.findById(articleId)
+                .orElseThrow(() -> new RuntimeException("Article with ID " + articleId + " not found."));
+
+        Comment comment = new Comment();
+        comment.setContent(content);
+        comment.setPublicationDate(publicationDate);
+        comment.setCreatedAt(now);
+        comment.setUser(user);
+        comment.setArticle(article);
+        Comment saved = commentRepository.save(comment);
+
+        // Diffusé aux abonnés de l'article après le commit
+        String authorName = ((user.getFirstName() != null ? user.getFirstName() : "") + " "
+                + (user.getLastName() != null ? user.getLastName() : "")).trim();
+        eventPublisher.publishEvent(new LiveEventHub.CommentPosted(new CommentView(saved.getCommentId(),
+                saved.getContent(), saved.getPublicationDate(), saved.getCreatedAt(), articleId, article.getTitle(),
+                user.getUserId(), authorName)));
+        return saved;
+    }
+
+    /**
+     * Deletes a comment and uncounts it.
+     *
+     * @param commentId The ID of the comment.
+     * @return true if the comment was deleted, false if it does not exist.
+     */
+    @Transactional
+    public boolean deleteComment(Long commentId) {
+        Optional<Comment> comment = commentRepository.findById(commentId);
+        if (comment.isEmpty()) {
+            return false;
+        }
+        Long articleId = comment.get().getArticle().getArticleId();
+        commentRepository.delete(comment.get());
+        articleRepository.decrementCommentCount(articleId);
+        return true;
+    }
+}
@@ -0,0 +1,266 @@
+package be.helha.journalapp.service;
+
+import be.helha.journalapp.config.BackgroundThreads;
+import be.helha.journalapp.model.DeadLetterEmail;
+import be.helha.journalapp.model.OutboundEmail;
+import be.helha.journalapp.repositories.DeadLetterEmailRepository;
+import be.helha.journalapp.repositories.OutboundEmailRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.internet.AddressException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.mail.MailParseException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This component drains the outbound mail queue ({@link OutboundEmail}) on a small, bounded worker pool,
+ * so that no request thread ever waits for the mail server.
+ * <p>
+ * The queue is polled every {@code journalapp.mail.poll-interval-ms} milliseconds, and right after a transaction
+ * that queued an email has committed. Each due email is first claimed with a conditional update, which leases it
+ * to one worker; an email whose worker died (e.g. the application stopped) is picked up again once the lease
+ * has expired. At most {@code journalapp.mail.workers} emails are sent at the same time.
+ * A delivered email is deleted. A failed one is retried after an exponential backoff, starting at
+ * {@code journalapp.mail.initial-backoff-ms} and doubling up to one hour, and moved to the dead-letter table
+ * ({@link DeadLetterEmail}) after {@code journalapp.mail.max-attempts} attempts, or at once if its address
+ * is invalid.
+ * <p>
+ * The number of queued emails is published as the {@code mail.queue.depth} metric, the time from queuing to
+ * delivery as {@code mail.queue.latency}, and failed attempts as {@code mail.queue.failures}.
+ */
+@Component
+public class EmailDispatcher {
+
+    private static final Duration LEASE = Duration.ofMinutes(5);
+    private static final Duration MAX_BACKOFF = Duration.ofHours(1);
+
+    private final OutboundEmailRepository outboundEmailRepository;
+    private final DeadLetterEmailRepository deadLetterEmailRepository;
+    private final EmailService emailService;
+    private final TransactionTemplate transaction;
+    private final int maxAttempts;
+    private final Duration initialBackoff;
+    private final Semaphore idleWorkers;
+    private final ExecutorService workers;
+    private final ScheduledExecutorService poller;
+    private final AtomicBoolean pollScheduled = new AtomicBoolean();
+    private final AtomicLong depth = new AtomicLong();
+    private final Timer latency;
+    private final Counter retried;
+    private final Counter deadLettered;
+    private volatile boolean backlog;
+
+    /**
+     * Constructor for EmailDispatcher.
+     *
+     * @param outboundEmailRepository   The repository holding the queued emails.
+     * @param deadLetterEmailRepository The repository holding the emails that could not be delivered.
+     * @param emailService              The service sending the emails.
+     * @param transactionManager        The transaction manager used to dead-letter an email atomically.
+     * @param meterRegistry             The registry publishing the queue metrics.
+     * @param environment               The environment telling whether the workers run on virtual threads.
+     * @param workers                   The number of emails sent at the same time.
+     * @param pollIntervalMs            The delay between two polls of the queue, in milliseconds.
+     * @param maxAttempts               The number of attempts after which an email is dead-lettered.
+     * @param initialBackoffMs          The delay before the first retry, in milliseconds.
+     */
+    public EmailDispatcher(OutboundEmailRepository outboundEmailRepository,
+                           DeadLetterEmailRepository deadLetterEmailRepository,
+                           EmailService emailService,
+                           PlatformTransactionManager transactionManager,
+                           MeterRegistry meterRegistry,
+                           Environment environment,
+                           @Value("${journalapp.mail.workers:2}") int workers,
+                           @Value("${journalapp.mail.poll-interval-ms:5000}") long pollIntervalMs,
+                           @Value("${journalapp.mail.max-attempts:6}") int maxAttempts,
+                           @Value("${journalapp.mail.initial-backoff-ms:30000}") long initialBackoffMs) {
+        this.outboundEmailRepository = outboundEmailRepository;
+        this.deadLetterEmailRepository = deadLetterEmailRepository;
+        this.emailService = emailService;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.maxAttempts = maxAttempts;
+        this.initialBackoff = Duration.ofMillis(initialBackoffMs);
+        this.idleWorkers = new Semaphore(workers);
+        this.workers = Executors.newFixedThreadPool(workers, BackgroundThreads.forBlockingIo(environment, "email-worker-"));
+        this.poller = Executors.newSingleThreadScheduledExecutor(BackgroundThreads.daemon("email-poller-"));
+        this.poller.scheduleWithFixedDelay(this::pollInBackground, pollIntervalMs, pollIntervalMs,
+                TimeUnit.MILLISECONDS);
+
+        Gauge.builder("mail.queue.depth", depth, AtomicLong::get)
+                .description("Emails waiting in the outbound mail queue")
+                .register(meterRegistry);
+        this.latency = Timer.builder("mail.queue.latency")
+                .description("Time from queuing to delivery of an email")
+                .register(meterRegistry);
+        this.retried = Counter.builder("mail.queue.failures").tag("outcome", "retried").register(meterRegistry);
+        this.deadLettered = Counter.builder("mail.queue.failures").tag("outcome", "dead-lettered")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Polls the queue as soon as a transaction that queued an email has committed
+     * (or right away when the email was queued outside a transaction).
+     *
+     * @param event The queuing event.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onEmailQueued(EmailService.EmailQueued event) {
+        wakeUp();
+    }
+
+    /**
+     * Claims the due emails, as many as there are idle workers, and hands them to the workers.
+     *
+     * @return The number of emails claimed.
+     */
+    public synchronized int dispatchDueEmails() {
+        int claimed = 0;
+        int idle = idleWorkers.availablePermits();
+        if (idle > 0) {
+            LocalDateTime now = LocalDateTime.now();
+            List<Long> due = outboundEmailRepository.findDueIds(now, PageRequest.of(0, idle));
+            backlog = due.size() == idle;
+            for (Long id : due) {
+                // Une autre instance a pu réclamer l'email entre-temps
+                if (outboundEmailRepository.claim(id, now, now.plus(LEASE)) == 0) {
+                    continue;
+                }
+                idleWorkers.acquireUninterruptibly();
+                claimed++;
+                workers.execute(() -> {
+                    try {
+                        deliver(id);
+                    } finally {
+                        idleWorkers.release();
+                        if (backlog) {
+                            wakeUp();
+                        }
+                    }
+                });
+            }
+        }
+        depth.set(outboundEmailRepository.count());
+        return claimed;
+    }
+
+    /**
+     * Stops polling and waits for the emails being sent. Emails claimed but not sent are sent again
+     * once their lease has expired.
+     */
+    @PreDestroy
+    public void shutdown() {
+        poller.shutdown();
+        workers.shutdown();
+        try {
+            workers.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void wakeUp() {
+        if (pollScheduled.compareAndSet(false, true)) {
+            try {
+                poller.execute(() -> {
+                    pollScheduled.set(false);
+                    pollInBackground();
+                });
+            } catch (RejectedExecutionException e) {
+                pollScheduled.set(false);
+            }
+        }
+    }
+
+    private void pollInBackground() {
+        try {
+            dispatchDueEmails();
+        } catch (Exception e) {
+            System.err.println("Erreur lors de la lecture de la file d'emails (nouvel essai au prochain passage) : "
+                    + e.getMessage());
+        }
+    }
+
+    /**
+     * Sends a claimed email, then deletes it, schedules its next attempt or dead-letters it.
+     *
+     * @param id The ID of the claimed email.
+     */
+    private void deliver(Long id) {
+        OutboundEmail email = outboundEmailRepository.findById(id).orElse(null);
+        if (email == null) {
+            return;
+        }
+        try {
+            emailService.sendEmail(email.getRecipient(), email.getSubject(), email.getContent());
+        } catch (Exception e) {
+            failed(email, e);
+            return;
+        }
+        outboundEmailRepository.deleteById(id);
+        latency.record(Duration.between(email.getCreatedAt(), LocalDateTime.now()));
+    }
+
+    private void failed(OutboundEmail email, Exception error) {
+        String message = truncate(error.getClass().getSimpleName() + ": " + error.getMessage());
+        boolean permanent = error instanceof AddressException || error instanceof MailParseException;
+        if (permanent || email.getAttempts() >= maxAttempts) {
+            transaction.executeWithoutResult(status -> {
+                DeadLetterEmail deadLetter = new DeadLetterEmail();
+                deadLetter.setRecipient(email.getRecipient());
+                deadLetter.setSubject(email.getSubject());
+                deadLetter.setContent(email.getContent());
+                deadLetter.setAttempts(email.getAttempts());
+                deadLetter.setCreatedAt(email.getCreatedAt());
+                deadLetter.setFailedAt(LocalDateTime.now());
+                deadLetter.setLastError(message);
+                deadLetterEmailRepository.save(deadLetter);
+                outboundEmailRepository.deleteById(email.getId());
+            });
+            deadLettered.increment();
+            System.err.println("Email abandonné après " + email.getAttempts() + " tentative(s) pour "
+                    + email.getRecipient() + " : " + message);
+        } else {
+            outboundEmailRepository.scheduleRetry(email.getId(),
+                    LocalDateTime.now().plus(backoff(email.getAttempts())), message);
+            retried.increment();
+            System.err.println("Échec de l'envoi de l'email à " + email.getRecipient() + " (tentative "
+                    + email.getAttempts() + ", nouvel essai plus tard) : " + message);
+        }
+    }
+
+    /**
+     * Computes the delay before the next attempt: the initial backoff, doubled after each attempt, up to one hour.
+     *
+     * @param attempts The number of attempts made so far (at least 1).
+     * @return The delay before the next attempt.
+     */
+    Duration backoff(int attempts) {
+        Duration delay = initialBackoff.multipliedBy(1L << Math.min(attempts - 1, 20));
+        return delay.compareTo(MAX_BACKOFF) > 0 ? MAX_BACKOFF : delay;
+    }
+
+    private static String truncate(String message) {
+        return message.length() > 1000 ? message.substring(0, 1000) : message;
+    }
+}
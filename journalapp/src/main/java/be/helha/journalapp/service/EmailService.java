@@ -1,23 +1,61 @@
 package be.helha.journalapp.service;
 
+import be.helha.journalapp.model.OutboundEmail;
+import be.helha.journalapp.repositories.OutboundEmailRepository;
 import jakarta.mail.MessagingException; // Use jakarta.mail for Spring Boot 3+
 import jakarta.mail.internet.MimeMessage;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.mail.javamail.MimeMessageHelper;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDateTime;
+
 @Service
 public class EmailService {
 
     private final JavaMailSender mailSender;
+    private final OutboundEmailRepository outboundEmailRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     // Inject JavaMailSender with constructor
-    public EmailService(JavaMailSender mailSender) {
+    public EmailService(JavaMailSender mailSender, OutboundEmailRepository outboundEmailRepository,
+                        ApplicationEventPublisher eventPublisher) {
         this.mailSender = mailSender;
+        this.outboundEmailRepository = outboundEmailRepository;
+        this.eventPublisher = eventPublisher;
+    }
+
+    /**
+     * Queues an email with the specified subject and content for the recipient, instead of sending it
+     * on the calling thread. The email is saved in the outbound mail queue, in the caller's transaction
+     * if there is one, and sent by the {@link EmailDispatcher} once that transaction has committed.
+     *
+     * @param to      The recipient's email address.
+     * @param subject The subject of the email.
+     * @param content The HTML content of the email.
+     * @return The queued email.
+     * @throws IllegalArgumentException If the recipient is missing.
+     */
+    public OutboundEmail queueEmail(String to, String subject, String content) {
+        if (to == null || to.isBlank()) {
+            throw new IllegalArgumentException("The recipient of the email is required");
+        }
+        LocalDateTime now = LocalDateTime.now();
+        OutboundEmail email = new OutboundEmail();
+        email.setRecipient(to);
+        email.setSubject(subject);
+        email.setContent(content);
+        email.setCreatedAt(now);
+        email.setNextAttemptAt(now);
+        OutboundEmail queued = outboundEmailRepository.save(email);
+        eventPublisher.publishEvent(new EmailQueued(queued.getId()));
+        return queued;
     }
 
     /**
-     * Sends an email with the specified subject and content to the recipient.
+     * Sends an email with the specified subject and content to the recipient, on the calling thread.
+     * Request handlers should use {@link #queueEmail(String, String, String)} instead.
      *
      * @param to      The recipient's email address.
      * @param subject The subject of the email.
@@ -37,4 +75,13 @@ public class EmailService {
         // Send the email
         mailSender.send(message);
     }
+
+    /**
+     * Event published when an email has been queued, so that the {@link EmailDispatcher} sends it
+     * as soon as the queuing transaction has committed.
+     *
+     * @param emailId The ID of the queued email.
+     */
+    public record EmailQueued(Long emailId) {
+    }
 }
@@ -0,0 +1,99 @@
+package be.helha.journalapp.service;
+
+import be.helha.journalapp.config.ClusterLock;
+import be.helha.journalapp.storage.BlobStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This component moves the image data still stored as Large Objects in the {@code image} table to the blob store.
+ * <p>
+ * It runs in the background while the application serves traffic: each run migrates a small batch, and each image
+ * is moved in its own short transaction, so rows are never locked for long. Images not migrated yet keep being
+ * served from the database. The job walks the table by increasing ID and starts over once it reaches the end,
+ * so an image that fails to migrate does not block the others; when nothing is left it only costs an indexed query.
+ * It is configured with the {@code journalapp.image-migration.*} properties.
+ * <p>
+ * The job only runs when the blob store is shared by every node ({@link BlobStore#isShared()}), since the data is
+ * removed from the database once moved, and on one node at a time ({@link ClusterLock}).
+ */
+@Component
+public class ImageBlobMigrationJob {
+
+    private final ImageContentService imageContentService;
+    private final JdbcTemplate jdbcTemplate;
+    private final BlobStore blobStore;
+    private final ClusterLock clusterLock;
+    private final boolean enabled;
+    private final int batchSize;
+    private long lastImageId;
+
+    /**
+     * Constructor for ImageBlobMigrationJob.
+     *
+     * @param imageContentService The service moving image data to the blob store.
+     * @param jdbcTemplate        The JDBC template used to find the images to migrate.
+     * @param blobStore           The store receiving the image data.
+     * @param clusterLock         The lock making sure a single node migrates at a time.
+     * @param enabled             Whether the migration runs.
+     * @param batchSize           The maximum number of images migrated per run.
+     */
+    public ImageBlobMigrationJob(ImageContentService imageContentService,
+                                 JdbcTemplate jdbcTemplate,
+                                 BlobStore blobStore,
+                                 ClusterLock clusterLock,
+                                 @Value("${journalapp.image-migration.enabled:true}") boolean enabled,
+                                 @Value("${journalapp.image-migration.batch-size:50}") int batchSize) {
+        this.imageContentService = imageContentService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.blobStore = blobStore;
+        this.clusterLock = clusterLock;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Migrates the next batch of images.
+     *
+     * @return The number of images moved to the blob store.
+     */
+    @Scheduled(initialDelayString = "${journalapp.image-migration.initial-delay-ms:60000}",
+            fixedDelayString = "${journalapp.image-migration.delay-ms:10000}")
+    public int migrateBatch() {
+        if (!enabled || !blobStore.isShared()) {
+            return 0;
+        }
+        AtomicInteger migrated = new AtomicInteger();
+        clusterLock.runIfLeader("image-migration", () -> migrated.set(migrateNextImages()));
+        return migrated.get();
+    }
+
+    private int migrateNextImages() {
+        List<Long> imageIds = jdbcTemplate.queryForList(
+                "SELECT image_id FROM image WHERE image_id > ? AND image_path IS NOT NULL ORDER BY image_id LIMIT ?",
+                Long.class, lastImageId, batchSize);
+        if (imageIds.isEmpty()) {
+            lastImageId = 0;
+            return 0;
+        }
+
+        int migrated = 0;
+        for (Long imageId : imageIds) {
+            try {
+                if (imageContentService.moveToBlobStore(imageId)) {
+                    migrated++;
+                }
+            } catch (Exception e) {
+                System.err.println("Erreur lors de la migration de l'image " + imageId + " : " + e.getMessage());
+            }
+            lastImageId = imageId;
+        }
+        System.out.println("Images migrées vers le stockage de fichiers : " + migrated + "/" + imageIds.size());
+        return migrated;
+    }
+}
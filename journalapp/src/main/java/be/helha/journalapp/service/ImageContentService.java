@@ -0,0 +1,266 @@
+package be.helha.journalapp.service;
+
+import be.helha.journalapp.dto.ImageMetadata;
+import be.helha.journalapp.model.Image;
+import be.helha.journalapp.repositories.ImageRepository;
+import be.helha.journalapp.storage.BlobStore;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.sql.Blob;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * This service stores and reads the binary data of images without loading it into memory.
+ * <p>
+ * Image data lives in the {@link BlobStore}, keyed by its SHA-256 hash; the {@code image} row only describes it.
+ * Images saved before the blob store existed still have their data in the {@link Image#getImagePath()} Large Object
+ * until {@link ImageBlobMigrationJob} moves it: they are read through JDBC and copied in small chunks,
+ * so the memory used by a request never depends on the size of the image.
+ * <p>
+ * The Large Object is only dropped when the blob store is shared by every node ({@link BlobStore#isShared()}).
+ * Otherwise the data is kept in the database as well, and a node whose store lacks the blob reads the Large Object.
+ */
+@Service
+public class ImageContentService {
+
+    private static final String CONTENT_QUERY = "SELECT image_path FROM image WHERE image_id = ?";
+    private static final String HAS_CONTENT_QUERY = "SELECT COUNT(*) FROM image WHERE image_id = ? AND image_path IS NOT NULL";
+    private static final int HEADER_LENGTH = 16;
+
+    private final ImageRepository imageRepository;
+    private final BlobStore blobStore;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transaction;
+    private final TransactionTemplate readOnlyTransaction;
+    private Boolean postgreSQL;
+
+    /**
+     * Constructor for ImageContentService.
+     *
+     * @param imageRepository    The repository for accessing image data.
+     * @param blobStore          The store holding the image data.
+     * @param jdbcTemplate       The JDBC template used to read the Large Objects.
+     * @param transactionManager The transaction manager (PostgreSQL Large Objects can only be read inside a transaction).
+     */
+    public ImageContentService(ImageRepository imageRepository,
+                               BlobStore blobStore,
+                               JdbcTemplate jdbcTemplate,
+                               PlatformTransactionManager transactionManager) {
+        this.imageRepository = imageRepository;
+        this.blobStore = blobStore;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    /**
+     * Stores the data of an image in the blob store and describes it on the image.
+     * The image is not saved; its Large Object column is cleared, unless the blob store is local to this node.
+     *
+     * @param image The image receiving the data.
+     * @param data  The binary data of the image.
+     * @throws UncheckedIOException If the data cannot be written to the blob store.
+     */
+    public void attachContent(Image image, byte[] data) {
+        try {
+            ImageMetadata stored = store(image.getImageId(), new ByteArrayInputStream(data));
+            image.setImagePath(blobStore.isShared() ? null : data);
+            image.setMediaType(stored.getMediaType());
+            image.setByteSize(stored.getByteSize());
+            image.setContentHash(stored.getContentHash());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Retrieves the metadata of an image.
+     * Images saved before the blob store existed are moved to it first.
+     *
+     * @param imageId The ID of the image.
+     * @return The image metadata, or empty if the image does not exist.
+     */
+    public Optional<ImageMetadata> findMetadata(Long imageId) {
+        return imageRepository.findMetadataById(imageId).map(this::completeMetadata);
+    }
+
+    /**
+     * Retrieves the metadata of the images of an article.
+     * Images saved before the blob store existed are moved to it first.
+     *
+     * @param articleId The ID of the article.
+     * @return The metadata of the article's images.
+     */
+    public List<ImageMetadata> findMetadataByArticleId(Long articleId) {
+        return imageRepository.findMetadataByArticleId(articleId).stream()
+                .map(this::completeMetadata)
+                .toList();
+    }
+
+    /**
+     * Checks whether the binary data of an image can be read, from the blob store or from the Large Object.
+     * An image may be described without its data being readable, e.g. when its blob was removed from the store
+     * after its Large Object was cleared.
+     *
+     * @param metadata The metadata of the image.
+     * @return true if {@link #writeContent(ImageMetadata, OutputStream)} can copy the data of the image.
+     */
+    public boolean hasContent(ImageMetadata metadata) {
+        if (metadata.getContentHash() != null && blobStore.exists(metadata.getContentHash())) {
+            return true;
+        }
+        Integer count = jdbcTemplate.queryForObject(HAS_CONTENT_QUERY, Integer.class, metadata.getImageId());
+        return count != null && count > 0;
+    }
+
+    /**
+     * Copies the binary data of an image to an output stream, from the blob store when it is there
+     * and from the Large Object otherwise.
+     *
+     * @param metadata The metadata of the image.
+     * @param out      The stream to write the image to.
+     * @throws UncheckedIOException If the image has no data, or if reading the image or writing to the stream fails
+     *                              (e.g. the client disconnected).
+     */
+    public void writeContent(ImageMetadata metadata, OutputStream out) {
+        if (blobStore.exists(metadata.getContentHash())) {
+            try {
+                blobStore.transferTo(metadata.getContentHash(), Channels.newChannel(out));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return;
+        }
+        Boolean copied = readOnlyTransaction.execute(status -> readLargeObject(metadata.getImageId(), in -> {
+            in.transferTo(out);
+            return true;
+        }));
+        if (copied == null) {
+            // Sans cette erreur, la réponse déjà commencée se terminerait sans données
+            throw new UncheckedIOException(new FileNotFoundException("No data for image " + metadata.getImageId()));
+        }
+    }
+
+    /**
+     * Moves the Large Object of an image to the blob store, then clears it from the database.
+     * On PostgreSQL the Large Object itself is unlinked, otherwise it would stay in {@code pg_largeobject}.
+     * When the blob store is local to this node, the data is only copied and described: the other nodes still
+     * read it from the database.
+     *
+     * @param imageId The ID of the image.
+     * @return true if data was moved or copied, false if the image has no Large Object.
+     */
+    public boolean moveToBlobStore(Long imageId) {
+        return Boolean.TRUE.equals(transaction.execute(status -> {
+            ImageMetadata stored = readLargeObject(imageId, in -> store(imageId, in));
+            if (stored == null) {
+                return false;
+            }
+            if (!blobStore.isShared()) {
+                imageRepository.markCopiedToBlobStore(imageId, stored.getMediaType(), stored.getByteSize(),
+                        stored.getContentHash());
+                return true;
+            }
+            if (isPostgreSQL()) {
+                jdbcTemplate.query("SELECT lo_unlink(image_path) FROM image WHERE image_id = ? AND image_path IS NOT NULL",
+                        rs -> null, imageId);
+            }
+            imageRepository.markMovedToBlobStore(imageId, stored.getMediaType(), stored.getByteSize(),
+                    stored.getContentHash());
+            return true;
+        }));
+    }
+
+    /**
+     * Completes the metadata of an image saved before metadata existed by moving it to the blob store.
+     *
+     * @param metadata The metadata read from the database.
+     * @return The complete metadata.
+     */
+    private ImageMetadata completeMetadata(ImageMetadata metadata) {
+        if (metadata.getContentHash() != null || !moveToBlobStore(metadata.getImageId())) {
+            return metadata;
+        }
+        return imageRepository.findMetadataById(metadata.getImageId()).orElse(metadata);
+    }
+
+    /**
+     * Writes image data to the blob store and describes it.
+     *
+     * @param imageId The ID of the image.
+     * @param in      The image data.
+     * @return The metadata of the stored data (without the article ID nor its state).
+     * @throws IOException If the data cannot be read or written.
+     */
+    private ImageMetadata store(Long imageId, InputStream in) throws IOException {
+        byte[] header = in.readNBytes(HEADER_LENGTH);
+        String hash = blobStore.put(new SequenceInputStream(new ByteArrayInputStream(header), in));
+        return new ImageMetadata(imageId, null, Image.detectMediaType(header, header.length),
+                blobStore.size(hash), hash, false);
+    }
+
+    /**
+     * Opens the Large Object of an image and passes it to a reader. Must be called inside a transaction.
+     *
+     * @param imageId The ID of the image.
+     * @param reader  The function consuming the image data.
+     * @param <T>     The type of the result.
+     * @return The result of the reader, or null if the image has no Large Object.
+     */
+    private <T> T readLargeObject(Long imageId, ContentReader<T> reader) {
+        return jdbcTemplate.query(CONTENT_QUERY, rs -> {
+            if (!rs.next()) {
+                return null;
+            }
+            Blob blob = rs.getBlob(1);
+            if (blob == null) {
+                return null;
+            }
+            try (InputStream in = blob.getBinaryStream()) {
+                return reader.read(in);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                blob.free();
+            }
+        }, imageId);
+    }
+
+    /**
+     * Checks whether the configured data source is a PostgreSQL database.
+     *
+     * @return true if the database product is PostgreSQL.
+     */
+    private boolean isPostgreSQL() {
+        if (postgreSQL == null) {
+            String product = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                    connection.getMetaData().getDatabaseProductName());
+            postgreSQL = "PostgreSQL".equalsIgnoreCase(product);
+        }
+        return postgreSQL;
+    }
+
+    /**
+     * Consumes the binary data of an image.
+     *
+     * @param <T> The type of the result.
+     */
+    @FunctionalInterface
+    private interface ContentReader<T> {
+        T read(InputStream in) throws IOException;
+    }
+}
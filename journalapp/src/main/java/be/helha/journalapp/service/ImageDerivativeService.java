@@ -0,0 +1,361 @@
+package be.helha.journalapp.service;
+
+import be.helha.journalapp.storage.BlobStore;
+import jakarta.annotation.PreDestroy;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This service produces resized copies ("derivatives") of images at a few fixed widths.
+ * <p>
+ * Derivatives are rendered on a small, bounded worker pool, never on the request thread that uploads the image,
+ * and cached on disk under the content hash of the source image, so they never need to be invalidated.
+ * Concurrent requests for a derivative that is being rendered share the same render.
+ * A derivative fits in a box of the requested width and {@value #MAX_ASPECT_RATIO} times that height, so a very tall
+ * image gets a narrower derivative rather than a huge one, and images of more than
+ * {@code journalapp.image-derivatives.max-source-pixels} pixels are not resized at all.
+ * The service is configured with the {@code journalapp.image-derivatives.*} properties.
+ */
+@Service
+public class ImageDerivativeService {
+
+    /**
+     * The widths that can be rendered, in pixels. Requested widths are rounded up to one of them.
+     */
+    public static final List<Integer> WIDTHS = List.of(160, 320, 640, 1280);
+
+    /**
+     * Widths of the thumbnail and preview URLs handed out to clients.
+     */
+    public static final int THUMBNAIL_WIDTH = 320;
+    public static final int PREVIEW_WIDTH = 640;
+
+    /**
+     * The maximum height of a derivative, as a multiple of its width.
+     */
+    static final int MAX_ASPECT_RATIO = 4;
+
+    private static final Set<String> SUPPORTED_MEDIA_TYPES = Set.of("image/jpeg", "image/png", "image/gif");
+
+    private final BlobStore blobStore;
+    private final Path root;
+    private final ExecutorService executor;
+    private final long maxSourcePixels;
+    private final ConcurrentMap<String, CompletableFuture<Optional<Derivative>>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor for ImageDerivativeService.
+     *
+     * @param blobStore       The store holding the source images.
+     * @param root            The directory where derivatives are cached.
+     * @param threads         The number of worker threads rendering derivatives.
+     * @param queueCapacity   The number of renders that may wait for a worker; further renders are refused.
+     * @param maxSourcePixels The number of pixels above which an image is not resized.
+     */
+    @Autowired
+    public ImageDerivativeService(BlobStore blobStore,
+                                  @Value("${journalapp.image-derivatives.root:./data/derivatives}") String root,
+                                  @Value("${journalapp.image-derivatives.threads:2}") int threads,
+                                  @Value("${journalapp.image-derivatives.queue-capacity:64}") int queueCapacity,
+                                  @Value("${journalapp.image-derivatives.max-source-pixels:100000000}") long maxSourcePixels) {
+        this(blobStore, root, new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), workerThreadFactory()), maxSourcePixels);
+    }
+
+    /**
+     * Constructor for ImageDerivativeService with a given executor.
+     *
+     * @param blobStore       The store holding the source images.
+     * @param root            The directory where derivatives are cached.
+     * @param executor        The executor rendering derivatives.
+     * @param maxSourcePixels The number of pixels above which an image is not resized.
+     */
+    ImageDerivativeService(BlobStore blobStore, String root, ExecutorService executor, long maxSourcePixels) {
+        this.blobStore = blobStore;
+        this.root = Paths.get(root).toAbsolutePath().normalize();
+        this.executor = executor;
+        this.maxSourcePixels = maxSourcePixels;
+    }
+
+    /**
+     * Rounds a requested width up to the nearest width that can be rendered.
+     *
+     * @param requested The requested width in pixels.
+     * @return The width that will be rendered.
+     */
+    public static int normalizeWidth(int requested) {
+        for (int width : WIDTHS) {
+            if (width >= requested) {
+                return width;
+            }
+        }
+        return WIDTHS.get(WIDTHS.size() - 1);
+    }
+
+    /**
+     * Returns a derivative of an image, rendering it in the background if it is not cached yet.
+     * The future completes with an empty result when the original image should be used instead:
+     * its format cannot be resized, it already fits in the box of the requested width, or it has too many pixels.
+     * It completes exceptionally if the render fails or the worker pool is saturated.
+     *
+     * @param sourceHash The content hash of the source image.
+     * @param mediaType  The media type of the source image.
+     * @param width      The requested width in pixels (rounded up with {@link #normalizeWidth(int)}).
+     * @return The future derivative.
+     */
+    public CompletableFuture<Optional<Derivative>> getOrCreate(String sourceHash, String mediaType, int width) {
+        int normalizedWidth = normalizeWidth(width);
+        if (!SUPPORTED_MEDIA_TYPES.contains(mediaType) || !blobStore.exists(sourceHash)) {
+            return CompletableFuture.completedFuture(Optional.empty());
+        }
+        Optional<Optional<Derivative>> cached = findCached(sourceHash, mediaType, normalizedWidth);
+        if (cached.isPresent()) {
+            return CompletableFuture.completedFuture(cached.get());
+        }
+
+        String key = sourceHash + "-w" + normalizedWidth;
+        CompletableFuture<Optional<Derivative>> created = new CompletableFuture<>();
+        CompletableFuture<Optional<Derivative>> existing = inFlight.putIfAbsent(key, created);
+        if (existing != null) {
+            return existing;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    created.complete(render(sourceHash, mediaType, normalizedWidth));
+                } catch (Exception e) {
+                    created.completeExceptionally(e);
+                } finally {
+                    inFlight.remove(key, created);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(key, created);
+            created.completeExceptionally(e);
+        }
+        return created;
+    }
+
+    /**
+     * Schedules the rendering of every width of a newly uploaded image, without waiting for it.
+     * Widths that cannot be scheduled because the pool is saturated are rendered on first request.
+     *
+     * @param sourceHash The content hash of the image.
+     * @param mediaType  The media type of the image.
+     */
+    public void pregenerate(String sourceHash, String mediaType) {
+        if (sourceHash == null) {
+            return;
+        }
+        for (int width : WIDTHS) {
+            getOrCreate(sourceHash, mediaType, width);
+        }
+    }
+
+    /**
+     * Copies a derivative to an output stream.
+     *
+     * @param derivative The derivative to copy.
+     * @param out        The stream to write the derivative to.
+     * @throws UncheckedIOException If reading the derivative or writing to the stream fails.
+     */
+    public void writeContent(Derivative derivative, OutputStream out) {
+        try (FileChannel channel = FileChannel.open(derivative.getPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            long position = 0;
+            while (position < size) {
+                position += channel.transferTo(position, size - position, Channels.newChannel(out));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Stops the worker pool when the application shuts down.
+     */
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Looks for a derivative in the disk cache.
+     *
+     * @return Empty if the derivative was never rendered; otherwise the derivative, or an empty result
+     * if the original image must be used for this width.
+     */
+    private Optional<Optional<Derivative>> findCached(String sourceHash, String mediaType, int width) {
+        Path file = derivativePath(sourceHash, mediaType, width);
+        if (Files.isRegularFile(file)) {
+            try {
+                return Optional.of(Optional.of(new Derivative(file, outputMediaType(mediaType), width, Files.size(file))));
+            } catch (IOException e) {
+                return Optional.empty();
+            }
+        }
+        if (Files.exists(originalMarkerPath(sourceHash, width))) {
+            return Optional.of(Optional.empty());
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Renders a derivative and stores it in the disk cache.
+     * The source is decoded with subsampling, so decoding a very large image only needs about four times
+     * the memory of the derivative.
+     */
+    private Optional<Derivative> render(String sourceHash, String mediaType, int width) throws IOException {
+        Optional<Optional<Derivative>> cached = findCached(sourceHash, mediaType, width);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+
+        BufferedImage source;
+        try (InputStream in = blobStore.open(sourceHash);
+             ImageInputStream imageIn = ImageIO.createImageInputStream(in)) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(imageIn);
+            if (!readers.hasNext()) {
+                throw new IOException("No image reader for " + mediaType);
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(imageIn, true, true);
+                int sourceWidth = reader.getWidth(0);
+                int sourceHeight = reader.getHeight(0);
+                int maxHeight = width * MAX_ASPECT_RATIO;
+                if ((sourceWidth <= width && sourceHeight <= maxHeight)
+                        || (long) sourceWidth * sourceHeight > maxSourcePixels) {
+                    writeAtomically(originalMarkerPath(sourceHash, width), null, null);
+                    return Optional.empty();
+                }
+                ImageReadParam param = reader.getDefaultReadParam();
+                // Le facteur suit la dimension la plus contraignante, sinon une image haute et étroite
+                // serait décodée presque entière
+                int subsampling = Math.max(1, Math.max(sourceWidth / (width * 2), sourceHeight / (maxHeight * 2)));
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                source = reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+
+        BufferedImage resized = resize(source, width, "image/jpeg".equals(mediaType));
+        Path file = derivativePath(sourceHash, mediaType, width);
+        writeAtomically(file, resized, "image/jpeg".equals(mediaType) ? "jpg" : "png");
+        return Optional.of(new Derivative(file, outputMediaType(mediaType), width, Files.size(file)));
+    }
+
+    /**
+     * Scales an image to fit in the box of a given width, keeping its aspect ratio.
+     */
+    private static BufferedImage resize(BufferedImage source, int maxWidth, boolean opaque) {
+        double scale = Math.min((double) maxWidth / source.getWidth(),
+                (double) maxWidth * MAX_ASPECT_RATIO / source.getHeight());
+        int width = Math.max(1, (int) Math.round(source.getWidth() * scale));
+        int height = Math.max(1, (int) Math.round(source.getHeight() * scale));
+        BufferedImage target = new BufferedImage(width, height,
+                opaque ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB);
+        Graphics2D graphics = target.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            graphics.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return target;
+    }
+
+    /**
+     * Writes a file through a temporary file and an atomic rename, so readers never see a partial file.
+     *
+     * @param file   The file to write.
+     * @param image  The image to encode, or null to write an empty marker file.
+     * @param format The ImageIO format name of the image.
+     */
+    private static void writeAtomically(Path file, BufferedImage image, String format) throws IOException {
+        Files.createDirectories(file.getParent());
+        Path temp = Files.createTempFile(file.getParent(), "render-", ".tmp");
+        try {
+            if (image != null && !ImageIO.write(image, format, temp.toFile())) {
+                throw new IOException("No image writer for " + format);
+            }
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private Path derivativePath(String sourceHash, String mediaType, int width) {
+        String extension = "image/jpeg".equals(mediaType) ? ".jpg" : ".png";
+        return root.resolve(sourceHash.substring(0, 2)).resolve(sourceHash + "-w" + width + extension);
+    }
+
+    private Path originalMarkerPath(String sourceHash, int width) {
+        return root.resolve(sourceHash.substring(0, 2)).resolve(sourceHash + "-w" + width + ".original");
+    }
+
+    private static String outputMediaType(String mediaType) {
+        return "image/jpeg".equals(mediaType) ? "image/jpeg" : "image/png";
+    }
+
+    private static ThreadFactory workerThreadFactory() {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "image-derivative-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * A rendered derivative, cached on disk.
+     */
+    @Data
+    @AllArgsConstructor
+    public static class Derivative {
+
+        private Path path;
+        private String mediaType;
+        private int width;
+        private long size;
+    }
+}
@@ -2,8 +2,14 @@ package be.helha.journalapp.service;
 import org.keycloak.admin.client.resource.RoleScopeResource;
 
 
+import be.helha.journalapp.config.BackgroundThreads;
 import be.helha.journalapp.model.Role;
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import jakarta.annotation.PostConstruct;
+import jakarta.ws.rs.NotFoundException;
 import jakarta.ws.rs.core.Response;
 import org.keycloak.admin.client.Keycloak;
 import org.keycloak.admin.client.KeycloakBuilder;
@@ -15,6 +21,7 @@ import org.keycloak.representations.idm.RoleRepresentation;
 import org.keycloak.representations.idm.UserRepresentation;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.core.env.Environment;
 
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
@@ -22,20 +29,36 @@ import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 
 
+import java.time.Duration;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
 
 /**
  * This service provides methods for managing users and roles in Keycloak.
  * It handles interactions with the Keycloak Admin API, including creating, updating,
  * deleting users, and assigning roles.
+ * <p>
+ * The realm-level roles of a user are cached per Keycloak ID (see {@link #getRealmLevelRoles(String)}):
+ * an entry is refreshed in the background once it is older than {@code journalapp.keycloak.role-cache.refresh-after},
+ * the old roles being served meanwhile, and dropped after {@code journalapp.keycloak.role-cache.ttl}.
+ * The roles of a user are invalidated when this service changes them, and when Keycloak reports a role
+ * mapping change in its admin events ({@link KeycloakRoleEventPoller}).
+ * Hits and misses are published as the {@code cache.gets} metric with the tag {@code cache=keycloakRealmRoles}.
  */
 @Service
 public class KeycloakAdminService {
 
     private Keycloak keycloak;
 
+    private final AsyncLoadingCache<String, List<String>> realmRoles;
+
+    private final Duration roleLookupTimeout;
+
     @Value("${keycloak.server-url}")
     private String serverUrl;
 
@@ -52,6 +75,35 @@ public class KeycloakAdminService {
     private String password;
 
 
+    /**
+     * Constructor for KeycloakAdminService.
+     *
+     * @param meterRegistry     The registry publishing the cache metrics.
+     * @param environment       The environment telling whether the role lookups run on virtual threads.
+     * @param maximumSize       The maximum number of users whose roles are cached.
+     * @param refreshAfter      The age after which cached roles are reloaded in the background.
+     * @param ttl               The age after which cached roles are no longer used.
+     * @param roleLookupTimeout How long a lookup of roles that are not cached may wait for Keycloak.
+     */
+    public KeycloakAdminService(MeterRegistry meterRegistry,
+                                Environment environment,
+                                @Value("${journalapp.keycloak.role-cache.maximum-size:10000}") long maximumSize,
+                                @Value("${journalapp.keycloak.role-cache.refresh-after:30s}") Duration refreshAfter,
+                                @Value("${journalapp.keycloak.role-cache.ttl:10m}") Duration ttl,
+                                @Value("${journalapp.keycloak.role-lookup-timeout:500ms}") Duration roleLookupTimeout) {
+        this.roleLookupTimeout = roleLookupTimeout;
+        // Les appels à Keycloak ne bloquent pas le pool commun : deux threads dédiés au plus
+        this.realmRoles = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .refreshAfterWrite(refreshAfter)
+                .expireAfterWrite(ttl)
+                .executor(Executors.newFixedThreadPool(2,
+                        BackgroundThreads.forBlockingIo(environment, "keycloak-roles-")))
+                .recordStats()
+                .buildAsync(this::loadRealmLevelRoles);
+        CaffeineCacheMetrics.monitor(meterRegistry, realmRoles, "keycloakRealmRoles");
+    }
+
     /**
      * Initializes the Keycloak client using the provided configuration properties.
      * This method is called after the service bean is constructed, ensuring that
@@ -152,6 +204,7 @@ public class KeycloakAdminService {
             }
 
             usersResource.get(keycloakId).update(user);
+            invalidateRealmRoles(keycloakId);
         } catch (Exception e) {
             throw new RuntimeException("Error updating user in Keycloak", e);
         }
@@ -195,6 +248,7 @@ public class KeycloakAdminService {
             if (!rolesToAdd.isEmpty()) {
                 realmLevelResource.add(rolesToAdd);
             }
+            invalidateRealmRoles(userId);
 
         } catch (Exception e) {
             throw new RuntimeException("Error assigning roles to user in Keycloak", e);
@@ -235,6 +289,7 @@ public class KeycloakAdminService {
             RealmResource realmResource = keycloak.realm("journalapp");
             UsersResource usersResource = realmResource.users();
             usersResource.get(keycloakId).remove();
+            invalidateRealmRoles(keycloakId);
         } catch (Exception e) {
             throw new RuntimeException("Error deleting user in Keycloak", e);
         }
@@ -259,6 +314,7 @@ public class KeycloakAdminService {
             role.setId(adminRole.getId());
 
             realmResource.users().get(userId).roles().realmLevel().add(List.of(role));
+            invalidateRealmRoles(userId);
             System.out.println("Rôle ADMIN attribué à l'utilisateur avec l'ID: " + userId);
         } catch (Exception e) {
             throw new RuntimeException("Erreur lors de l'assignation du rôle ADMIN: ", e);
@@ -283,25 +339,17 @@ public class KeycloakAdminService {
 
     /**
      * Checks if any user in the 'journalapp' realm has the 'ADMIN' role.
+     * The members of the ADMIN role are queried directly, one page of a single user, so the check costs
+     * one admin API call whatever the number of users in the realm.
      *
-     * @return True if at least one user has the 'ADMIN' role, false otherwise.
+     * @return True if at least one user has the 'ADMIN' role, false otherwise (or if the role does not exist).
      * @throws RuntimeException If an error occurs while checking for the 'ADMIN' role.
      */
     public boolean anyUserHasAdminRole() {
         try {
             RealmResource realmResource = keycloak.realm("journalapp");
-            UsersResource usersResource = realmResource.users();
-
-            List<UserRepresentation> users = usersResource.list();
-
-            for (UserRepresentation user : users) {
-                List<RoleRepresentation> roles = usersResource.get(user.getId()).roles().realmLevel().listAll();
-                for (RoleRepresentation role : roles) {
-                    if ("ADMIN".equalsIgnoreCase(role.getName())) {
-                        return true;
-                    }
-                }
-            }
+            return !realmResource.roles().get("ADMIN").getUserMembers(0, 1).isEmpty();
+        } catch (NotFoundException e) {
             return false;
         } catch (Exception e) {
             throw new RuntimeException("Error checking if any user has ADMIN role", e);
@@ -339,6 +387,7 @@ public class KeycloakAdminService {
             role.setId(adminRole.getId());
 
             realmResource.users().get(userId).roles().realmLevel().add(List.of(role));
+            invalidateRealmRoles(userId);
         } catch (Exception e) {
             throw new RuntimeException("Error assigning ADMIN role to first user", e);
         }
@@ -352,20 +401,60 @@ public class KeycloakAdminService {
      */
     public void assignAdminToFirstUserIfNeeded() {
         long userCount = getUserCount();
-        boolean hasAdmin = anyUserHasAdminRole();
 
-        if (userCount >= 1 && !hasAdmin) {
+        if (userCount >= 1 && !anyUserHasAdminRole()) {
             assignAdminToFirstUser();
         }
     }
 
     /**
-     * Returns the list of realm-level role names assigned to the given user (by ID).
+     * Returns the list of realm-level role names assigned to the given user (by ID), from the cache.
+     * When the roles are not cached, they are loaded from Keycloak; if Keycloak does not answer within
+     * {@code journalapp.keycloak.role-lookup-timeout} or fails, an empty list is returned at once and
+     * the roles are cached when the lookup completes.
      *
      * @param userId The Keycloak ID of the user.
      * @return A List of strings containing the names of the roles.
      */
     public List<String> getRealmLevelRoles(String userId) {
+        try {
+            return realmRoles.get(userId).get(roleLookupTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            System.err.println("Keycloak n'a pas répondu à temps pour les rôles de l'utilisateur " + userId);
+        } catch (ExecutionException e) {
+            System.err.println("Erreur lors de la récupération des rôles de l'utilisateur " + userId + " : "
+                    + e.getCause().getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return List.of();
+    }
+
+    /**
+     * Drops the cached realm-level roles of a user after they changed.
+     *
+     * @param userId The Keycloak ID of the user (ignored if null).
+     */
+    public void invalidateRealmRoles(String userId) {
+        if (userId != null) {
+            realmRoles.synchronous().invalidate(userId);
+        }
+    }
+
+    /**
+     * Drops the cached realm-level roles of all users, e.g. after a role or a group's role mappings changed.
+     */
+    public void invalidateAllRealmRoles() {
+        realmRoles.synchronous().invalidateAll();
+    }
+
+    /**
+     * Loads the realm-level role names of a user from Keycloak.
+     *
+     * @param userId The Keycloak ID of the user.
+     * @return The names of the roles.
+     */
+    private List<String> loadRealmLevelRoles(String userId) {
         RealmResource realmResource = keycloak.realm(realm);
 
         // Récupère l'interface "RoleScopeResource" pour l'utilisateur (realm level)
@@ -380,4 +469,4 @@ public class KeycloakAdminService {
                 .map(RoleRepresentation::getName)
                 .collect(Collectors.toList());
     }
-}
\ No newline at end of file
+}
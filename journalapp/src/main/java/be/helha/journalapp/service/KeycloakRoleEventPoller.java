@@ -0,0 +1,143 @@
+package be.helha.journalapp.service;
+
+import org.keycloak.admin.client.resource.RealmResource;
+import org.keycloak.representations.idm.AdminEventRepresentation;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+
+/**
+ * This component keeps the cached realm roles of {@link KeycloakAdminService} in line with the changes made
+ * outside the application, e.g. in the Keycloak admin console.
+ * <p>
+ * Every {@code journalapp.keycloak.role-events.poll-ms} milliseconds, it reads the admin events of the realm
+ * recorded since the previous poll: a realm role mapping change or a user deletion invalidates the roles of that
+ * user, and a change to a realm role itself invalidates the roles of all users. Each node caches its own roles,
+ * so each node polls. The events are only recorded when the realm saves its admin events
+ * ({@code adminEventsEnabled}); otherwise a warning is logged at the first poll and the roles are only refreshed
+ * by the cache ({@code journalapp.keycloak.role-cache.refresh-after}).
+ */
+@Component
+public class KeycloakRoleEventPoller {
+
+    /**
+     * The admin event resource types that may change the realm roles of a user.
+     */
+    static final List<String> RESOURCE_TYPES = List.of("REALM_ROLE_MAPPING", "USER", "REALM_ROLE");
+
+    private final KeycloakAdminService keycloakAdminService;
+    private final String realm;
+    private final int pageSize;
+
+    private long lastEventTime = System.currentTimeMillis();
+    private boolean failing;
+    private boolean checked;
+
+    /**
+     * Constructor for KeycloakRoleEventPoller.
+     *
+     * @param keycloakAdminService The service whose cached roles are invalidated.
+     * @param realm                The realm whose admin events are read.
+     * @param pageSize             The maximum number of events read per poll.
+     */
+    public KeycloakRoleEventPoller(KeycloakAdminService keycloakAdminService,
+                                   @Value("${keycloak.realm}") String realm,
+                                   @Value("${journalapp.keycloak.role-events.page-size:100}") int pageSize) {
+        this.keycloakAdminService = keycloakAdminService;
+        this.realm = realm;
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * Reads the admin events recorded since the previous poll and invalidates the roles they changed.
+     * If Keycloak cannot be reached, the events are read at the next poll.
+     */
+    @Scheduled(initialDelayString = "${journalapp.keycloak.role-events.poll-ms:5000}",
+            fixedDelayString = "${journalapp.keycloak.role-events.poll-ms:5000}")
+    public void poll() {
+        List<AdminEventRepresentation> events;
+        try {
+            // Keycloak filtre au jour près (et dans son fuseau horaire) : on remonte d'un jour et on filtre ici
+            String dateFrom = LocalDate.ofInstant(Instant.ofEpochMilli(lastEventTime), ZoneOffset.UTC)
+                    .minusDays(1).toString();
+            if (!checked) {
+                warnIfAdminEventsDisabled();
+                checked = true;
+            }
+            events = realmResource().getAdminEvents(null, null, null, null, null, null, RESOURCE_TYPES,
+                    dateFrom, null, 0, pageSize);
+        } catch (Exception e) {
+            if (!failing) {
+                System.err.println("Erreur lors de la lecture des événements d'administration Keycloak -> "
+                        + e.getMessage());
+                failing = true;
+            }
+            return;
+        }
+        failing = false;
+        handle(events);
+    }
+
+    /**
+     * Invalidates the roles changed by the events more recent than the previous poll.
+     * The events are listed from the most recent; if the page holds no event already seen, older events
+     * may have been left out, so the roles of all users are invalidated.
+     *
+     * @param events The events, from the most recent.
+     */
+    void handle(List<AdminEventRepresentation> events) {
+        List<AdminEventRepresentation> newEvents = events.stream()
+                .filter(event -> event.getTime() > lastEventTime)
+                .toList();
+        if (newEvents.isEmpty()) {
+            return;
+        }
+        if (newEvents.size() == pageSize) {
+            keycloakAdminService.invalidateAllRealmRoles();
+        } else {
+            for (AdminEventRepresentation event : newEvents) {
+                String resourceType = event.getResourceType();
+                if ("REALM_ROLE_MAPPING".equals(resourceType)
+                        || ("USER".equals(resourceType) && "DELETE".equals(event.getOperationType()))) {
+                    keycloakAdminService.invalidateRealmRoles(userIdFromPath(event.getResourcePath()));
+                } else if ("REALM_ROLE".equals(resourceType)) {
+                    keycloakAdminService.invalidateAllRealmRoles();
+                }
+            }
+        }
+        lastEventTime = newEvents.stream().mapToLong(AdminEventRepresentation::getTime).max().orElse(lastEventTime);
+    }
+
+    /**
+     * Extracts the user ID from the resource path of an admin event, e.g. {@code users/{id}/role-mappings/realm}.
+     *
+     * @param resourcePath The resource path of the event.
+     * @return The user ID, or null if the path does not designate a user.
+     */
+    static String userIdFromPath(String resourcePath) {
+        if (resourcePath == null || !resourcePath.startsWith("users/")) {
+            return null;
+        }
+        String[] segments = resourcePath.split("/");
+        return segments.length > 1 && !segments[1].isEmpty() ? segments[1] : null;
+    }
+
+    /**
+     * Warns when the realm does not save its admin events, since no role change can then be seen.
+     */
+    private void warnIfAdminEventsDisabled() {
+        if (!Boolean.TRUE.equals(realmResource().toRepresentation().isAdminEventsEnabled())) {
+            System.err.println("Les événements d'administration du realm " + realm + " ne sont pas enregistrés : "
+                    + "les changements de rôles faits dans Keycloak ne seront vus qu'au rafraîchissement du cache");
+        }
+    }
+
+    private RealmResource realmResource() {
+        return keycloakAdminService.getKeycloak().realm(realm);
+    }
+}
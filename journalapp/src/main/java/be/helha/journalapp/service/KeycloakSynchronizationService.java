@@ -4,6 +4,7 @@ import be.helha.journalapp.model.Role;
 import be.helha.journalapp.model.User;
 import be.helha.journalapp.repositories.RoleRepository;
 import be.helha.journalapp.repositories.UserRepository;
+import be.helha.journalapp.security.UserPrincipalCache;
 import org.keycloak.admin.client.Keycloak;
 import org.keycloak.admin.client.resource.RealmResource;
 import org.keycloak.admin.client.resource.RoleMappingResource;
@@ -26,6 +27,9 @@ public class KeycloakSynchronizationService {
     @Autowired
     private RoleRepository roleRepository;
 
+    @Autowired
+    private UserPrincipalCache userPrincipalCache;
+
     /**
      * Synchronise le/les rôle(s) d'un utilisateur depuis Keycloak vers la DB locale.
      *
@@ -73,6 +77,7 @@ public class KeycloakSynchronizationService {
             // 6) Mettre à jour le user local
             user.setRole(localRole);
             userRepository.save(user);
+            userPrincipalCache.invalidate(keycloakUserId);
 
             return true;
         } catch (Exception e) {
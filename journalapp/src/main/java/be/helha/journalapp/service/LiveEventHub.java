@@ -0,0 +1,509 @@
+package be.helha.journalapp.service;
+
+import be.helha.journalapp.config.BackgroundThreads;
+import be.helha.journalapp.config.ClusterEvents;
+import be.helha.journalapp.dto.CommentView;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * This component pushes the new comments and the newly validated articles to the clients subscribed to them,
+ * as Server-Sent Events, so they no longer have to poll the listings.
+ * <p>
+ * A client subscribes to topics: {@code article:<id>} for the comments of an article, {@code newsletter:<id>} for
+ * the articles validated in a newsletter and {@code articles} for all validated articles. Each subscription is an
+ * asynchronous servlet request, so an idle connection holds no thread, only its emitter and an empty queue.
+ * <p>
+ * Events are published once their transaction has committed. The thread publishing an event never writes to a
+ * socket: the event is serialized once, then added to the bounded queue of each subscriber of the topic. A
+ * subscriber with queued events is drained by a sender thread. With virtual threads, each subscriber being written
+ * to gets a thread of its own, so a client that stops reading blocks its own writes, never those of the other
+ * subscribers. Otherwise the platform threads are bounded by {@code journalapp.live.sender-threads}; the other
+ * subscribers wait for a free thread, which the write timeout below gives back. A subscriber whose queue is full, or whose write has been blocked
+ * for more than {@code journalapp.live.write-timeout-ms} (a client that does not read fast enough), is disconnected
+ * instead of buffering without bound; like any client losing its connection, it reconnects and reloads the
+ * listing. Events are not replayed.
+ * <p>
+ * Subscriptions are held in memory by the node serving them, while an event is published by the node that handled
+ * the write. Every event is therefore also relayed to the other nodes through {@link ClusterEvents}, which deliver
+ * it to their own subscribers. An event too large to be relayed disconnects the subscribers of its topic on the
+ * other nodes instead, so that they reload the listing.
+ */
+@Component
+public class LiveEventHub {
+
+    /**
+     * Topic receiving every validated article.
+     */
+    public static final String ALL_ARTICLES = "articles";
+
+    /**
+     * Largest number of topics a single subscription may follow.
+     */
+    public static final int MAX_TOPICS = 50;
+
+    /**
+     * Channel relaying the events between the nodes.
+     */
+    static final String CLUSTER_CHANNEL = "live_events";
+
+    private static final Pattern TOPIC = Pattern.compile(ALL_ARTICLES + "|(article|newsletter):[1-9][0-9]{0,18}");
+    private static final Set<ResponseBodyEmitter.DataWithMediaType> HEARTBEAT =
+            SseEmitter.event().comment("heartbeat").build();
+
+    private final ConcurrentMap<String, Set<Subscriber>> subscribersByTopic = new ConcurrentHashMap<>();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+    private final AtomicLong sequence = new AtomicLong();
+    private final ObjectMapper objectMapper;
+    private final ClusterEvents clusterEvents;
+    private final ExecutorService senders;
+    private final long timeoutMs;
+    private final long writeTimeoutNanos;
+    private final int bufferSize;
+    private final int maxSubscribers;
+    private final Counter slowConsumers;
+
+    /**
+     * Constructor for LiveEventHub.
+     *
+     * @param objectMapper   The mapper serializing the data of the events.
+     * @param meterRegistry  The registry of the subscriber metrics.
+     * @param clusterEvents  The relay of the events between the nodes.
+     * @param environment    The environment telling whether virtual threads are enabled.
+     * @param timeoutMs      The lifetime of a subscription, in milliseconds; the client reconnects afterwards.
+     * @param writeTimeoutMs How long a write may stay blocked, in milliseconds, before the client is disconnected.
+     * @param bufferSize     The number of events a subscriber may lag behind before being disconnected.
+     * @param maxSubscribers The maximum number of open subscriptions.
+     * @param senderThreads  The maximum number of platform sender threads, when virtual threads are disabled.
+     */
+    @Autowired
+    public LiveEventHub(ObjectMapper objectMapper, MeterRegistry meterRegistry, ClusterEvents clusterEvents,
+                        Environment environment,
+                        @Value("${journalapp.live.timeout-ms:1800000}") long timeoutMs,
+                        @Value("${journalapp.live.write-timeout-ms:10000}") long writeTimeoutMs,
+                        @Value("${journalapp.live.buffer-size:64}") int bufferSize,
+                        @Value("${journalapp.live.max-subscribers:10000}") int maxSubscribers,
+                        @Value("${journalapp.live.sender-threads:64}") int senderThreads) {
+        this(objectMapper, meterRegistry, clusterEvents, senders(environment, senderThreads),
+                timeoutMs, writeTimeoutMs, bufferSize, maxSubscribers);
+    }
+
+    LiveEventHub(ObjectMapper objectMapper, MeterRegistry meterRegistry, ClusterEvents clusterEvents,
+                 ExecutorService senders, long timeoutMs, long writeTimeoutMs, int bufferSize, int maxSubscribers) {
+        this.objectMapper = objectMapper;
+        this.clusterEvents = clusterEvents;
+        this.senders = senders;
+        this.timeoutMs = timeoutMs;
+        this.writeTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(writeTimeoutMs);
+        this.bufferSize = bufferSize;
+        this.maxSubscribers = maxSubscribers;
+
+        Gauge.builder("live.subscribers", subscriberCount, AtomicInteger::get)
+                .description("Open Server-Sent Events subscriptions")
+                .register(meterRegistry);
+        this.slowConsumers = Counter.builder("live.disconnections").tag("reason", "slow-consumer")
+                .description("Subscriptions closed because the client did not read its events fast enough")
+                .register(meterRegistry);
+        clusterEvents.subscribe(CLUSTER_CHANNEL, this::onRelayedEvent);
+    }
+
+    /**
+     * Creates the pool of sender threads.
+     *
+     * @param environment   The environment telling whether virtual threads are enabled.
+     * @param senderThreads The maximum number of platform threads.
+     * @return The pool.
+     */
+    private static ExecutorService senders(Environment environment, int senderThreads) {
+        if (Threading.VIRTUAL.isActive(environment)) {
+            // Un thread virtuel par abonné en cours d'envoi (au plus un par abonnement ouvert) :
+            // un client bloqué n'immobilise que son propre thread
+            return Executors.newCachedThreadPool(BackgroundThreads.forBlockingIo(environment, "sse-sender-"));
+        }
+        // Threads de plateforme bornés ; la file ne contient qu'une tâche par abonné au plus (drapeau draining)
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(senderThreads, senderThreads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), BackgroundThreads.daemon("sse-sender-"));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Opens a subscription to some topics.
+     *
+     * @param topics The topics, as returned by {@link #parseTopics(List)}.
+     * @return The emitter to return from the request handler.
+     * @throws IllegalStateException If the maximum number of subscriptions is reached.
+     */
+    public SseEmitter subscribe(Set<String> topics) {
+        if (subscriberCount.incrementAndGet() > maxSubscribers) {
+            subscriberCount.decrementAndGet();
+            throw new IllegalStateException("Too many live subscriptions, please retry later.");
+        }
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Subscriber subscriber = new Subscriber(emitter, topics);
+        emitter.onCompletion(() -> unsubscribe(subscriber));
+        emitter.onTimeout(() -> unsubscribe(subscriber));
+        emitter.onError(error -> unsubscribe(subscriber));
+        for (String topic : topics) {
+            // Ajout et retrait se font dans compute, pour ne jamais s'ajouter à un ensemble vide en cours de retrait
+            subscribersByTopic.compute(topic, (key, subscribers) -> {
+                Set<Subscriber> set = subscribers != null ? subscribers : ConcurrentHashMap.newKeySet();
+                set.add(subscriber);
+                return set;
+            });
+        }
+        // Envoyé immédiatement, pour que le client sache que l'abonnement est ouvert
+        offer(subscriber, SseEmitter.event().name("subscribed").data(topics).build());
+        return emitter;
+    }
+
+    /**
+     * Sends an event to the subscribers of a topic on every node, without waiting for it to be written.
+     *
+     * @param topic The topic.
+     * @param name  The name of the event, used by clients to dispatch it.
+     * @param data  The data of the event, serialized as JSON.
+     */
+    public void publish(String topic, String name, Object data) {
+        String json;
+        String relayed;
+        try {
+            json = objectMapper.writeValueAsString(data);
+            relayed = objectMapper.writeValueAsString(new RelayedEvent(topic, name, json));
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Event data cannot be serialized", e);
+        }
+        deliver(topic, name, json);
+        try {
+            if (!clusterEvents.publish(CLUSTER_CHANNEL, relayed)) {
+                // Trop grand pour être relayé : les abonnés des autres nœuds rechargent la liste
+                clusterEvents.publish(CLUSTER_CHANNEL,
+                        objectMapper.writeValueAsString(new RelayedEvent(topic, null, null)));
+            }
+        } catch (RuntimeException | JsonProcessingException e) {
+            System.err.println("Événement " + name + " non relayé aux autres nœuds : " + e.getMessage());
+        }
+    }
+
+    /**
+     * Delivers an event relayed by another node to the subscribers of this node.
+     *
+     * @param message The event, as published by {@link #publish(String, String, Object)}.
+     */
+    void onRelayedEvent(String message) {
+        RelayedEvent event;
+        try {
+            event = objectMapper.readValue(message, RelayedEvent.class);
+        } catch (JsonProcessingException e) {
+            System.err.println("Événement relayé illisible : " + e.getMessage());
+            return;
+        }
+        if (event.name() != null) {
+            deliver(event.topic(), event.name(), event.data());
+            return;
+        }
+        Set<Subscriber> subscribers = subscribersByTopic.get(event.topic());
+        if (subscribers != null) {
+            List.copyOf(subscribers).forEach(subscriber -> close(subscriber, true));
+        }
+    }
+
+    /**
+     * Queues an event for the subscribers of a topic on this node.
+     *
+     * @param topic The topic.
+     * @param name  The name of the event.
+     * @param json  The data of the event, serialized as JSON.
+     */
+    private void deliver(String topic, String name, String json) {
+        Set<Subscriber> subscribers = subscribersByTopic.get(topic);
+        if (subscribers == null || subscribers.isEmpty()) {
+            return;
+        }
+        Set<ResponseBodyEmitter.DataWithMediaType> frame = SseEmitter.event()
+                .id(Long.toString(sequence.incrementAndGet())).name(name).data(json).build();
+        for (Subscriber subscriber : subscribers) {
+            offer(subscriber, frame);
+        }
+    }
+
+    /**
+     * Pushes a new comment to the subscribers of its article.
+     *
+     * @param event The event published by {@link CommentService#addComment}.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCommentPosted(CommentPosted event) {
+        publish("article:" + event.comment().getArticleId(), "comment", event.comment());
+    }
+
+    /**
+     * Pushes a newly validated article to the subscribers of all articles and of its newsletter.
+     *
+     * @param event The event published when an article is validated.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onArticleValidated(ArticleValidated event) {
+        publish(ALL_ARTICLES, "article-validated", event);
+        if (event.newsletterId() != null) {
+            publish("newsletter:" + event.newsletterId(), "article-validated", event);
+        }
+    }
+
+    /**
+     * Sends a comment line to the idle subscribers, so that proxies keep their connection open
+     * and closed connections are detected.
+     */
+    @Scheduled(fixedDelayString = "${journalapp.live.heartbeat-ms:25000}")
+    public void sendHeartbeats() {
+        for (Set<Subscriber> subscribers : subscribersByTopic.values()) {
+            for (Subscriber subscriber : subscribers) {
+                if (subscriber.queued.get() == 0) {
+                    offer(subscriber, HEARTBEAT);
+                }
+            }
+        }
+    }
+
+    /**
+     * Disconnects the subscribers whose current write has been blocked for longer than the write timeout:
+     * they receive no more events, and their sender thread completes them once the write returns.
+     */
+    @Scheduled(fixedDelayString = "${journalapp.live.write-timeout-ms:10000}")
+    public void closeStalledWrites() {
+        long now = System.nanoTime();
+        for (Set<Subscriber> subscribers : subscribersByTopic.values()) {
+            for (Subscriber subscriber : subscribers) {
+                long writeStartedAt = subscriber.writeStartedAt;
+                if (writeStartedAt != 0 && now - writeStartedAt > writeTimeoutNanos && close(subscriber, true)) {
+                    slowConsumers.increment();
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the number of open subscriptions.
+     *
+     * @return The number of subscriptions.
+     */
+    public int getSubscriberCount() {
+        return subscriberCount.get();
+    }
+
+    /**
+     * Checks and normalizes the topics requested by a client.
+     *
+     * @param topics The topics, each one possibly holding several comma-separated topics.
+     * @return The distinct topics, in the requested order.
+     * @throws IllegalArgumentException If no topic, too many topics or an unknown topic is requested.
+     */
+    public static Set<String> parseTopics(List<String> topics) {
+        Set<String> parsed = new LinkedHashSet<>();
+        for (String value : topics == null ? List.<String>of() : topics) {
+            for (String topic : value.split(",")) {
+                String trimmed = topic.trim();
+                if (trimmed.isEmpty()) {
+                    continue;
+                }
+                if (!TOPIC.matcher(trimmed).matches()) {
+                    throw new IllegalArgumentException("Unknown topic: " + trimmed
+                            + ". Expected article:<id>, newsletter:<id> or " + ALL_ARTICLES + ".");
+                }
+                parsed.add(trimmed);
+            }
+        }
+        if (parsed.isEmpty() || parsed.size() > MAX_TOPICS) {
+            throw new IllegalArgumentException("Between 1 and " + MAX_TOPICS + " topics must be requested.");
+        }
+        return parsed;
+    }
+
+    /**
+     * Closes the open subscriptions; clients reconnect to another instance.
+     */
+    @PreDestroy
+    public void shutdown() {
+        List<Subscriber> open = new ArrayList<>();
+        subscribersByTopic.values().forEach(open::addAll);
+        open.forEach(subscriber -> close(subscriber, false));
+        senders.shutdown();
+        try {
+            senders.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void offer(Subscriber subscriber, Set<ResponseBodyEmitter.DataWithMediaType> frame) {
+        if (subscriber.closed.get()) {
+            return;
+        }
+        if (subscriber.queued.incrementAndGet() > bufferSize) {
+            // Le client ne lit pas assez vite : il est déconnecté plutôt que de retenir ses événements
+            subscriber.queued.decrementAndGet();
+            if (close(subscriber, true)) {
+                slowConsumers.increment();
+            }
+            return;
+        }
+        subscriber.queue.add(frame);
+        if (subscriber.draining.compareAndSet(false, true)) {
+            senders.execute(() -> drain(subscriber));
+        }
+    }
+
+    private void drain(Subscriber subscriber) {
+        do {
+            Set<ResponseBodyEmitter.DataWithMediaType> frame;
+            while (!subscriber.closed.get() && (frame = subscriber.queue.poll()) != null) {
+                subscriber.queued.decrementAndGet();
+                subscriber.writeStartedAt = System.nanoTime();
+                try {
+                    subscriber.emitter.send(frame);
+                } catch (IOException | IllegalStateException e) {
+                    // Connexion fermée par le client : le conteneur termine l'émetteur
+                    close(subscriber, false);
+                } finally {
+                    subscriber.writeStartedAt = 0;
+                }
+            }
+            subscriber.draining.set(false);
+            // Un événement a pu être ajouté entre la fin de la boucle et la libération du drapeau
+        } while (!subscriber.closed.get() && !subscriber.queue.isEmpty()
+                && subscriber.draining.compareAndSet(false, true));
+        if (subscriber.closed.get()) {
+            completeIfRequested(subscriber);
+        }
+    }
+
+    /**
+     * Closes a subscription: it receives no more events, and its emitter is completed if requested.
+     *
+     * @param subscriber The subscriber.
+     * @param complete   Whether to complete the emitter, false if the container already ends it.
+     * @return true if the subscription was open.
+     */
+    private boolean close(Subscriber subscriber, boolean complete) {
+        if (!subscriber.closed.compareAndSet(false, true)) {
+            return false;
+        }
+        unsubscribe(subscriber);
+        subscriber.queue.clear();
+        subscriber.queued.set(0);
+        if (complete) {
+            subscriber.completing.set(true);
+            completeIfRequested(subscriber);
+        }
+        return true;
+    }
+
+    /**
+     * Completes the emitter of a closed subscriber if requested and no write is in progress; otherwise the
+     * sender thread completes it once its write returns. It never goes through the pool of sender threads.
+     *
+     * @param subscriber The closed subscriber.
+     */
+    private void completeIfRequested(Subscriber subscriber) {
+        // Le drapeau draining n'est plus rendu : plus rien n'est écrit sur un abonné fermé
+        if (subscriber.completing.get() && subscriber.draining.compareAndSet(false, true)
+                && subscriber.completing.compareAndSet(true, false)) {
+            subscriber.emitter.complete();
+        }
+    }
+
+    private void unsubscribe(Subscriber subscriber) {
+        subscriber.closed.set(true);
+        if (!subscriber.unsubscribed.compareAndSet(false, true)) {
+            return;
+        }
+        for (String topic : subscriber.topics) {
+            subscribersByTopic.computeIfPresent(topic, (key, subscribers) -> {
+                subscribers.remove(subscriber);
+                return subscribers.isEmpty() ? null : subscribers;
+            });
+        }
+        subscriberCount.decrementAndGet();
+    }
+
+    /**
+     * An open subscription and the events waiting to be written to it.
+     */
+    private static final class Subscriber {
+        private final SseEmitter emitter;
+        private final Set<String> topics;
+        private final Queue<Set<ResponseBodyEmitter.DataWithMediaType>> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger queued = new AtomicInteger();
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private final AtomicBoolean completing = new AtomicBoolean();
+        private final AtomicBoolean unsubscribed = new AtomicBoolean();
+        // System.nanoTime() au début de l'écriture en cours, 0 sans écriture
+        private volatile long writeStartedAt;
+
+        private Subscriber(SseEmitter emitter, Set<String> topics) {
+            this.emitter = emitter;
+            this.topics = topics;
+        }
+    }
+
+    /**
+     * An event relayed to the other nodes; without name, the event was too large to be relayed.
+     *
+     * @param topic The topic.
+     * @param name  The name of the event, or {@code null}.
+     * @param data  The data of the event, serialized as JSON, or {@code null}.
+     */
+    record RelayedEvent(String topic, String name, String data) {
+    }
+
+    /**
+     * Event published when a comment has been posted.
+     *
+     * @param comment The comment.
+     */
+    public record CommentPosted(CommentView comment) {
+    }
+
+    /**
+     * Event published when an article has been validated.
+     *
+     * @param articleId    The ID of the article.
+     * @param newsletterId The ID of its newsletter, or {@code null}.
+     * @param title        The title of the article.
+     */
+    public record ArticleValidated(Long articleId, Long newsletterId, String title) {
+    }
+}
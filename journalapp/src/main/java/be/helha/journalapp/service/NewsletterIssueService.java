@@ -0,0 +1,181 @@
+package be.helha.journalapp.service;
+
+import be.helha.journalapp.config.ClusterEvents;
+import be.helha.journalapp.dto.ArticleSummary;
+import be.helha.journalapp.dto.ImageMetadata;
+import be.helha.journalapp.dto.NewsletterIssue;
+import be.helha.journalapp.model.Newsletter;
+import be.helha.journalapp.repositories.ArticleRepository;
+import be.helha.journalapp.repositories.ImageRepository;
+import be.helha.journalapp.repositories.NewsletterRepository;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * This service builds the {@link NewsletterIssue} of a newsletter and keeps the built issues in memory.
+ * <p>
+ * An issue is built by three queries, whatever the number of articles: the newsletter, the summaries of its valid
+ * articles (with their author names) and the metadata of their images, all read in one read-only transaction.
+ * Issues are immutable snapshots kept in a bounded cache. The code changing a newsletter, one of its articles,
+ * their images or the name of an author calls {@link #invalidate(Long)} or {@link #invalidateAll()}; the issue is
+ * dropped at once and again once the transaction has committed, so a snapshot built from the data being changed
+ * does not stay in the cache. Every node keeps its own cache, so the invalidation is also sent to the other nodes
+ * through {@link ClusterEvents}, once the transaction has committed. Entries also expire after {@code journalapp.issue-cache.ttl}, which bounds how long
+ * a change made outside the application (or an invalidation missed by a node) can go unnoticed. Unknown newsletters are not cached.
+ * Hits and misses are published as the {@code cache.gets} metric with the tag {@code cache=newsletterIssues}.
+ */
+@Service
+public class NewsletterIssueService {
+
+    /**
+     * Channel relaying the invalidations between the nodes: the ID of a newsletter, or {@link #ALL} for all issues.
+     */
+    static final String CLUSTER_CHANNEL = "newsletter_issues";
+    private static final String ALL = "*";
+
+    private final NewsletterRepository newsletterRepository;
+    private final ArticleRepository articleRepository;
+    private final ImageRepository imageRepository;
+    private final ClusterEvents clusterEvents;
+    private final TransactionTemplate transaction;
+    private final LoadingCache<Long, NewsletterIssue> issues;
+
+    /**
+     * Constructor for NewsletterIssueService.
+     *
+     * @param newsletterRepository The repository for accessing newsletter data.
+     * @param articleRepository    The repository for accessing article data.
+     * @param imageRepository      The repository for accessing image metadata.
+     * @param transactionManager   The transaction manager used to read an issue consistently.
+     * @param clusterEvents        The relay of the invalidations to the other nodes.
+     * @param meterRegistry        The registry publishing the cache metrics.
+     * @param maximumSize          The maximum number of cached issues.
+     * @param ttl                  How long an issue stays cached.
+     */
+    public NewsletterIssueService(NewsletterRepository newsletterRepository,
+                                  ArticleRepository articleRepository,
+                                  ImageRepository imageRepository,
+                                  PlatformTransactionManager transactionManager,
+                                  ClusterEvents clusterEvents,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${journalapp.issue-cache.maximum-size:500}") long maximumSize,
+                                  @Value("${journalapp.issue-cache.ttl:10m}") Duration ttl) {
+        this.newsletterRepository = newsletterRepository;
+        this.articleRepository = articleRepository;
+        this.imageRepository = imageRepository;
+        this.clusterEvents = clusterEvents;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.transaction.setReadOnly(true);
+        this.issues = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build(newsletterId -> transaction.execute(status -> build(newsletterId)));
+        CaffeineCacheMetrics.monitor(meterRegistry, issues, "newsletterIssues");
+        clusterEvents.subscribe(CLUSTER_CHANNEL, this::onClusterInvalidation);
+    }
+
+    /**
+     * Returns the issue of a newsletter, building it on a cache miss.
+     *
+     * @param newsletterId The ID of the newsletter.
+     * @return The issue, or empty if the newsletter does not exist.
+     */
+    public Optional<NewsletterIssue> getIssue(Long newsletterId) {
+        if (newsletterId == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(issues.get(newsletterId));
+    }
+
+    /**
+     * Drops the issue of a newsletter after it, one of its articles or one of their images changed.
+     *
+     * @param newsletterId The ID of the newsletter (ignored if null).
+     */
+    public void invalidate(Long newsletterId) {
+        if (newsletterId != null) {
+            issues.invalidate(newsletterId);
+            afterCommit(() -> issues.invalidate(newsletterId));
+            clusterEvents.publish(CLUSTER_CHANNEL, newsletterId.toString());
+        }
+    }
+
+    /**
+     * Drops all issues, after a change that may appear in any of them (e.g. the name of an author).
+     */
+    public void invalidateAll() {
+        issues.invalidateAll();
+        afterCommit(issues::invalidateAll);
+        clusterEvents.publish(CLUSTER_CHANNEL, ALL);
+    }
+
+    /**
+     * Drops the issues invalidated by another node, once its transaction has committed.
+     *
+     * @param message The ID of the newsletter, or {@link #ALL}.
+     */
+    void onClusterInvalidation(String message) {
+        if (ALL.equals(message)) {
+            issues.invalidateAll();
+        } else {
+            issues.invalidate(Long.valueOf(message));
+        }
+    }
+
+    private NewsletterIssue build(Long newsletterId) {
+        Optional<Newsletter> found = newsletterRepository.findById(newsletterId);
+        if (found.isEmpty()) {
+            return null;
+        }
+        Newsletter newsletter = found.get();
+
+        Map<Long, List<NewsletterIssue.IssueImage>> imagesByArticle = new HashMap<>();
+        for (ImageMetadata image : imageRepository.findMetadataOfValidArticlesByNewsletterId(newsletterId)) {
+            imagesByArticle.computeIfAbsent(image.getArticleId(), id -> new ArrayList<>())
+                    .add(NewsletterIssue.IssueImage.of(image));
+        }
+        List<NewsletterIssue.IssueArticle> articles = new ArrayList<>();
+        for (ArticleSummary article : articleRepository.findValidSummariesByNewsletterId(newsletterId)) {
+            articles.add(new NewsletterIssue.IssueArticle(article.getArticleId(), article.getTitle(),
+                    article.getContent(), article.getPublicationDate(), article.getLongitude(),
+                    article.getLatitude(), article.getAuthorId(), article.getAuthorName(),
+                    imagesByArticle.getOrDefault(article.getArticleId(), List.of())));
+        }
+
+        NewsletterIssue.Style style = new NewsletterIssue.Style(newsletter.getBackgroundColor(),
+                newsletter.getTitleFont(), newsletter.getTitleFontSize(), newsletter.getTitleColor(),
+                newsletter.isTitleBold(), newsletter.isTitleUnderline(), newsletter.getSubtitleFont(),
+                newsletter.getSubtitleFontSize(), newsletter.getSubtitleColor(), newsletter.isSubtitleBold(),
+                newsletter.isSubtitleItalic(), newsletter.getTextAlign());
+        return new NewsletterIssue(newsletter.getNewsletterId(), newsletter.getTitle(), newsletter.getSubtitle(),
+                newsletter.getPublicationDate(), style, articles);
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // Un lecteur concurrent a pu reconstruire le numéro avec les anciennes données avant le commit
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        }
+    }
+}
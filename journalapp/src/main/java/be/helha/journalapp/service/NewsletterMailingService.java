@@ -0,0 +1,527 @@
+package be.helha.journalapp.service;
+
+import be.helha.journalapp.config.BackgroundThreads;
+import be.helha.journalapp.config.ClusterLock;
+import be.helha.journalapp.dto.ArticleSummary;
+import be.helha.journalapp.dto.MailingRecipient;
+import be.helha.journalapp.model.Newsletter;
+import be.helha.journalapp.model.NewsletterMailing;
+import be.helha.journalapp.repositories.ArticleRepository;
+import be.helha.journalapp.repositories.NewsletterMailingRepository;
+import be.helha.journalapp.repositories.NewsletterRepository;
+import be.helha.journalapp.repositories.UserRepository;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.util.HtmlUtils;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * This service sends a newsletter and its validated articles to every user with an email address.
+ * <p>
+ * The HTML of the newsletter is rendered once per mailing; only the greeting is filled in per recipient.
+ * Recipients are read in batches of {@code journalapp.mailing.batch-size}, in increasing user ID order, and each
+ * batch is sent with a single {@link JavaMailSender#send(MimeMessage...)} call, i.e. over one SMTP connection
+ * instead of one connection per email. Up to {@code journalapp.mailing.connections} batches are sent at the same
+ * time, and no more than {@code journalapp.mailing.rate-per-second} emails are sent per second (0 for no limit).
+ * <p>
+ * The progress of a mailing ({@link NewsletterMailing}) is saved after each batch, in the order the batches were
+ * read, so a mailing interrupted by a crash resumes on the next start after the last batch saved: at most the
+ * batches that were being sent are sent again. Emails refused by the mail server are handed to the outbound mail
+ * queue ({@link EmailService#queueEmail}), which retries them.
+ * <p>
+ * A mailing is sent by one node of the cluster at a time: the node claims a lease on the mailing row, renewed with
+ * each batch saved, like the outbound mail queue ({@link EmailDispatcher}). No database connection is held while the
+ * mailing is sent, and a node that loses its lease (e.g. it was paused for longer than the lease) stops. A mailing
+ * stopped by an error (e.g. the database being unreachable) stays RUNNING and releases its lease; it resumes after
+ * its last saved batch when the newsletter is sent again, or when a node looks for the mailings to resume, on
+ * startup and every {@code journalapp.mailing.resume-interval-ms}. A mailing whose node died is resumed once its
+ * lease has expired. Only the creation of a mailing takes a {@link ClusterLock}.
+ */
+@Service
+public class NewsletterMailingService {
+
+    private static final String FIRST_NAME_PLACEHOLDER = "{{firstName}}";
+    private static final int START_ATTEMPTS = 50;
+    private static final Duration LEASE = Duration.ofMinutes(5);
+
+    private final NewsletterMailingRepository mailingRepository;
+    private final NewsletterRepository newsletterRepository;
+    private final ArticleRepository articleRepository;
+    private final UserRepository userRepository;
+    private final JavaMailSender mailSender;
+    private final EmailService emailService;
+    private final ClusterLock clusterLock;
+    private final int batchSize;
+    private final int connections;
+    private final Pacer pacer;
+    private final ExecutorService coordinator;
+    private final ExecutorService senders;
+    private final ReentrantLock startLock = new ReentrantLock();
+    // Envois en cours (ou en attente du coordinateur) sur ce nœud
+    private final Set<Long> active = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Constructor for NewsletterMailingService.
+     *
+     * @param mailingRepository    The repository holding the progress of the mailings.
+     * @param newsletterRepository The repository for accessing newsletter data.
+     * @param articleRepository    The repository for accessing article data.
+     * @param userRepository       The repository listing the recipients.
+     * @param mailSender           The mail sender.
+     * @param emailService         The service queuing the emails to retry.
+     * @param clusterLock          The lock making sure a mailing is created by a single node.
+     * @param batchSize            The number of emails sent over one SMTP connection.
+     * @param connections          The number of batches sent at the same time.
+     * @param ratePerSecond        The maximum number of emails sent per second, or 0 for no limit.
+     * @param environment          The environment telling whether the senders run on virtual threads.
+     */
+    public NewsletterMailingService(NewsletterMailingRepository mailingRepository,
+                                    NewsletterRepository newsletterRepository,
+                                    ArticleRepository articleRepository,
+                                    UserRepository userRepository,
+                                    JavaMailSender mailSender,
+                                    EmailService emailService,
+                                    ClusterLock clusterLock,
+                                    @Value("${journalapp.mailing.batch-size:100}") int batchSize,
+                                    @Value("${journalapp.mailing.connections:4}") int connections,
+                                    @Value("${journalapp.mailing.rate-per-second:20}") double ratePerSecond,
+                                    Environment environment) {
+        this.mailingRepository = mailingRepository;
+        this.newsletterRepository = newsletterRepository;
+        this.articleRepository = articleRepository;
+        this.userRepository = userRepository;
+        this.mailSender = mailSender;
+        this.emailService = emailService;
+        this.clusterLock = clusterLock;
+        this.batchSize = batchSize;
+        this.connections = connections;
+        this.pacer = new Pacer(ratePerSecond);
+        this.coordinator = Executors.newSingleThreadExecutor(BackgroundThreads.daemon("newsletter-mailing-"));
+        this.senders = Executors.newFixedThreadPool(connections,
+                BackgroundThreads.forBlockingIo(environment, "newsletter-sender-"));
+    }
+
+    /**
+     * Starts sending a newsletter in the background. If the newsletter is already being sent,
+     * the running mailing is returned instead of starting a second one; if that mailing is not being sent
+     * by any node (it was stopped by an error), it resumes after its last saved batch.
+     *
+     * @param newsletterId The ID of the newsletter.
+     * @return The mailing.
+     * @throws RuntimeException      If the newsletter does not exist.
+     * @throws IllegalStateException If another node kept creating a mailing of the newsletter.
+     */
+    public NewsletterMailing start(Long newsletterId) {
+        // Un ReentrantLock plutôt que synchronized : ne bloque pas le thread porteur d'un thread virtuel
+        startLock.lock();
+        try {
+            if (!newsletterRepository.existsById(newsletterId)) {
+                throw new RuntimeException("Newsletter non trouvée avec l'ID : " + newsletterId);
+            }
+            // Le verrou de cluster empêche deux nœuds de créer chacun un envoi de la même newsletter
+            AtomicReference<NewsletterMailing> mailing = new AtomicReference<>();
+            for (int attempt = 1; !clusterLock.runIfLeader("mailing-start:" + newsletterId,
+                    () -> mailing.set(findOrCreateRunning(newsletterId))); attempt++) {
+                if (attempt >= START_ATTEMPTS) {
+                    throw new IllegalStateException("L'envoi de la newsletter " + newsletterId
+                            + " est en cours de création sur un autre nœud");
+                }
+                try {
+                    TimeUnit.MILLISECONDS.sleep(100);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Création de l'envoi interrompue", e);
+                }
+            }
+            submit(mailing.get().getId());
+            return mailing.get();
+        } finally {
+            startLock.unlock();
+        }
+    }
+
+    /**
+     * Lists the mailings of a newsletter, newest first.
+     *
+     * @param newsletterId The ID of the newsletter.
+     * @return The mailings of the newsletter.
+     */
+    public List<NewsletterMailing> findByNewsletter(Long newsletterId) {
+        return mailingRepository.findByNewsletterIdOrderByIdDesc(newsletterId);
+    }
+
+    /**
+     * Resumes the mailings that no node is sending: interrupted when the application stopped,
+     * stopped by an error, or whose node died and whose lease has expired.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${journalapp.mailing.resume-interval-ms:60000}",
+            fixedDelayString = "${journalapp.mailing.resume-interval-ms:60000}")
+    public void resumeUnfinished() {
+        for (NewsletterMailing mailing : mailingRepository.findResumable(LocalDateTime.now())) {
+            if (active.contains(mailing.getId())) {
+                continue;
+            }
+            System.out.println("Reprise de l'envoi de la newsletter " + mailing.getNewsletterId()
+                    + " après l'utilisateur " + mailing.getLastRecipientId());
+            submit(mailing.getId());
+        }
+    }
+
+    /**
+     * Stops the mailings; the running ones resume on the next start.
+     */
+    @PreDestroy
+    public void shutdown() {
+        coordinator.shutdownNow();
+        senders.shutdown();
+        try {
+            senders.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Sends a mailing from its saved progress to the last recipient, on the calling thread, under a lease on the
+     * mailing. If a batch, the saving of the progress or the renewal of the lease fails, the batches not sent yet
+     * are dropped and the ones being sent are waited for before the error is thrown. The lease is released when
+     * the run ends.
+     *
+     * @param mailingId The ID of the mailing.
+     * @return The mailing once completed, or empty if another node holds the lease on it.
+     * @throws InterruptedException If the thread is interrupted; the mailing then resumes on the next start.
+     */
+    Optional<NewsletterMailing> run(Long mailingId) throws InterruptedException {
+        NewsletterMailing mailing = mailingRepository.findById(mailingId)
+                .orElseThrow(() -> new RuntimeException("Envoi non trouvé avec l'ID : " + mailingId));
+        if (mailing.getStatus() == NewsletterMailing.Status.COMPLETED) {
+            return Optional.of(mailing);
+        }
+        String owner = UUID.randomUUID().toString();
+        LocalDateTime now = LocalDateTime.now();
+        if (mailingRepository.claim(mailingId, owner, now, now.plus(LEASE)) == 0) {
+            return Optional.empty();
+        }
+        try {
+            // Relu après la réclamation : le nœud précédent a pu enregistrer un lot entre-temps
+            return Optional.of(send(mailingRepository.findById(mailingId).orElseThrow()));
+        } finally {
+            mailingRepository.releaseLease(mailingId, owner);
+        }
+    }
+
+    /**
+     * Sends a claimed mailing from its saved progress to the last recipient.
+     *
+     * @param mailing The mailing, whose lease is held by the calling run.
+     * @return The mailing once completed.
+     * @throws InterruptedException If the thread is interrupted.
+     */
+    private NewsletterMailing send(NewsletterMailing mailing) throws InterruptedException {
+        Newsletter newsletter = newsletterRepository.findById(mailing.getNewsletterId())
+                .orElseThrow(() -> new RuntimeException("Newsletter non trouvée avec l'ID : " + mailing.getNewsletterId()));
+        String subject = newsletter.getTitle();
+        Template template = render(newsletter,
+                articleRepository.findValidSummariesByNewsletterId(newsletter.getNewsletterId()));
+
+        // Les lots sont envoyés en parallèle, mais la progression est enregistrée dans l'ordre de lecture
+        Deque<Future<BatchResult>> inFlight = new ArrayDeque<>();
+        AtomicBoolean aborted = new AtomicBoolean();
+        long cursor = mailing.getLastRecipientId();
+        List<MailingRecipient> recipients;
+        try {
+            do {
+                recipients = userRepository.findMailingRecipientsAfter(cursor, PageRequest.of(0, batchSize));
+                if (!recipients.isEmpty()) {
+                    cursor = recipients.get(recipients.size() - 1).getUserId();
+                    List<MailingRecipient> batch = recipients;
+                    long batchCursor = cursor;
+                    inFlight.add(senders.submit(() -> sendBatch(subject, template, batch, batchCursor, aborted)));
+                }
+                while (inFlight.size() >= connections || (recipients.isEmpty() && !inFlight.isEmpty())) {
+                    saveProgress(mailing, await(inFlight.poll()));
+                }
+            } while (!recipients.isEmpty());
+        } catch (InterruptedException | RuntimeException e) {
+            // Les lots suivants ne sont pas envoyés : leur progression ne pourrait pas être enregistrée
+            aborted.set(true);
+            drain(inFlight);
+            throw e;
+        }
+
+        renewLease(mailing);
+        mailing.setStatus(NewsletterMailing.Status.COMPLETED);
+        mailing.setCompletedAt(LocalDateTime.now());
+        mailing.setLeaseOwner(null);
+        mailing.setLeaseUntil(null);
+        return mailingRepository.save(mailing);
+    }
+
+    private NewsletterMailing findOrCreateRunning(Long newsletterId) {
+        Optional<NewsletterMailing> running = mailingRepository
+                .findFirstByNewsletterIdAndStatus(newsletterId, NewsletterMailing.Status.RUNNING);
+        if (running.isPresent()) {
+            return running.get();
+        }
+        NewsletterMailing mailing = new NewsletterMailing();
+        mailing.setNewsletterId(newsletterId);
+        mailing.setStatus(NewsletterMailing.Status.RUNNING);
+        mailing.setCreatedAt(LocalDateTime.now());
+        return mailingRepository.save(mailing);
+    }
+
+    /**
+     * Hands a mailing to the coordinator, unless this node is already sending it.
+     *
+     * @param mailingId The ID of the mailing.
+     */
+    private void submit(Long mailingId) {
+        if (active.add(mailingId)) {
+            coordinator.execute(() -> runInBackground(mailingId));
+        }
+    }
+
+    private void runInBackground(Long mailingId) {
+        try {
+            Optional<NewsletterMailing> sent = run(mailingId);
+            if (sent.isEmpty()) {
+                System.out.println("Envoi " + mailingId + " déjà en cours sur un autre nœud");
+                return;
+            }
+            NewsletterMailing mailing = sent.get();
+            System.out.println("Newsletter " + mailing.getNewsletterId() + " envoyée : " + mailing.getSentCount()
+                    + " email(s), " + mailing.getDeferredCount() + " en attente, " + mailing.getFailedCount() + " ignoré(s)");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            System.err.println("Erreur lors de l'envoi de la newsletter (reprise au prochain envoi ou démarrage) : "
+                    + e.getMessage());
+        } finally {
+            active.remove(mailingId);
+        }
+    }
+
+    /**
+     * Extends the lease of the calling run on a mailing.
+     *
+     * @param mailing The mailing.
+     * @throws IllegalStateException If the run no longer holds the lease: another node took the mailing over.
+     */
+    private void renewLease(NewsletterMailing mailing) {
+        LocalDateTime leaseUntil = LocalDateTime.now().plus(LEASE);
+        if (mailingRepository.renewLease(mailing.getId(), mailing.getLeaseOwner(), leaseUntil) == 0) {
+            throw new IllegalStateException("L'envoi " + mailing.getId() + " a été repris par un autre nœud");
+        }
+        mailing.setLeaseUntil(leaseUntil);
+    }
+
+    private void saveProgress(NewsletterMailing mailing, BatchResult result) {
+        // Le bail est prolongé avant d'enregistrer : save ne doit pas écraser l'envoi d'un autre nœud
+        renewLease(mailing);
+        mailing.setLastRecipientId(result.cursor());
+        mailing.setSentCount(mailing.getSentCount() + result.sent());
+        mailing.setDeferredCount(mailing.getDeferredCount() + result.deferred());
+        mailing.setFailedCount(mailing.getFailedCount() + result.failed());
+        mailing.setUpdatedAt(LocalDateTime.now());
+        mailingRepository.save(mailing);
+    }
+
+    /**
+     * Waits for the batches being sent to finish, ignoring their outcome.
+     *
+     * @param inFlight The batches submitted and not saved yet.
+     */
+    private static void drain(Deque<Future<BatchResult>> inFlight) {
+        for (Future<BatchResult> batch : inFlight) {
+            try {
+                batch.get();
+            } catch (ExecutionException | CancellationException e) {
+                // Lot abandonné ou en échec : il sera renvoyé à la reprise
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private static BatchResult await(Future<BatchResult> batch) throws InterruptedException {
+        try {
+            return batch.get();
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Erreur lors de l'envoi d'un lot : " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    /**
+     * Sends one batch of emails over a single SMTP connection. The emails the server refuses are queued
+     * to be retried, the recipients whose address is invalid are skipped.
+     *
+     * @param subject    The subject of the emails.
+     * @param template   The rendered newsletter.
+     * @param recipients The recipients of the batch.
+     * @param cursor     The ID of the last recipient of the batch.
+     * @param aborted    Set when the mailing stopped; the batch is then dropped instead of sent.
+     * @return The outcome of the batch.
+     * @throws CancellationException If the mailing stopped before the batch was sent.
+     */
+    private BatchResult sendBatch(String subject, Template template, List<MailingRecipient> recipients, long cursor,
+                                  AtomicBoolean aborted) throws InterruptedException {
+        List<MimeMessage> messages = new ArrayList<>(recipients.size());
+        List<MailingRecipient> addressed = new ArrayList<>(recipients.size());
+        int failed = 0;
+        for (MailingRecipient recipient : recipients) {
+            try {
+                MimeMessage message = mailSender.createMimeMessage();
+                MimeMessageHelper helper = new MimeMessageHelper(message, false, "UTF-8");
+                helper.setTo(recipient.getEmail());
+                helper.setSubject(subject);
+                helper.setText(template.personalise(recipient.getFirstName()), true);
+                messages.add(message);
+                addressed.add(recipient);
+            } catch (MessagingException | IllegalArgumentException e) {
+                failed++;
+            }
+        }
+        if (messages.isEmpty()) {
+            return new BatchResult(cursor, 0, 0, failed);
+        }
+
+        pacer.acquire(messages.size());
+        if (aborted.get()) {
+            throw new CancellationException("Envoi interrompu");
+        }
+        int deferred = 0;
+        try {
+            mailSender.send(messages.toArray(new MimeMessage[0]));
+        } catch (MailException e) {
+            Map<Object, Exception> refused = e instanceof MailSendException sendException
+                    ? sendException.getFailedMessages() : Map.of();
+            for (int i = 0; i < messages.size(); i++) {
+                if (refused.isEmpty() || refused.containsKey(messages.get(i))) {
+                    MailingRecipient recipient = addressed.get(i);
+                    emailService.queueEmail(recipient.getEmail(), subject, template.personalise(recipient.getFirstName()));
+                    deferred++;
+                }
+            }
+        }
+        return new BatchResult(cursor, messages.size() - deferred, deferred, failed);
+    }
+
+    /**
+     * Renders the HTML of a newsletter and its validated articles, with a placeholder for the first name
+     * of the recipient.
+     *
+     * @param newsletter The newsletter.
+     * @param articles   The summaries of the validated articles of the newsletter.
+     * @return The rendered newsletter.
+     */
+    static Template render(Newsletter newsletter, List<ArticleSummary> articles) {
+        StringBuilder html = new StringBuilder();
+        html.append("<div style=\"background-color:")
+                .append(escape(newsletter.getBackgroundColor() == null ? "#ffffff" : newsletter.getBackgroundColor()))
+                .append(";padding:16px\">");
+        html.append("<h1>").append(escape(newsletter.getTitle())).append("</h1>");
+        if (newsletter.getSubtitle() != null) {
+            html.append("<h2>").append(escape(newsletter.getSubtitle())).append("</h2>");
+        }
+        html.append("<p>Dear ").append(FIRST_NAME_PLACEHOLDER).append(",</p>");
+        for (ArticleSummary article : articles) {
+            html.append("<h3>").append(escape(article.getTitle())).append("</h3>");
+            html.append("<p>").append(escape(article.getContent()).replace("\n", "<br>")).append("</p>");
+        }
+        html.append("</div>");
+        String rendered = html.toString();
+        int placeholder = rendered.indexOf(FIRST_NAME_PLACEHOLDER);
+        return new Template(rendered.substring(0, placeholder),
+                rendered.substring(placeholder + FIRST_NAME_PLACEHOLDER.length()));
+    }
+
+    private static String escape(String text) {
+        return text == null ? "" : HtmlUtils.htmlEscape(text, "UTF-8");
+    }
+
+    /**
+     * A newsletter rendered once, split around the first name of the recipient.
+     *
+     * @param before The HTML before the first name.
+     * @param after  The HTML after the first name.
+     */
+    record Template(String before, String after) {
+
+        String personalise(String firstName) {
+            String name = firstName == null || firstName.isBlank() ? "reader" : escape(firstName);
+            return before + name + after;
+        }
+    }
+
+    private record BatchResult(long cursor, int sent, int deferred, int failed) {
+    }
+
+    /**
+     * Spaces out the emails so that no more than a given number are sent per second, across all senders.
+     */
+    private static final class Pacer {
+
+        private final long intervalNanos;
+        private long nextFree = System.nanoTime();
+
+        Pacer(double ratePerSecond) {
+            this.intervalNanos = ratePerSecond > 0 ? (long) (1_000_000_000L / ratePerSecond) : 0;
+        }
+
+        /**
+         * Waits until the given number of emails may be sent.
+         *
+         * @param emails The number of emails about to be sent.
+         * @throws InterruptedException If the thread is interrupted while waiting.
+         */
+        void acquire(int emails) throws InterruptedException {
+            if (intervalNanos == 0) {
+                return;
+            }
+            long wait;
+            synchronized (this) {
+                long now = System.nanoTime();
+                long start = Math.max(nextFree, now);
+                nextFree = start + intervalNanos * emails;
+                wait = start - now;
+            }
+            if (wait > 0) {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            }
+        }
+    }
+}
@@ -0,0 +1,310 @@
+package be.helha.journalapp.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * This component buffers the read events of users and writes them to the {@code user_article_read} table
+ * in batches (write-behind), instead of one lookup and one save per event.
+ * <p>
+ * Events are kept by user and article, so only the last event for a pair is written. The buffer is flushed
+ * as one batched upsert every {@code journalapp.read-state.flush-interval-ms} milliseconds, as soon as it holds
+ * {@code journalapp.read-state.flush-size} events, and when the application shuts down. An event stays
+ * in the buffer until it has been written, so {@link #findPending(Long)} lets readers see it in the meantime;
+ * a batch that cannot be written is retried on the next flush, except for the events rejected by the
+ * database (e.g. an article deleted in the meantime), which are dropped.
+ * <p>
+ * The buffer is bounded: while the database is unavailable, at most {@code journalapp.read-state.max-pending}
+ * events are kept and new events are refused. A batch that still fails after
+ * {@code journalapp.read-state.max-attempts} flushes is dropped. The buffered events are published as the
+ * {@code read.events.pending} gauge, the refused and dropped ones as the {@code read.events.discarded} counter.
+ */
+@Component
+public class ReadEventWriter {
+
+    private static final String POSTGRESQL_UPSERT = "INSERT INTO user_article_read (user_id, article_id, is_read, read_at) " +
+            "VALUES (?, ?, ?, ?) ON CONFLICT (user_id, article_id) " +
+            "DO UPDATE SET is_read = EXCLUDED.is_read, read_at = EXCLUDED.read_at";
+    private static final String MERGE_UPSERT = "MERGE INTO user_article_read (user_id, article_id, is_read, read_at) " +
+            "KEY (user_id, article_id) VALUES (?, ?, ?, ?)";
+
+    private final ConcurrentMap<Long, ConcurrentMap<Long, ReadEvent>> pending = new ConcurrentHashMap<>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final JdbcTemplate jdbcTemplate;
+    private final int flushSize;
+    private final int maxPending;
+    private final int maxAttempts;
+    private final Counter rejected;
+    private final Counter abandoned;
+    private final ScheduledExecutorService executor;
+    private int failedAttempts;
+    private String upsert;
+
+    /**
+     * Constructor for ReadEventWriter.
+     *
+     * @param jdbcTemplate    The JDBC template used to write the events.
+     * @param meterRegistry   The registry publishing the buffered and discarded events.
+     * @param flushIntervalMs The delay between two flushes, in milliseconds.
+     * @param flushSize       The number of buffered events that triggers a flush without waiting.
+     * @param maxPending      The maximum number of buffered events; further events are refused.
+     * @param maxAttempts     The number of failed flushes after which a batch is dropped.
+     */
+    public ReadEventWriter(JdbcTemplate jdbcTemplate,
+                           MeterRegistry meterRegistry,
+                           @Value("${journalapp.read-state.flush-interval-ms:250}") long flushIntervalMs,
+                           @Value("${journalapp.read-state.flush-size:500}") int flushSize,
+                           @Value("${journalapp.read-state.max-pending:100000}") int maxPending,
+                           @Value("${journalapp.read-state.max-attempts:20}") int maxAttempts) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.flushSize = flushSize;
+        this.maxPending = maxPending;
+        this.maxAttempts = maxAttempts;
+        Gauge.builder("read.events.pending", pendingCount, AtomicInteger::get)
+                .description("Read events waiting to be written")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("read.events.discarded").tag("reason", "buffer-full")
+                .description("Read events discarded before being written")
+                .register(meterRegistry);
+        this.abandoned = Counter.builder("read.events.discarded").tag("reason", "write-failed")
+                .description("Read events discarded before being written")
+                .register(meterRegistry);
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "read-event-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.executor.scheduleWithFixedDelay(this::flushInBackground, flushIntervalMs, flushIntervalMs,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Buffers a read event. It replaces any event of the same user and article that was not written yet.
+     *
+     * @param userId    The ID of the user.
+     * @param articleId The ID of the article.
+     * @param read      true if the article was marked as read, false if it was marked as unread.
+     * @throws IllegalStateException If the buffer is full.
+     */
+    public void enqueue(Long userId, Long articleId, boolean read) {
+        enqueue(userId, List.of(articleId), read);
+    }
+
+    /**
+     * Buffers the read events of a user on several articles. They replace any event of the same user and articles
+     * that was not written yet. Either all the events are buffered, or none when the buffer is full.
+     *
+     * @param userId     The ID of the user.
+     * @param articleIds The IDs of the articles.
+     * @param read       true if the articles were marked as read, false if they were marked as unread.
+     * @throws IllegalStateException If the buffer is full.
+     */
+    public void enqueue(Long userId, Collection<Long> articleIds, boolean read) {
+        ReadEvent event = new ReadEvent(read, read ? LocalDateTime.now() : null);
+        pending.compute(userId, (id, events) -> {
+            ConcurrentMap<Long, ReadEvent> userEvents = events == null ? new ConcurrentHashMap<>() : events;
+            // Seuls les articles pas encore en attente agrandissent le tampon
+            long added = articleIds.stream().distinct().filter(articleId -> !userEvents.containsKey(articleId)).count();
+            if (pendingCount.get() + added > maxPending) {
+                rejected.increment(articleIds.size());
+                throw new IllegalStateException("Too many read events waiting to be written, try again later");
+            }
+            for (Long articleId : articleIds) {
+                if (userEvents.put(articleId, event) == null) {
+                    pendingCount.incrementAndGet();
+                }
+            }
+            return userEvents;
+        });
+        if (pendingCount.get() >= flushSize && flushScheduled.compareAndSet(false, true)) {
+            executor.execute(() -> {
+                flushScheduled.set(false);
+                flushInBackground();
+            });
+        }
+    }
+
+    /**
+     * Returns the events of a user that have not been written yet.
+     *
+     * @param userId The ID of the user.
+     * @return The pending read state by article ID (true for read, false for unread).
+     */
+    public Map<Long, Boolean> findPending(Long userId) {
+        Map<Long, Boolean> events = new HashMap<>();
+        ConcurrentMap<Long, ReadEvent> userEvents = pending.get(userId);
+        if (userEvents != null) {
+            userEvents.forEach((articleId, event) -> events.put(articleId, event.read()));
+        }
+        return events;
+    }
+
+    /**
+     * Returns the articles a user has marked as read in the events that have not been written yet.
+     *
+     * @param userId The ID of the user.
+     * @return The IDs of the articles, most recently read first.
+     */
+    public List<Long> findPendingReads(Long userId) {
+        ConcurrentMap<Long, ReadEvent> userEvents = pending.get(userId);
+        if (userEvents == null) {
+            return List.of();
+        }
+        return userEvents.entrySet().stream()
+                .filter(entry -> entry.getValue().read())
+                .sorted(Map.Entry.<Long, ReadEvent>comparingByValue(
+                                Comparator.comparing(ReadEvent::readAt, Comparator.reverseOrder()))
+                        .thenComparing(Map.Entry.comparingByKey(Comparator.reverseOrder())))
+                .map(Map.Entry::getKey)
+                .toList();
+    }
+
+    /**
+     * Writes the buffered events as one batched upsert.
+     *
+     * @return The number of events written.
+     */
+    public int flush() {
+        // Un ReentrantLock plutôt que synchronized : l'appelant peut être un thread virtuel (une requête),
+        // qui ne doit pas bloquer son thread porteur pendant l'écriture du lot
+        flushLock.lock();
+        try {
+            return flushPending();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private int flushPending() {
+        if (pendingCount.get() == 0) {
+            return 0;
+        }
+        List<PendingEvent> batch = new ArrayList<>();
+        pending.forEach((userId, events) -> events.forEach((articleId, event) ->
+                batch.add(new PendingEvent(userId, articleId, event))));
+
+        int written = 0;
+        try {
+            write(batch);
+            written = batch.size();
+            batch.forEach(this::remove);
+        } catch (DataIntegrityViolationException e) {
+            // Une entrée refusée fait échouer tout le lot : on réécrit les événements un par un
+            for (PendingEvent entry : batch) {
+                try {
+                    write(List.of(entry));
+                    written++;
+                } catch (DataIntegrityViolationException rejected) {
+                    System.err.println("Événement de lecture ignoré " + entry + " : " + rejected.getMessage());
+                }
+                remove(entry);
+            }
+        } catch (RuntimeException e) {
+            if (++failedAttempts < maxAttempts) {
+                throw e;
+            }
+            // La base refuse le lot depuis trop longtemps : on l'abandonne plutôt que de le réessayer sans fin
+            System.err.println("Abandon de " + batch.size() + " événements de lecture après " + failedAttempts
+                    + " tentatives : " + e.getMessage());
+            batch.forEach(this::remove);
+            abandoned.increment(batch.size());
+            failedAttempts = 0;
+            return 0;
+        }
+        failedAttempts = 0;
+        return written;
+    }
+
+    /**
+     * Stops the background flushes and writes the remaining events before the application shuts down.
+     */
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    private void flushInBackground() {
+        try {
+            flush();
+        } catch (Exception e) {
+            System.err.println("Erreur lors de l'écriture des événements de lecture (nouvel essai au prochain passage) : "
+                    + e.getMessage());
+        }
+    }
+
+    /**
+     * Removes a written event from the buffer, unless it was replaced by a newer event in the meantime.
+     *
+     * @param entry The written event.
+     */
+    private void remove(PendingEvent entry) {
+        pending.computeIfPresent(entry.userId(), (userId, events) -> {
+            if (events.remove(entry.articleId(), entry.event())) {
+                pendingCount.decrementAndGet();
+            }
+            return events.isEmpty() ? null : events;
+        });
+    }
+
+    private void write(List<PendingEvent> events) {
+        jdbcTemplate.batchUpdate(upsertStatement(), events, events.size(), (statement, entry) -> {
+            statement.setLong(1, entry.userId());
+            statement.setLong(2, entry.articleId());
+            statement.setBoolean(3, entry.event().read());
+            statement.setTimestamp(4, entry.event().readAt() == null ? null : Timestamp.valueOf(entry.event().readAt()));
+        });
+    }
+
+    /**
+     * Returns the upsert statement of the database: {@code ON CONFLICT} on PostgreSQL, {@code MERGE} otherwise
+     * (e.g. the embedded test database).
+     *
+     * @return The SQL upsert statement.
+     */
+    private String upsertStatement() {
+        if (upsert == null) {
+            String product = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                    connection.getMetaData().getDatabaseProductName());
+            upsert = "PostgreSQL".equalsIgnoreCase(product) ? POSTGRESQL_UPSERT : MERGE_UPSERT;
+        }
+        return upsert;
+    }
+
+    private record PendingEvent(long userId, long articleId, ReadEvent event) {
+    }
+
+    private record ReadEvent(boolean read, LocalDateTime readAt) {
+    }
+}
@@ -0,0 +1,271 @@
+package be.helha.journalapp.service;
+
+import be.helha.journalapp.dto.ArticleSummary;
+import be.helha.journalapp.model.UserArticleRead;
+import be.helha.journalapp.repositories.ArticleRepository;
+import be.helha.journalapp.repositories.UserArticleReadRepository;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * This service answers which articles a user has read from compressed bitmaps of article IDs held in memory.
+ * <p>
+ * The {@link UserArticleRead} rows stay the durable record: every change is handed to the {@link ReadEventWriter},
+ * which writes it in a batch shortly after, and applied at once to the bitmap of the user if it is loaded, so the
+ * database is only read when a user's bitmap is loaded. A bitmap loaded before the writer has flushed includes the
+ * pending changes, so a user always sees their own changes.
+ * Bitmaps are kept in a cache bounded by their size in memory ({@code journalapp.read-state.maximum-weight},
+ * in bytes); an evicted bitmap is rebuilt from the rows on the next access. A bitmap is also rebuilt once
+ * {@code journalapp.read-state.ttl} has elapsed since it was loaded, whatever the changes applied to it since,
+ * so that the changes recorded by the other nodes are seen within that delay. Bitmaps are never modified in place,
+ * each change replaces them with a modified copy, so they can be read without locking.
+ * The bitmap of the valid articles, used to count unread articles, is kept the same way and reloaded after
+ * {@link #publishedArticlesChanged()} or once {@code journalapp.read-state.published-ttl} has elapsed.
+ * Hits and misses are published as the {@code cache.gets} metric with the tag {@code cache=readStates}.
+ * <p>
+ * Article IDs come from a database sequence and are stored as 32-bit integers.
+ */
+@Service
+public class ReadStateService {
+
+    private static final String PUBLISHED_KEY = "published";
+
+    private final UserArticleReadRepository userArticleReadRepository;
+    private final ArticleRepository articleRepository;
+    private final ReadEventWriter readEventWriter;
+    private final LoadingCache<Long, RoaringBitmap> readArticles;
+    private final LoadingCache<String, RoaringBitmap> publishedArticles;
+
+    /**
+     * Constructor for ReadStateService.
+     *
+     * @param userArticleReadRepository The repository holding the read entries.
+     * @param articleRepository         The repository for accessing article data.
+     * @param readEventWriter           The writer saving the read changes.
+     * @param meterRegistry             The registry publishing the cache metrics.
+     * @param maximumWeight             The maximum memory used by the cached bitmaps, in bytes.
+     * @param ttl                       How long the bitmap of a user is kept after being loaded.
+     * @param publishedTtl              How long the bitmap of the valid articles is kept without being reloaded.
+     */
+    public ReadStateService(UserArticleReadRepository userArticleReadRepository,
+                            ArticleRepository articleRepository,
+                            ReadEventWriter readEventWriter,
+                            MeterRegistry meterRegistry,
+                            @Value("${journalapp.read-state.maximum-weight:33554432}") long maximumWeight,
+                            @Value("${journalapp.read-state.ttl:5m}") Duration ttl,
+                            @Value("${journalapp.read-state.published-ttl:1m}") Duration publishedTtl) {
+        this.userArticleReadRepository = userArticleReadRepository;
+        this.articleRepository = articleRepository;
+        this.readEventWriter = readEventWriter;
+        this.readArticles = Caffeine.newBuilder()
+                .maximumWeight(maximumWeight)
+                .weigher((Long userId, RoaringBitmap bitmap) -> bitmap.getSizeInBytes())
+                .expireAfter(expireAfterLoad(ttl))
+                .recordStats()
+                .build(this::loadReadArticles);
+        this.publishedArticles = Caffeine.newBuilder()
+                .expireAfterWrite(publishedTtl)
+                .build(key -> toBitmap(articleRepository.findValidArticleIds()));
+        CaffeineCacheMetrics.monitor(meterRegistry, readArticles, "readStates");
+    }
+
+    /**
+     * Checks whether a user has read an article.
+     *
+     * @param userId    The ID of the user.
+     * @param articleId The ID of the article.
+     * @return true if the user marked the article as read.
+     */
+    public boolean hasRead(Long userId, Long articleId) {
+        return readArticles.get(userId).contains(toInt(articleId));
+    }
+
+    /**
+     * Lists the articles a user has read.
+     *
+     * @param userId The ID of the user.
+     * @return The IDs of the articles read by the user, in increasing order.
+     */
+    public List<Long> findReadArticleIds(Long userId) {
+        RoaringBitmap bitmap = readArticles.get(userId);
+        List<Long> articleIds = new ArrayList<>(bitmap.getCardinality());
+        bitmap.forEach((int articleId) -> articleIds.add((long) articleId));
+        return articleIds;
+    }
+
+    /**
+     * Lists one page of the articles a user has read, most recently read first.
+     * The changes of the user not written yet are merged into the page without writing them: the articles marked
+     * as read since come first, being the most recent, and the entries of the articles whose state changed are
+     * left out of the rest.
+     *
+     * @param userId The ID of the user.
+     * @param page   The zero-based page number.
+     * @param size   The number of articles per page.
+     * @return The summaries of the read articles of the page.
+     */
+    public List<ArticleSummary> findReadArticles(Long userId, int page, int size) {
+        Map<Long, Boolean> pending = readEventWriter.findPending(userId);
+        if (pending.isEmpty()) {
+            return userArticleReadRepository.findReadSummariesByUserId(userId, PageRequest.of(page, size));
+        }
+
+        List<Long> pendingReads = readEventWriter.findPendingReads(userId);
+        long offset = (long) page * size;
+        List<ArticleSummary> articles = new ArrayList<>(size);
+        if (offset < pendingReads.size()) {
+            List<Long> pageIds = pendingReads.subList((int) offset, (int) Math.min(offset + size, pendingReads.size()));
+            Map<Long, ArticleSummary> summaries = new HashMap<>();
+            articleRepository.findSummariesByIds(pageIds).forEach(summary -> summaries.put(summary.getArticleId(), summary));
+            pageIds.stream().map(summaries::get).filter(Objects::nonNull).forEach(articles::add);
+        }
+        int remaining = size - articles.size();
+        long entriesOffset = Math.max(0, offset - pendingReads.size());
+        // Les entrées commencent au milieu d'une page de taille fixe : on lit au plus les deux pages concernées
+        for (int entriesPage = (int) (entriesOffset / size); remaining > 0; entriesPage++) {
+            List<ArticleSummary> entries = userArticleReadRepository.findReadSummariesByUserIdExcluding(
+                    userId, pending.keySet(), PageRequest.of(entriesPage, size));
+            int from = (int) Math.max(0, entriesOffset - (long) entriesPage * size);
+            List<ArticleSummary> taken = entries.subList(Math.min(from, entries.size()),
+                    Math.min(from + remaining, entries.size()));
+            articles.addAll(taken);
+            remaining -= taken.size();
+            if (entries.size() < size) {
+                break;
+            }
+        }
+        return articles;
+    }
+
+    /**
+     * Counts the valid articles a user has not read yet.
+     *
+     * @param userId The ID of the user.
+     * @return The number of unread valid articles.
+     */
+    public long countUnread(Long userId) {
+        RoaringBitmap published = publishedArticles.get(PUBLISHED_KEY);
+        return published.getLongCardinality() - RoaringBitmap.andCardinality(published, readArticles.get(userId));
+    }
+
+    /**
+     * Marks an article as read or unread by a user.
+     *
+     * @param userId    The ID of the user.
+     * @param articleId The ID of the article.
+     * @param read      true to mark the article as read, false to mark it as unread.
+     */
+    public void setRead(Long userId, Long articleId, boolean read) {
+        setRead(userId, List.of(articleId), read);
+    }
+
+    /**
+     * Marks articles as read or unread by a user.
+     * The changes are buffered by the {@link ReadEventWriter} before the bitmap of the user is updated,
+     * so that a bitmap loaded in between already contains them.
+     *
+     * @param userId     The ID of the user.
+     * @param articleIds The IDs of the articles.
+     * @param read       true to mark the articles as read, false to mark them as unread.
+     * @throws IllegalStateException If too many changes are waiting to be written.
+     */
+    public void setRead(Long userId, Collection<Long> articleIds, boolean read) {
+        RoaringBitmap bits = toBitmap(articleIds);
+        readEventWriter.enqueue(userId, articleIds, read);
+
+        readArticles.asMap().computeIfPresent(userId, (id, bitmap) ->
+                read ? RoaringBitmap.or(bitmap, bits) : RoaringBitmap.andNot(bitmap, bits));
+    }
+
+    /**
+     * Drops the bitmap of the valid articles after an article was created, deleted, validated or unvalidated.
+     */
+    public void publishedArticlesChanged() {
+        publishedArticles.invalidateAll();
+    }
+
+    /**
+     * Builds the bitmap of a user from their read entries and the changes not written yet.
+     * The pending changes are taken before the entries are read: a change written in between is then
+     * applied twice rather than missed.
+     *
+     * @param userId The ID of the user.
+     * @return The bitmap of the articles read by the user.
+     */
+    private RoaringBitmap loadReadArticles(Long userId) {
+        Map<Long, Boolean> pending = readEventWriter.findPending(userId);
+        RoaringBitmap bitmap = toBitmap(userArticleReadRepository.findReadArticleIdsByUserId(userId));
+        for (Map.Entry<Long, Boolean> change : pending.entrySet()) {
+            if (change.getValue()) {
+                bitmap.add(toInt(change.getKey()));
+            } else {
+                bitmap.remove(toInt(change.getKey()));
+            }
+        }
+        return bitmap;
+    }
+
+    /**
+     * Builds an expiry counting from the load of an entry only: applying a change to a bitmap does not extend
+     * its life, since it does not bring the changes made on the other nodes.
+     *
+     * @param ttl How long an entry is kept after being loaded.
+     * @return The expiry.
+     */
+    private static Expiry<Long, RoaringBitmap> expireAfterLoad(Duration ttl) {
+        long ttlNanos = ttl.toNanos();
+        return new Expiry<>() {
+            @Override
+            public long expireAfterCreate(Long userId, RoaringBitmap bitmap, long currentTime) {
+                return ttlNanos;
+            }
+
+            @Override
+            public long expireAfterUpdate(Long userId, RoaringBitmap bitmap, long currentTime,
+                                          long currentDuration) {
+                return currentDuration;
+            }
+
+            @Override
+            public long expireAfterRead(Long userId, RoaringBitmap bitmap, long currentTime,
+                                        long currentDuration) {
+                return currentDuration;
+            }
+        };
+    }
+
+    private static RoaringBitmap toBitmap(Collection<Long> articleIds) {
+        RoaringBitmap bitmap = new RoaringBitmap();
+        for (Long articleId : articleIds) {
+            bitmap.add(toInt(articleId));
+        }
+        bitmap.runOptimize();
+        return bitmap;
+    }
+
+    /**
+     * Converts an article ID to the 32-bit value stored in the bitmaps.
+     *
+     * @param articleId The ID of the article.
+     * @return The ID as an int.
+     * @throws ArithmeticException If the ID does not fit in 32 bits.
+     */
+    private static int toInt(Long articleId) {
+        return Math.toIntExact(articleId);
+    }
+}
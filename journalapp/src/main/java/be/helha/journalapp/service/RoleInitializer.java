@@ -2,7 +2,6 @@ package be.helha.journalapp.service;
 
 import be.helha.journalapp.model.Role;
 import be.helha.journalapp.repositories.RoleRepository;
-import jakarta.annotation.PostConstruct;
 import org.springframework.stereotype.Service;
 
 import java.util.Map;
@@ -11,6 +10,7 @@ import java.util.Optional;
 /**
  * Service qui initialise les rôles dans la DB locale,
  * et leur associe le keycloakRoleId.
+ * L'initialisation est lancée par {@link ApplicationBootstrap} une fois l'application démarrée.
  */
 @Service
 public class RoleInitializer {
@@ -30,7 +30,6 @@ public class RoleInitializer {
         this.roleRepository = roleRepository;
     }
 
-    @PostConstruct
     public void initRoles() {
         // Pour chaque rôle que vous souhaitez avoir par défaut :
         createOrUpdateRole("ADMIN");
@@ -1,5 +1,6 @@
 package be.helha.journalapp.service;
 
+import be.helha.journalapp.config.ClusterLock;
 import be.helha.journalapp.model.Role;
 import be.helha.journalapp.repositories.RoleRepository;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -24,17 +25,32 @@ public class RoleSynchronizationService {
     @Autowired
     private KeycloakAdminService keycloakAdminService;
 
+    @Autowired
+    private ClusterLock clusterLock;
+
+    /**
+     * Synchronizes the roles every hour, on one node of the cluster at a time.
+     * The first synchronization is made by {@link ApplicationBootstrap} once the application has started.
+     */
+    @Scheduled(cron = "0 0 * * * ?") // Exécute toutes les heures
+    public void synchronizeRolesPeriodically() {
+        try {
+            clusterLock.runIfLeader(ApplicationBootstrap.ROLES_LOCK, this::synchronizeRoles);
+        } catch (Exception e) {
+            System.err.println("Erreur lors de la synchronisation des rôles avec Keycloak : " + e.getMessage());
+        }
+    }
+
     /**
      * Synchronizes roles between Keycloak and the local database.
      * <p>
-     * This method is scheduled to run every hour using a cron expression. It retrieves
+     * This method is run every hour by {@link #synchronizeRolesPeriodically()}. It retrieves
      * all roles from Keycloak using {@link KeycloakAdminService#getAllRolesFromKeycloak()}.
      * For each role from Keycloak, it checks if a role with the same name already exists
      * in the local database.
      * If it exists, the method updates the existing role with the Keycloak ID.
      * If it does not exist, the method creates a new role.
      */
-    @Scheduled(cron = "0 0 * * * ?") // Exécute toutes les heures
     public void synchronizeRoles() {
         List<Role> keycloakRoles = keycloakAdminService.getAllRolesFromKeycloak();
         for (Role keycloakRole : keycloakRoles) {
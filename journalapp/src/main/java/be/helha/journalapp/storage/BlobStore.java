@@ -0,0 +1,68 @@
+package be.helha.journalapp.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Stores binary content outside the database, addressed by the SHA-256 hash of the content.
+ * <p>
+ * Storing the same content twice keeps a single copy, and a stored blob never changes:
+ * the hash identifies the content, so it can be used as a cache key or an HTTP entity tag.
+ */
+public interface BlobStore {
+
+    /**
+     * Stores content read from a stream.
+     *
+     * @param content The content to store; it is read to the end but not closed.
+     * @return The SHA-256 hash of the content, as lowercase hexadecimal.
+     * @throws IOException If the content cannot be read or written.
+     */
+    String put(InputStream content) throws IOException;
+
+    /**
+     * Checks whether a blob is stored.
+     *
+     * @param hash The hash of the blob.
+     * @return true if the blob exists.
+     */
+    boolean exists(String hash);
+
+    /**
+     * Returns the size of a stored blob.
+     *
+     * @param hash The hash of the blob.
+     * @return The size of the blob in bytes.
+     * @throws IOException If the blob does not exist or cannot be read.
+     */
+    long size(String hash) throws IOException;
+
+    /**
+     * Opens a stored blob for reading.
+     *
+     * @param hash The hash of the blob.
+     * @return A stream over the blob, to be closed by the caller.
+     * @throws IOException If the blob does not exist or cannot be read.
+     */
+    InputStream open(String hash) throws IOException;
+
+    /**
+     * Copies a stored blob to a channel without loading it into memory.
+     *
+     * @param hash   The hash of the blob.
+     * @param target The channel to write the blob to; it is not closed.
+     * @return The number of bytes written.
+     * @throws IOException If the blob cannot be read or the channel cannot be written.
+     */
+    long transferTo(String hash, WritableByteChannel target) throws IOException;
+
+    /**
+     * Tells whether every node of the cluster reads the same blobs. Only then may the copy of some content kept
+     * elsewhere (e.g. the data of an image in the database) be dropped, since a blob stored by one node only
+     * would be missing on the others.
+     *
+     * @return true if the store is shared by every node.
+     */
+    boolean isShared();
+}
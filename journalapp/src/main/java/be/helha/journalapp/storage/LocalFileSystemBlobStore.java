@@ -0,0 +1,219 @@
+package be.helha.journalapp.storage;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+/**
+ * {@link BlobStore} keeping every blob in a file of a local directory.
+ * <p>
+ * A blob with hash {@code abcdef...} is stored as {@code <root>/ab/cd/abcdef...}, which keeps directories small.
+ * Content is first written and synced to a temporary file in the root directory, then atomically renamed:
+ * readers never see a partially written blob, and concurrent uploads of the same content are harmless.
+ * The root directory is configured with {@code journalapp.blob-store.root}.
+ * <p>
+ * The directory is local to the node unless {@code journalapp.blob-store.shared} is set, meaning every node mounts
+ * the same directory (e.g. a network file system). That is checked on startup: the first node writes a random
+ * token to a marker file of the directory and records it in the database ({@code blob_store} table), and a node
+ * whose directory does not hold the recorded token does not start.
+ */
+@Component
+public class LocalFileSystemBlobStore implements BlobStore {
+
+    private static final Pattern HASH = Pattern.compile("[0-9a-f]{64}");
+    private static final String MARKER = ".blob-store-token";
+
+    private final Path root;
+    private final boolean shared;
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Constructor for LocalFileSystemBlobStore.
+     *
+     * @param root         The directory where blobs are stored (created if needed).
+     * @param shared       Whether every node of the cluster mounts the same directory.
+     * @param jdbcTemplate The JDBC template used to record the token of a shared directory.
+     */
+    @Autowired
+    public LocalFileSystemBlobStore(@Value("${journalapp.blob-store.root:./data/blobs}") String root,
+                                    @Value("${journalapp.blob-store.shared:false}") boolean shared,
+                                    JdbcTemplate jdbcTemplate) {
+        this.root = Paths.get(root).toAbsolutePath().normalize();
+        this.shared = shared;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Constructor for a LocalFileSystemBlobStore local to this node.
+     *
+     * @param root The directory where blobs are stored (created if needed).
+     */
+    public LocalFileSystemBlobStore(String root) {
+        this(root, false, null);
+    }
+
+    /**
+     * Checks on startup that a directory configured as shared is the one of the other nodes.
+     *
+     * @throws IOException           If the marker file cannot be read or written.
+     * @throws IllegalStateException If the directory does not hold the token recorded by the other nodes.
+     */
+    @PostConstruct
+    public void verifyShared() throws IOException {
+        if (!shared) {
+            System.out.println("Stockage de fichiers " + root + " local à ce nœud : les images restent aussi en base");
+            return;
+        }
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS blob_store (id INT PRIMARY KEY, token VARCHAR(64) NOT NULL)");
+        Path marker = root.resolve(MARKER);
+        String token = recordedToken();
+        if (token == null) {
+            // Premier nœud : le jeton est écrit dans le répertoire avant d'être enregistré en base
+            Files.createDirectories(root);
+            writeMarkerIfAbsent(marker, UUID.randomUUID().toString());
+            try {
+                jdbcTemplate.update("INSERT INTO blob_store (id, token) VALUES (1, ?)", Files.readString(marker).trim());
+            } catch (DataIntegrityViolationException e) {
+                // Un autre nœud a enregistré son jeton entre-temps
+            }
+            token = recordedToken();
+        }
+        String found = Files.isRegularFile(marker) ? Files.readString(marker).trim() : null;
+        if (!token.equals(found)) {
+            throw new IllegalStateException("The blob store " + root + " is configured as shared "
+                    + "(journalapp.blob-store.shared) but is not the directory of the other nodes: "
+                    + MARKER + " does not hold the token recorded in the blob_store table");
+        }
+    }
+
+    @Override
+    public boolean isShared() {
+        return shared;
+    }
+
+    @Override
+    public String put(InputStream content) throws IOException {
+        Files.createDirectories(root);
+        Path temp = Files.createTempFile(root, "upload-", ".tmp");
+        try {
+            MessageDigest digest = sha256();
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                OutputStream out = new DigestOutputStream(Channels.newOutputStream(channel), digest);
+                content.transferTo(out);
+                out.flush();
+                channel.force(true);
+            }
+            String hash = HexFormat.of().formatHex(digest.digest());
+            Path target = pathOf(hash);
+            if (!Files.exists(target)) {
+                Files.createDirectories(target.getParent());
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            }
+            return hash;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    @Override
+    public boolean exists(String hash) {
+        return hash != null && HASH.matcher(hash).matches() && Files.isRegularFile(pathOf(hash));
+    }
+
+    @Override
+    public long size(String hash) throws IOException {
+        return Files.size(pathOf(hash));
+    }
+
+    @Override
+    public InputStream open(String hash) throws IOException {
+        return Files.newInputStream(pathOf(hash));
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The copy uses {@link FileChannel#transferTo}, which lets the operating system move the data directly
+     * when the target is a socket or a file, and otherwise copies it through a small fixed-size buffer.
+     */
+    @Override
+    public long transferTo(String hash, WritableByteChannel target) throws IOException {
+        try (FileChannel channel = FileChannel.open(pathOf(hash), StandardOpenOption.READ)) {
+            long size = channel.size();
+            long position = 0;
+            while (position < size) {
+                position += channel.transferTo(position, size - position, target);
+            }
+            return size;
+        }
+    }
+
+    /**
+     * Resolves the file of a blob.
+     *
+     * @param hash The hash of the blob.
+     * @return The path of the blob file.
+     * @throws IllegalArgumentException If the hash is not a SHA-256 hexadecimal string (which also prevents path traversal).
+     */
+    private Path pathOf(String hash) {
+        if (hash == null || !HASH.matcher(hash).matches()) {
+            throw new IllegalArgumentException("Invalid blob hash: " + hash);
+        }
+        return root.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash);
+    }
+
+    private String recordedToken() {
+        List<String> tokens = jdbcTemplate.queryForList("SELECT token FROM blob_store WHERE id = 1", String.class);
+        return tokens.isEmpty() ? null : tokens.get(0);
+    }
+
+    /**
+     * Creates the marker file atomically (a hard link to a complete file), unless another node created it first.
+     *
+     * @param marker The marker file.
+     * @param token  The token to write.
+     * @throws IOException If the file cannot be written.
+     */
+    private void writeMarkerIfAbsent(Path marker, String token) throws IOException {
+        Path temp = Files.createTempFile(root, "token-", ".tmp");
+        try {
+            Files.writeString(temp, token);
+            Files.createLink(marker, temp);
+        } catch (FileAlreadyExistsException e) {
+            // Le jeton d'un autre nœud est conservé
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
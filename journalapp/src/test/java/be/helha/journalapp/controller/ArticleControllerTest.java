@@ -1,12 +1,23 @@
 package be.helha.journalapp.controller;
 
+import be.helha.journalapp.dto.ArticleLabel;
+import be.helha.journalapp.dto.ArticleSummary;
+import be.helha.journalapp.dto.CursorPage;
+import be.helha.journalapp.dto.UserPrincipal;
 import be.helha.journalapp.model.*;
 import be.helha.journalapp.repositories.*;
+import be.helha.journalapp.security.CurrentUserResolver;
+import be.helha.journalapp.service.ArticleLabelService;
+import be.helha.journalapp.service.ReadStateService;
+import be.helha.journalapp.service.NewsletterIssueService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
@@ -16,6 +27,7 @@ import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import java.util.*;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -46,10 +58,34 @@ class ArticleControllerTest {
     private NewsletterRepository newsletterRepository;
 
     /**
-     * Mocked repository for user article read status.
+     * Mocked service for user article read status.
      */
     @Mock
-    private UserArticleReadRepository userArticleReadRepository;
+    private ReadStateService readStateService;
+
+    /**
+     * Mocked resolver of the current user.
+     */
+    @Mock
+    private CurrentUserResolver currentUserResolver;
+
+    /**
+     * Mocked publisher of the live events.
+     */
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    /**
+     * Mocked service of the newsletter issues.
+     */
+    @Mock
+    private NewsletterIssueService newsletterIssueService;
+
+    /**
+     * Mocked service reading the article labels.
+     */
+    @Mock
+    private ArticleLabelService articleLabelService;
 
 
     /**
@@ -84,11 +120,6 @@ class ArticleControllerTest {
      */
     private Newsletter testNewsletter;
 
-    /**
-     * Test user article read object.
-     */
-    private UserArticleRead testUserArticleRead;
-
 
     /**
      * Sets up the test environment before each test method.
@@ -121,11 +152,6 @@ class ArticleControllerTest {
         testArticle.setValid(true);
         testArticle.setNewsletter(testNewsletter);
         testArticle.setAuthor(testUser);
-
-        testUserArticleRead = new UserArticleRead();
-        testUserArticleRead.setUser(testUser);
-        testUserArticleRead.setArticle(testArticle);
-        testUserArticleRead.setRead(true);
     }
 
     /**
@@ -163,15 +189,53 @@ class ArticleControllerTest {
     @Test
     void getAllArticles_Success() {
         // Arrange
-        when(articleRepository.findAll()).thenReturn(List.of(testArticle));
+        when(articleRepository.findAllSummaries()).thenReturn(List.of(summary(1L)));
 
         // Act
-        ResponseEntity<List<Article>> response = articleController.getAllArticles();
+        ResponseEntity<List<ArticleSummary>> response = articleController.getAllArticles();
 
         // Assert
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertEquals(1, response.getBody().size());
-        verify(articleRepository).findAll();
+        verify(articleRepository).findAllSummaries();
+        verify(articleRepository, never()).findAll();
+    }
+
+    /**
+     * Tests that the paginated listing trims the extra row and returns the cursor of the next page.
+     */
+    @Test
+    void getArticlesPage_ReturnsNextCursor() {
+        // Arrange
+        List<ArticleSummary> rows = List.of(summary(30L), summary(20L), summary(10L));
+        when(articleRepository.findSummariesBefore(eq(Long.MAX_VALUE), any(Pageable.class))).thenReturn(rows);
+
+        // Act
+        ResponseEntity<CursorPage<ArticleSummary>> response = articleController.getArticlesPage(null, 2);
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(2, response.getBody().getItems().size());
+        assertEquals(20L, response.getBody().getNext());
+        verify(articleRepository).findSummariesBefore(Long.MAX_VALUE, PageRequest.of(0, 3));
+    }
+
+    /**
+     * Tests that the last page of the paginated listing has no next cursor.
+     */
+    @Test
+    void getAvailableArticlesPage_LastPage() {
+        // Arrange
+        when(articleRepository.findSummariesByValidBefore(eq(true), eq(20L), any(Pageable.class)))
+                .thenReturn(List.of(summary(10L)));
+
+        // Act
+        ResponseEntity<CursorPage<ArticleSummary>> response = articleController.getAvailableArticlesPage(20L, 2);
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(1, response.getBody().getItems().size());
+        assertNull(response.getBody().getNext());
     }
 
     /**
@@ -267,12 +331,9 @@ class ArticleControllerTest {
     @Test
     void markAsRead_Success() {
         // Arrange
-        when(authentication.getName()).thenReturn("test-keycloak-id");
-        when(userRepository.findByKeycloakId("test-keycloak-id")).thenReturn(Optional.of(testUser));
-        when(articleRepository.findById(1L)).thenReturn(Optional.of(testArticle));
-        when(userArticleReadRepository.findByUserUserIdAndArticleArticleId(1L, 1L))
-                .thenReturn(Optional.of(testUserArticleRead));
-        when(userArticleReadRepository.save(any(UserArticleRead.class))).thenReturn(testUserArticleRead);
+        when(currentUserResolver.resolve(authentication))
+                .thenReturn(Optional.of(new UserPrincipal(1L, "test-keycloak-id", "READER")));
+        when(articleRepository.existsById(1L)).thenReturn(true);
 
         // Act
         ResponseEntity<Map<String, String>> response = articleController.markAsRead(1L, authentication);
@@ -280,7 +341,62 @@ class ArticleControllerTest {
         // Assert
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertEquals("Article marked as read.", response.getBody().get("message"));
-        verify(userArticleReadRepository).save(any(UserArticleRead.class));
+        verify(readStateService).setRead(1L, 1L, true);
+    }
+
+    /**
+     * Tests that several articles are marked as read at once, ignoring the IDs of unknown articles.
+     */
+    @Test
+    void markAllAsRead_Success() {
+        // Arrange
+        when(currentUserResolver.resolve(authentication))
+                .thenReturn(Optional.of(new UserPrincipal(1L, "test-keycloak-id", "READER")));
+        when(articleRepository.findExistingIds(Set.of(1L, 2L, 99L))).thenReturn(List.of(1L, 2L));
+
+        // Act
+        ResponseEntity<Map<String, Object>> response = articleController.markAllAsRead(List.of(1L, 2L, 99L, 2L), authentication);
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(2, response.getBody().get("count"));
+        verify(readStateService).setRead(1L, List.of(1L, 2L), true);
+    }
+
+    /**
+     * Tests that the author names of several articles are read by one lookup.
+     */
+    @Test
+    void getAuthorNamesByArticleIds_Success() {
+        // Arrange
+        when(articleLabelService.findLabels(List.of(1L, 2L)))
+                .thenReturn(Map.of(1L, new ArticleLabel(1L, "Le Journal", "Alice Martin")));
+
+        // Act
+        ResponseEntity<?> response = articleController.getAuthorNamesByArticleIds(List.of(1L, 2L));
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(Map.of(1L, "Alice Martin"), response.getBody());
+    }
+
+    /**
+     * Tests that a label lookup naming too many articles is rejected without querying.
+     */
+    @Test
+    void getNewsletterTitlesByArticleIds_TooManyIds() {
+        // Arrange
+        List<Long> ids = new ArrayList<>();
+        for (long id = 0; id <= 500; id++) {
+            ids.add(id);
+        }
+
+        // Act
+        ResponseEntity<?> response = articleController.getNewsletterTitlesByArticleIds(ids);
+
+        // Assert
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        verifyNoInteractions(articleLabelService);
     }
 
     /**
@@ -289,11 +405,10 @@ class ArticleControllerTest {
     @Test
     void getArticleReadStatus_Success() {
         // Arrange
-        when(authentication.getName()).thenReturn("test-keycloak-id");
-        when(userRepository.findByKeycloakId("test-keycloak-id")).thenReturn(Optional.of(testUser));
-        when(articleRepository.findById(1L)).thenReturn(Optional.of(testArticle));
-        when(userArticleReadRepository.findByUserUserIdAndArticleArticleId(1L, 1L))
-                .thenReturn(Optional.of(testUserArticleRead));
+        when(currentUserResolver.resolve(authentication))
+                .thenReturn(Optional.of(new UserPrincipal(1L, "test-keycloak-id", "READER")));
+        when(articleRepository.existsById(1L)).thenReturn(true);
+        when(readStateService.hasRead(1L, 1L)).thenReturn(true);
 
         // Act
         ResponseEntity<Map<String, Boolean>> response = articleController.getArticleReadStatus(1L, authentication);
@@ -301,7 +416,7 @@ class ArticleControllerTest {
         // Assert
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertTrue(response.getBody().get("isRead"));
-        verify(userArticleReadRepository).findByUserUserIdAndArticleArticleId(1L, 1L);
+        verify(readStateService).hasRead(1L, 1L);
     }
 
     /**
@@ -310,18 +425,17 @@ class ArticleControllerTest {
     @Test
     void getReadArticles_Success() {
         // Arrange
-        when(authentication.getName()).thenReturn("test-keycloak-id");
-        when(userRepository.findByKeycloakId("test-keycloak-id")).thenReturn(Optional.of(testUser));
-        when(userArticleReadRepository.findByUserUserIdAndIsReadTrue(1L))
-                .thenReturn(List.of(testUserArticleRead));
+        when(currentUserResolver.resolve(authentication))
+                .thenReturn(Optional.of(new UserPrincipal(1L, "test-keycloak-id", "READER")));
+        when(readStateService.findReadArticles(1L, 0, 20)).thenReturn(List.of(summary(1L)));
 
         // Act
-        ResponseEntity<List<Article>> response = articleController.getReadArticles(authentication);
+        ResponseEntity<List<ArticleSummary>> response = articleController.getReadArticles(0, 20, authentication);
 
         // Assert
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertEquals(1, response.getBody().size());
-        verify(userArticleReadRepository).findByUserUserIdAndIsReadTrue(1L);
+        verify(readStateService).findReadArticles(1L, 0, 20);
     }
 
     /**
@@ -331,15 +445,15 @@ class ArticleControllerTest {
     void getArticlesByAuthorEmail_Success() {
         // Arrange
         when(userRepository.findByEmail("john@example.com")).thenReturn(Optional.of(testUser));
-        when(articleRepository.findByAuthorId(1L)).thenReturn(List.of(testArticle));
+        when(articleRepository.findSummariesByAuthorId(1L)).thenReturn(List.of(summary(1L)));
 
         // Act
-        ResponseEntity<List<Article>> response = articleController.getArticlesByAuthorEmail("john@example.com");
+        ResponseEntity<List<ArticleSummary>> response = articleController.getArticlesByAuthorEmail("john@example.com");
 
         // Assert
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertEquals(1, response.getBody().size());
-        verify(articleRepository).findByAuthorId(1L);
+        verify(articleRepository).findSummariesByAuthorId(1L);
     }
 
     /**
@@ -358,4 +472,17 @@ class ArticleControllerTest {
         assertEquals("#FFFFFF", response.getBody().get("backgroundColor"));
         verify(newsletterRepository).findById(1L);
     }
-}
\ No newline at end of file
+
+    /**
+     * Builds an article summary with the given ID for the pagination tests.
+     *
+     * @param articleId The ID of the article.
+     * @return The article summary.
+     */
+    private ArticleSummary summary(Long articleId) {
+        ArticleSummary summary = new ArticleSummary();
+        summary.setArticleId(articleId);
+        summary.setTitle("Article " + articleId);
+        return summary;
+    }
+}
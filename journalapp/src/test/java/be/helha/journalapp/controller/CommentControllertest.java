@@ -1,12 +1,16 @@
 package be.helha.journalapp.controller;
 
+import be.helha.journalapp.dto.CommentView;
+import be.helha.journalapp.dto.CursorPage;
 import be.helha.journalapp.model.*;
 import be.helha.journalapp.repositories.*;
+import be.helha.journalapp.service.CommentService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.test.web.servlet.MockMvc;
@@ -32,16 +36,10 @@ class CommentControllerTest {
     private CommentRepository commentRepository;
 
     /**
-     * Mocked repository for users.
+     * Mocked service creating and deleting comments.
      */
     @Mock
-    private UserRepository userRepository;
-
-    /**
-     * Mocked repository for articles.
-     */
-    @Mock
-    private ArticleRepository articleRepository;
+    private CommentService commentService;
 
     /**
      * The CommentController instance to be tested.
@@ -106,9 +104,7 @@ class CommentControllerTest {
         commentData.put("user_id", 1L);
         commentData.put("article_id", 1L);
 
-        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
-        when(articleRepository.findById(1L)).thenReturn(Optional.of(testArticle));
-        when(commentRepository.save(any(Comment.class))).thenReturn(testComment);
+        when(commentService.addComment(1L, 1L, "Test Comment Content", "2024-01-01")).thenReturn(testComment);
 
         // Act
         ResponseEntity<Comment> response = commentController.addComment(commentData);
@@ -116,7 +112,7 @@ class CommentControllerTest {
         // Assert
         assertEquals(HttpStatus.CREATED, response.getStatusCode());
         assertNotNull(response.getBody());
-        verify(commentRepository).save(any(Comment.class));
+        verify(commentService).addComment(1L, 1L, "Test Comment Content", "2024-01-01");
     }
 
     /**
@@ -198,8 +194,7 @@ class CommentControllerTest {
     @Test
     void deleteComment_Success() {
         // Arrange
-        when(commentRepository.existsById(1L)).thenReturn(true);
-        doNothing().when(commentRepository).deleteById(1L);
+        when(commentService.deleteComment(1L)).thenReturn(true);
 
         // Act
         ResponseEntity<String> response = commentController.deleteComment(1L);
@@ -207,7 +202,7 @@ class CommentControllerTest {
         // Assert
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertEquals("Comment deleted successfully", response.getBody());
-        verify(commentRepository).deleteById(1L);
+        verify(commentService).deleteComment(1L);
     }
 
     /**
@@ -243,4 +238,29 @@ class CommentControllerTest {
         assertEquals(1, response.getBody().size());
         verify(commentRepository).findByArticleArticleId(1L);
     }
+
+    /**
+     * Tests that the comments of an article are served one page at a time, with the cursor of the next page.
+     */
+    @Test
+    void getCommentsPageByArticleId_ReturnsCursor() {
+        // Arrange
+        List<CommentView> rows = List.of(view(3L), view(5L), view(8L));
+        when(commentRepository.findViewsByArticleAfter(1L, 0L, PageRequest.of(0, 3))).thenReturn(rows);
+
+        // Act
+        ResponseEntity<CursorPage<CommentView>> response = commentController.getCommentsPageByArticleId(1L, null, 2);
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(2, response.getBody().getItems().size());
+        assertEquals(5L, response.getBody().getNext());
+        verify(commentRepository, never()).findByArticleArticleId(any());
+    }
+
+    private static CommentView view(Long commentId) {
+        CommentView view = new CommentView();
+        view.setCommentId(commentId);
+        return view;
+    }
 }
@@ -1,23 +1,39 @@
 package be.helha.journalapp.controller;
 
+import be.helha.journalapp.dto.ImageMetadata;
 import be.helha.journalapp.model.Article;
 import be.helha.journalapp.model.Image;
 import be.helha.journalapp.repositories.ArticleRepository;
 import be.helha.journalapp.repositories.ImageRepository;
+import be.helha.journalapp.service.ImageContentService;
+import be.helha.journalapp.service.ImageDerivativeService;
+import be.helha.journalapp.service.ImageDerivativeService.Derivative;
+import be.helha.journalapp.service.NewsletterIssueService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.authentication.TestingAuthenticationToken;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
 
 import java.util.*;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
@@ -42,6 +58,24 @@ class ImageControllerTest {
     @Mock
     private ArticleRepository articleRepository;
 
+    /**
+     * Mocked service streaming image data.
+     */
+    @Mock
+    private ImageContentService imageContentService;
+
+    /**
+     * Mocked service rendering resized images.
+     */
+    @Mock
+    private ImageDerivativeService imageDerivativeService;
+
+    /**
+     * Mocked service of the newsletter issues.
+     */
+    @Mock
+    private NewsletterIssueService newsletterIssueService;
+
     /**
      * The ImageController instance to be tested.
      */
@@ -85,6 +119,7 @@ class ImageControllerTest {
         testImage.setImageId(1L);
         testImage.setImagePath(testImageBytes);
         testImage.setArticle(testArticle);
+        when(imageContentService.hasContent(any())).thenReturn(true);
     }
 
 
@@ -106,6 +141,7 @@ class ImageControllerTest {
         // Assert
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertNotNull(response.getBody());
+        verify(imageContentService, times(1)).attachContent(any(Image.class), eq(testImageBytes));
         verify(imageRepository, times(1)).save(any(Image.class));
     }
 
@@ -200,15 +236,20 @@ class ImageControllerTest {
     @Test
     void getImageAsBase64_Success() {
         // Arrange
-        when(imageRepository.findById(1L)).thenReturn(Optional.of(testImage));
+        ImageMetadata metadata = testMetadata();
+        when(imageContentService.findMetadata(1L)).thenReturn(Optional.of(metadata));
+        doAnswer(invocation -> {
+            invocation.<OutputStream>getArgument(1).write(testImageBytes);
+            return null;
+        }).when(imageContentService).writeContent(eq(metadata), any());
 
         // Act
         ResponseEntity<String> response = imageController.getImageAsBase64(1L);
 
         // Assert
         assertEquals(HttpStatus.OK, response.getStatusCode());
-        assertNotNull(response.getBody());
-        verify(imageRepository, times(1)).findById(1L);
+        assertEquals(Base64.getEncoder().encodeToString(testImageBytes), response.getBody());
+        verify(imageContentService, times(1)).findMetadata(1L);
     }
 
     /**
@@ -217,17 +258,19 @@ class ImageControllerTest {
     @Test
     void getImagesByArticleId_Success() {
         // Arrange
-        List<Image> images = Arrays.asList(testImage);
-        when(imageRepository.findByArticleArticleId(1L)).thenReturn(images);
+        when(imageContentService.findMetadataByArticleId(1L)).thenReturn(List.of(testMetadata()));
 
         // Act
-        ResponseEntity<List<Map<String, Object>>> response = imageController.getImagesByArticleId(1L);
+        ResponseEntity<List<Map<String, Object>>> response = imageController.getImagesByArticleId(1L, null);
 
         // Assert
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertNotNull(response.getBody());
         assertEquals(1, response.getBody().size());
-        verify(imageRepository, times(1)).findByArticleArticleId(1L);
+        assertEquals("/images/1/raw?v=abc123", response.getBody().get(0).get("url"));
+        assertEquals("/images/1?w=320&v=abc123", response.getBody().get(0).get("thumbnailUrl"));
+        assertFalse(response.getBody().get(0).containsKey("imagePath"));
+        verify(imageContentService, times(1)).findMetadataByArticleId(1L);
     }
 
     /**
@@ -236,14 +279,192 @@ class ImageControllerTest {
     @Test
     void getImagesByArticleId_NotFound() {
         // Arrange
-        when(imageRepository.findByArticleArticleId(999L)).thenReturn(Collections.emptyList());
+        when(imageContentService.findMetadataByArticleId(999L)).thenReturn(Collections.emptyList());
+
+        // Act
+        ResponseEntity<List<Map<String, Object>>> response = imageController.getImagesByArticleId(999L, null);
+
+        // Assert
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+        verify(imageContentService, times(1)).findMetadataByArticleId(999L);
+    }
+
+    /**
+     * Tests that the raw image is streamed with its headers and cached indefinitely when requested with its version.
+     */
+    @Test
+    void getRawImage_StreamsContent() throws IOException {
+        // Arrange
+        ImageMetadata metadata = testMetadata();
+        when(imageContentService.findMetadata(1L)).thenReturn(Optional.of(metadata));
+        doAnswer(invocation -> {
+            invocation.<OutputStream>getArgument(1).write(testImageBytes);
+            return null;
+        }).when(imageContentService).writeContent(eq(metadata), any());
+
+        // Act
+        ResponseEntity<StreamingResponseBody> response = imageController.getRawImage(1L, "abc123", null, null);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getBody().writeTo(out);
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(MediaType.IMAGE_PNG, response.getHeaders().getContentType());
+        assertEquals(testImageBytes.length, response.getHeaders().getContentLength());
+        assertEquals("\"abc123\"", response.getHeaders().getETag());
+        assertTrue(response.getHeaders().getCacheControl().contains("immutable"));
+        assertArrayEquals(testImageBytes, out.toByteArray());
+    }
+
+    /**
+     * Tests that a matching entity tag answers 304 Not Modified without reading the image.
+     */
+    @Test
+    void getRawImage_NotModified() {
+        // Arrange
+        when(imageContentService.findMetadata(1L)).thenReturn(Optional.of(testMetadata()));
+
+        // Act
+        ResponseEntity<StreamingResponseBody> response = imageController.getRawImage(1L, null, "\"abc123\"", null);
+
+        // Assert
+        assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode());
+        assertEquals("no-cache", response.getHeaders().getFirst(HttpHeaders.CACHE_CONTROL));
+        verify(imageContentService, never()).writeContent(any(), any());
+    }
+
+    /**
+     * Tests that a resized image is streamed with its own entity tag.
+     */
+    @Test
+    void getResizedImage_StreamsDerivative() throws IOException {
+        // Arrange
+        Path file = Files.createTempFile("derivative", ".png");
+        Files.write(file, testImageBytes);
+        Derivative derivative = new Derivative(file, "image/png", 320, testImageBytes.length);
+        when(imageContentService.findMetadata(1L)).thenReturn(Optional.of(testMetadata()));
+        when(imageDerivativeService.getOrCreate("abc123", "image/png", 300))
+                .thenReturn(CompletableFuture.completedFuture(Optional.of(derivative)));
+
+        // Act
+        ResponseEntity<StreamingResponseBody> response = imageController.getResizedImage(1L, 300, "abc123", null, null);
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("\"abc123-w320\"", response.getHeaders().getETag());
+        assertEquals(testImageBytes.length, response.getHeaders().getContentLength());
+        assertTrue(response.getHeaders().getCacheControl().contains("immutable"));
+        Files.delete(file);
+    }
+
+    /**
+     * Tests that the original image is served when no derivative can be rendered.
+     */
+    @Test
+    void getResizedImage_FallsBackToOriginal() {
+        // Arrange
+        when(imageContentService.findMetadata(1L)).thenReturn(Optional.of(testMetadata()));
+        when(imageDerivativeService.getOrCreate("abc123", "image/png", 320))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("saturated")));
+
+        // Act
+        ResponseEntity<StreamingResponseBody> response = imageController.getResizedImage(1L, 320, null, null, null);
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("\"abc123\"", response.getHeaders().getETag());
+    }
+
+    /**
+     * Tests that the request does not wait for a derivative being rendered, and serves the original image
+     * without immutable caching meanwhile.
+     */
+    @Test
+    void getResizedImage_RenderPending_ServesOriginal() {
+        // Arrange
+        when(imageContentService.findMetadata(1L)).thenReturn(Optional.of(testMetadata()));
+        when(imageDerivativeService.getOrCreate("abc123", "image/png", 320)).thenReturn(new CompletableFuture<>());
+
+        // Act
+        ResponseEntity<StreamingResponseBody> response = imageController.getResizedImage(1L, 320, "abc123", null, null);
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("\"abc123\"", response.getHeaders().getETag());
+        assertEquals("no-cache", response.getHeaders().getFirst(HttpHeaders.CACHE_CONTROL));
+    }
+
+    /**
+     * Tests that an image whose data cannot be read answers 503 Service Unavailable instead of a truncated image.
+     */
+    @Test
+    void getRawImage_ContentMissing() {
+        // Arrange
+        ImageMetadata metadata = testMetadata();
+        when(imageContentService.findMetadata(1L)).thenReturn(Optional.of(metadata));
+        when(imageContentService.hasContent(metadata)).thenReturn(false);
 
         // Act
-        ResponseEntity<List<Map<String, Object>>> response = imageController.getImagesByArticleId(999L);
+        ResponseEntity<StreamingResponseBody> response = imageController.getRawImage(1L, "abc123", null, null);
+
+        // Assert
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, response.getStatusCode());
+        assertNull(response.getBody());
+        verify(imageContentService, never()).writeContent(any(), any());
+    }
+
+    /**
+     * Tests that the image of a draft article is hidden from anonymous visitors.
+     */
+    @Test
+    void getRawImage_DraftArticle_Anonymous() {
+        // Arrange
+        ImageMetadata metadata = testMetadata();
+        metadata.setPublished(false);
+        when(imageContentService.findMetadata(1L)).thenReturn(Optional.of(metadata));
+
+        // Act
+        ResponseEntity<StreamingResponseBody> response = imageController.getRawImage(1L, "abc123", null, null);
+
+        // Assert
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+        verify(imageContentService, never()).writeContent(any(), any());
+    }
+
+    /**
+     * Tests that the image of a draft article is served to authenticated users, but not to shared caches.
+     */
+    @Test
+    void getRawImage_DraftArticle_Authenticated() {
+        // Arrange
+        ImageMetadata metadata = testMetadata();
+        metadata.setPublished(false);
+        when(imageContentService.findMetadata(1L)).thenReturn(Optional.of(metadata));
+
+        // Act
+        ResponseEntity<StreamingResponseBody> response = imageController.getRawImage(1L, "abc123", null,
+                new TestingAuthenticationToken("journalist", null, "ROLE_JOURNALIST"));
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        String cacheControl = response.getHeaders().getCacheControl();
+        assertTrue(cacheControl.contains("private"));
+        assertFalse(cacheControl.contains("public"));
+    }
+
+    /**
+     * Tests the scenario where the raw image does not exist.
+     */
+    @Test
+    void getRawImage_NotFound() {
+        // Arrange
+        when(imageContentService.findMetadata(999L)).thenReturn(Optional.empty());
+
+        // Act
+        ResponseEntity<StreamingResponseBody> response = imageController.getRawImage(999L, null, null, null);
 
         // Assert
         assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
-        verify(imageRepository, times(1)).findByArticleArticleId(999L);
     }
 
     /**
@@ -286,4 +507,13 @@ class ImageControllerTest {
         verify(articleRepository, times(1)).findById(999L);
         verify(articleRepository, never()).save(any(Article.class));
     }
-}
\ No newline at end of file
+
+    /**
+     * Builds the metadata of the test image.
+     *
+     * @return The metadata of the test image.
+     */
+    private ImageMetadata testMetadata() {
+        return new ImageMetadata(1L, 1L, "image/png", (long) testImageBytes.length, "abc123", true);
+    }
+}
@@ -6,6 +6,7 @@ import be.helha.journalapp.model.User;
 import be.helha.journalapp.repositories.ArticleRepository;
 import be.helha.journalapp.repositories.NewsletterRepository;
 import be.helha.journalapp.repositories.UserRepository;
+import be.helha.journalapp.service.NewsletterIssueService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
@@ -45,6 +46,12 @@ class NewsletterControllerTest {
     @Mock
     private ArticleRepository articleRepository;
 
+    /**
+     * Mocked service of the newsletter issues.
+     */
+    @Mock
+    private NewsletterIssueService newsletterIssueService;
+
     /**
      * The NewsletterController instance to be tested.
      */
@@ -293,7 +300,6 @@ class NewsletterControllerTest {
 
         when(newsletterRepository.findById(1L)).thenReturn(Optional.of(testNewsletter));
         when(newsletterRepository.save(any(Newsletter.class))).thenReturn(updatedNewsletter);
-        when(articleRepository.findByNewsletterNewsletterId(1L)).thenReturn(new ArrayList<>());
 
         // Act
         ResponseEntity<?> response = newsletterController.updateNewsletter(1L, updatedNewsletter);
@@ -304,6 +310,7 @@ class NewsletterControllerTest {
         assertNotNull(savedNewsletter);
         assertEquals("Tech Monthly", savedNewsletter.getTitle());
         verify(newsletterRepository).save(any(Newsletter.class));
+        verify(articleRepository).updateBackgroundColorByNewsletterId(1L, "#111111");
     }
 
     /**
@@ -4,8 +4,11 @@ import be.helha.journalapp.model.Role;
 import be.helha.journalapp.model.User;
 import be.helha.journalapp.repositories.RoleRepository;
 import be.helha.journalapp.repositories.UserRepository;
+import be.helha.journalapp.security.CurrentUserResolver;
+import be.helha.journalapp.security.UserPrincipalCache;
 import be.helha.journalapp.service.EmailService;
 import be.helha.journalapp.service.KeycloakAdminService;
+import be.helha.journalapp.service.NewsletterIssueService;
 import be.helha.journalapp.service.RoleSynchronizationService;
 import be.helha.journalapp.service.UserService;
 import jakarta.mail.MessagingException;
@@ -61,6 +64,12 @@ class UserControllerTest {
     private KeycloakAdminService keycloakAdminService;
     @Mock
     private RoleSynchronizationService roleSynchronizationService;
+    @Mock
+    private CurrentUserResolver currentUserResolver;
+    @Mock
+    private UserPrincipalCache userPrincipalCache;
+    @Mock
+    private NewsletterIssueService newsletterIssueService;
     /**
      * Objet de test pour User.
      */
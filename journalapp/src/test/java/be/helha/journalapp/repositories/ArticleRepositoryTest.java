@@ -0,0 +1,191 @@
+package be.helha.journalapp.repositories;
+
+import be.helha.journalapp.dto.ArticleLabel;
+import be.helha.journalapp.dto.ArticleSummary;
+import be.helha.journalapp.model.Article;
+import be.helha.journalapp.model.Newsletter;
+import be.helha.journalapp.model.Role;
+import be.helha.journalapp.model.User;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * This class contains repository tests for the {@link ArticleRepository} summary queries.
+ * They run against an embedded H2 database and count the SQL statements issued through Hibernate statistics,
+ * to make sure that listing articles does not fan out to the eager author/newsletter relations.
+ */
+@DataJpaTest
+@TestPropertySource(properties = {
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+class ArticleRepositoryTest {
+
+    @Autowired
+    private ArticleRepository articleRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    /**
+     * Tests that every summary listing costs a single statement, whether it returns 3 or 30 articles.
+     */
+    @Test
+    void summaryListings_UseOneStatementRegardlessOfSize() {
+        for (int count : new int[]{3, 30}) {
+            // Arrange
+            User editor = persistArticles(count);
+
+            // Act & Assert
+            assertEquals(1, statementsFor(() -> articleRepository.findAllSummaries()));
+            assertEquals(1, statementsFor(() -> articleRepository.findSummariesByValid(true)));
+            assertEquals(1, statementsFor(() -> articleRepository.findSummariesByEditorId(editor.getUserId())));
+            assertEquals(1, statementsFor(() -> articleRepository.findSummariesBefore(
+                    Long.MAX_VALUE, PageRequest.of(0, count + 1))));
+        }
+    }
+
+    /**
+     * Tests that the summaries carry the author name and the newsletter title and color.
+     */
+    @Test
+    void findAllSummaries_FlattensAuthorAndNewsletter() {
+        // Arrange
+        persistArticles(1);
+
+        // Act
+        List<ArticleSummary> summaries = articleRepository.findAllSummaries();
+
+        // Assert
+        assertEquals(1, summaries.size());
+        ArticleSummary summary = summaries.get(0);
+        assertEquals("First0 Last0", summary.getAuthorName());
+        assertEquals("Newsletter 0", summary.getNewsletterTitle());
+        assertEquals("#000000", summary.getNewsletterBackgroundColor());
+        assertNotNull(summary.getNewsletterId());
+        assertNotNull(summary.getAuthorId());
+    }
+
+    /**
+     * Tests that the labels of several articles are read by one statement and skip unknown IDs.
+     */
+    @Test
+    void findLabelsByIds_ReadsNewsletterTitleAndAuthorName() {
+        // Arrange
+        persistArticles(3);
+        List<Long> ids = new ArrayList<>(articleRepository.findAllSummaries().stream()
+                .map(ArticleSummary::getArticleId).toList());
+        ids.add(-1L);
+
+        // Act
+        List<ArticleLabel> labels = articleRepository.findLabelsByIds(ids);
+
+        // Assert
+        assertEquals(3, labels.size());
+        ArticleLabel label = labels.stream()
+                .filter(l -> l.getArticleId().equals(ids.get(0))).findFirst().orElseThrow();
+        assertTrue(label.getNewsletterTitle().startsWith("Newsletter "));
+        assertTrue(label.getAuthorName().startsWith("First"));
+        assertEquals(1, statementsFor(() -> articleRepository.findLabelsByIds(ids)));
+    }
+
+    /**
+     * Tests that the background color of a newsletter reaches its articles only, in one statement,
+     * and that articles already having it are not rewritten.
+     */
+    @Test
+    void updateBackgroundColorByNewsletterId_UpdatesOnlyThatNewsletter() {
+        // Arrange
+        persistArticles(2);
+        List<ArticleSummary> summaries = articleRepository.findAllSummaries();
+        Long newsletterId = summaries.get(0).getNewsletterId();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        // Act
+        int updated = articleRepository.updateBackgroundColorByNewsletterId(newsletterId, "#123456");
+        int updatedAgain = articleRepository.updateBackgroundColorByNewsletterId(newsletterId, "#123456");
+
+        // Assert
+        assertEquals(1, updated);
+        assertEquals(0, updatedAgain);
+        assertEquals(2, statistics.getPrepareStatementCount());
+        entityManager.clear();
+        assertEquals("#123456", articleRepository.findById(summaries.get(0).getArticleId()).orElseThrow().getBackgroundColor());
+        assertNull(articleRepository.findById(summaries.get(1).getArticleId()).orElseThrow().getBackgroundColor());
+    }
+
+    /**
+     * Persists articles that each have their own author and newsletter, so that loading the entities
+     * would need extra selects for every row.
+     *
+     * @param count The number of articles to create.
+     * @return The editor who created all the newsletters.
+     */
+    private User persistArticles(int count) {
+        Role role = new Role("JOURNALIST", null);
+        entityManager.persist(role);
+        User editor = persistUser(role, "Editor", "Editor");
+
+        for (int i = 0; i < count; i++) {
+            User author = persistUser(role, "First" + i, "Last" + i);
+
+            Newsletter newsletter = new Newsletter();
+            newsletter.setTitle("Newsletter " + i);
+            newsletter.setBackgroundColor("#000000");
+            newsletter.setCreator(editor);
+            newsletter.setJournalists(List.of(author));
+            entityManager.persist(newsletter);
+
+            Article article = new Article();
+            article.setTitle("Article " + i);
+            article.setContent("Content " + i);
+            article.setValid(true);
+            article.setAuthor(author);
+            article.setNewsletter(newsletter);
+            entityManager.persist(article);
+        }
+        entityManager.flush();
+        entityManager.clear();
+        return editor;
+    }
+
+    private User persistUser(Role role, String firstName, String lastName) {
+        User user = new User();
+        user.setFirstName(firstName);
+        user.setLastName(lastName);
+        user.setRole(role);
+        entityManager.persist(user);
+        return user;
+    }
+
+    /**
+     * Runs a query on an empty persistence context and counts the JDBC statements it prepared.
+     *
+     * @param query The query to run.
+     * @return The number of prepared statements.
+     */
+    private long statementsFor(Supplier<List<?>> query) {
+        entityManager.clear();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        assertFalse(query.get().isEmpty());
+        return statistics.getPrepareStatementCount();
+    }
+}
@@ -0,0 +1,139 @@
+package be.helha.journalapp.repositories;
+
+import be.helha.journalapp.dto.CommentView;
+import be.helha.journalapp.model.Article;
+import be.helha.journalapp.model.Comment;
+import be.helha.journalapp.model.Role;
+import be.helha.journalapp.model.User;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * This class contains repository tests for the {@link CommentRepository} keyword search.
+ * They run against an embedded H2 database, which supports the same ILIKE syntax as PostgreSQL.
+ */
+@DataJpaTest
+@TestPropertySource(properties = "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect")
+class CommentRepositoryTest {
+
+    @Autowired
+    private CommentRepository commentRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private User alice;
+    private User bob;
+    private Article first;
+    private Article second;
+
+    @BeforeEach
+    void setUp() {
+        Role role = new Role("READER", null);
+        entityManager.persist(role);
+        alice = persistUser(role, "Alice", "Martin");
+        bob = persistUser(role, "Bob", "Dupont");
+        first = persistArticle(alice, "First");
+        second = persistArticle(alice, "Second");
+    }
+
+    /**
+     * Tests that the search ignores case, returns the newest comments first and flattens the article and author.
+     */
+    @Test
+    void searchViewsBefore_MatchesIgnoringCaseNewestFirst() {
+        // Arrange
+        Comment older = persistComment(alice, first, "Quel SPAM incroyable");
+        Comment newer = persistComment(bob, second, "encore du spam");
+        persistComment(bob, first, "Très bon article");
+
+        // Act
+        List<CommentView> views = commentRepository.searchViewsBefore("%spam%", null, null, Long.MAX_VALUE,
+                PageRequest.of(0, 10));
+
+        // Assert
+        assertEquals(List.of(newer.getCommentId(), older.getCommentId()),
+                views.stream().map(CommentView::getCommentId).toList());
+        assertEquals("Bob Dupont", views.get(0).getAuthorName());
+        assertEquals("Second", views.get(0).getArticleTitle());
+        assertEquals(second.getArticleId(), views.get(0).getArticleId());
+    }
+
+    /**
+     * Tests that the article and author filters restrict the results, and that the cursor pages through them.
+     */
+    @Test
+    void searchViewsBefore_FiltersByArticleAndAuthorAndPages() {
+        // Arrange
+        Comment aliceFirst = persistComment(alice, first, "spam 1");
+        Comment bobFirst = persistComment(bob, first, "spam 2");
+        persistComment(bob, second, "spam 3");
+
+        // Act
+        List<CommentView> byArticle = commentRepository.searchViewsBefore("%spam%", first.getArticleId(), null,
+                Long.MAX_VALUE, PageRequest.of(0, 10));
+        List<CommentView> byBoth = commentRepository.searchViewsBefore("%spam%", first.getArticleId(),
+                bob.getUserId(), Long.MAX_VALUE, PageRequest.of(0, 10));
+        List<CommentView> nextPage = commentRepository.searchViewsBefore("%spam%", first.getArticleId(), null,
+                bobFirst.getCommentId(), PageRequest.of(0, 10));
+
+        // Assert
+        assertEquals(List.of(bobFirst.getCommentId(), aliceFirst.getCommentId()),
+                byArticle.stream().map(CommentView::getCommentId).toList());
+        assertEquals(List.of(bobFirst.getCommentId()), byBoth.stream().map(CommentView::getCommentId).toList());
+        assertEquals(List.of(aliceFirst.getCommentId()), nextPage.stream().map(CommentView::getCommentId).toList());
+    }
+
+    /**
+     * Tests that the wildcards typed by a moderator are matched literally once escaped.
+     */
+    @Test
+    void searchViewsBefore_EscapedWildcardsMatchLiterally() {
+        // Arrange
+        Comment percent = persistComment(alice, first, "100% faux");
+        persistComment(alice, first, "1000 faux");
+
+        // Act
+        List<CommentView> views = commentRepository.searchViewsBefore("%100\\%%", null, null, Long.MAX_VALUE,
+                PageRequest.of(0, 10));
+
+        // Assert
+        assertEquals(List.of(percent.getCommentId()), views.stream().map(CommentView::getCommentId).toList());
+    }
+
+    private User persistUser(Role role, String firstName, String lastName) {
+        User user = new User();
+        user.setFirstName(firstName);
+        user.setLastName(lastName);
+        user.setRole(role);
+        entityManager.persist(user);
+        return user;
+    }
+
+    private Article persistArticle(User author, String title) {
+        Article article = new Article();
+        article.setTitle(title);
+        article.setAuthor(author);
+        entityManager.persist(article);
+        return article;
+    }
+
+    private Comment persistComment(User user, Article article, String content) {
+        Comment comment = new Comment();
+        comment.setUser(user);
+        comment.setArticle(article);
+        comment.setContent(content);
+        entityManager.persist(comment);
+        entityManager.flush();
+        return comment;
+    }
+}
@@ -0,0 +1,116 @@
+package be.helha.journalapp.repositories;
+
+import be.helha.journalapp.config.JdbcBatchingConfig;
+import be.helha.journalapp.model.Article;
+import be.helha.journalapp.model.Comment;
+import be.helha.journalapp.model.Role;
+import be.helha.journalapp.model.User;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Benchmark of entity inserts with the IDs drawn from pooled sequences and JDBC batching ({@link JdbcBatchingConfig}),
+ * against one statement per row as the former identity columns required.
+ * <p>
+ * It only runs when the {@code JOURNALAPP_BENCHMARK} environment variable is {@code true}
+ * ({@code JOURNALAPP_BENCHMARK=true gradle test --tests '*IdGenerationBenchmarkTest'}) and prints its results.
+ * The embedded H2 database has no network round trip, so against PostgreSQL the gap is wider still.
+ */
+@DataJpaTest
+@EnabledIfEnvironmentVariable(named = "JOURNALAPP_BENCHMARK", matches = "true")
+@Import(JdbcBatchingConfig.class)
+@TestPropertySource(properties = {
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+class IdGenerationBenchmarkTest {
+
+    private static final int ROWS = 100_000;
+    private static final int FLUSH_EVERY = 1_000;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    /**
+     * Inserts {@value #ROWS} comments one statement per row, then {@value #ROWS} comments in JDBC batches.
+     */
+    @Test
+    void insertThroughput() {
+        // Arrange
+        Role role = new Role("READER", null);
+        entityManager.persist(role);
+        User user = new User();
+        user.setRole(role);
+        entityManager.persist(user);
+        Article article = new Article();
+        article.setTitle("Article");
+        article.setAuthor(user);
+        entityManager.persist(article);
+        entityManager.flush();
+        entityManager.clear();
+        Session session = entityManager.unwrap(Session.class);
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        // Act
+        session.setJdbcBatchSize(1);
+        statistics.clear();
+        long rowByRowTime = insertComments(user.getUserId(), article.getArticleId());
+        long rowByRowStatements = statistics.getPrepareStatementCount();
+
+        session.setJdbcBatchSize(null);
+        statistics.clear();
+        long batchedTime = insertComments(user.getUserId(), article.getArticleId());
+        long batchedStatements = statistics.getPrepareStatementCount();
+
+        // Assert
+        System.out.printf("%,d inserts: one per row %,.0f rows/s in %,d statements; "
+                        + "batches of %d %,.0f rows/s in %,d statements%n",
+                ROWS, ROWS * 1e9 / rowByRowTime, rowByRowStatements,
+                sessionBatchSize(), ROWS * 1e9 / batchedTime, batchedStatements);
+        assertEquals(ROWS, statistics.getEntityInsertCount());
+        assertTrue(batchedStatements * 10 < rowByRowStatements);
+    }
+
+    private long insertComments(Long userId, Long articleId) {
+        User user = entityManager.getReference(User.class, userId);
+        Article article = entityManager.getReference(Article.class, articleId);
+        long start = System.nanoTime();
+        for (int i = 0; i < ROWS; i++) {
+            Comment comment = new Comment();
+            comment.setContent("Comment " + i);
+            comment.setCreatedAt(LocalDateTime.now());
+            comment.setUser(user);
+            comment.setArticle(article);
+            entityManager.persist(comment);
+            if ((i + 1) % FLUSH_EVERY == 0) {
+                entityManager.flush();
+                entityManager.clear();
+                user = entityManager.getReference(User.class, userId);
+                article = entityManager.getReference(Article.class, articleId);
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+        return System.nanoTime() - start;
+    }
+
+    private int sessionBatchSize() {
+        return entityManagerFactory.unwrap(SessionFactory.class).getSessionFactoryOptions().getJdbcBatchSize();
+    }
+}
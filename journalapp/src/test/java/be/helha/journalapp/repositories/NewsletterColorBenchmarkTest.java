@@ -0,0 +1,116 @@
+package be.helha.journalapp.repositories;
+
+import be.helha.journalapp.model.Article;
+import be.helha.journalapp.model.Newsletter;
+import be.helha.journalapp.model.Role;
+import be.helha.journalapp.model.User;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.List;
+import java.util.function.LongSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Benchmark of {@link ArticleRepository#updateBackgroundColorByNewsletterId} against the former propagation of a
+ * newsletter color, which loaded every article of the newsletter, changed it and saved it.
+ * <p>
+ * It only runs when the {@code JOURNALAPP_BENCHMARK} environment variable is {@code true}
+ * ({@code JOURNALAPP_BENCHMARK=true gradle test --tests '*NewsletterColorBenchmarkTest'}) and prints its results.
+ */
+@DataJpaTest
+@EnabledIfEnvironmentVariable(named = "JOURNALAPP_BENCHMARK", matches = "true")
+@TestPropertySource(properties = {
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+class NewsletterColorBenchmarkTest {
+
+    private static final int ARTICLES = 10_000;
+
+    @Autowired
+    private ArticleRepository articleRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    /**
+     * Compares both ways of changing the color of a newsletter holding {@value #ARTICLES} articles.
+     */
+    @Test
+    void colorChangeOfLargeNewsletter() {
+        // Arrange
+        Long newsletterId = persistNewsletter();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        // Act
+        statistics.clear();
+        long legacyTime = time(() -> {
+            List<Article> articles = articleRepository.findByNewsletterNewsletterId(newsletterId);
+            for (Article article : articles) {
+                article.setBackgroundColor("#111111");
+            }
+            articleRepository.saveAll(articles);
+            entityManager.flush();
+            return articles.size();
+        });
+        long legacyStatements = statistics.getPrepareStatementCount();
+        entityManager.clear();
+
+        statistics.clear();
+        long setBasedTime = time(() -> articleRepository.updateBackgroundColorByNewsletterId(newsletterId, "#222222"));
+        long setBasedStatements = statistics.getPrepareStatementCount();
+
+        // Assert
+        System.out.printf("color change, %,d articles: entities %,d µs in %,d statements; "
+                        + "set-based update %,d µs in %,d statement(s)%n",
+                ARTICLES, legacyTime / 1_000, legacyStatements, setBasedTime / 1_000, setBasedStatements);
+        assertEquals(1, setBasedStatements);
+    }
+
+    /**
+     * Persists a newsletter and its articles, all written by the same author.
+     *
+     * @return The ID of the newsletter.
+     */
+    private Long persistNewsletter() {
+        Role role = new Role("JOURNALIST", null);
+        entityManager.persist(role);
+        User author = new User();
+        author.setRole(role);
+        entityManager.persist(author);
+        Newsletter newsletter = new Newsletter();
+        newsletter.setTitle("Newsletter");
+        newsletter.setBackgroundColor("#000000");
+        newsletter.setCreator(author);
+        entityManager.persist(newsletter);
+        for (int i = 0; i < ARTICLES; i++) {
+            Article article = new Article();
+            article.setTitle("Article " + i);
+            article.setBackgroundColor("#000000");
+            article.setAuthor(author);
+            article.setNewsletter(newsletter);
+            entityManager.persist(article);
+        }
+        entityManager.flush();
+        entityManager.clear();
+        return newsletter.getNewsletterId();
+    }
+
+    private static long time(LongSupplier task) {
+        long start = System.nanoTime();
+        assertTrue(task.getAsLong() >= 0);
+        return System.nanoTime() - start;
+    }
+}
@@ -0,0 +1,115 @@
+package be.helha.journalapp.repositories;
+
+import be.helha.journalapp.dto.ArticleSummary;
+import be.helha.journalapp.model.Article;
+import be.helha.journalapp.model.Newsletter;
+import be.helha.journalapp.model.Role;
+import be.helha.journalapp.model.User;
+import be.helha.journalapp.model.UserArticleRead;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * This class contains repository tests for the {@link UserArticleReadRepository} queries.
+ * They run against an embedded H2 database and count the SQL statements issued through Hibernate statistics.
+ */
+@DataJpaTest
+@TestPropertySource(properties = {
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+class UserArticleReadRepositoryTest {
+
+    @Autowired
+    private UserArticleReadRepository userArticleReadRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    /**
+     * Tests that the read articles are listed most recently read first, page by page, with one statement per page,
+     * and that unread entries and the entries of other users are left out.
+     */
+    @Test
+    void findReadSummariesByUserId_SortsByReadTimeInOneStatement() {
+        // Arrange
+        Role role = new Role("READER", null);
+        entityManager.persist(role);
+        User reader = persistUser(role, "Reader");
+        User other = persistUser(role, "Other");
+        LocalDateTime now = LocalDateTime.now();
+        Article readFirst = persistRead(reader, "Read first", true, now.minusHours(2));
+        Article readLast = persistRead(reader, "Read last", true, now);
+        Article readBeforeTracking = persistRead(reader, "Read before tracking", true, null);
+        persistRead(reader, "Unread", false, null);
+        persistRead(other, "Read by other", true, now.plusHours(1));
+        entityManager.flush();
+        entityManager.clear();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        // Act
+        List<ArticleSummary> firstPage = userArticleReadRepository.findReadSummariesByUserId(
+                reader.getUserId(), PageRequest.of(0, 2));
+        List<ArticleSummary> secondPage = userArticleReadRepository.findReadSummariesByUserId(
+                reader.getUserId(), PageRequest.of(1, 2));
+
+        // Assert
+        assertEquals(2, statistics.getPrepareStatementCount());
+        assertEquals(List.of(readLast.getArticleId(), readFirst.getArticleId()),
+                firstPage.stream().map(ArticleSummary::getArticleId).toList());
+        assertEquals(List.of(readBeforeTracking.getArticleId()),
+                secondPage.stream().map(ArticleSummary::getArticleId).toList());
+        assertEquals("Newsletter Read last", firstPage.get(0).getNewsletterTitle());
+        assertEquals("Reader Reader", firstPage.get(0).getAuthorName());
+    }
+
+    private User persistUser(Role role, String name) {
+        User user = new User();
+        user.setFirstName(name);
+        user.setLastName(name);
+        user.setRole(role);
+        entityManager.persist(user);
+        return user;
+    }
+
+    /**
+     * Persists an article written by the reader, in its own newsletter, and the read entry of the reader.
+     */
+    private Article persistRead(User reader, String title, boolean read, LocalDateTime readAt) {
+        Newsletter newsletter = new Newsletter();
+        newsletter.setTitle("Newsletter " + title);
+        newsletter.setCreator(reader);
+        entityManager.persist(newsletter);
+
+        Article article = new Article();
+        article.setTitle(title);
+        article.setValid(true);
+        article.setAuthor(reader);
+        article.setNewsletter(newsletter);
+        entityManager.persist(article);
+
+        UserArticleRead entry = new UserArticleRead();
+        entry.setUser(reader);
+        entry.setArticle(article);
+        entry.setRead(read);
+        entry.setReadAt(readAt);
+        entityManager.persist(entry);
+        return article;
+    }
+}
@@ -0,0 +1,132 @@
+package be.helha.journalapp.security;
+
+import be.helha.journalapp.dto.UserPrincipal;
+import be.helha.journalapp.repositories.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * This class contains unit tests for the {@link CurrentUserResolver} and the {@link UserPrincipalCache}.
+ * The repository is mocked, so the tests count the database lookups that reach it.
+ */
+class CurrentUserResolverTest {
+
+    private static final UserPrincipal JOHN = new UserPrincipal(1L, "john-keycloak-id", "READER");
+
+    private UserRepository userRepository;
+    private SimpleMeterRegistry meterRegistry;
+    private UserPrincipalCache userPrincipalCache;
+    private CurrentUserResolver currentUserResolver;
+
+    /**
+     * Creates the cache and the resolver before each test.
+     */
+    @BeforeEach
+    void setUp() {
+        userRepository = mock(UserRepository.class);
+        meterRegistry = new SimpleMeterRegistry();
+        userPrincipalCache = new UserPrincipalCache(userRepository, meterRegistry, 100, Duration.ofMinutes(5));
+        currentUserResolver = new CurrentUserResolver(userPrincipalCache);
+    }
+
+    /**
+     * Removes the request bound by a test.
+     */
+    @AfterEach
+    void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    /**
+     * Tests that a user is loaded from the database once, then served from the cache, and that the hits and
+     * misses are published as metrics.
+     */
+    @Test
+    void resolve_LoadsUserOnceAndRecordsMetrics() {
+        // Arrange
+        when(userRepository.findPrincipalByKeycloakId("john-keycloak-id")).thenReturn(Optional.of(JOHN));
+
+        // Act
+        Optional<UserPrincipal> first = currentUserResolver.resolve("john-keycloak-id");
+        Optional<UserPrincipal> second = currentUserResolver.resolve("john-keycloak-id");
+
+        // Assert
+        assertEquals(Optional.of(JOHN), first);
+        assertEquals(Optional.of(JOHN), second);
+        verify(userRepository, times(1)).findPrincipalByKeycloakId("john-keycloak-id");
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", "userPrincipals").tag("result", "hit")
+                .functionCounter().count());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", "userPrincipals").tag("result", "miss")
+                .functionCounter().count());
+    }
+
+    /**
+     * Tests that an unknown user is not cached, so it is found as soon as it has been created.
+     */
+    @Test
+    void resolve_DoesNotCacheUnknownUser() {
+        // Arrange
+        when(userRepository.findPrincipalByKeycloakId("john-keycloak-id"))
+                .thenReturn(Optional.empty())
+                .thenReturn(Optional.of(JOHN));
+
+        // Act
+        Optional<UserPrincipal> beforeCreation = currentUserResolver.resolve("john-keycloak-id");
+        Optional<UserPrincipal> afterCreation = currentUserResolver.resolve("john-keycloak-id");
+
+        // Assert
+        assertTrue(beforeCreation.isEmpty());
+        assertEquals(Optional.of(JOHN), afterCreation);
+    }
+
+    /**
+     * Tests that an invalidated user is loaded again, so a role change is seen by the next request.
+     */
+    @Test
+    void invalidate_ReloadsUser() {
+        // Arrange
+        UserPrincipal editor = new UserPrincipal(1L, "john-keycloak-id", "EDITOR");
+        when(userRepository.findPrincipalByKeycloakId("john-keycloak-id"))
+                .thenReturn(Optional.of(JOHN))
+                .thenReturn(Optional.of(editor));
+        currentUserResolver.resolve("john-keycloak-id");
+
+        // Act
+        userPrincipalCache.invalidate("john-keycloak-id");
+        Optional<UserPrincipal> resolved = currentUserResolver.resolve("john-keycloak-id");
+
+        // Assert
+        assertEquals("EDITOR", resolved.orElseThrow().getRoleName());
+        verify(userRepository, times(2)).findPrincipalByKeycloakId("john-keycloak-id");
+    }
+
+    /**
+     * Tests that a user is resolved at most once per request, even after it has been evicted from the cache.
+     */
+    @Test
+    void resolve_ReusesUserWithinRequest() {
+        // Arrange
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+        when(userRepository.findPrincipalByKeycloakId("john-keycloak-id")).thenReturn(Optional.of(JOHN));
+        currentUserResolver.resolve("john-keycloak-id");
+        userPrincipalCache.invalidate("john-keycloak-id");
+
+        // Act
+        Optional<UserPrincipal> resolved = currentUserResolver.resolve("john-keycloak-id");
+
+        // Assert
+        assertEquals(Optional.of(JOHN), resolved);
+        verify(userRepository, times(1)).findPrincipalByKeycloakId("john-keycloak-id");
+    }
+}
@@ -0,0 +1,186 @@
+package be.helha.journalapp.service;
+
+import be.helha.journalapp.config.ClusterLock;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.health.Status;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * This class contains unit tests for the {@link ApplicationBootstrap}.
+ * The cluster lock is a Mockito stub, which runs the task as if this node held the lock.
+ */
+class ApplicationBootstrapTest {
+
+    private ClusterLock clusterLock;
+    private ApplicationBootstrap applicationBootstrap;
+
+    @BeforeEach
+    void setUp() {
+        clusterLock = mock(ClusterLock.class);
+        when(clusterLock.runIfLeader(eq(ApplicationBootstrap.ROLES_LOCK), any())).thenAnswer(invocation -> {
+            invocation.<Runnable>getArgument(1).run();
+            return true;
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (applicationBootstrap != null) {
+            applicationBootstrap.shutdown();
+        }
+    }
+
+    /**
+     * Tests that the application reports OUT_OF_SERVICE until the initialisation has run.
+     */
+    @Test
+    void health_BeforeInitialisation_IsOutOfService() {
+        // Arrange
+        applicationBootstrap = bootstrap(List.of(), 1);
+
+        // Act & Assert
+        assertEquals(Status.OUT_OF_SERVICE, applicationBootstrap.health().getStatus());
+    }
+
+    /**
+     * Tests that a failing step is retried, and the application becomes ready once it succeeds.
+     */
+    @Test
+    void run_RetriesFailingStep() throws InterruptedException {
+        // Arrange
+        AtomicInteger attempts = new AtomicInteger();
+        ApplicationBootstrap.Step flaky = new ApplicationBootstrap.Step("flaky", true, () -> {
+            if (attempts.incrementAndGet() < 3) {
+                throw new IllegalStateException("Keycloak indisponible");
+            }
+        });
+        applicationBootstrap = bootstrap(List.of(flaky), 3);
+
+        // Act
+        ApplicationBootstrap.State state = applicationBootstrap.run();
+
+        // Assert
+        assertEquals(ApplicationBootstrap.State.READY, state);
+        assertEquals(3, attempts.get());
+        assertEquals(Status.UP, applicationBootstrap.health().getStatus());
+    }
+
+    /**
+     * Tests that a required step that keeps timing out leaves the application DOWN,
+     * and the following steps are not run.
+     */
+    @Test
+    void run_RequiredStepTimesOut_Fails() throws InterruptedException {
+        // Arrange
+        ApplicationBootstrap.Step hanging = new ApplicationBootstrap.Step("hanging", true, () -> {
+            try {
+                Thread.sleep(10_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        AtomicInteger next = new AtomicInteger();
+        ApplicationBootstrap.Step following = new ApplicationBootstrap.Step("following", true, next::incrementAndGet);
+        applicationBootstrap = bootstrap(List.of(hanging, following), 2);
+
+        // Act
+        ApplicationBootstrap.State state = applicationBootstrap.run();
+
+        // Assert
+        assertEquals(ApplicationBootstrap.State.FAILED, state);
+        assertEquals(Status.DOWN, applicationBootstrap.health().getStatus());
+        assertEquals(0, next.get());
+    }
+
+    /**
+     * Tests that an optional step that fails does not prevent the application from becoming ready.
+     */
+    @Test
+    void run_OptionalStepFails_IsReady() throws InterruptedException {
+        // Arrange
+        ApplicationBootstrap.Step optional = new ApplicationBootstrap.Step("optional", false, () -> {
+            throw new IllegalStateException("Keycloak indisponible");
+        });
+        AtomicInteger next = new AtomicInteger();
+        ApplicationBootstrap.Step following = new ApplicationBootstrap.Step("following", true, next::incrementAndGet);
+        applicationBootstrap = bootstrap(List.of(optional, following), 2);
+
+        // Act
+        ApplicationBootstrap.State state = applicationBootstrap.run();
+
+        // Assert
+        assertEquals(ApplicationBootstrap.State.READY, state);
+        assertEquals(1, next.get());
+    }
+
+    /**
+     * Tests that a node which does not get the lock waits for the node holding it to finish,
+     * then only runs the required steps again before becoming ready.
+     */
+    @Test
+    void run_LockHeldElsewhere_WaitsThenRunsRequiredSteps() throws InterruptedException {
+        // Arrange
+        lockHeldElsewhereTwice();
+        AtomicInteger required = new AtomicInteger();
+        AtomicInteger optional = new AtomicInteger();
+        applicationBootstrap = bootstrap(List.of(
+                new ApplicationBootstrap.Step("required", true, required::incrementAndGet),
+                new ApplicationBootstrap.Step("optional", false, optional::incrementAndGet)), 1);
+
+        // Act
+        ApplicationBootstrap.State state = applicationBootstrap.run();
+
+        // Assert
+        assertEquals(ApplicationBootstrap.State.READY, state);
+        assertEquals(1, required.get());
+        assertEquals(0, optional.get());
+        verify(clusterLock, times(3)).runIfLeader(eq(ApplicationBootstrap.ROLES_LOCK), any());
+    }
+
+    /**
+     * Tests that a node which waited for another node is not ready when a required step still fails,
+     * e.g. because the other node failed.
+     */
+    @Test
+    void run_LockHeldElsewhere_RequiredStepFails_Fails() throws InterruptedException {
+        // Arrange
+        lockHeldElsewhereTwice();
+        applicationBootstrap = bootstrap(List.of(new ApplicationBootstrap.Step("required", true, () -> {
+            throw new IllegalStateException("READER role not found");
+        })), 1);
+
+        // Act
+        ApplicationBootstrap.State state = applicationBootstrap.run();
+
+        // Assert
+        assertEquals(ApplicationBootstrap.State.FAILED, state);
+        assertEquals(Status.DOWN, applicationBootstrap.health().getStatus());
+    }
+
+    private void lockHeldElsewhereTwice() {
+        AtomicInteger calls = new AtomicInteger();
+        when(clusterLock.runIfLeader(eq(ApplicationBootstrap.ROLES_LOCK), any())).thenAnswer(invocation -> {
+            if (calls.incrementAndGet() <= 2) {
+                return false;
+            }
+            invocation.<Runnable>getArgument(1).run();
+            return true;
+        });
+    }
+
+    private ApplicationBootstrap bootstrap(List<ApplicationBootstrap.Step> steps, int maxAttempts) {
+        return new ApplicationBootstrap(steps, clusterLock, new SimpleMeterRegistry(),
+                Duration.ofMillis(200), maxAttempts, Duration.ofMillis(10));
+    }
+}
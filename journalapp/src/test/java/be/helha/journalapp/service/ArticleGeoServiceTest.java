@@ -0,0 +1,151 @@
+package be.helha.journalapp.service;
+
+import be.helha.journalapp.dto.ArticleSummary;
+import be.helha.journalapp.dto.GeoCluster;
+import be.helha.journalapp.repositories.ArticleRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * This class contains unit tests for the {@link ArticleGeoService}.
+ * It uses Mockito to mock dependencies and JUnit 5 for testing.
+ */
+@ExtendWith(MockitoExtension.class)
+class ArticleGeoServiceTest {
+
+    /**
+     * Mocked repository for articles.
+     */
+    @Mock
+    private ArticleRepository articleRepository;
+
+    /**
+     * Instance of the ArticleGeoService to be tested.
+     */
+    private ArticleGeoService articleGeoService;
+
+    /**
+     * Sets up the test environment before each test method.
+     */
+    @BeforeEach
+    void setUp() {
+        articleGeoService = new ArticleGeoService(articleRepository, 4, 1000, 200_000);
+    }
+
+    /**
+     * Tests that a box is read as west,south,east,north and that invalid boxes are rejected.
+     */
+    @Test
+    void parseBoundingBox_ShouldReadWestSouthEastNorth() {
+        assertEquals(new ArticleGeoService.BoundingBox(4.1, 50.2, 4.5, 50.6),
+                ArticleGeoService.parseBoundingBox("4.1, 50.2,4.5,50.6"));
+        assertTrue(ArticleGeoService.parseBoundingBox("170,-10,-170,10").crossesAntimeridian());
+        assertThrows(IllegalArgumentException.class, () -> ArticleGeoService.parseBoundingBox("4,50,5"));
+        assertThrows(IllegalArgumentException.class, () -> ArticleGeoService.parseBoundingBox("a,50,5,51"));
+        assertThrows(IllegalArgumentException.class, () -> ArticleGeoService.parseBoundingBox("4,95,5,96"));
+        assertThrows(IllegalArgumentException.class, () -> ArticleGeoService.parseBoundingBox("4,51,5,50"));
+        assertThrows(IllegalArgumentException.class, () -> ArticleGeoService.parseBoundingBox(null));
+    }
+
+    /**
+     * Tests that the box around a circle contains the circle, widens in longitude away from the equator,
+     * wraps around the antimeridian and covers all longitudes around a pole.
+     */
+    @Test
+    void around_ShouldContainTheCircle() {
+        // 111 km ≈ 1 degré de latitude
+        ArticleGeoService.BoundingBox equator = ArticleGeoService.around(0, 0, 111_195);
+        assertEquals(-1, equator.south(), 1e-3);
+        assertEquals(1, equator.north(), 1e-3);
+        assertEquals(1, equator.east(), 1e-3);
+
+        ArticleGeoService.BoundingBox mons = ArticleGeoService.around(50.45, 3.95, 111_195);
+        assertTrue(mons.east() - 3.95 > 1.5, "The box should widen in longitude at 50° of latitude");
+
+        ArticleGeoService.BoundingBox fiji = ArticleGeoService.around(-17, 179.5, 111_195);
+        assertTrue(fiji.crossesAntimeridian());
+        assertTrue(fiji.east() < -179);
+
+        ArticleGeoService.BoundingBox pole = ArticleGeoService.around(89.5, 10, 111_195);
+        assertEquals(-180, pole.west());
+        assertEquals(180, pole.east());
+        assertEquals(90, pole.north());
+    }
+
+    /**
+     * Tests that the grid cells halve with each zoom level.
+     */
+    @Test
+    void cellSize_ShouldHalveWithEachZoomLevel() {
+        assertEquals(90, ArticleGeoService.cellSize(0, 4));
+        assertEquals(45, ArticleGeoService.cellSize(1, 4));
+        assertEquals(ArticleGeoService.cellSize(22, 4), ArticleGeoService.cellSize(40, 4));
+    }
+
+    /**
+     * Tests that a box crossing the antimeridian is queried as two boxes,
+     * and that the summaries are returned in the order of the ID query.
+     */
+    @Test
+    void findWithin_CrossingAntimeridian_ShouldQueryTwoBoxes() {
+        // Arrange
+        when(articleRepository.findValidArticleIdsWithin(170, 180, -180, -170, -10, 10, 20, 20L))
+                .thenReturn(List.of(9L, 4L));
+        when(articleRepository.findSummariesByIds(List.of(9L, 4L)))
+                .thenReturn(List.of(summary(4L), summary(9L)));
+
+        // Act
+        List<ArticleSummary> result = articleGeoService.findWithin(
+                ArticleGeoService.parseBoundingBox("170,-10,-170,10"), 1, 20);
+
+        // Assert
+        assertEquals(List.of(9L, 4L), result.stream().map(ArticleSummary::getArticleId).toList());
+    }
+
+    /**
+     * Tests that a radius out of range is rejected without querying the database.
+     */
+    @Test
+    void findNear_RadiusOutOfRange_ShouldBeRejected() {
+        assertThrows(IllegalArgumentException.class, () -> articleGeoService.findNear(50, 4, 0, 0, 20));
+        assertThrows(IllegalArgumentException.class, () -> articleGeoService.findNear(50, 4, 500_000, 0, 20));
+        verifyNoInteractions(articleRepository);
+    }
+
+    /**
+     * Tests that only the markers standing for a single article carry its ID.
+     */
+    @Test
+    void cluster_ShouldKeepTheIdOfSingleArticles() {
+        // Arrange
+        when(articleRepository.clusterValidArticlesWithin(anyDouble(), anyDouble(), anyDouble(), anyDouble(),
+                anyDouble(), anyDouble(), eq(ArticleGeoService.cellSize(6, 4)), eq(1000)))
+                .thenReturn(List.of(new Object[]{12L, 4.2, 50.5, 3L}, new Object[]{1L, 5.5, 50.1, 7L}));
+
+        // Act
+        List<GeoCluster> clusters = articleGeoService.cluster(ArticleGeoService.parseBoundingBox("2,49,7,52"), 6);
+
+        // Assert
+        assertEquals(List.of(new GeoCluster(4.2, 50.5, 12, null), new GeoCluster(5.5, 50.1, 1, 7L)), clusters);
+        verify(articleRepository, never()).findValidArticleIdsWithin(anyDouble(), anyDouble(), anyDouble(),
+                anyDouble(), anyDouble(), anyDouble(), anyInt(), anyLong());
+    }
+
+    private static ArticleSummary summary(Long id) {
+        ArticleSummary summary = new ArticleSummary();
+        summary.setArticleId(id);
+        return summary;
+    }
+}
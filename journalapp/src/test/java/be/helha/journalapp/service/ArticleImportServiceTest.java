@@ -0,0 +1,200 @@
+package be.helha.journalapp.service;
+
+import be.helha.journalapp.config.ClusterLock;
+import be.helha.journalapp.model.Article;
+import be.helha.journalapp.model.ImportCheckpoint;
+import be.helha.journalapp.model.Newsletter;
+import be.helha.journalapp.model.Role;
+import be.helha.journalapp.model.User;
+import be.helha.journalapp.repositories.ArticleRepository;
+import be.helha.journalapp.repositories.NewsletterRepository;
+import be.helha.journalapp.repositories.RoleRepository;
+import be.helha.journalapp.repositories.UserRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * This class contains tests for the {@link ArticleImportService} against an embedded H2 database.
+ * The tests are not transactional, so that each batch is committed as in production; every test imports
+ * into its own newsletters, so the data left by the others does not matter. Batches hold 2 lines.
+ */
+@DataJpaTest
+@Import({ArticleImportService.class, ClusterLock.class, ArticleImportServiceTest.Support.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestPropertySource(properties = {
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "journalapp.import.batch-size=2"
+})
+class ArticleImportServiceTest {
+
+    @Autowired
+    private ArticleImportService articleImportService;
+
+    @Autowired
+    private ArticleRepository articleRepository;
+
+    @Autowired
+    private NewsletterRepository newsletterRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private RoleRepository roleRepository;
+
+    @MockBean
+    private ReadStateService readStateService;
+
+    @MockBean
+    private NewsletterIssueService newsletterIssueService;
+
+    @BeforeEach
+    void setUp() {
+        if (roleRepository.findByRoleName("JOURNALIST").isEmpty()) {
+            roleRepository.save(new Role("JOURNALIST", null));
+        }
+    }
+
+    /**
+     * Tests that the articles are imported with their authors and newsletters, which are created once
+     * and reused when they already exist.
+     */
+    @Test
+    void importArticles_ShouldCreateAuthorsAndNewslettersOnce() throws IOException {
+        // Arrange
+        User editor = new User();
+        editor.setEmail("editor@example.com");
+        editor.setRole(roleRepository.findByRoleName("JOURNALIST").orElseThrow());
+        editor = userRepository.save(editor);
+        Newsletter existing = new Newsletter();
+        existing.setTitle("Existing Gazette");
+        existing.setBackgroundColor("#abcdef");
+        existing.setCreator(editor);
+        newsletterRepository.save(existing);
+        String input = String.join("\n",
+                line("One", "alice@example.com", "Created Gazette"),
+                line("Two", "Bob@Example.com", "Created Gazette"),
+                "",
+                line("Three", "alice@example.com", "Existing Gazette"),
+                line("Four", "bob@example.com", "Existing Gazette"),
+                line("Five", "editor@example.com", "Created Gazette"));
+
+        // Act
+        ImportCheckpoint checkpoint = articleImportService.importArticles("create-once", stream(input)).orElseThrow();
+
+        // Assert
+        assertTrue(checkpoint.isCompleted());
+        assertEquals(6, checkpoint.getLinesDone());
+        assertEquals(5, checkpoint.getArticlesImported());
+        assertEquals(2, checkpoint.getAuthorsCreated());
+        assertEquals(1, checkpoint.getNewslettersCreated());
+        assertEquals(1, newsletterRepository.findByTitle("Created Gazette").size());
+        assertTrue(userRepository.findByEmail("bob@example.com").isPresent());
+        List<Article> existingArticles = articleRepository.findByNewsletterNewsletterId(existing.getNewsletterId())
+                .stream().sorted(Comparator.comparing(Article::getArticleId)).toList();
+        assertEquals(2, existingArticles.size());
+        assertEquals("#abcdef", existingArticles.get(0).getBackgroundColor());
+        assertEquals("alice@example.com", existingArticles.get(0).getAuthor().getEmail());
+    }
+
+    /**
+     * Tests that an import stopped by an invalid line keeps the lines before it, and resumes after them
+     * once the input is fixed, without importing any line twice.
+     */
+    @Test
+    void importArticles_ShouldResumeAfterInvalidLine() throws IOException {
+        // Arrange
+        String first = line("One", "carol@example.com", "Resumed Gazette");
+        String second = line("Two", "carol@example.com", "Resumed Gazette");
+        String fourth = line("Four", "carol@example.com", "Resumed Gazette");
+
+        // Act
+        IllegalArgumentException error = assertThrows(IllegalArgumentException.class, () -> articleImportService
+                .importArticles("resume", stream(String.join("\n", first, second, "{\"title\": ", fourth))));
+        ImportCheckpoint stopped = articleImportService.getProgress("resume").orElseThrow();
+        ImportCheckpoint resumed = articleImportService.importArticles("resume", stream(String.join("\n",
+                first, second, line("Three", "carol@example.com", "Resumed Gazette"), fourth))).orElseThrow();
+
+        // Assert
+        assertTrue(error.getMessage().startsWith("Line 3"));
+        assertEquals(2, stopped.getLinesDone());
+        assertFalse(stopped.isCompleted());
+        assertTrue(stopped.getLastError().startsWith("Line 3"));
+        assertTrue(resumed.isCompleted());
+        assertNull(resumed.getLastError());
+        assertEquals(4, resumed.getArticlesImported());
+        Long newsletterId = newsletterRepository.findByTitle("Resumed Gazette").get(0).getNewsletterId();
+        assertEquals(List.of("One", "Two", "Three", "Four"), articleRepository.findByNewsletterNewsletterId(newsletterId)
+                .stream().sorted(Comparator.comparing(Article::getArticleId)).map(Article::getTitle).toList());
+    }
+
+    /**
+     * Tests that a completed import is not run again, and that invalid import IDs and lines are refused.
+     */
+    @Test
+    void importArticles_ShouldNotRunACompletedImportAgain() throws IOException {
+        // Arrange
+        String input = line("Once", "dave@example.com", "Completed Gazette");
+        articleImportService.importArticles("completed", stream(input));
+
+        // Act
+        ImportCheckpoint again = articleImportService.importArticles("completed", stream(input)).orElseThrow();
+
+        // Assert
+        assertEquals(1, again.getArticlesImported());
+        Long newsletterId = newsletterRepository.findByTitle("Completed Gazette").get(0).getNewsletterId();
+        assertEquals(1, articleRepository.findByNewsletterNewsletterId(newsletterId).size());
+        assertThrows(IllegalArgumentException.class, () -> articleImportService.importArticles("../x", stream(input)));
+        IllegalArgumentException missingAuthor = assertThrows(IllegalArgumentException.class, () -> articleImportService
+                .importArticles("no-author", stream("{\"title\":\"T\",\"newsletter\":{\"title\":\"N\"}}")));
+        assertEquals("Line 1: the author email is missing.", missingAuthor.getMessage());
+    }
+
+    private static String line(String title, String email, String newsletterTitle) {
+        return "{\"title\":\"" + title + "\",\"content\":\"Texte\",\"valid\":true,\"legacyId\":42,"
+                + "\"author\":{\"email\":\"" + email + "\",\"firstName\":\"Prénom\",\"lastName\":\"Nom\"},"
+                + "\"newsletter\":{\"title\":\"" + newsletterTitle + "\"}}";
+    }
+
+    private static InputStream stream(String input) {
+        return new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Provides the beans that {@link DataJpaTest} does not configure.
+     */
+    @TestConfiguration
+    static class Support {
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+
+        @Bean
+        ObjectMapper objectMapper() {
+            return new ObjectMapper();
+        }
+    }
+}
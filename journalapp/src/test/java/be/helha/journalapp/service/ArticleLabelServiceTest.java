@@ -0,0 +1,191 @@
+package be.helha.journalapp.service;
+
+import be.helha.journalapp.dto.ArticleLabel;
+import be.helha.journalapp.repositories.ArticleRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+/**
+ * This class contains tests for the {@link ArticleLabelService}.
+ * The repository is mocked; it answers with a label for every positive ID it is asked for.
+ */
+class ArticleLabelServiceTest {
+
+    private ArticleRepository articleRepository;
+    private SimpleMeterRegistry meterRegistry;
+    private ArticleLabelService articleLabelService;
+    private ExecutorService callers;
+
+    @BeforeEach
+    void setUp() {
+        articleRepository = mock(ArticleRepository.class);
+        when(articleRepository.findLabelsByIds(anyCollection())).thenAnswer(invocation -> labelsOf(invocation.getArgument(0)));
+        meterRegistry = new SimpleMeterRegistry();
+        articleLabelService = new ArticleLabelService(articleRepository, meterRegistry, 2, 1, 5000);
+        callers = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        callers.shutdownNow();
+        articleLabelService.shutdown();
+    }
+
+    /**
+     * Tests that the IDs of a bulk lookup are deduplicated and read in chunks of the maximum batch size.
+     */
+    @Test
+    void findLabels_ShouldReadDistinctIdsInChunks() {
+        // Act
+        Map<Long, ArticleLabel> labels = articleLabelService.findLabels(List.of(1L, 2L, 2L, 3L, -1L));
+
+        // Assert
+        assertEquals(3, labels.size());
+        assertEquals("Author 3", labels.get(3L).getAuthorName());
+        verify(articleRepository).findLabelsByIds(List.of(1L, 2L));
+        verify(articleRepository).findLabelsByIds(List.of(3L, -1L));
+        assertEquals(2, meterRegistry.get("article.labels.batch.size").summary().count());
+    }
+
+    /**
+     * Tests that a single lookup returns the label of a known article and nothing for an unknown one.
+     */
+    @Test
+    void findLabel_ShouldReturnEmptyForUnknownArticle() {
+        // Act & Assert
+        assertEquals("Newsletter 7", articleLabelService.findLabel(7L).orElseThrow().getNewsletterTitle());
+        assertTrue(articleLabelService.findLabel(-1L).isEmpty());
+    }
+
+    /**
+     * Tests that the lookups made while every loader runs a query are read together by the next query.
+     */
+    @Test
+    void findLabel_ShouldCoalesceConcurrentLookups() throws Exception {
+        // Arrange
+        CountDownLatch firstQueryStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirstQuery = new CountDownLatch(1);
+        when(articleRepository.findLabelsByIds(anyCollection())).thenAnswer(invocation -> {
+            Collection<Long> ids = invocation.getArgument(0);
+            if (ids.contains(1L)) {
+                firstQueryStarted.countDown();
+                assertTrue(releaseFirstQuery.await(5, TimeUnit.SECONDS));
+            }
+            return labelsOf(ids);
+        });
+        Future<Optional<ArticleLabel>> first = callers.submit(() -> articleLabelService.findLabel(1L));
+        assertTrue(firstQueryStarted.await(5, TimeUnit.SECONDS));
+
+        // Act
+        List<Future<Optional<ArticleLabel>>> waiting = new ArrayList<>();
+        for (long id : new long[]{2L, 3L, 3L}) {
+            waiting.add(callers.submit(() -> articleLabelService.findLabel(id)));
+        }
+        // Laisse les trois appels rejoindre la file avant de débloquer la première requête
+        Thread.sleep(200);
+        releaseFirstQuery.countDown();
+
+        // Assert
+        assertEquals(1L, first.get(5, TimeUnit.SECONDS).orElseThrow().getArticleId());
+        assertEquals(2L, waiting.get(0).get(5, TimeUnit.SECONDS).orElseThrow().getArticleId());
+        assertEquals(3L, waiting.get(1).get(5, TimeUnit.SECONDS).orElseThrow().getArticleId());
+        assertEquals(3L, waiting.get(2).get(5, TimeUnit.SECONDS).orElseThrow().getArticleId());
+        verify(articleRepository, times(2)).findLabelsByIds(anyCollection());
+    }
+
+    /**
+     * Tests that a slow query does not hold up the lookups made meanwhile when another loader is free.
+     */
+    @Test
+    void findLabel_ShouldReadBatchesConcurrently() throws Exception {
+        // Arrange
+        articleLabelService.shutdown();
+        articleLabelService = new ArticleLabelService(articleRepository, meterRegistry, 2, 2, 5000);
+        CountDownLatch firstQueryStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirstQuery = new CountDownLatch(1);
+        blockQueriesOf(1L, firstQueryStarted, releaseFirstQuery);
+        Future<Optional<ArticleLabel>> first = callers.submit(() -> articleLabelService.findLabel(1L));
+        assertTrue(firstQueryStarted.await(5, TimeUnit.SECONDS));
+
+        // Act
+        Optional<ArticleLabel> second = articleLabelService.findLabel(2L);
+
+        // Assert
+        assertEquals(2L, second.orElseThrow().getArticleId());
+        assertFalse(first.isDone());
+        releaseFirstQuery.countDown();
+        assertEquals(1L, first.get(5, TimeUnit.SECONDS).orElseThrow().getArticleId());
+    }
+
+    /**
+     * Tests that a lookup whose batch is not read in time reads its article on its own.
+     */
+    @Test
+    void findLabel_Timeout_ShouldReadArticleAlone() throws Exception {
+        // Arrange
+        articleLabelService.shutdown();
+        articleLabelService = new ArticleLabelService(articleRepository, meterRegistry, 2, 1, 100);
+        CountDownLatch firstQueryStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirstQuery = new CountDownLatch(1);
+        blockQueriesOf(1L, firstQueryStarted, releaseFirstQuery);
+        Future<Optional<ArticleLabel>> first = callers.submit(() -> articleLabelService.findLabel(1L));
+        assertTrue(firstQueryStarted.await(5, TimeUnit.SECONDS));
+
+        // Act
+        Optional<ArticleLabel> second = articleLabelService.findLabel(2L);
+
+        // Assert
+        assertEquals(2L, second.orElseThrow().getArticleId());
+        verify(articleRepository).findLabelsByIds(List.of(2L));
+        releaseFirstQuery.countDown();
+        first.get(5, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Tests that a failed query is reported to every lookup of its batch.
+     */
+    @Test
+    void findLabel_ShouldPropagateQueryFailure() {
+        // Arrange
+        when(articleRepository.findLabelsByIds(anyCollection())).thenThrow(new IllegalStateException("down"));
+
+        // Act & Assert
+        IllegalStateException exception = assertThrows(IllegalStateException.class, () -> articleLabelService.findLabel(1L));
+        assertEquals("down", exception.getMessage());
+    }
+
+    private void blockQueriesOf(long articleId, CountDownLatch started, CountDownLatch release) {
+        when(articleRepository.findLabelsByIds(anyCollection())).thenAnswer(invocation -> {
+            Collection<Long> ids = invocation.getArgument(0);
+            if (ids.contains(articleId)) {
+                started.countDown();
+                assertTrue(release.await(5, TimeUnit.SECONDS));
+            }
+            return labelsOf(ids);
+        });
+    }
+
+    private static List<ArticleLabel> labelsOf(Collection<Long> ids) {
+        return ids.stream()
+                .filter(id -> id > 0)
+                .map(id -> new ArticleLabel(id, "Newsletter " + id, "Author " + id))
+                .toList();
+    }
+}
@@ -0,0 +1,98 @@
+package be.helha.journalapp.service;
+
+import be.helha.journalapp.dto.ArticleSummary;
+import be.helha.journalapp.repositories.ArticleRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * This class contains unit tests for the {@link ArticleSearchService}.
+ * It uses Mockito to mock dependencies and JUnit 5 for testing.
+ */
+@ExtendWith(MockitoExtension.class)
+class ArticleSearchServiceTest {
+
+    /**
+     * Mocked repository for articles.
+     */
+    @Mock
+    private ArticleRepository articleRepository;
+
+    /**
+     * Instance of the ArticleSearchService to be tested.
+     */
+    private ArticleSearchService articleSearchService;
+
+    /**
+     * Sets up the test environment before each test method.
+     */
+    @BeforeEach
+    void setUp() {
+        articleSearchService = new ArticleSearchService(articleRepository);
+    }
+
+    /**
+     * Tests that user input is turned into an AND query with a prefix match on the last word,
+     * and that tsquery operators typed by the user are stripped.
+     */
+    @Test
+    void toTsQuery_ShouldCombineWordsAndStripOperators() {
+        assertEquals("élection & municipale:*", ArticleSearchService.toTsQuery("  Élection  municipale"));
+        assertEquals("a & b:*", ArticleSearchService.toTsQuery("a|b"));
+        assertEquals("", ArticleSearchService.toTsQuery("!&():*"));
+        assertEquals("", ArticleSearchService.toTsQuery(null));
+    }
+
+    /**
+     * Tests that the summaries are returned in the rank order of the full-text query.
+     */
+    @Test
+    void search_ShouldKeepRankOrder() {
+        // Arrange
+        when(articleRepository.searchValidArticleIds("news:*", 10, 20L)).thenReturn(List.of(3L, 1L, 2L));
+        when(articleRepository.findSummariesByIds(List.of(3L, 1L, 2L)))
+                .thenReturn(List.of(summary(1L), summary(2L), summary(3L)));
+
+        // Act
+        List<ArticleSummary> results = articleSearchService.search("news", 2, 10);
+
+        // Assert
+        assertEquals(List.of(3L, 1L, 2L), results.stream().map(ArticleSummary::getArticleId).toList());
+    }
+
+    /**
+     * Tests that a query without any searchable word does not hit the database.
+     */
+    @Test
+    void search_WithBlankQuery_ShouldNotQueryDatabase() {
+        // Act
+        List<ArticleSummary> results = articleSearchService.search("   ", 0, 10);
+
+        // Assert
+        assertTrue(results.isEmpty());
+        verify(articleRepository, never()).searchValidArticleIds(anyString(), anyInt(), anyLong());
+    }
+
+    /**
+     * Builds an article summary with the given ID.
+     *
+     * @param articleId The ID of the article.
+     * @return The article summary.
+     */
+    private ArticleSummary summary(Long articleId) {
+        ArticleSummary summary = new ArticleSummary();
+        summary.setArticleId(articleId);
+        return summary;
+    }
+}
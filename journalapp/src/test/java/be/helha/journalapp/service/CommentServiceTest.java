@@ -0,0 +1,130 @@
+package be.helha.journalapp.service;
+
+import be.helha.journalapp.dto.ArticleSummary;
+import be.helha.journalapp.model.Article;
+import be.helha.journalapp.model.Comment;
+import be.helha.journalapp.model.Role;
+import be.helha.journalapp.model.User;
+import be.helha.journalapp.repositories.ArticleRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * This class contains tests for the {@link CommentService} against an embedded H2 database.
+ * They check that the comment counters of an article follow the comments posted and deleted,
+ * and that saving the article itself never overwrites them.
+ */
+@DataJpaTest
+@TestPropertySource(properties = "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect")
+@Import(CommentService.class)
+class CommentServiceTest {
+
+    @Autowired
+    private CommentService commentService;
+
+    @Autowired
+    private ArticleRepository articleRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private User user;
+    private Article article;
+
+    @BeforeEach
+    void setUp() {
+        Role role = new Role("READER", null);
+        entityManager.persist(role);
+        user = new User();
+        user.setFirstName("Alice");
+        user.setRole(role);
+        entityManager.persist(user);
+        article = new Article();
+        article.setTitle("Article");
+        article.setAuthor(user);
+        entityManager.persist(article);
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    /**
+     * Tests that posting comments counts them and records the date of the latest one,
+     * and that the article summaries serve the counters.
+     */
+    @Test
+    void addComment_CountsTheComment() {
+        // Act
+        commentService.addComment(user.getUserId(), article.getArticleId(), "Premier", "2024-01-01");
+        Comment latest = commentService.addComment(user.getUserId(), article.getArticleId(), "Second", "2024-01-02");
+        entityManager.clear();
+
+        // Assert
+        Article reloaded = articleRepository.findById(article.getArticleId()).orElseThrow();
+        assertEquals(2, reloaded.getCommentCount());
+        assertEquals(latest.getCreatedAt(), reloaded.getLastCommentAt());
+        ArticleSummary summary = articleRepository.findSummariesByIds(List.of(article.getArticleId())).get(0);
+        assertEquals(2L, summary.getCommentCount());
+    }
+
+    /**
+     * Tests that deleting the latest comment uncounts it and moves the date back to the previous comment.
+     */
+    @Test
+    void deleteComment_UncountsTheComment() {
+        // Arrange
+        Comment first = commentService.addComment(user.getUserId(), article.getArticleId(), "Premier", null);
+        Comment second = commentService.addComment(user.getUserId(), article.getArticleId(), "Second", null);
+        entityManager.flush();
+        entityManager.clear();
+
+        // Act
+        boolean deleted = commentService.deleteComment(second.getCommentId());
+        entityManager.clear();
+
+        // Assert
+        assertTrue(deleted);
+        Article reloaded = articleRepository.findById(article.getArticleId()).orElseThrow();
+        assertEquals(1, reloaded.getCommentCount());
+        assertEquals(first.getCreatedAt(), reloaded.getLastCommentAt());
+        assertFalse(commentService.deleteComment(second.getCommentId()));
+    }
+
+    /**
+     * Tests that saving an article loaded before a comment was posted does not reset its counter.
+     */
+    @Test
+    void savingStaleArticle_KeepsTheCounter() {
+        // Arrange
+        Article stale = articleRepository.findById(article.getArticleId()).orElseThrow();
+        entityManager.detach(stale);
+        commentService.addComment(user.getUserId(), article.getArticleId(), "Premier", null);
+
+        // Act
+        stale.setTitle("Nouveau titre");
+        articleRepository.saveAndFlush(stale);
+        entityManager.clear();
+
+        // Assert
+        Article reloaded = articleRepository.findById(article.getArticleId()).orElseThrow();
+        assertEquals("Nouveau titre", reloaded.getTitle());
+        assertEquals(1, reloaded.getCommentCount());
+    }
+
+    /**
+     * Tests that a comment on a missing article is refused without counting anything.
+     */
+    @Test
+    void addComment_MissingArticle_Throws() {
+        assertThrows(RuntimeException.class,
+                () -> commentService.addComment(user.getUserId(), Long.MAX_VALUE, "Perdu", null));
+    }
+}
@@ -0,0 +1,177 @@
+package be.helha.journalapp.service;
+
+import be.helha.journalapp.model.DeadLetterEmail;
+import be.helha.journalapp.model.OutboundEmail;
+import be.helha.journalapp.repositories.DeadLetterEmailRepository;
+import be.helha.journalapp.repositories.OutboundEmailRepository;
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * This class contains tests for the {@link EmailDispatcher}.
+ * They run against an embedded H2 database and deliver to an embedded SMTP server (GreenMail).
+ * The tests are not transactional, so that the queued emails are committed and seen by the worker threads;
+ * the periodic polls are disabled, emails are sent when the queuing transaction commits.
+ */
+@DataJpaTest
+@Import({EmailService.class, EmailDispatcher.class, EmailDispatcherTest.Mail.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestPropertySource(properties = {
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "journalapp.mail.poll-interval-ms=3600000",
+        "journalapp.mail.max-attempts=2"
+})
+class EmailDispatcherTest {
+
+    @RegisterExtension
+    static GreenMailExtension greenMail = new GreenMailExtension(ServerSetupTest.SMTP);
+
+    @Autowired
+    private EmailService emailService;
+
+    @Autowired
+    private EmailDispatcher emailDispatcher;
+
+    @Autowired
+    private OutboundEmailRepository outboundEmailRepository;
+
+    @Autowired
+    private DeadLetterEmailRepository deadLetterEmailRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @AfterEach
+    void tearDown() {
+        outboundEmailRepository.deleteAll();
+        deadLetterEmailRepository.deleteAll();
+    }
+
+    /**
+     * Tests that an email queued in a transaction is only sent once the transaction has committed,
+     * then removed from the queue, and that its delivery latency is recorded.
+     */
+    @Test
+    void queueEmail_IsDeliveredAfterCommit() throws MessagingException {
+        // Arrange
+        double delivered = meterRegistry.get("mail.queue.latency").timer().count();
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+
+        // Act
+        transaction.executeWithoutResult(status -> {
+            emailService.queueEmail("author@example.com", "Your article has been validated!", "<p>Validated</p>");
+            assertEquals(0, greenMail.getReceivedMessages().length);
+        });
+
+        // Assert
+        assertTrue(greenMail.waitForIncomingEmail(5000, 1));
+        MimeMessage received = greenMail.getReceivedMessages()[0];
+        assertEquals("Your article has been validated!", received.getSubject());
+        assertEquals("author@example.com", received.getAllRecipients()[0].toString());
+        awaitUntil(() -> meterRegistry.get("mail.queue.latency").timer().count() == delivered + 1);
+        assertEquals(0, outboundEmailRepository.count());
+    }
+
+    /**
+     * Tests that a failed delivery is retried after a backoff, and that the email is moved to the dead-letter table
+     * once the maximum number of attempts is reached.
+     */
+    @Test
+    void failedDelivery_IsRetriedThenDeadLettered() {
+        // Arrange
+        greenMail.stop();
+
+        // Act
+        OutboundEmail queued = emailService.queueEmail("author@example.com", "Subject", "<p>Content</p>");
+        awaitUntil(() -> outboundEmailRepository.findById(queued.getId())
+                .map(email -> email.getLastError() != null).orElse(false));
+        OutboundEmail retried = outboundEmailRepository.findById(queued.getId()).orElseThrow();
+        retried.setNextAttemptAt(LocalDateTime.now().minusSeconds(1));
+        outboundEmailRepository.save(retried);
+        int claimed = emailDispatcher.dispatchDueEmails();
+        awaitUntil(() -> deadLetterEmailRepository.count() == 1);
+
+        // Assert
+        assertEquals(1, retried.getAttempts());
+        assertTrue(retried.getLastError().contains("MailSendException"));
+        assertEquals(1, claimed);
+        assertEquals(0, outboundEmailRepository.count());
+        DeadLetterEmail deadLetter = deadLetterEmailRepository.findAll().get(0);
+        assertEquals("author@example.com", deadLetter.getRecipient());
+        assertEquals(2, deadLetter.getAttempts());
+        assertNotNull(deadLetter.getLastError());
+    }
+
+    /**
+     * Tests that the retry delay doubles after each attempt and is capped at one hour.
+     */
+    @Test
+    void backoff_DoublesUpToOneHour() {
+        // Act & Assert
+        assertEquals(30, emailDispatcher.backoff(1).toSeconds());
+        assertEquals(60, emailDispatcher.backoff(2).toSeconds());
+        assertEquals(240, emailDispatcher.backoff(4).toSeconds());
+        assertEquals(3600, emailDispatcher.backoff(50).toSeconds());
+    }
+
+    private static void awaitUntil(BooleanSupplier condition) {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("Condition not met within 10 seconds");
+            }
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail("Interrupted");
+            }
+        }
+    }
+
+    @TestConfiguration
+    static class Mail {
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+
+        @Bean
+        JavaMailSender javaMailSender() {
+            JavaMailSenderImpl mailSender = new JavaMailSenderImpl();
+            mailSender.setHost("localhost");
+            mailSender.setPort(ServerSetupTest.SMTP.getPort());
+            mailSender.getJavaMailProperties().put("mail.smtp.connectiontimeout", "2000");
+            mailSender.getJavaMailProperties().put("mail.smtp.timeout", "2000");
+            return mailSender;
+        }
+    }
+}
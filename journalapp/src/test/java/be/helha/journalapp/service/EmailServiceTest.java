@@ -1,5 +1,7 @@
 package be.helha.journalapp.service;
 
+import be.helha.journalapp.model.OutboundEmail;
+import be.helha.journalapp.repositories.OutboundEmailRepository;
 import jakarta.mail.MessagingException;
 import jakarta.mail.internet.MimeMessage;
 import org.junit.jupiter.api.BeforeEach;
@@ -7,6 +9,7 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.mail.javamail.JavaMailSender;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -33,6 +36,18 @@ class EmailServiceTest {
     @Mock
     private MimeMessage mimeMessage;
 
+    /**
+     * Mocked repository holding the outbound mail queue.
+     */
+    @Mock
+    private OutboundEmailRepository outboundEmailRepository;
+
+    /**
+     * Mocked publisher notifying the dispatcher of queued emails.
+     */
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     /**
      * Instance of the EmailService to be tested.
      */
@@ -44,8 +59,8 @@ class EmailServiceTest {
      */
     @BeforeEach
     void setUp() {
-        emailService = new EmailService(mailSender);
-        when(mailSender.createMimeMessage()).thenReturn(mimeMessage);
+        emailService = new EmailService(mailSender, outboundEmailRepository, eventPublisher);
+        lenient().when(mailSender.createMimeMessage()).thenReturn(mimeMessage);
     }
 
     /**
@@ -83,5 +98,29 @@ class EmailServiceTest {
         });
     }
 
+    /**
+     * Tests that queuing an email saves it in the outbound mail queue, due at once,
+     * and notifies the dispatcher without sending anything on the calling thread.
+     */
+    @Test
+    void queueEmail_ShouldSaveEmailWithoutSendingIt() {
+        // Arrange
+        when(outboundEmailRepository.save(any(OutboundEmail.class))).thenAnswer(invocation -> {
+            OutboundEmail email = invocation.getArgument(0);
+            email.setId(1L);
+            return email;
+        });
+
+        // Act
+        OutboundEmail queued = emailService.queueEmail("test@example.com", "Test Subject", "<h1>Test Content</h1>");
+
+        // Assert
+        assertEquals("test@example.com", queued.getRecipient());
+        assertEquals(0, queued.getAttempts());
+        assertNotNull(queued.getNextAttemptAt());
+        verify(eventPublisher, times(1)).publishEvent(new EmailService.EmailQueued(1L));
+        verify(mailSender, never()).send(any(MimeMessage.class));
+    }
+
 
 }
\ No newline at end of file
@@ -0,0 +1,255 @@
+package be.helha.journalapp.service;
+
+import be.helha.journalapp.config.ClusterLock;
+import be.helha.journalapp.dto.ImageMetadata;
+import be.helha.journalapp.model.Article;
+import be.helha.journalapp.model.Image;
+import be.helha.journalapp.model.Role;
+import be.helha.journalapp.model.User;
+import be.helha.journalapp.repositories.ImageRepository;
+import be.helha.journalapp.storage.BlobStore;
+import be.helha.journalapp.storage.LocalFileSystemBlobStore;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayOutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.HexFormat;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * This class contains tests for the {@link ImageContentService} and the {@link ImageBlobMigrationJob}.
+ * They run against an embedded H2 database and a blob store in a temporary directory, configured as shared.
+ */
+@DataJpaTest
+@Import({ImageContentService.class, ImageBlobMigrationJob.class, LocalFileSystemBlobStore.class, ClusterLock.class})
+@TestPropertySource(properties = {
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "journalapp.image-migration.batch-size=1",
+        "journalapp.blob-store.shared=true"
+})
+class ImageContentServiceTest {
+
+    private static final byte[] PNG = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n', 1, 2, 3, 4, 5, 6, 7, 8, 9, 10};
+
+    @TempDir
+    static Path blobRoot;
+
+    @Autowired
+    private ImageContentService imageContentService;
+
+    @Autowired
+    private ImageBlobMigrationJob imageBlobMigrationJob;
+
+    @Autowired
+    private ImageRepository imageRepository;
+
+    @Autowired
+    private BlobStore blobStore;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    /**
+     * Points the blob store to the temporary directory.
+     *
+     * @param registry The registry of test properties.
+     */
+    @DynamicPropertySource
+    static void blobStoreProperties(DynamicPropertyRegistry registry) {
+        registry.add("journalapp.blob-store.root", () -> blobRoot.toString());
+    }
+
+    /**
+     * Tests that an uploaded image is stored in the blob store, not in the database, and streamed unchanged.
+     */
+    @Test
+    void attachContent_StoresImageInBlobStore() throws Exception {
+        // Arrange
+        Image image = new Image();
+        imageContentService.attachContent(image, PNG);
+        Long imageId = persist(image);
+
+        // Act
+        ImageMetadata metadata = imageContentService.findMetadata(imageId).orElseThrow();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        imageContentService.writeContent(metadata, out);
+
+        // Assert
+        assertEquals("image/png", metadata.getMediaType());
+        assertEquals(PNG.length, metadata.getByteSize());
+        assertEquals(sha256(PNG), metadata.getContentHash());
+        assertTrue(blobStore.exists(sha256(PNG)));
+        assertNull(entityManager.find(Image.class, imageId).getImagePath());
+        assertArrayEquals(PNG, out.toByteArray());
+    }
+
+    /**
+     * Tests that an image whose blob is missing and whose Large Object was cleared is reported without data,
+     * and that copying it fails instead of writing nothing.
+     */
+    @Test
+    void hasContent_BlobMissing() throws Exception {
+        // Arrange
+        byte[] data = Arrays.copyOf(PNG, PNG.length + 1);
+        Image image = new Image();
+        imageContentService.attachContent(image, data);
+        Long imageId = persist(image);
+        ImageMetadata metadata = imageContentService.findMetadata(imageId).orElseThrow();
+        boolean storedContent = imageContentService.hasContent(metadata);
+        String hash = sha256(data);
+        Files.delete(blobRoot.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash));
+
+        // Act
+        boolean hasContent = imageContentService.hasContent(metadata);
+
+        // Assert
+        assertTrue(storedContent);
+        assertFalse(hasContent);
+        assertThrows(UncheckedIOException.class,
+                () -> imageContentService.writeContent(metadata, new ByteArrayOutputStream()));
+    }
+
+    /**
+     * Tests that an image saved in the database before the blob store existed is moved when it is first described.
+     */
+    @Test
+    void findMetadata_MovesLegacyImage() throws Exception {
+        // Arrange
+        Long imageId = persistLegacyImage();
+
+        // Act
+        ImageMetadata metadata = imageContentService.findMetadata(imageId).orElseThrow();
+
+        // Assert
+        assertEquals("image/png", metadata.getMediaType());
+        assertEquals(PNG.length, metadata.getByteSize());
+        assertEquals(sha256(PNG), metadata.getContentHash());
+        entityManager.clear();
+        assertNull(entityManager.find(Image.class, imageId).getImagePath());
+    }
+
+    /**
+     * Tests that the migration job moves legacy images one batch at a time, and that a legacy image
+     * is still readable from the database before it has been moved.
+     */
+    @Test
+    void migrateBatch_MovesLegacyImagesInBatches() {
+        // Arrange
+        Long firstId = persistLegacyImage();
+        Long secondId = persistLegacyImage();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        imageContentService.writeContent(imageRepository.findMetadataById(secondId).orElseThrow(), out);
+
+        // Act
+        int firstRun = imageBlobMigrationJob.migrateBatch();
+        int secondRun = imageBlobMigrationJob.migrateBatch();
+        int thirdRun = imageBlobMigrationJob.migrateBatch();
+
+        // Assert
+        assertArrayEquals(PNG, out.toByteArray());
+        assertEquals(1, firstRun);
+        assertEquals(1, secondRun);
+        assertEquals(0, thirdRun);
+        entityManager.clear();
+        assertNull(entityManager.find(Image.class, firstId).getImagePath());
+        assertNull(entityManager.find(Image.class, secondId).getImagePath());
+        assertNotNull(entityManager.find(Image.class, secondId).getContentHash());
+    }
+
+    /**
+     * Tests that the data of an image is kept in the database when the blob store is local to this node,
+     * so that it can still be read where the blob is missing.
+     */
+    @Test
+    void attachContent_LocalBlobStore_KeepsDatabaseCopy(@TempDir Path localRoot) throws Exception {
+        // Arrange
+        byte[] data = Arrays.copyOf(PNG, PNG.length + 2);
+        ImageContentService localService = new ImageContentService(imageRepository,
+                new LocalFileSystemBlobStore(localRoot.toString()), jdbcTemplate, transactionManager);
+        Image image = new Image();
+        localService.attachContent(image, data);
+        Long imageId = persist(image);
+        Long legacyId = persistLegacyImage();
+
+        // Act
+        ImageMetadata metadata = imageRepository.findMetadataById(imageId).orElseThrow();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        imageContentService.writeContent(metadata, out);
+        boolean legacyCopied = localService.moveToBlobStore(legacyId);
+
+        // Assert
+        assertFalse(blobStore.exists(sha256(data)), "the blob should only be in the store of the other node");
+        assertArrayEquals(data, out.toByteArray());
+        assertTrue(legacyCopied);
+        entityManager.clear();
+        assertNotNull(entityManager.find(Image.class, imageId).getImagePath());
+        assertNotNull(entityManager.find(Image.class, legacyId).getImagePath());
+        assertEquals(sha256(PNG), entityManager.find(Image.class, legacyId).getContentHash());
+    }
+
+    /**
+     * Tests that a node configured with a shared blob store that is not the one of the other nodes does not start.
+     */
+    @Test
+    void verifyShared_OtherDirectory_Fails(@TempDir Path otherRoot) throws Exception {
+        // Arrange
+        LocalFileSystemBlobStore sameStore = new LocalFileSystemBlobStore(blobRoot.toString(), true, jdbcTemplate);
+        LocalFileSystemBlobStore otherStore = new LocalFileSystemBlobStore(otherRoot.toString(), true, jdbcTemplate);
+
+        // Act
+        sameStore.verifyShared();
+        IllegalStateException failure = assertThrows(IllegalStateException.class, otherStore::verifyShared);
+
+        // Assert
+        assertTrue(failure.getMessage().contains("journalapp.blob-store.shared"));
+    }
+
+    private Long persistLegacyImage() {
+        Image image = new Image();
+        image.setImagePath(PNG);
+        return persist(image);
+    }
+
+    private Long persist(Image image) {
+        Role role = new Role("JOURNALIST", null);
+        entityManager.persist(role);
+        User author = new User();
+        author.setRole(role);
+        entityManager.persist(author);
+        Article article = new Article();
+        article.setTitle("Article");
+        article.setAuthor(author);
+        entityManager.persist(article);
+
+        image.setArticle(article);
+        entityManager.persist(image);
+        entityManager.flush();
+        entityManager.clear();
+        return image.getImageId();
+    }
+
+    private static String sha256(byte[] data) throws Exception {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(data));
+    }
+}
@@ -0,0 +1,205 @@
+package be.helha.journalapp.service;
+
+import be.helha.journalapp.service.ImageDerivativeService.Derivative;
+import be.helha.journalapp.storage.LocalFileSystemBlobStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * This class contains unit tests for the {@link ImageDerivativeService}.
+ * Renders run on a manual executor, so the tests decide when they happen.
+ */
+class ImageDerivativeServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    private LocalFileSystemBlobStore blobStore;
+    private ManualExecutor executor;
+    private ImageDerivativeService service;
+
+    /**
+     * Creates the blob store, the executor and the service before each test.
+     */
+    @BeforeEach
+    void setUp() {
+        blobStore = new LocalFileSystemBlobStore(tempDir.resolve("blobs").toString());
+        executor = new ManualExecutor();
+        service = new ImageDerivativeService(blobStore, tempDir.resolve("derivatives").toString(), executor,
+                5_000_000);
+    }
+
+    /**
+     * Tests that requested widths are rounded up to a supported width.
+     */
+    @Test
+    void normalizeWidth_RoundsUp() {
+        assertEquals(160, ImageDerivativeService.normalizeWidth(1));
+        assertEquals(320, ImageDerivativeService.normalizeWidth(300));
+        assertEquals(320, ImageDerivativeService.normalizeWidth(320));
+        assertEquals(1280, ImageDerivativeService.normalizeWidth(5000));
+    }
+
+    /**
+     * Tests that concurrent requests for the same derivative share one render, and that the result is then cached.
+     */
+    @Test
+    void getOrCreate_CoalescesConcurrentRequests() throws Exception {
+        // Arrange
+        String hash = storePng(1000, 500);
+
+        // Act
+        CompletableFuture<Optional<Derivative>> first = service.getOrCreate(hash, "image/png", 320);
+        CompletableFuture<Optional<Derivative>> second = service.getOrCreate(hash, "image/png", 300);
+        executor.runAll();
+        CompletableFuture<Optional<Derivative>> afterRender = service.getOrCreate(hash, "image/png", 320);
+
+        // Assert
+        assertSame(first, second);
+        assertEquals(1, executor.executed);
+        Derivative derivative = first.get().orElseThrow();
+        assertEquals("image/png", derivative.getMediaType());
+        BufferedImage resized = ImageIO.read(derivative.getPath().toFile());
+        assertEquals(320, resized.getWidth());
+        assertEquals(160, resized.getHeight());
+        assertTrue(afterRender.isDone());
+        assertEquals(derivative.getPath(), afterRender.get().orElseThrow().getPath());
+        assertEquals(1, executor.executed);
+    }
+
+    /**
+     * Tests that no derivative is rendered for an image that is not wider than the requested width.
+     */
+    @Test
+    void getOrCreate_SmallImage_UsesOriginal() throws Exception {
+        // Arrange
+        String hash = storePng(200, 100);
+
+        // Act
+        CompletableFuture<Optional<Derivative>> future = service.getOrCreate(hash, "image/png", 320);
+        executor.runAll();
+
+        // Assert
+        assertTrue(future.get().isEmpty());
+        assertTrue(service.getOrCreate(hash, "image/png", 320).get().isEmpty());
+        assertEquals(1, executor.executed);
+    }
+
+    /**
+     * Tests that a tall, narrow image is bounded by its height as well as its width.
+     */
+    @Test
+    void getOrCreate_TallImage_BoundsHeight() throws Exception {
+        // Arrange
+        String hash = storePng(200, 4000);
+
+        // Act
+        CompletableFuture<Optional<Derivative>> future = service.getOrCreate(hash, "image/png", 160);
+        executor.runAll();
+
+        // Assert
+        BufferedImage resized = ImageIO.read(future.get().orElseThrow().getPath().toFile());
+        assertEquals(160 * ImageDerivativeService.MAX_ASPECT_RATIO, resized.getHeight());
+        assertEquals(32, resized.getWidth());
+    }
+
+    /**
+     * Tests that an image with more pixels than the limit is not decoded.
+     */
+    @Test
+    void getOrCreate_HugeImage_UsesOriginal() throws Exception {
+        // Arrange
+        String hash = storePng(4000, 2000);
+
+        // Act
+        CompletableFuture<Optional<Derivative>> future = service.getOrCreate(hash, "image/png", 320);
+        executor.runAll();
+
+        // Assert
+        assertTrue(future.get().isEmpty());
+    }
+
+    /**
+     * Tests that uploading schedules every width without running any render on the calling thread.
+     */
+    @Test
+    void pregenerate_SchedulesEveryWidth() throws Exception {
+        // Arrange
+        String hash = storePng(2000, 1000);
+
+        // Act
+        service.pregenerate(hash, "image/png");
+
+        // Assert
+        assertEquals(ImageDerivativeService.WIDTHS.size(), executor.tasks.size());
+        assertEquals(0, executor.executed);
+    }
+
+    private String storePng(int width, int height) throws Exception {
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB), "png", png);
+        return blobStore.put(new ByteArrayInputStream(png.toByteArray()));
+    }
+
+    /**
+     * Executor queuing tasks until {@link #runAll()} is called.
+     */
+    private static class ManualExecutor extends AbstractExecutorService {
+
+        private final List<Runnable> tasks = new ArrayList<>();
+        private int executed;
+
+        @Override
+        public void execute(Runnable command) {
+            tasks.add(command);
+        }
+
+        void runAll() {
+            List<Runnable> pending = new ArrayList<>(tasks);
+            tasks.clear();
+            for (Runnable task : pending) {
+                task.run();
+                executed++;
+            }
+        }
+
+        @Override
+        public void shutdown() {
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            return List.of();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return false;
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return false;
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package be.helha.journalapp.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.keycloak.admin.client.Keycloak;
+import org.keycloak.admin.client.resource.RoleResource;
+import org.keycloak.admin.client.resource.RoleScopeResource;
+import org.keycloak.admin.client.resource.UsersResource;
+import org.keycloak.representations.idm.RoleRepresentation;
+import org.keycloak.representations.idm.UserRepresentation;
+import org.mockito.Answers;
+import org.mockito.Mockito;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * This class contains unit tests for the {@link KeycloakAdminService}.
+ * The Keycloak admin client is replaced by a Mockito stub, which counts the admin API calls.
+ */
+class KeycloakAdminServiceTest {
+
+    private static final String REALM = "journalapp";
+    private static final String USER_ID = "user-1";
+
+    private Keycloak keycloak;
+    private RoleScopeResource userRoles;
+    private KeycloakAdminService keycloakAdminService;
+
+    @BeforeEach
+    void setUp() {
+        keycloak = Mockito.mock(Keycloak.class, Answers.RETURNS_DEEP_STUBS);
+        userRoles = keycloak.realm(REALM).users().get(USER_ID).roles().realmLevel();
+        keycloakAdminService = new KeycloakAdminService(new SimpleMeterRegistry(), new MockEnvironment(), 100,
+                Duration.ofMinutes(1), Duration.ofMinutes(10), Duration.ofMillis(200));
+        ReflectionTestUtils.setField(keycloakAdminService, "keycloak", keycloak);
+        ReflectionTestUtils.setField(keycloakAdminService, "realm", REALM);
+    }
+
+    /**
+     * Tests that the roles of a user are fetched from Keycloak once, then served from the cache
+     * until the service changes the roles of the user.
+     */
+    @Test
+    void getRealmLevelRoles_IsCachedUntilRolesChange() {
+        // Arrange
+        when(userRoles.listAll()).thenReturn(List.of(role("READER")), List.of(role("READER"), role("ADMIN")));
+
+        // Act
+        List<String> first = keycloakAdminService.getRealmLevelRoles(USER_ID);
+        List<String> second = keycloakAdminService.getRealmLevelRoles(USER_ID);
+        keycloakAdminService.assignRolesToUser(USER_ID, List.of());
+        List<String> afterChange = keycloakAdminService.getRealmLevelRoles(USER_ID);
+
+        // Assert
+        assertEquals(List.of("READER"), first);
+        assertEquals(List.of("READER"), second);
+        assertEquals(List.of("READER", "ADMIN"), afterChange);
+        // Un appel par lecture du cache, plus celui d'assignRolesToUser
+        verify(userRoles, times(3)).listAll();
+    }
+
+    /**
+     * Tests that a slow Keycloak does not slow down the lookup: an empty list is returned after the timeout,
+     * and the roles are cached once Keycloak answers.
+     */
+    @Test
+    void getRealmLevelRoles_DoesNotWaitForSlowKeycloak() throws InterruptedException {
+        // Arrange
+        when(userRoles.listAll()).thenAnswer(invocation -> {
+            Thread.sleep(1000);
+            return List.of(role("ADMIN"));
+        });
+
+        // Act
+        long start = System.nanoTime();
+        List<String> whileSlow = keycloakAdminService.getRealmLevelRoles(USER_ID);
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        Thread.sleep(1500);
+        List<String> onceAnswered = keycloakAdminService.getRealmLevelRoles(USER_ID);
+
+        // Assert
+        assertEquals(List.of(), whileSlow);
+        assertTrue(elapsedMs < 900, "The lookup waited " + elapsedMs + " ms");
+        assertEquals(List.of("ADMIN"), onceAnswered);
+        verify(userRoles, times(1)).listAll();
+    }
+
+    /**
+     * Tests that checking for an administrator costs one admin API call, whatever the number of users:
+     * the members of the ADMIN role are queried, users are never listed one by one.
+     *
+     * @param userCount The number of users in the stub realm.
+     */
+    @ParameterizedTest
+    @ValueSource(ints = {1, 100, 10_000})
+    void anyUserHasAdminRole_MakesOneCallWhateverTheUserCount(int userCount) {
+        // Arrange
+        List<UserRepresentation> users = new ArrayList<>();
+        for (int i = 0; i < userCount; i++) {
+            UserRepresentation user = new UserRepresentation();
+            user.setId("user-" + i);
+            users.add(user);
+        }
+        UsersResource usersResource = keycloak.realm(REALM).users();
+        when(usersResource.list()).thenReturn(users);
+        RoleResource adminRole = keycloak.realm(REALM).roles().get("ADMIN");
+        when(adminRole.getUserMembers(0, 1)).thenReturn(users.subList(userCount - 1, userCount));
+        // Les appels faits pour construire le stub ne comptent pas
+        clearInvocations(usersResource);
+
+        // Act
+        boolean hasAdmin = keycloakAdminService.anyUserHasAdminRole();
+
+        // Assert
+        assertTrue(hasAdmin);
+        verify(adminRole, times(1)).getUserMembers(0, 1);
+        verify(usersResource, never()).list();
+        verify(usersResource, never()).get(anyString());
+    }
+
+    /**
+     * Tests that no administrator is reported when the ADMIN role has no members.
+     */
+    @Test
+    void anyUserHasAdminRole_WithoutMembers_ReturnsFalse() {
+        // Arrange
+        when(keycloak.realm(REALM).roles().get("ADMIN").getUserMembers(0, 1)).thenReturn(List.of());
+
+        // Act & Assert
+        assertFalse(keycloakAdminService.anyUserHasAdminRole());
+    }
+
+    private static RoleRepresentation role(String name) {
+        RoleRepresentation role = new RoleRepresentation();
+        role.setName(name);
+        return role;
+    }
+}
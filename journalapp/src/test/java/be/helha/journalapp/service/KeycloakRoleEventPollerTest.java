@@ -0,0 +1,111 @@
+package be.helha.journalapp.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.keycloak.admin.client.Keycloak;
+import org.keycloak.representations.idm.AdminEventRepresentation;
+import org.mockito.Answers;
+import org.mockito.Mockito;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+/**
+ * This class contains unit tests for the {@link KeycloakRoleEventPoller}.
+ * The Keycloak admin client is replaced by a Mockito stub returning the admin events.
+ */
+class KeycloakRoleEventPollerTest {
+
+    private static final String REALM = "journalapp";
+
+    private Keycloak keycloak;
+    private KeycloakAdminService keycloakAdminService;
+    private KeycloakRoleEventPoller poller;
+
+    @BeforeEach
+    void setUp() {
+        keycloak = Mockito.mock(Keycloak.class, Answers.RETURNS_DEEP_STUBS);
+        keycloakAdminService = mock(KeycloakAdminService.class);
+        when(keycloakAdminService.getKeycloak()).thenReturn(keycloak);
+        when(keycloak.realm(REALM).toRepresentation().isAdminEventsEnabled()).thenReturn(true);
+        poller = new KeycloakRoleEventPoller(keycloakAdminService, REALM, 4);
+    }
+
+    /**
+     * Tests that a role mapping change or a deletion invalidates the roles of that user, a realm role change
+     * those of all users, and that an event is handled once, events older than the first poll being ignored.
+     */
+    @Test
+    void poll_InvalidatesRolesChangedSinceLastPoll() {
+        // Arrange
+        long now = System.currentTimeMillis();
+        List<AdminEventRepresentation> events = List.of(
+                event(now + 3, "REALM_ROLE", "DELETE", "roles/EDITOR"),
+                event(now + 2, "USER", "DELETE", "users/user-2"),
+                event(now + 1, "REALM_ROLE_MAPPING", "CREATE", "users/user-1/role-mappings/realm"),
+                event(now - 60_000, "REALM_ROLE_MAPPING", "CREATE", "users/before-start/role-mappings/realm"));
+        when(keycloak.realm(REALM).getAdminEvents(isNull(), isNull(), isNull(), isNull(), isNull(), isNull(),
+                eq(KeycloakRoleEventPoller.RESOURCE_TYPES), anyString(), isNull(), anyInt(), anyInt()))
+                .thenReturn(events);
+
+        // Act
+        poller.poll();
+        poller.poll();
+
+        // Assert
+        verify(keycloakAdminService).invalidateRealmRoles("user-1");
+        verify(keycloakAdminService).invalidateRealmRoles("user-2");
+        verify(keycloakAdminService).invalidateAllRealmRoles();
+        verify(keycloakAdminService, never()).invalidateRealmRoles("before-start");
+    }
+
+    /**
+     * Tests that a full page of new events, which may have left older events out, invalidates the roles of all users.
+     */
+    @Test
+    void poll_InvalidatesAllRolesWhenEventsMayBeMissing() {
+        // Arrange
+        long now = System.currentTimeMillis();
+        when(keycloak.realm(REALM).getAdminEvents(any(), any(), any(), any(), any(), any(), any(), any(), any(),
+                any(), any())).thenReturn(List.of(
+                event(now + 4, "REALM_ROLE_MAPPING", "CREATE", "users/a/role-mappings/realm"),
+                event(now + 3, "REALM_ROLE_MAPPING", "CREATE", "users/b/role-mappings/realm"),
+                event(now + 2, "REALM_ROLE_MAPPING", "CREATE", "users/c/role-mappings/realm"),
+                event(now + 1, "REALM_ROLE_MAPPING", "CREATE", "users/d/role-mappings/realm")));
+
+        // Act
+        poller.poll();
+
+        // Assert
+        verify(keycloakAdminService).invalidateAllRealmRoles();
+        verify(keycloakAdminService, never()).invalidateRealmRoles(anyString());
+    }
+
+    /**
+     * Tests that the user ID is read from the resource path of an admin event.
+     */
+    @Test
+    void userIdFromPath_ReadsUserId() {
+        assertEquals("abc", KeycloakRoleEventPoller.userIdFromPath("users/abc/role-mappings/realm"));
+        assertEquals("abc", KeycloakRoleEventPoller.userIdFromPath("users/abc"));
+        assertNull(KeycloakRoleEventPoller.userIdFromPath("roles/ADMIN"));
+        assertNull(KeycloakRoleEventPoller.userIdFromPath(null));
+    }
+
+    private static AdminEventRepresentation event(long time, String resourceType, String operationType,
+                                                  String resourcePath) {
+        AdminEventRepresentation event = new AdminEventRepresentation();
+        event.setTime(time);
+        event.setResourceType(resourceType);
+        event.setOperationType(operationType);
+        event.setResourcePath(resourcePath);
+        return event;
+    }
+}
@@ -0,0 +1,196 @@
+package be.helha.journalapp.service;
+
+import be.helha.journalapp.config.ClusterEvents;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * This class contains unit tests for the {@link LiveEventHub}.
+ * The sender threads are replaced by an executor that never runs its tasks, so the queues of the
+ * subscribers fill up as with clients that do not read their events.
+ */
+class LiveEventHubTest {
+
+    /**
+     * Registry holding the metrics of the hub.
+     */
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    /**
+     * Sender threads that never run their tasks.
+     */
+    private final StalledExecutor senders = new StalledExecutor();
+
+    /**
+     * Relay of the events to the other nodes.
+     */
+    private final ClusterEvents clusterEvents = mock(ClusterEvents.class);
+
+    /**
+     * Instance of the LiveEventHub to be tested, whose events are never written.
+     */
+    private final LiveEventHub liveEventHub = new LiveEventHub(new ObjectMapper().findAndRegisterModules(),
+            meterRegistry, clusterEvents, senders, 60_000, 10_000, 3, 2);
+
+    /**
+     * Closes the subscriptions opened by the test.
+     */
+    @AfterEach
+    void tearDown() {
+        liveEventHub.shutdown();
+    }
+
+    /**
+     * Tests that topics may be comma-separated or repeated, and that duplicates are ignored.
+     */
+    @Test
+    void parseTopics_ShouldSplitAndDeduplicate() {
+        assertEquals(List.of("article:12", "newsletter:3", "articles"),
+                List.copyOf(LiveEventHub.parseTopics(List.of("article:12, newsletter:3", "articles", "article:12"))));
+    }
+
+    /**
+     * Tests that unknown, empty or too many topics are rejected.
+     */
+    @Test
+    void parseTopics_InvalidTopics_ShouldBeRejected() {
+        assertThrows(IllegalArgumentException.class, () -> LiveEventHub.parseTopics(List.of("user:1")));
+        assertThrows(IllegalArgumentException.class, () -> LiveEventHub.parseTopics(List.of("article:0")));
+        assertThrows(IllegalArgumentException.class, () -> LiveEventHub.parseTopics(List.of("article:x")));
+        assertThrows(IllegalArgumentException.class, () -> LiveEventHub.parseTopics(List.of(" , ")));
+        assertThrows(IllegalArgumentException.class, () -> LiveEventHub.parseTopics(null));
+
+        String tooMany = String.join(",", IntStream.rangeClosed(1, LiveEventHub.MAX_TOPICS + 1)
+                .mapToObj(id -> "article:" + id).toList());
+        assertThrows(IllegalArgumentException.class, () -> LiveEventHub.parseTopics(List.of(tooMany)));
+    }
+
+    /**
+     * Tests that a subscriber that does not read its events is disconnected once its queue is full,
+     * while the subscribers of other topics are kept.
+     */
+    @Test
+    void publish_SlowConsumer_ShouldBeDisconnected() {
+        // Arrange
+        liveEventHub.subscribe(Set.of("article:1"));
+        liveEventHub.subscribe(Set.of("article:2"));
+
+        // Act : l'événement "subscribed" et deux commentaires remplissent la file, le troisième la dépasse
+        for (int i = 0; i < 3; i++) {
+            liveEventHub.publish("article:1", "comment", "comment " + i);
+        }
+
+        // Assert
+        assertEquals(1, liveEventHub.getSubscriberCount());
+        assertEquals(1, meterRegistry.get("live.disconnections").counter().count());
+        // Un envoi par abonné : la déconnexion ne passe pas par les threads d'envoi, occupés par l'écriture
+        assertEquals(2, senders.submitted);
+    }
+
+    /**
+     * Tests that a published event is relayed to the other nodes even without local subscriber,
+     * and that the events relayed by another node are queued for the local subscribers.
+     */
+    @Test
+    void publish_ShouldBeRelayedBetweenNodes() {
+        // Arrange
+        when(clusterEvents.publish(eq(LiveEventHub.CLUSTER_CHANNEL), anyString())).thenReturn(true);
+        liveEventHub.subscribe(Set.of("article:2"));
+        String relayed = "{\"topic\":\"article:2\",\"name\":\"comment\",\"data\":\"\\\"hi\\\"\"}";
+
+        // Act : l'événement "subscribed" et deux événements relayés remplissent la file, le troisième la dépasse
+        liveEventHub.publish("article:1", "comment", "hello");
+        for (int i = 0; i < 3; i++) {
+            liveEventHub.onRelayedEvent(relayed);
+        }
+
+        // Assert
+        verify(clusterEvents).publish(LiveEventHub.CLUSTER_CHANNEL,
+                "{\"topic\":\"article:1\",\"name\":\"comment\",\"data\":\"\\\"hello\\\"\"}");
+        assertEquals(0, liveEventHub.getSubscriberCount());
+        assertEquals(1, meterRegistry.get("live.disconnections").counter().count());
+    }
+
+    /**
+     * Tests that an event too large to be relayed disconnects the subscribers of its topic on the other nodes.
+     */
+    @Test
+    void onRelayedEvent_TooLarge_ShouldDisconnectTopic() {
+        // Arrange
+        liveEventHub.subscribe(Set.of("article:1"));
+        liveEventHub.subscribe(Set.of("article:2"));
+
+        // Act
+        liveEventHub.onRelayedEvent("{\"topic\":\"article:1\",\"name\":null,\"data\":null}");
+
+        // Assert
+        assertEquals(1, liveEventHub.getSubscriberCount());
+    }
+
+    /**
+     * Tests that subscriptions are refused beyond the limit.
+     */
+    @Test
+    void subscribe_BeyondLimit_ShouldBeRefused() {
+        // Arrange
+        liveEventHub.subscribe(Set.of("articles"));
+        liveEventHub.subscribe(Set.of("articles"));
+
+        // Act & Assert
+        assertThrows(IllegalStateException.class, () -> liveEventHub.subscribe(Set.of("newsletter:1")));
+        assertEquals(2, liveEventHub.getSubscriberCount());
+        assertEquals(2.0, meterRegistry.get("live.subscribers").gauge().value());
+    }
+
+    /**
+     * An executor that accepts tasks and never runs them.
+     */
+    private static final class StalledExecutor extends AbstractExecutorService {
+        private boolean shutdown;
+        private int submitted;
+
+        @Override
+        public void execute(Runnable command) {
+            submitted++;
+        }
+
+        @Override
+        public void shutdown() {
+            shutdown = true;
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            shutdown = true;
+            return List.of();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return shutdown;
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return shutdown;
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) {
+            return true;
+        }
+    }
+}
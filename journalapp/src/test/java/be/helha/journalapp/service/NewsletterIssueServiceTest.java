@@ -0,0 +1,192 @@
+package be.helha.journalapp.service;
+
+import be.helha.journalapp.config.ClusterEvents;
+import be.helha.journalapp.dto.NewsletterIssue;
+import be.helha.journalapp.model.Article;
+import be.helha.journalapp.model.Image;
+import be.helha.journalapp.model.Newsletter;
+import be.helha.journalapp.model.Role;
+import be.helha.journalapp.model.User;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * This class contains tests for the {@link NewsletterIssueService} against an embedded H2 database.
+ * They check what an issue contains, that it is built by a fixed number of queries and that it is
+ * cached until invalidated.
+ */
+@DataJpaTest
+@TestPropertySource(properties = {
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@Import({NewsletterIssueService.class, ClusterEvents.class, NewsletterIssueServiceTest.Metrics.class})
+class NewsletterIssueServiceTest {
+
+    @Autowired
+    private NewsletterIssueService newsletterIssueService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private User author;
+    private Newsletter newsletter;
+
+    @BeforeEach
+    void setUp() {
+        Role role = new Role("JOURNALIST", null);
+        entityManager.persist(role);
+        author = new User();
+        author.setFirstName("Alice");
+        author.setLastName("Martin");
+        author.setRole(role);
+        entityManager.persist(author);
+        newsletter = new Newsletter();
+        newsletter.setTitle("Le Journal");
+        newsletter.setBackgroundColor("#ffeedd");
+        newsletter.setTitleFontSize(24);
+        newsletter.setCreator(author);
+        entityManager.persist(newsletter);
+    }
+
+    /**
+     * Tests that an issue holds the styling of the newsletter and its valid articles only,
+     * with their author name and the versioned URLs of their images.
+     */
+    @Test
+    void getIssue_ShouldHoldValidArticlesWithAuthorsAndImages() {
+        // Arrange
+        Article first = article("Premier", true);
+        article("Brouillon", false);
+        Article second = article("Second", true);
+        Image image = image(second, "abc");
+        flushAndClear();
+
+        // Act
+        NewsletterIssue issue = newsletterIssueService.getIssue(newsletter.getNewsletterId()).orElseThrow();
+
+        // Assert
+        assertEquals("Le Journal", issue.title());
+        assertEquals("#ffeedd", issue.style().backgroundColor());
+        assertEquals(24, issue.style().titleFontSize());
+        assertEquals(List.of(first.getArticleId(), second.getArticleId()),
+                issue.articles().stream().map(NewsletterIssue.IssueArticle::articleId).toList());
+        assertEquals("Alice Martin", issue.articles().get(0).authorName());
+        assertTrue(issue.articles().get(0).images().isEmpty());
+        NewsletterIssue.IssueImage issueImage = issue.articles().get(1).images().get(0);
+        assertEquals("/images/" + image.getImageId() + "/raw?v=abc", issueImage.url());
+        assertThrows(UnsupportedOperationException.class, () -> issue.articles().clear());
+    }
+
+    /**
+     * Tests that the number of queries building an issue does not depend on its number of articles.
+     */
+    @Test
+    void getIssue_ShouldUseAFixedNumberOfQueries() {
+        // Arrange
+        for (int i = 0; i < 10; i++) {
+            image(article("Article " + i, true), "hash" + i);
+        }
+        flushAndClear();
+        Statistics statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        // Act
+        NewsletterIssue issue = newsletterIssueService.getIssue(newsletter.getNewsletterId()).orElseThrow();
+
+        // Assert
+        assertEquals(10, issue.articles().size());
+        assertEquals(3, statistics.getPrepareStatementCount());
+    }
+
+    /**
+     * Tests that an issue is served from the cache until it is invalidated, and that unknown newsletters
+     * are not cached.
+     */
+    @Test
+    void getIssue_ShouldBeCachedUntilInvalidated() {
+        // Arrange
+        article("Premier", true);
+        flushAndClear();
+        NewsletterIssue cached = newsletterIssueService.getIssue(newsletter.getNewsletterId()).orElseThrow();
+        article("Second", true);
+        flushAndClear();
+
+        // Act & Assert
+        assertSame(cached, newsletterIssueService.getIssue(newsletter.getNewsletterId()).orElseThrow());
+        newsletterIssueService.invalidate(newsletter.getNewsletterId());
+        assertEquals(2, newsletterIssueService.getIssue(newsletter.getNewsletterId()).orElseThrow().articles().size());
+        assertTrue(newsletterIssueService.getIssue(-1L).isEmpty());
+    }
+
+    /**
+     * Tests that an issue invalidated by another node is dropped from the cache of this node.
+     */
+    @Test
+    void onClusterInvalidation_ShouldDropIssue() {
+        // Arrange
+        article("Premier", true);
+        flushAndClear();
+        NewsletterIssue cached = newsletterIssueService.getIssue(newsletter.getNewsletterId()).orElseThrow();
+
+        // Act
+        newsletterIssueService.onClusterInvalidation(newsletter.getNewsletterId().toString());
+
+        // Assert
+        NewsletterIssue rebuilt = newsletterIssueService.getIssue(newsletter.getNewsletterId()).orElseThrow();
+        assertNotSame(cached, rebuilt);
+        newsletterIssueService.onClusterInvalidation("*");
+        assertNotSame(rebuilt, newsletterIssueService.getIssue(newsletter.getNewsletterId()).orElseThrow());
+    }
+
+    private Article article(String title, boolean valid) {
+        Article article = new Article();
+        article.setTitle(title);
+        article.setValid(valid);
+        article.setAuthor(author);
+        article.setNewsletter(newsletter);
+        entityManager.persist(article);
+        return article;
+    }
+
+    private Image image(Article article, String contentHash) {
+        Image image = new Image();
+        image.setArticle(article);
+        image.setMediaType("image/png");
+        image.setContentHash(contentHash);
+        entityManager.persist(image);
+        return image;
+    }
+
+    private void flushAndClear() {
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    /**
+     * Provides the registry of the cache metrics, which {@link DataJpaTest} does not configure.
+     */
+    @TestConfiguration
+    static class Metrics {
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+}
@@ -0,0 +1,273 @@
+package be.helha.journalapp.service;
+
+import be.helha.journalapp.config.ClusterLock;
+import be.helha.journalapp.dto.ArticleSummary;
+import be.helha.journalapp.model.Article;
+import be.helha.journalapp.model.Newsletter;
+import be.helha.journalapp.model.NewsletterMailing;
+import be.helha.journalapp.model.Role;
+import be.helha.journalapp.model.User;
+import be.helha.journalapp.repositories.ArticleRepository;
+import be.helha.journalapp.repositories.NewsletterMailingRepository;
+import be.helha.journalapp.repositories.NewsletterRepository;
+import be.helha.journalapp.repositories.OutboundEmailRepository;
+import be.helha.journalapp.repositories.RoleRepository;
+import be.helha.journalapp.repositories.UserRepository;
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.GreenMailUtil;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * This class contains tests for the {@link NewsletterMailingService}.
+ * They run against an embedded H2 database and deliver to an embedded SMTP server (GreenMail).
+ * The tests are not transactional, so that the sender threads see the data committed by the test.
+ */
+@DataJpaTest
+@Import({NewsletterMailingService.class, EmailService.class, ClusterLock.class, NewsletterMailingServiceTest.Mail.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestPropertySource(properties = {
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "journalapp.mailing.batch-size=2",
+        "journalapp.mailing.connections=2",
+        "journalapp.mailing.rate-per-second=0"
+})
+class NewsletterMailingServiceTest {
+
+    @RegisterExtension
+    static GreenMailExtension greenMail = new GreenMailExtension(ServerSetupTest.SMTP);
+
+    @Autowired
+    private NewsletterMailingService mailingService;
+
+    @Autowired
+    private NewsletterMailingRepository mailingRepository;
+
+    @Autowired
+    private NewsletterRepository newsletterRepository;
+
+    @Autowired
+    private ArticleRepository articleRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private RoleRepository roleRepository;
+
+    @Autowired
+    private OutboundEmailRepository outboundEmailRepository;
+
+    @AfterEach
+    void tearDown() {
+        mailingRepository.deleteAll();
+        outboundEmailRepository.deleteAll();
+        articleRepository.deleteAll();
+        newsletterRepository.deleteAll();
+        userRepository.deleteAll();
+        roleRepository.deleteAll();
+    }
+
+    /**
+     * Tests that a mailing interrupted after its first batch resumes after the saved cursor: the recipients of
+     * the first batch are not sent to again, the others receive the newsletter exactly once, personalised,
+     * with only its validated articles.
+     */
+    @Test
+    void run_ResumesAfterLastBatchSent() throws Exception {
+        // Arrange
+        Role role = roleRepository.save(new Role("READER", null));
+        List<User> users = new ArrayList<>();
+        for (int i = 1; i <= 5; i++) {
+            users.add(saveUser(role, "Reader" + i, "reader" + i + "@example.com"));
+        }
+        saveUser(role, "NoEmail", null);
+        Newsletter newsletter = new Newsletter();
+        newsletter.setTitle("Weekly news");
+        newsletter.setCreator(users.get(0));
+        newsletter = newsletterRepository.save(newsletter);
+        saveArticle(newsletter, users.get(0), "Validated story", true);
+        saveArticle(newsletter, users.get(0), "Draft story", false);
+
+        NewsletterMailing mailing = new NewsletterMailing();
+        mailing.setNewsletterId(newsletter.getNewsletterId());
+        mailing.setStatus(NewsletterMailing.Status.RUNNING);
+        mailing.setCreatedAt(LocalDateTime.now());
+        mailing.setLastRecipientId(users.get(1).getUserId());
+        mailing.setSentCount(2);
+        mailing = mailingRepository.save(mailing);
+
+        // Act
+        NewsletterMailing completed = mailingService.run(mailing.getId()).orElseThrow();
+
+        // Assert
+        assertEquals(NewsletterMailing.Status.COMPLETED, completed.getStatus());
+        assertEquals(5, completed.getSentCount());
+        assertEquals(0, completed.getDeferredCount());
+        assertEquals(users.get(4).getUserId(), completed.getLastRecipientId());
+        assertNull(mailingRepository.findById(mailing.getId()).orElseThrow().getLeaseOwner());
+        assertTrue(greenMail.waitForIncomingEmail(5000, 3));
+        MimeMessage[] received = greenMail.getReceivedMessages();
+        assertEquals(3, received.length);
+        Set<String> recipients = Set.of(recipient(received[0]), recipient(received[1]), recipient(received[2]));
+        assertEquals(Set.of("reader3@example.com", "reader4@example.com", "reader5@example.com"), recipients);
+        String body = GreenMailUtil.getBody(received[0]);
+        assertEquals("Weekly news", received[0].getSubject());
+        assertTrue(body.contains("Validated story"));
+        assertFalse(body.contains("Draft story"));
+        assertTrue(body.contains("Dear Reader"));
+    }
+
+    /**
+     * Tests that sending a newsletter again, while its mailing is left RUNNING by an error but sent by no node,
+     * returns that mailing and resumes it after its saved cursor.
+     */
+    @Test
+    void start_ResumesStalledMailing() throws Exception {
+        // Arrange
+        Role role = roleRepository.save(new Role("READER", null));
+        List<User> users = new ArrayList<>();
+        for (int i = 1; i <= 3; i++) {
+            users.add(saveUser(role, "Reader" + i, "reader" + i + "@example.com"));
+        }
+        Newsletter newsletter = new Newsletter();
+        newsletter.setTitle("Stalled news");
+        newsletter.setCreator(users.get(0));
+        newsletter = newsletterRepository.save(newsletter);
+        NewsletterMailing stalled = new NewsletterMailing();
+        stalled.setNewsletterId(newsletter.getNewsletterId());
+        stalled.setStatus(NewsletterMailing.Status.RUNNING);
+        stalled.setCreatedAt(LocalDateTime.now());
+        stalled.setLastRecipientId(users.get(0).getUserId());
+        stalled.setSentCount(1);
+        stalled = mailingRepository.save(stalled);
+
+        // Act
+        NewsletterMailing started = mailingService.start(newsletter.getNewsletterId());
+
+        // Assert
+        assertEquals(stalled.getId(), started.getId());
+        assertTrue(greenMail.waitForIncomingEmail(5000, 2));
+        long deadline = System.currentTimeMillis() + 5000;
+        NewsletterMailing mailing = mailingRepository.findById(stalled.getId()).orElseThrow();
+        while (mailing.getStatus() != NewsletterMailing.Status.COMPLETED && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+            mailing = mailingRepository.findById(stalled.getId()).orElseThrow();
+        }
+        assertEquals(NewsletterMailing.Status.COMPLETED, mailing.getStatus());
+        assertEquals(3, mailing.getSentCount());
+        assertEquals(1, mailingRepository.findByNewsletterIdOrderByIdDesc(newsletter.getNewsletterId()).size());
+        assertEquals(2, greenMail.getReceivedMessages().length);
+    }
+
+    /**
+     * Tests that a mailing leased by another node is not sent, until that lease has expired.
+     */
+    @Test
+    void run_LeasedElsewhere_IsNotSent() throws Exception {
+        // Arrange
+        Role role = roleRepository.save(new Role("READER", null));
+        User reader = saveUser(role, "Reader", "reader@example.com");
+        Newsletter newsletter = new Newsletter();
+        newsletter.setTitle("Leased news");
+        newsletter.setCreator(reader);
+        newsletter = newsletterRepository.save(newsletter);
+        NewsletterMailing leased = new NewsletterMailing();
+        leased.setNewsletterId(newsletter.getNewsletterId());
+        leased.setStatus(NewsletterMailing.Status.RUNNING);
+        leased.setCreatedAt(LocalDateTime.now());
+        leased.setLeaseOwner("other-node");
+        leased.setLeaseUntil(LocalDateTime.now().plusMinutes(5));
+        leased = mailingRepository.save(leased);
+
+        // Act
+        boolean sent = mailingService.run(leased.getId()).isPresent();
+        mailingRepository.renewLease(leased.getId(), "other-node", LocalDateTime.now().minusSeconds(1));
+        NewsletterMailing resumed = mailingService.run(leased.getId()).orElseThrow();
+
+        // Assert
+        assertFalse(sent);
+        assertEquals(NewsletterMailing.Status.COMPLETED, resumed.getStatus());
+        assertEquals(1, resumed.getSentCount());
+        assertTrue(greenMail.waitForIncomingEmail(5000, 1));
+        assertEquals(1, greenMail.getReceivedMessages().length);
+    }
+
+    /**
+     * Tests that the newsletter is rendered once and only the escaped first name differs between recipients.
+     */
+    @Test
+    void render_PersonalisesOnlyTheFirstName() {
+        // Arrange
+        Newsletter newsletter = new Newsletter();
+        newsletter.setTitle("Weekly <news>");
+        ArticleSummary article = new ArticleSummary();
+        article.setTitle("Story");
+        article.setContent("Line one\nLine two");
+
+        // Act
+        NewsletterMailingService.Template template = NewsletterMailingService.render(newsletter, List.of(article));
+
+        // Assert
+        assertTrue(template.personalise("Zoé").contains("<p>Dear Zoé,</p>"));
+        assertTrue(template.personalise("<b>").contains("<p>Dear &lt;b&gt;,</p>"));
+        assertTrue(template.personalise(null).contains("<p>Dear reader,</p>"));
+        assertTrue(template.before().contains("<h1>Weekly &lt;news&gt;</h1>"));
+        assertTrue(template.after().contains("Line one<br>Line two"));
+    }
+
+    private User saveUser(Role role, String firstName, String email) {
+        User user = new User();
+        user.setFirstName(firstName);
+        user.setEmail(email);
+        user.setRole(role);
+        return userRepository.save(user);
+    }
+
+    private void saveArticle(Newsletter newsletter, User author, String title, boolean valid) {
+        Article article = new Article();
+        article.setTitle(title);
+        article.setContent(title + " content");
+        article.setValid(valid);
+        article.setAuthor(author);
+        article.setNewsletter(newsletter);
+        articleRepository.save(article);
+    }
+
+    private static String recipient(MimeMessage message) throws MessagingException {
+        return message.getAllRecipients()[0].toString();
+    }
+
+    @TestConfiguration
+    static class Mail {
+
+        @Bean
+        JavaMailSender javaMailSender() {
+            JavaMailSenderImpl mailSender = new JavaMailSenderImpl();
+            mailSender.setHost("localhost");
+            mailSender.setPort(ServerSetupTest.SMTP.getPort());
+            return mailSender;
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package be.helha.journalapp.service;
+
+import be.helha.journalapp.model.Article;
+import be.helha.journalapp.model.Role;
+import be.helha.journalapp.model.User;
+import be.helha.journalapp.model.UserArticleRead;
+import be.helha.journalapp.repositories.UserArticleReadRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * This class contains tests for the {@link ReadEventWriter}.
+ * They run against an embedded H2 database; the background flushes are disabled, the tests flush themselves.
+ */
+@DataJpaTest
+@Import({ReadEventWriter.class, ReadEventWriterTest.Metrics.class})
+@TestPropertySource(properties = {
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "journalapp.read-state.flush-interval-ms=3600000"
+})
+class ReadEventWriterTest {
+
+    @Autowired
+    private ReadEventWriter readEventWriter;
+
+    @Autowired
+    private UserArticleReadRepository userArticleReadRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    /**
+     * Tests that events are upserted, one entry per user and article, and that only the last event of a pair is kept.
+     */
+    @Test
+    void flush_UpsertsOneEntryPerUserAndArticle() {
+        // Arrange
+        User reader = persistUser();
+        Article first = persistArticle(reader);
+        Article second = persistArticle(reader);
+        readEventWriter.enqueue(reader.getUserId(), first.getArticleId(), true);
+        readEventWriter.flush();
+
+        // Act
+        readEventWriter.enqueue(reader.getUserId(), first.getArticleId(), true);
+        readEventWriter.enqueue(reader.getUserId(), first.getArticleId(), false);
+        readEventWriter.enqueue(reader.getUserId(), second.getArticleId(), true);
+        Map<Long, Boolean> pending = readEventWriter.findPending(reader.getUserId());
+        int written = readEventWriter.flush();
+
+        // Assert
+        assertEquals(Map.of(first.getArticleId(), false, second.getArticleId(), true), pending);
+        assertEquals(2, written);
+        assertTrue(readEventWriter.findPending(reader.getUserId()).isEmpty());
+        entityManager.clear();
+        assertEquals(2, userArticleReadRepository.count());
+        UserArticleRead unread = userArticleReadRepository
+                .findByUserUserIdAndArticleArticleId(reader.getUserId(), first.getArticleId()).orElseThrow();
+        UserArticleRead read = userArticleReadRepository
+                .findByUserUserIdAndArticleArticleId(reader.getUserId(), second.getArticleId()).orElseThrow();
+        assertFalse(unread.isRead());
+        assertNull(unread.getReadAt());
+        assertTrue(read.isRead());
+        assertNotNull(read.getReadAt());
+    }
+
+    /**
+     * Tests that an event rejected by the database (an article that no longer exists) is dropped
+     * without losing the other events of the batch.
+     */
+    @Test
+    void flush_DropsRejectedEvents() {
+        // Arrange
+        User reader = persistUser();
+        Article article = persistArticle(reader);
+        readEventWriter.enqueue(reader.getUserId(), article.getArticleId(), true);
+        readEventWriter.enqueue(reader.getUserId(), article.getArticleId() + 1000, true);
+
+        // Act
+        int written = readEventWriter.flush();
+
+        // Assert
+        assertEquals(1, written);
+        assertEquals(0, readEventWriter.flush());
+        assertEquals(1, userArticleReadRepository.count());
+    }
+
+    /**
+     * Tests that events are refused, and counted, once the buffer holds the maximum number of events,
+     * while the events of articles already buffered still replace the previous ones.
+     */
+    @Test
+    void enqueue_RefusesEventsWhenBufferIsFull() {
+        // Arrange
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        ReadEventWriter writer = new ReadEventWriter(mock(JdbcTemplate.class), meterRegistry, 3_600_000, 500, 2, 3);
+        writer.enqueue(1L, List.of(10L, 11L), true);
+
+        // Act
+        IllegalStateException refused = assertThrows(IllegalStateException.class,
+                () -> writer.enqueue(2L, List.of(10L, 11L), true));
+        writer.enqueue(1L, 10L, false);
+
+        // Assert
+        assertNotNull(refused.getMessage());
+        assertEquals(Map.of(10L, false, 11L, true), writer.findPending(1L));
+        assertTrue(writer.findPending(2L).isEmpty());
+        assertEquals(2, meterRegistry.get("read.events.pending").gauge().value());
+        assertEquals(2, meterRegistry.get("read.events.discarded").tag("reason", "buffer-full").counter().count());
+    }
+
+    /**
+     * Tests that a batch the database keeps failing to write is retried, then dropped after the maximum number
+     * of attempts, so the buffer accepts events again.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    void flush_DropsBatchAfterMaxAttempts() {
+        // Arrange
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        JdbcTemplate failingJdbcTemplate = mock(JdbcTemplate.class);
+        when(failingJdbcTemplate.batchUpdate(anyString(), anyCollection(), anyInt(),
+                any(ParameterizedPreparedStatementSetter.class)))
+                .thenThrow(new DataAccessResourceFailureException("database down"));
+        ReadEventWriter writer = new ReadEventWriter(failingJdbcTemplate, meterRegistry, 3_600_000, 500, 2, 3);
+        writer.enqueue(1L, List.of(10L, 11L), true);
+
+        // Act
+        assertThrows(DataAccessResourceFailureException.class, writer::flush);
+        assertThrows(DataAccessResourceFailureException.class, writer::flush);
+        int written = writer.flush();
+
+        // Assert
+        assertEquals(0, written);
+        assertTrue(writer.findPending(1L).isEmpty());
+        assertEquals(2, meterRegistry.get("read.events.discarded").tag("reason", "write-failed").counter().count());
+        writer.enqueue(1L, List.of(10L, 11L), true);
+    }
+
+    private User persistUser() {
+        Role role = new Role("READER", null);
+        entityManager.persist(role);
+        User user = new User();
+        user.setRole(role);
+        entityManager.persist(user);
+        return user;
+    }
+
+    private Article persistArticle(User author) {
+        Article article = new Article();
+        article.setTitle("Article");
+        article.setValid(true);
+        article.setAuthor(author);
+        entityManager.persist(article);
+        entityManager.flush();
+        return article;
+    }
+
+    /**
+     * Provides the meter registry that {@link DataJpaTest} does not configure.
+     */
+    @TestConfiguration
+    static class Metrics {
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+}
@@ -0,0 +1,261 @@
+package be.helha.journalapp.service;
+
+import be.helha.journalapp.model.Article;
+import be.helha.journalapp.model.Newsletter;
+import be.helha.journalapp.model.Role;
+import be.helha.journalapp.model.User;
+import be.helha.journalapp.model.UserArticleRead;
+import be.helha.journalapp.repositories.ArticleRepository;
+import be.helha.journalapp.repositories.UserArticleReadRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Benchmark of the {@link ReadStateService} against the {@link UserArticleReadRepository} queries it replaces.
+ * <p>
+ * It only runs when the {@code JOURNALAPP_BENCHMARK} environment variable is {@code true}
+ * ({@code JOURNALAPP_BENCHMARK=true gradle test --tests '*ReadStateBenchmarkTest'}) and prints its results.
+ * Latencies are measured on the embedded H2 database, which has no network round trip:
+ * against PostgreSQL the repository queries are slower still.
+ */
+@DataJpaTest
+@EnabledIfEnvironmentVariable(named = "JOURNALAPP_BENCHMARK", matches = "true")
+@TestPropertySource(properties = {
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+class ReadStateBenchmarkTest {
+
+    private static final int USERS = 200;
+    private static final int ARTICLES = 2_000;
+    private static final int READS_PER_USER = 500;
+    private static final int LOOKUPS = 10_000;
+    private static final int HEAVY_READS = 12_000;
+
+    @Autowired
+    private UserArticleReadRepository userArticleReadRepository;
+
+    @Autowired
+    private ArticleRepository articleRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    /**
+     * Measures the memory used by the bitmaps for one million read events, spread over 2,000 users
+     * reading 500 of 20,000 articles each.
+     */
+    @Test
+    void memoryPerMillionReadEvents() {
+        Random random = new Random(42);
+        long bytes = 0;
+        long events = 0;
+        for (int user = 0; user < 2_000; user++) {
+            RoaringBitmap bitmap = new RoaringBitmap();
+            while (bitmap.getCardinality() < 500) {
+                bitmap.add(1 + random.nextInt(20_000));
+            }
+            bitmap.runOptimize();
+            bytes += bitmap.getSizeInBytes();
+            events += bitmap.getCardinality();
+        }
+
+        System.out.printf("Read state: %,d read events held in %,d bytes (%.2f bytes per event)%n",
+                events, bytes, (double) bytes / events);
+        assertEquals(1_000_000, events);
+    }
+
+    /**
+     * Compares the latency of "has read" and "list read" between the bitmaps and the repository queries,
+     * with {@value #USERS} users having read {@value #READS_PER_USER} of {@value #ARTICLES} articles each.
+     */
+    @Test
+    void queryLatency() {
+        // Arrange
+        long[] userIds = persistReads();
+        ReadStateService readStateService = new ReadStateService(userArticleReadRepository, articleRepository,
+                new ReadEventWriter(jdbcTemplate, new SimpleMeterRegistry(), 3_600_000, 500, 100_000, 20), new SimpleMeterRegistry(), 256L * 1024 * 1024,
+                Duration.ofMinutes(5), Duration.ofMinutes(1));
+        long firstArticleId = jdbcTemplate.queryForObject("SELECT MIN(article_id) FROM article", Long.class);
+        Random random = new Random(7);
+        long[][] lookups = new long[LOOKUPS][];
+        for (int i = 0; i < LOOKUPS; i++) {
+            lookups[i] = new long[]{userIds[random.nextInt(USERS)], firstArticleId + random.nextInt(ARTICLES)};
+        }
+        for (long userId : userIds) {
+            readStateService.hasRead(userId, firstArticleId);
+        }
+
+        // Act
+        long bitmapHasRead = time(() -> count(lookups, l -> readStateService.hasRead(l[0], l[1])));
+        long repositoryHasRead = time(() -> count(lookups, l -> userArticleReadRepository
+                .findByUserUserIdAndArticleArticleId(l[0], l[1]).isPresent()));
+        long bitmapListRead = time(() -> {
+            long total = 0;
+            for (long userId : userIds) {
+                total += readStateService.findReadArticleIds(userId).size();
+            }
+            return total;
+        });
+        long repositoryListRead = time(() -> {
+            long total = 0;
+            for (long userId : userIds) {
+                entityManager.clear();
+                total += userArticleReadRepository.findByUserUserIdAndIsReadTrue(userId).size();
+            }
+            return total;
+        });
+
+        // Assert
+        System.out.printf("has read, %,d lookups: bitmap %,d µs, repository %,d µs%n",
+                LOOKUPS, bitmapHasRead / 1_000, repositoryHasRead / 1_000);
+        System.out.printf("list read, %,d users: bitmap %,d µs, repository %,d µs%n",
+                USERS, bitmapListRead / 1_000, repositoryListRead / 1_000);
+        assertEquals(READS_PER_USER, readStateService.findReadArticleIds(userIds[0]).size());
+    }
+
+    /**
+     * Compares listing the read articles of a user who read {@value #HEAVY_READS} articles through the former
+     * entity mapping ({@code findByUserUserIdAndIsReadTrue} then {@code getArticle()}) and through the
+     * paginated summary query of {@code GET /articles/read}.
+     */
+    @Test
+    void readListOfHeavyReader() {
+        // Arrange
+        Role role = new Role("READER", null);
+        entityManager.persist(role);
+        User reader = new User();
+        reader.setRole(role);
+        entityManager.persist(reader);
+        List<Object[]> rows = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < HEAVY_READS; i++) {
+            User author = new User();
+            author.setRole(role);
+            entityManager.persist(author);
+            Newsletter newsletter = new Newsletter();
+            newsletter.setTitle("Newsletter " + i);
+            newsletter.setCreator(author);
+            entityManager.persist(newsletter);
+            Article article = new Article();
+            article.setTitle("Article " + i);
+            article.setValid(true);
+            article.setAuthor(author);
+            article.setNewsletter(newsletter);
+            entityManager.persist(article);
+            rows.add(new Object[]{reader.getUserId(), article.getArticleId(), Timestamp.valueOf(now.minusSeconds(i))});
+        }
+        entityManager.flush();
+        entityManager.clear();
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO user_article_read (user_id, article_id, is_read, read_at) VALUES (?, ?, true, ?)", rows);
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        // Act
+        statistics.clear();
+        long legacyTime = time(() -> userArticleReadRepository.findByUserUserIdAndIsReadTrue(reader.getUserId())
+                .stream().map(UserArticleRead::getArticle).count());
+        long legacyStatements = statistics.getPrepareStatementCount();
+        entityManager.clear();
+
+        statistics.clear();
+        long firstPageTime = time(() -> userArticleReadRepository.findReadSummariesByUserId(
+                reader.getUserId(), PageRequest.of(0, 20)).size());
+        long firstPageStatements = statistics.getPrepareStatementCount();
+        long lastPageTime = time(() -> userArticleReadRepository.findReadSummariesByUserId(
+                reader.getUserId(), PageRequest.of(HEAVY_READS / 100 - 1, 100)).size());
+
+        // Assert
+        System.out.printf("read list, %,d read articles: entities %,d µs in %,d statements; "
+                        + "first page of 20 %,d µs in %,d statement(s); last page of 100 %,d µs%n",
+                HEAVY_READS, legacyTime / 1_000, legacyStatements, firstPageTime / 1_000, firstPageStatements,
+                lastPageTime / 1_000);
+        assertEquals(1, firstPageStatements);
+    }
+
+    /**
+     * Persists the users and articles, then their read entries through JDBC batches.
+     *
+     * @return The IDs of the users.
+     */
+    private long[] persistReads() {
+        Role role = new Role("READER", null);
+        entityManager.persist(role);
+        long[] userIds = new long[USERS];
+        for (int i = 0; i < USERS; i++) {
+            User user = new User();
+            user.setRole(role);
+            entityManager.persist(user);
+            userIds[i] = user.getUserId();
+        }
+        List<Long> articleIds = new ArrayList<>();
+        for (int i = 0; i < ARTICLES; i++) {
+            Article article = new Article();
+            article.setTitle("Article " + i);
+            article.setValid(true);
+            article.setAuthor(entityManager.getReference(User.class, userIds[0]));
+            entityManager.persist(article);
+            articleIds.add(article.getArticleId());
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        Random random = new Random(13);
+        for (long userId : userIds) {
+            List<Long> shuffled = new ArrayList<>(articleIds);
+            Collections.shuffle(shuffled, random);
+            List<Object[]> rows = new ArrayList<>();
+            for (Long articleId : shuffled.subList(0, READS_PER_USER)) {
+                rows.add(new Object[]{userId, articleId});
+            }
+            jdbcTemplate.batchUpdate("INSERT INTO user_article_read (user_id, article_id, is_read) VALUES (?, ?, true)",
+                    rows);
+        }
+        return userIds;
+    }
+
+    private static long count(long[][] lookups, Predicate<long[]> hasRead) {
+        long read = 0;
+        for (long[] lookup : lookups) {
+            if (hasRead.test(lookup)) {
+                read++;
+            }
+        }
+        return read;
+    }
+
+    private static long time(LongSupplier task) {
+        long start = System.nanoTime();
+        assertTrue(task.getAsLong() >= 0);
+        return System.nanoTime() - start;
+    }
+}
@@ -0,0 +1,269 @@
+package be.helha.journalapp.service;
+
+import be.helha.journalapp.dto.ArticleSummary;
+import be.helha.journalapp.model.Article;
+import be.helha.journalapp.model.Role;
+import be.helha.journalapp.model.User;
+import be.helha.journalapp.repositories.ArticleRepository;
+import be.helha.journalapp.repositories.UserArticleReadRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * This class contains tests for the {@link ReadStateService}.
+ * They run against an embedded H2 database, so the read entries really are the durable record of the bitmaps.
+ * The background flushes of the {@link ReadEventWriter} are disabled: the tests flush inside their transaction.
+ */
+@DataJpaTest
+@Import({ReadStateService.class, ReadEventWriter.class, ReadStateServiceTest.Metrics.class})
+@TestPropertySource(properties = {
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "journalapp.read-state.flush-interval-ms=3600000"
+})
+class ReadStateServiceTest {
+
+    @Autowired
+    private ReadStateService readStateService;
+
+    @Autowired
+    private UserArticleReadRepository userArticleReadRepository;
+
+    @Autowired
+    private ReadEventWriter readEventWriter;
+
+    @Autowired
+    private ArticleRepository articleRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Tests that a change is applied to a loaded bitmap without loading it again.
+     */
+    @Test
+    void setRead_UpdatesLoadedBitmap() {
+        // Arrange
+        User reader = persistUser();
+        Article article = persistArticle(reader, true);
+        double missesBefore = misses();
+        boolean before = readStateService.hasRead(reader.getUserId(), article.getArticleId());
+
+        // Act
+        readStateService.setRead(reader.getUserId(), article.getArticleId(), true);
+        boolean afterRead = readStateService.hasRead(reader.getUserId(), article.getArticleId());
+        readStateService.setRead(reader.getUserId(), article.getArticleId(), false);
+        boolean afterUnread = readStateService.hasRead(reader.getUserId(), article.getArticleId());
+
+        // Assert
+        assertFalse(before);
+        assertTrue(afterRead);
+        assertFalse(afterUnread);
+        assertEquals(1.0, misses() - missesBefore);
+        assertEquals(1, readEventWriter.flush());
+        assertEquals(1, userArticleReadRepository.count());
+    }
+
+    /**
+     * Tests that a bitmap is rebuilt from the read entries when it is not cached.
+     */
+    @Test
+    void findReadArticleIds_RebuildsBitmapFromEntries() {
+        // Arrange
+        User reader = persistUser();
+        Article first = persistArticle(reader, true);
+        Article second = persistArticle(reader, true);
+        persistArticle(reader, true);
+        readStateService.setRead(reader.getUserId(), second.getArticleId(), true);
+        readStateService.setRead(reader.getUserId(), first.getArticleId(), true);
+        readEventWriter.flush();
+        ReadStateService restarted = restartedService();
+
+        // Act
+        List<Long> readArticleIds = restarted.findReadArticleIds(reader.getUserId());
+
+        // Assert
+        assertEquals(List.of(first.getArticleId(), second.getArticleId()), readArticleIds);
+    }
+
+    /**
+     * Tests that changes are visible before they are written, including to a bitmap loaded in the meantime.
+     */
+    @Test
+    void setRead_IsVisibleBeforeFlush() {
+        // Arrange
+        User reader = persistUser();
+        Article first = persistArticle(reader, true);
+        Article second = persistArticle(reader, true);
+        readStateService.setRead(reader.getUserId(), List.of(first.getArticleId(), second.getArticleId()), true);
+        readEventWriter.flush();
+        readStateService.setRead(reader.getUserId(), first.getArticleId(), false);
+
+        // Act
+        ReadStateService restarted = restartedService();
+        boolean firstRead = restarted.hasRead(reader.getUserId(), first.getArticleId());
+        boolean secondRead = restarted.hasRead(reader.getUserId(), second.getArticleId());
+
+        // Assert
+        assertFalse(firstRead);
+        assertTrue(secondRead);
+        assertTrue(userArticleReadRepository.findReadArticleIdsByUserId(reader.getUserId())
+                .contains(first.getArticleId()), "the unread change should not be written yet");
+    }
+
+    /**
+     * Tests that the pages of read articles include the changes not written yet, without writing them:
+     * an article marked as read since comes first, and an article marked as unread since is left out.
+     */
+    @Test
+    void findReadArticles_MergesPendingChanges() {
+        // Arrange
+        User reader = persistUser();
+        Article unread = persistArticle(reader, true);
+        Article written = persistArticle(reader, true);
+        Article pendingRead = persistArticle(reader, true);
+        Article older = persistArticle(reader, true);
+        readStateService.setRead(reader.getUserId(), older.getArticleId(), true);
+        readEventWriter.flush();
+        readStateService.setRead(reader.getUserId(), List.of(unread.getArticleId(), written.getArticleId()), true);
+        readEventWriter.flush();
+        readStateService.setRead(reader.getUserId(), unread.getArticleId(), false);
+        readStateService.setRead(reader.getUserId(), pendingRead.getArticleId(), true);
+
+        // Act
+        List<ArticleSummary> firstPage = readStateService.findReadArticles(reader.getUserId(), 0, 2);
+        List<ArticleSummary> secondPage = readStateService.findReadArticles(reader.getUserId(), 1, 2);
+        List<ArticleSummary> middle = readStateService.findReadArticles(reader.getUserId(), 1, 1);
+
+        // Assert
+        assertEquals(List.of(pendingRead.getArticleId(), written.getArticleId()), ids(firstPage));
+        assertEquals(List.of(older.getArticleId()), ids(secondPage));
+        assertEquals(List.of(written.getArticleId()), ids(middle));
+        assertEquals(3, userArticleReadRepository.count(), "the pending changes should not be written");
+    }
+
+    /**
+     * Tests that a bitmap is reloaded once its time to live has elapsed, so that the changes recorded by another
+     * node are seen, even though changes made on this node were applied to it in the meantime.
+     */
+    @Test
+    void hasRead_SeesChangesOfOtherNodesAfterTtl() throws InterruptedException {
+        // Arrange
+        User reader = persistUser();
+        Article first = persistArticle(reader, true);
+        Article second = persistArticle(reader, true);
+        ReadStateService thisNode = new ReadStateService(userArticleReadRepository, articleRepository,
+                readEventWriter, new SimpleMeterRegistry(), 1024 * 1024, Duration.ofMillis(300), Duration.ofMinutes(1));
+        ReadEventWriter otherWriter = new ReadEventWriter(jdbcTemplate, new SimpleMeterRegistry(), 3_600_000, 500, 100_000, 20);
+        ReadStateService otherNode = new ReadStateService(userArticleReadRepository, articleRepository,
+                otherWriter, new SimpleMeterRegistry(), 1024 * 1024, Duration.ofMinutes(5), Duration.ofMinutes(1));
+        boolean before = thisNode.hasRead(reader.getUserId(), first.getArticleId());
+
+        // Act
+        otherNode.setRead(reader.getUserId(), first.getArticleId(), true);
+        otherWriter.flush();
+        thisNode.setRead(reader.getUserId(), second.getArticleId(), true);
+        boolean beforeTtl = thisNode.hasRead(reader.getUserId(), first.getArticleId());
+        Thread.sleep(400);
+        boolean afterTtl = thisNode.hasRead(reader.getUserId(), first.getArticleId());
+
+        // Assert
+        assertFalse(before);
+        assertFalse(beforeTtl);
+        assertTrue(afterTtl);
+        assertTrue(thisNode.hasRead(reader.getUserId(), second.getArticleId()));
+    }
+
+    /**
+     * Tests that only valid articles are counted as unread, and that the count follows validations.
+     */
+    @Test
+    void countUnread_CountsValidArticlesNotRead() {
+        // Arrange
+        User reader = persistUser();
+        Article read = persistArticle(reader, true);
+        persistArticle(reader, true);
+        Article draft = persistArticle(reader, false);
+        readStateService.setRead(reader.getUserId(), read.getArticleId(), true);
+        readStateService.setRead(reader.getUserId(), draft.getArticleId(), true);
+
+        // Act
+        long beforeValidation = readStateService.countUnread(reader.getUserId());
+        persistArticle(reader, true);
+        readStateService.publishedArticlesChanged();
+        long afterValidation = readStateService.countUnread(reader.getUserId());
+
+        // Assert
+        assertEquals(1, beforeValidation);
+        assertEquals(2, afterValidation);
+    }
+
+    /**
+     * Creates a service with empty caches, sharing the read entries and the pending changes of the tested one.
+     *
+     * @return The new service.
+     */
+    private ReadStateService restartedService() {
+        return new ReadStateService(userArticleReadRepository, articleRepository, readEventWriter,
+                new SimpleMeterRegistry(), 1024 * 1024, Duration.ofMinutes(5), Duration.ofMinutes(1));
+    }
+
+    private static List<Long> ids(List<ArticleSummary> summaries) {
+        return summaries.stream().map(ArticleSummary::getArticleId).toList();
+    }
+
+    private double misses() {
+        return meterRegistry.get("cache.gets").tag("cache", "readStates").tag("result", "miss")
+                .functionCounter().count();
+    }
+
+    private User persistUser() {
+        Role role = new Role("READER", null);
+        entityManager.persist(role);
+        User user = new User();
+        user.setRole(role);
+        entityManager.persist(user);
+        return user;
+    }
+
+    private Article persistArticle(User author, boolean valid) {
+        Article article = new Article();
+        article.setTitle("Article");
+        article.setValid(valid);
+        article.setAuthor(author);
+        entityManager.persist(article);
+        entityManager.flush();
+        return article;
+    }
+
+    /**
+     * Provides the meter registry that {@link DataJpaTest} does not configure.
+     */
+    @TestConfiguration
+    static class Metrics {
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package be.helha.journalapp.storage;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * This class contains unit tests for the {@link LocalFileSystemBlobStore}.
+ */
+class LocalFileSystemBlobStoreTest {
+
+    private static final byte[] CONTENT = "image content".getBytes(StandardCharsets.UTF_8);
+    private static final String UNKNOWN_HASH = "0000000000000000000000000000000000000000000000000000000000000000";
+
+    @TempDir
+    Path root;
+
+    private LocalFileSystemBlobStore blobStore;
+
+    /**
+     * Creates a blob store in a temporary directory before each test.
+     */
+    @BeforeEach
+    void setUp() {
+        blobStore = new LocalFileSystemBlobStore(root.toString());
+    }
+
+    /**
+     * Tests that content is stored under its SHA-256 hash, in a sharded directory, and can be read back.
+     */
+    @Test
+    void put_StoresContentUnderItsHash() throws Exception {
+        // Act
+        String hash = blobStore.put(new ByteArrayInputStream(CONTENT));
+
+        // Assert
+        assertTrue(hash.matches("[0-9a-f]{64}"));
+        assertTrue(Files.isRegularFile(root.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash)));
+        assertTrue(blobStore.exists(hash));
+        assertEquals(CONTENT.length, blobStore.size(hash));
+        try (InputStream in = blobStore.open(hash)) {
+            assertArrayEquals(CONTENT, in.readAllBytes());
+        }
+    }
+
+    /**
+     * Tests that storing the same content twice keeps a single file and leaves no temporary file behind.
+     */
+    @Test
+    void put_SameContentTwice_KeepsOneCopy() throws Exception {
+        // Act
+        String first = blobStore.put(new ByteArrayInputStream(CONTENT));
+        String second = blobStore.put(new ByteArrayInputStream(CONTENT));
+
+        // Assert
+        assertEquals(first, second);
+        try (var files = Files.walk(root)) {
+            assertEquals(1, files.filter(Files::isRegularFile).count());
+        }
+    }
+
+    /**
+     * Tests that a blob is copied to a channel unchanged.
+     */
+    @Test
+    void transferTo_CopiesBlob() throws Exception {
+        // Arrange
+        String hash = blobStore.put(new ByteArrayInputStream(CONTENT));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // Act
+        long written = blobStore.transferTo(hash, Channels.newChannel(out));
+
+        // Assert
+        assertEquals(CONTENT.length, written);
+        assertArrayEquals(CONTENT, out.toByteArray());
+    }
+
+    /**
+     * Tests that unknown or malformed hashes are rejected, which prevents reading files outside the store.
+     */
+    @Test
+    void open_InvalidHash_Rejected() {
+        // Assert
+        assertFalse(blobStore.exists(UNKNOWN_HASH));
+        assertFalse(blobStore.exists("../../etc/passwd"));
+        assertThrows(IllegalArgumentException.class, () -> blobStore.open("../../etc/passwd"));
+    }
+}